@@ -0,0 +1,123 @@
+package JUnitTesting;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import shared.net.BitReader;
+import shared.net.BitWriter;
+
+/**
+ * Test for the bit packed writer and reader
+ * @author Chris
+ *
+ */
+public class BitWriterTest {
+
+	ByteArrayOutputStream bytes = null;
+
+	BitWriter out = null;
+
+	@Before
+	public void setUp() throws Exception {
+
+		bytes = new ByteArrayOutputStream();
+
+		out = new BitWriter(bytes);
+
+	}
+
+	private BitReader read() throws Exception {
+
+		out.flush();
+
+		return new BitReader(new ByteArrayInputStream(bytes.toByteArray()));
+
+	}
+
+	@Test
+	public void testBitsArePacked() throws Exception {
+
+		out.writeBits(5, 3);
+		out.writeBoolean(true);
+		out.writeBits(0x1234, 13);
+
+		BitReader in = read();
+
+		assertEquals("Check 17 bits take 3 bytes", 3, bytes.size());
+
+		assertEquals("Check the 3 bit value", 5, in.readBits(3));
+		assertTrue("Check the boolean", in.readBoolean());
+		assertEquals("Check the 13 bit value", 0x1234, in.readBits(13));
+
+	}
+
+	@Test
+	public void testVariableLengthValues() throws Exception {
+
+		out.writeVarLong(0);
+		out.writeVarLong(127);
+		out.writeVarLong(128);
+		out.writeSignedVarLong(-1);
+		out.writeSignedVarLong(Long.MIN_VALUE);
+		out.writeLong(Long.MAX_VALUE);
+
+		BitReader in = read();
+
+		assertEquals("Check zero", 0, in.readVarLong());
+		assertEquals("Check the largest one group value", 127, in.readVarLong());
+		assertEquals("Check the smallest two group value", 128, in.readVarLong());
+		assertEquals("Check a small negative value", -1, in.readSignedVarLong());
+		assertEquals("Check the smallest long", Long.MIN_VALUE, in.readSignedVarLong());
+		assertEquals("Check a full long", Long.MAX_VALUE, in.readLong());
+
+	}
+
+	@Test
+	public void testSmallValuesTakeOneByte() throws Exception {
+
+		out.writeVarLong(100);
+		out.writeSignedVarLong(-50);
+		out.flush();
+
+		assertEquals("Check each small value takes one byte", 2, bytes.size());
+
+	}
+
+	@Test
+	public void testUnalignedDataStream() throws Exception {
+
+		out.writeBoolean(true);
+		out.getDataOutputStream().writeUTF("flag");
+		out.getDataOutputStream().writeFloat(1.5f);
+
+		BitReader in = read();
+
+		assertTrue("Check the leading bit", in.readBoolean());
+		assertEquals("Check a string written off a byte boundary", "flag", in.getDataInputStream().readUTF());
+		assertEquals("Check a float written off a byte boundary", 1.5f, in.getDataInputStream().readFloat(), 0.0f);
+
+		in.alignToByte();
+		assertEquals("Check only the padding is left", -1, in.read());
+
+	}
+
+	@Test
+	public void testInvalidBitCount() throws Exception {
+
+		try {
+
+			out.writeBits(0, 33);
+			fail("Check more than 32 bits at once is rejected");
+
+		} catch (IllegalArgumentException e) {
+
+		}
+
+	}
+
+}
@@ -0,0 +1,62 @@
+package JUnitTesting;
+
+import static org.junit.Assert.*;
+
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import shared.net.BufferPool;
+import shared.net.ByteBufferOutputStream;
+
+/**
+ * Test for the pooled byte buffer output stream
+ * @author Chris
+ *
+ */
+public class ByteBufferOutputStreamTest {
+
+	BufferPool pool = null;
+
+	@Before
+	public void setUp() throws Exception {
+
+		pool = new BufferPool(16, 4);
+
+	}
+
+	@Test
+	public void testGrowsPastPooledBufferSize() throws Exception {
+
+		ByteBufferOutputStream stream = new ByteBufferOutputStream(pool);
+		DataOutputStream out = new DataOutputStream(stream);
+
+		for (int i = 0; i < 100; i++)
+			out.writeInt(i);
+
+		ByteBuffer written = stream.takeBuffer();
+
+		assertEquals("Check every byte was kept", 400, written.remaining());
+
+		for (int i = 0; i < 100; i++)
+			assertEquals("Check the values are in order", i, written.getInt());
+
+	}
+
+	@Test
+	public void testReleasedBuffersAreReused() {
+
+		ByteBuffer buffer = pool.acquire();
+		pool.release(buffer);
+
+		assertSame("Check a released buffer is handed out again", buffer, pool.acquire());
+
+		ByteBuffer large = pool.acquire(100);
+
+		assertTrue("Check a large request gets a large enough buffer", large.capacity() >= 100);
+
+	}
+
+}
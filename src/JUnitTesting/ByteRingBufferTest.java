@@ -0,0 +1,118 @@
+package JUnitTesting;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.junit.Test;
+
+import server.net.ByteRingBuffer;
+
+/**
+ * Test for the connection write ring buffer
+ * @author Chris
+ *
+ */
+public class ByteRingBufferTest {
+
+	/**
+	 * Adapts a stream channel so it can be used for gathering writes.
+	 */
+	private static class GatheringStreamChannel implements GatheringByteChannel {
+
+		private final WritableByteChannel channel;
+
+		public GatheringStreamChannel(ByteArrayOutputStream out) {
+			this.channel = Channels.newChannel(out);
+		}
+
+		public long write(ByteBuffer[] srcs, int offset, int length) throws java.io.IOException {
+			long written = 0;
+			for (int i = offset; i < offset + length; i++)
+				written += this.channel.write(srcs[i]);
+			return written;
+		}
+
+		public long write(ByteBuffer[] srcs) throws java.io.IOException {
+			return write(srcs, 0, srcs.length);
+		}
+
+		public int write(ByteBuffer src) throws java.io.IOException {
+			return this.channel.write(src);
+		}
+
+		public boolean isOpen() {
+			return true;
+		}
+
+		public void close() {
+		}
+
+	}
+
+	private static ByteBuffer bytes(int from, int count) {
+
+		ByteBuffer buffer = ByteBuffer.allocate(count);
+
+		for (int i = 0; i < count; i++)
+			buffer.put((byte)(from + i));
+
+		buffer.flip();
+
+		return buffer;
+
+	}
+
+	@Test
+	public void testWrappedDataIsWrittenInOrder() throws Exception {
+
+		ByteRingBuffer ring = new ByteRingBuffer(8);
+
+		ring.put(bytes(0, 6));
+		ring.skip(4);
+
+		// Wraps around the end of the array
+		ring.put(bytes(6, 5));
+
+		assertEquals("Check the buffer didn't need to grow", 8, ring.capacity());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ring.writeTo(new GatheringStreamChannel(out));
+
+		byte[] written = out.toByteArray();
+
+		assertEquals("Check every unread byte was written", 7, written.length);
+
+		for (int i = 0; i < written.length; i++)
+			assertEquals("Check the bytes are in order", 4 + i, written[i]);
+
+		assertEquals("Check the buffer is empty", 0, ring.size());
+
+	}
+
+	@Test
+	public void testGrowKeepsOrder() throws Exception {
+
+		ByteRingBuffer ring = new ByteRingBuffer(8);
+
+		ring.put(bytes(0, 6));
+		ring.skip(4);
+		ring.put(bytes(6, 20));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ring.writeTo(new GatheringStreamChannel(out));
+
+		byte[] written = out.toByteArray();
+
+		assertEquals("Check every unread byte was written", 22, written.length);
+
+		for (int i = 0; i < written.length; i++)
+			assertEquals("Check the bytes are in order", 4 + i, written[i]);
+
+	}
+
+}
@@ -0,0 +1,98 @@
+package JUnitTesting;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import client.ClientWorld;
+import shared.EntityIDMap;
+import shared.entities.Flag;
+
+/**
+ * Test for the entity ID map
+ * @author Chris
+ *
+ */
+public class EntityIDMapTest {
+
+	ClientWorld clientWorld = null;
+
+	EntityIDMap map = null;
+
+	@Before
+	public void setUp() throws Exception {
+
+		clientWorld = new ClientWorld(null);
+
+		map = new EntityIDMap();
+
+	}
+
+	private Flag createEntity(int id) {
+
+		Flag flag = new Flag(clientWorld, 0, 0);
+		flag.setID(id);
+
+		return flag;
+
+	}
+
+	@Test
+	public void testPutAndGet() {
+
+		Flag flag = createEntity(7);
+
+		map.put(flag);
+
+		assertEquals("Check the entity is found by its ID", flag, map.get(7));
+		assertNull("Check an unknown ID is not found", map.get(8));
+		assertNull("Check a negative ID is not found", map.get(-1));
+
+	}
+
+	@Test
+	public void testGrowAndRemove() {
+
+		ArrayList<Flag> flags = new ArrayList<Flag>();
+
+		for (int i = 0; i < 1000; i++) {
+			Flag flag = createEntity(i);
+			flags.add(flag);
+			map.put(flag);
+		}
+
+		assertEquals("Check every entity was stored", 1000, map.size());
+
+		// Remove every other entity
+		for (int i = 0; i < 1000; i += 2)
+			map.remove(flags.get(i));
+
+		assertEquals("Check half the entities were removed", 500, map.size());
+
+		for (int i = 0; i < 1000; i++) {
+			if (i % 2 == 0)
+				assertNull("Check removed entities are not found", map.get(i));
+			else
+				assertEquals("Check remaining entities are still found", flags.get(i), map.get(i));
+		}
+
+	}
+
+	@Test
+	public void testRemoveIgnoresReplacedEntity() {
+
+		Flag oldFlag = createEntity(3);
+		Flag newFlag = createEntity(3);
+
+		map.put(oldFlag);
+		map.put(newFlag);
+		map.remove(oldFlag);
+
+		assertEquals("Check removing a replaced entity leaves the new entity", newFlag, map.get(3));
+
+	}
+
+}
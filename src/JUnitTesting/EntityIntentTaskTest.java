@@ -0,0 +1,103 @@
+package JUnitTesting;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import client.ClientWorld;
+import client.WorldView;
+import server.EntityIntentTask;
+import shared.Entity;
+import shared.World;
+
+/**
+ * Test for computing entity intents in parallel partitions
+ * @author Chris
+ *
+ */
+public class EntityIntentTaskTest {
+
+	ForkJoinPool pool = new ForkJoinPool(4);
+
+	World world = new ClientWorld(null);
+
+	/**
+	 * Entity that counts how many times its intent is computed
+	 */
+	static class CountingEntity extends Entity {
+
+		AtomicInteger intentCount = new AtomicInteger();
+
+		CountingEntity(World world) {
+
+			super(world, 0, 0);
+
+		}
+
+		@Override
+		public void computeIntent(int delta) {
+
+			intentCount.incrementAndGet();
+
+		}
+
+		@Override
+		public void update(int delta) {
+		}
+
+		@Override
+		public void render(WorldView view) {
+		}
+
+	}
+
+	private CountingEntity[] createEntities(int count) {
+
+		CountingEntity[] entities = new CountingEntity[count];
+
+		for (int i = 0; i < count; i++)
+			entities[i] = new CountingEntity(world);
+
+		return entities;
+
+	}
+
+	@Test
+	public void testEveryEntityComputedOnce() {
+
+		int[] counts = { 0, 1, EntityIntentTask.PARTITION_SIZE, EntityIntentTask.PARTITION_SIZE + 1, 1000 };
+
+		for (int count : counts) {
+
+			CountingEntity[] entities = createEntities(count);
+
+			pool.invoke(new EntityIntentTask(entities, 0, count, 17));
+
+			for (int i = 0; i < count; i++)
+				assertEquals("Entity " + i + " of " + count + " should have its intent computed once", 1, entities[i].intentCount.get());
+
+		}
+
+	}
+
+	@Test
+	public void testOnlyRangeComputed() {
+
+		CountingEntity[] entities = createEntities(100);
+
+		pool.invoke(new EntityIntentTask(entities, 10, 90, 17));
+
+		for (int i = 0; i < entities.length; i++) {
+
+			int expected = (i >= 10 && i < 90) ? 1 : 0;
+
+			assertEquals("Only entities in the range should have their intent computed", expected, entities[i].intentCount.get());
+
+		}
+
+	}
+
+}
@@ -11,6 +11,7 @@ import org.junit.Test;
 
 import client.ClientWorld;
 import shared.entities.Player;
+import shared.net.NetworkedEntityField;
 
 /**
  * Test for the entity class
@@ -42,5 +43,26 @@ public class EntityTest {
 
 	}
 
+	@Test
+	public void testNetworkedEntityFieldLookup() {
+		
+		ClientWorld clientWorld = new ClientWorld(null);
+		
+		playerEntity = new Player(clientWorld, 0, 0);
+		
+		assertTrue("Checks the player registered its networked fields", playerEntity.getNetworkedEntityFieldCount() > 0);
+		
+		for (int i = 0; i < playerEntity.getNetworkedEntityFieldCount(); i++) {
+			
+			NetworkedEntityField field = playerEntity.getNetworkedEntityField(i);
+			
+			assertNotNull("Checks every field ID has a field", field);
+			assertEquals("Checks the field is stored under its own field ID", i, field.getFieldID());
+			
+		}
+		
+		assertNull("Checks an unknown field ID has no field", playerEntity.getNetworkedEntityField(playerEntity.getNetworkedEntityFieldCount()));
+		
+	}
 
 }
@@ -0,0 +1,165 @@
+package JUnitTesting;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.util.vector.Vector2f;
+
+import client.ClientWorld;
+import server.net.EntityUpdateFrame;
+import shared.Entity;
+import shared.entities.Flag;
+import shared.net.BitReader;
+import shared.net.BitWriter;
+import shared.net.SnapshotCodec;
+
+/**
+ * Test for the coalesced entity update frame
+ * @author Chris
+ *
+ */
+public class EntityUpdateFrameTest {
+
+	ClientWorld clientWorld = null;
+
+	EntityUpdateFrame frame = null;
+
+	SnapshotCodec codec = new SnapshotCodec(1000, 1000);
+
+	@Before
+	public void setUp() throws Exception {
+
+		clientWorld = new ClientWorld(null);
+
+		frame = new EntityUpdateFrame();
+
+	}
+
+	private Flag createFlag(int id) {
+
+		Flag flag = new Flag(clientWorld, 0, 0);
+		flag.setID(id);
+
+		return flag;
+
+	}
+
+	private BitReader encode(ArrayList<Entity> deadEntities) throws Exception {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BitWriter out = new BitWriter(bytes);
+
+		frame.encode(out, codec, deadEntities);
+		out.flush();
+
+		return new BitReader(new ByteArrayInputStream(bytes.toByteArray()));
+
+	}
+
+	@Test
+	public void testKeepsLastValuePerField() throws Exception {
+
+		Flag flag = createFlag(5);
+
+		flag.setLocalPosition(new Vector2f(1, 2));
+		frame.add(flag.getNetworkedEntityField(0));
+
+		flag.setLocalPosition(new Vector2f(3, 4));
+		frame.add(flag.getNetworkedEntityField(0));
+
+		assertEquals("Check repeated changes to a field are coalesced", 1, frame.getFieldCount());
+
+		BitReader in = encode(new ArrayList<Entity>());
+
+		assertEquals("Check the entity count", 1, in.readVarInt());
+		assertEquals("Check the entity ID", 5, in.readSignedVarLong());
+		assertEquals("Check the field slot count", 1, in.readVarInt());
+		assertTrue("Check the field is marked as changed", in.readBoolean());
+
+		Vector2f position = codec.readPosition(in);
+
+		assertEquals("Check the last x value is sent", 3.0f, position.getX(), 0.0f);
+		assertEquals("Check the last y value is sent", 4.0f, position.getY(), 0.0f);
+
+		in.alignToByte();
+		assertEquals("Check nothing else was written", -1, in.read());
+
+	}
+
+	@Test
+	public void testSkipsDeadEntities() throws Exception {
+
+		Flag alive = createFlag(1);
+		Flag dead = createFlag(2);
+
+		frame.add(dead.getNetworkedEntityField(0));
+		frame.add(alive.getNetworkedEntityField(0));
+
+		ArrayList<Entity> deadEntities = new ArrayList<Entity>();
+		deadEntities.add(dead);
+
+		BitReader in = encode(deadEntities);
+
+		assertEquals("Check only the live entity is sent", 1, in.readVarInt());
+		assertEquals("Check the live entity ID", 1, in.readSignedVarLong());
+
+	}
+
+	@Test
+	public void testAddAllCollapsesFrames() throws Exception {
+
+		Flag flag = createFlag(5);
+		EntityUpdateFrame missed = new EntityUpdateFrame();
+
+		flag.setLocalPosition(new Vector2f(1, 2));
+		frame.add(flag.getNetworkedEntityField(0));
+		missed.addAll(frame);
+		frame.clear();
+
+		flag.setLocalPosition(new Vector2f(3, 4));
+		frame.add(flag.getNetworkedEntityField(0));
+		missed.addAll(frame);
+
+		assertEquals("Check changes from several frames are collapsed", 1, missed.getFieldCount());
+
+		frame = missed;
+		BitReader in = encode(new ArrayList<Entity>());
+
+		in.readVarInt();
+		in.readSignedVarLong();
+		in.readVarInt();
+		in.readBoolean();
+		assertEquals("Check the latest x value is kept", 3.0f, codec.readPosition(in).getX(), 0.0f);
+
+	}
+
+	@Test
+	public void testSkipsDeletedEntities() throws Exception {
+
+		Flag flag = createFlag(1);
+
+		frame.add(flag.getNetworkedEntityField(0));
+		flag.setValid(false);
+
+		BitReader in = encode(new ArrayList<Entity>());
+
+		assertEquals("Check a deleted entity is not sent", 0, in.readVarInt());
+
+	}
+
+	@Test
+	public void testClear() {
+
+		frame.add(createFlag(1).getNetworkedEntityField(0));
+		frame.clear();
+
+		assertTrue("Check the frame is empty after clearing", frame.isEmpty());
+
+	}
+
+}
@@ -0,0 +1,154 @@
+package JUnitTesting;
+
+import static org.junit.Assert.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import shared.net.BufferPool;
+import shared.net.ByteBufferOutputStream;
+import shared.net.FrameDecoder;
+import shared.net.FrameHandler;
+import shared.net.FrameWriter;
+import shared.net.NetworkConstants;
+
+/**
+ * Test for writing and decoding message frames
+ * @author Chris
+ *
+ */
+public class FrameDecoderTest {
+
+	ByteBufferOutputStream stream = null;
+
+	FrameWriter frames = null;
+
+	// Types and first body ints of the frames handled
+	ArrayList<Integer> types = null;
+	ArrayList<Integer> values = null;
+
+	FrameHandler handler = new FrameHandler() {
+
+		@Override
+		public void onFrame(int type, ByteBuffer body) throws IOException {
+
+			types.add(type);
+
+			// Only read part of the body, the rest should be skipped
+			values.add(body.getInt());
+
+		}
+
+	};
+
+	@Before
+	public void setUp() throws Exception {
+
+		stream = new ByteBufferOutputStream(new BufferPool());
+		frames = new FrameWriter(stream);
+
+		types = new ArrayList<Integer>();
+		values = new ArrayList<Integer>();
+
+	}
+
+	private void writeFrame(NetworkConstants.C2S type, int value, int padding) throws Exception {
+
+		DataOutputStream out = frames.begin(type);
+
+		out.writeInt(value);
+
+		for (int i = 0; i < padding; i++)
+			out.writeByte(0);
+
+		frames.end();
+
+	}
+
+	@Test
+	public void testDecodesWholeFrames() throws Exception {
+
+		writeFrame(NetworkConstants.C2S.KEYBOARD_INPUT, 17, 1);
+		writeFrame(NetworkConstants.C2S.MOUSE_POSITION, 42, 4);
+
+		ByteBuffer buffer = stream.takeBuffer();
+
+		assertEquals("Check the first frame length", NetworkConstants.FRAME_HEADER_SIZE + 5, FrameDecoder.getFrameLength(buffer, 1024));
+		assertEquals("Check the buffer position is unchanged", 0, buffer.position());
+
+		assertEquals("Check both frames are handled", 2, FrameDecoder.decode(buffer, 1024, handler));
+		assertEquals("Check the first frame type", NetworkConstants.C2S.KEYBOARD_INPUT.ordinal(), (int)types.get(0));
+		assertEquals("Check the first frame body", 17, (int)values.get(0));
+		assertEquals("Check the unread body is skipped", 42, (int)values.get(1));
+		assertFalse("Check the buffer is used up", buffer.hasRemaining());
+
+	}
+
+	@Test
+	public void testLeavesPartialFrame() throws Exception {
+
+		writeFrame(NetworkConstants.C2S.KEYBOARD_INPUT, 17, 1);
+		writeFrame(NetworkConstants.C2S.MOUSE_POSITION, 42, 4);
+
+		ByteBuffer buffer = stream.takeBuffer();
+		int frameLength = NetworkConstants.FRAME_HEADER_SIZE + 5;
+
+		buffer.limit(buffer.limit() - 1);
+
+		assertEquals("Check only the whole frame is counted", frameLength, FrameDecoder.getWholeFramesLength(buffer, 1024));
+		assertEquals("Check only the whole frame is handled", 1, FrameDecoder.decode(buffer, 1024, handler));
+		assertEquals("Check the buffer is positioned at the partial frame", frameLength, buffer.position());
+
+	}
+
+	@Test
+	public void testShortBodyIsRejected() throws Exception {
+
+		frames.begin(NetworkConstants.C2S.CONNECT);
+		frames.end();
+
+		ByteBuffer buffer = stream.takeBuffer();
+
+		try {
+
+			FrameDecoder.decode(buffer, 1024, handler);
+			fail("Check reading past the end of a body is rejected");
+
+		} catch (IOException e) {
+		}
+
+	}
+
+	@Test
+	public void testInvalidHeaderIsRejected() throws Exception {
+
+		writeFrame(NetworkConstants.C2S.KEYBOARD_INPUT, 17, 1);
+
+		ByteBuffer buffer = stream.takeBuffer();
+
+		try {
+
+			FrameDecoder.getFrameLength(buffer, 4);
+			fail("Check a frame larger than the limit is rejected");
+
+		} catch (IOException e) {
+		}
+
+		buffer.put(4, (byte)(NetworkConstants.PROTOCOL_VERSION + 1));
+
+		try {
+
+			FrameDecoder.getFrameLength(buffer, 1024);
+			fail("Check a frame from another protocol version is rejected");
+
+		} catch (IOException e) {
+		}
+
+	}
+
+}
@@ -0,0 +1,145 @@
+package JUnitTesting;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.util.vector.Vector2f;
+
+import client.ClientWorld;
+import server.net.InterestSet;
+import shared.Entity;
+import shared.entities.ExampleEntity;
+import shared.entities.Flag;
+
+/**
+ * Test for the set of entities a client is sent
+ * @author Chris
+ *
+ */
+public class InterestSetTest {
+
+	ClientWorld clientWorld = null;
+
+	// 100x100 view, entities enter within 50 of it and leave beyond 100
+	InterestSet interest = null;
+
+	List<Entity> nearby = new ArrayList<Entity>();
+	List<Entity> alwaysRelevant = new ArrayList<Entity>();
+	List<Entity> dead = new ArrayList<Entity>();
+	List<Entity> entering = new ArrayList<Entity>();
+	List<Entity> leaving = new ArrayList<Entity>();
+
+	@Before
+	public void setUp() throws Exception {
+
+		clientWorld = new ClientWorld(null);
+
+		interest = new InterestSet(100, 100, 50, 100);
+
+	}
+
+	private void update() {
+
+		entering.clear();
+		leaving.clear();
+
+		interest.update(0, 0, nearby, alwaysRelevant, dead, entering, leaving);
+
+	}
+
+	@Test
+	public void testEntersInsideEnterArea() {
+
+		ExampleEntity near = new ExampleEntity(clientWorld, 90, 0);
+		ExampleEntity edge = new ExampleEntity(clientWorld, 120, 0);
+
+		nearby.addAll(Arrays.asList(near, edge));
+
+		update();
+
+		assertEquals("Check only the entity inside the enter area enters", Arrays.asList(near), entering);
+		assertTrue("Check the entity is relevant", interest.contains(near));
+		assertFalse("Check the entity between the areas isn't relevant", interest.contains(edge));
+
+		update();
+
+		assertTrue("Check a relevant entity doesn't enter again", entering.isEmpty());
+		assertEquals("Check the set size", 1, interest.size());
+
+	}
+
+	@Test
+	public void testLeavesOutsideExitArea() {
+
+		ExampleEntity entity = new ExampleEntity(clientWorld, 0, 0);
+
+		nearby.add(entity);
+
+		update();
+
+		// Between the enter and exit areas, the entity stays relevant
+		entity.setLocalPosition(new Vector2f(140, 0));
+		update();
+
+		assertTrue("Check the entity is kept inside the exit area", interest.contains(entity));
+		assertTrue("Check nothing leaves", leaving.isEmpty());
+
+		entity.setLocalPosition(new Vector2f(160, 0));
+		update();
+
+		assertEquals("Check the entity leaves outside the exit area", Arrays.asList(entity), leaving);
+		assertFalse("Check the entity is no longer relevant", interest.contains(entity));
+
+		nearby.clear();
+		update();
+
+		assertTrue("Check an entity only leaves once", leaving.isEmpty());
+
+	}
+
+	@Test
+	public void testDeadAndAlwaysRelevantEntities() {
+
+		Flag flag = new Flag(clientWorld, 1000, 1000);
+		ExampleEntity entity = new ExampleEntity(clientWorld, 0, 0);
+
+		alwaysRelevant.add(flag);
+		nearby.add(entity);
+
+		update();
+
+		assertEquals("Check always relevant entities enter wherever they are", 2, entering.size());
+		assertTrue("Check the flag is relevant", interest.contains(flag));
+
+		dead.add(entity);
+		update();
+
+		assertEquals("Check dead entities leave", Arrays.asList(entity), leaving);
+
+		interest = new InterestSet(100, 100, 50, 100);
+		update();
+
+		assertEquals("Check dead entities never enter", Arrays.asList(flag), entering);
+
+	}
+
+	@Test
+	public void testInvalidMargins() {
+
+		try {
+
+			new InterestSet(100, 100, 100, 50);
+			fail("Check an exit margin smaller than the enter margin is rejected");
+
+		} catch (IllegalArgumentException e) {
+
+		}
+
+	}
+
+}
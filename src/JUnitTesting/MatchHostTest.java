@@ -0,0 +1,95 @@
+package JUnitTesting;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import server.MatchHost;
+import server.ServerWorld;
+import server.net.ClientConnection;
+
+/**
+ * Test for hosting several matches in one server
+ * @author Chris
+ *
+ */
+public class MatchHostTest {
+
+	MatchHost matchHost;
+
+	ServerWorld firstMatch;
+	ServerWorld secondMatch;
+
+	@Before
+	public void setUp() throws Exception {
+
+		matchHost = new MatchHost(2);
+
+		firstMatch = matchHost.addMatch("maps/original.xml");
+		secondMatch = matchHost.addMatch("maps/original.xml");
+
+	}
+
+	@After
+	public void tearDown() {
+
+		matchHost.shutdown();
+
+	}
+
+	private ClientConnection routeClient() {
+
+		ServerWorld serverWorld = matchHost.routeClient();
+
+		if (serverWorld == null)
+			return null;
+
+		ClientConnection connection = new ClientConnection(null, null, serverWorld);
+		serverWorld.addConnection(connection);
+
+		return connection;
+
+	}
+
+	@Test
+	public void testClientsFillMatchesInOrder() {
+
+		assertSame("First client should join the first match", firstMatch, matchHost.routeClient());
+		routeClient();
+		routeClient();
+
+		assertEquals("First match should be full", 2, firstMatch.getConnectionCount());
+		assertSame("Next client should join the second match", secondMatch, matchHost.routeClient());
+
+		routeClient();
+		routeClient();
+
+		assertNull("No match should have room once every match is full", matchHost.routeClient());
+
+	}
+
+	@Test
+	public void testDisconnectFreesPlace() {
+
+		ClientConnection connection = routeClient();
+		routeClient();
+		routeClient();
+
+		firstMatch.onClientDisconnect(connection);
+
+		assertEquals("Disconnected client should no longer count towards the match", 1, firstMatch.getConnectionCount());
+		assertSame("Next client should take the free place in the first match", firstMatch, matchHost.routeClient());
+
+	}
+
+	@Test
+	public void testMatchesShareNavMesh() {
+
+		assertSame("Matches on the same map should share its navmesh", firstMatch.getMapFile().getNavMesh(), secondMatch.getMapFile().getNavMesh());
+		assertNotSame("Matches should have their own entities", firstMatch.getMapFile().getMainFlag(), secondMatch.getMapFile().getMainFlag());
+
+	}
+
+}
@@ -0,0 +1,766 @@
+package JUnitTesting;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.util.vector.Vector2f;
+
+import navmeshgenerator.NavMeshGenerator;
+import shared.FlowField;
+import shared.NavMesh;
+import shared.Polygon;
+import shared.PolygonOnTheFly;
+
+/**
+ * Test for the navmesh point lookup, A* search, routing table, clusters and path cache
+ * @author Barney
+ *
+ */
+public class NavMeshTest {
+
+	NavMesh navMesh;
+
+	ArrayList<Polygon> polygons;
+
+	private static Vector2f centreOf(Polygon polygon) {
+
+		Vector2f centre = new Vector2f();
+
+		for (Vector2f vertex : polygon.getVertices())
+			Vector2f.add(centre, vertex, centre);
+
+		centre.scale(1.0f / polygon.getVertices().size());
+
+		return centre;
+
+	}
+
+	@Before
+	public void setUp() throws Exception {
+
+		navMesh = new NavMesh("maps/original.navmesh");
+		polygons = navMesh.getPolygons();
+
+	}
+
+	private static Polygon linearScan(ArrayList<Polygon> polygons, Vector2f position) {
+
+		for (Polygon polygon : polygons) {
+
+			if (polygon.contains(position))
+				return polygon;
+
+		}
+
+		return null;
+
+	}
+
+	@Test
+	public void testGridFindsSamePolygonAsLinearScan() throws Exception {
+
+		Random random = new Random(1);
+
+		for (String navMeshFileName : new String[] {"maps/original.navmesh", "maps/dessert.navmesh"}) {
+
+			NavMesh mesh = new NavMesh(navMeshFileName);
+
+			float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+
+			for (Polygon polygon : mesh.getPolygons()) {
+
+				minX = Math.min(minX, polygon.getLeft());
+				minY = Math.min(minY, polygon.getBottom());
+				maxX = Math.max(maxX, polygon.getRight());
+				maxY = Math.max(maxY, polygon.getTop());
+
+			}
+
+			for (int i = 0; i < 10000; i++) {
+
+				// Points a little past the navmesh's bounds are included too
+				float x = minX - 50 + random.nextFloat() * (maxX - minX + 100);
+				float y = minY - 50 + random.nextFloat() * (maxY - minY + 100);
+				Vector2f point = new Vector2f(x, y);
+
+				assertSame("Grid should find the same polygon as testing every polygon at " + point, linearScan(mesh.getPolygons(), point), mesh.getPolygonContaining(point));
+
+			}
+
+		}
+
+	}
+
+	@Test
+	public void testGridOnManyPolygons() {
+
+		ArrayList<Polygon> squares = createSquares(50);
+		NavMesh mesh = new NavMesh(squares);
+
+		assertSame("Point should be found in its square", squares.get(7 * 50 + 3), mesh.getPolygonContaining(new Vector2f(35, 75)));
+		assertSame("Point in the last square should be found", squares.get(squares.size() - 1), mesh.getPolygonContaining(new Vector2f(495, 495)));
+		assertNull("Point on the edge between squares isn't in either", mesh.getPolygonContaining(new Vector2f(30, 75)));
+		assertNull("Point outside the squares shouldn't be found", mesh.getPolygonContaining(new Vector2f(-5, 25)));
+
+	}
+
+	private static ArrayList<Polygon> createSquares(int squaresPerSide) {
+
+		ArrayList<Polygon> squares = new ArrayList<Polygon>();
+
+		for (int row = 0; row < squaresPerSide; row++) {
+
+			for (int column = 0; column < squaresPerSide; column++)
+				squares.add(new PolygonOnTheFly(column * 10, (row + 1) * 10, 10, 10));
+
+		}
+
+		// Join each square to the squares beside it
+		for (int row = 0; row < squaresPerSide; row++) {
+
+			for (int column = 0; column < squaresPerSide; column++) {
+
+				PolygonOnTheFly square = (PolygonOnTheFly)squares.get(row * squaresPerSide + column);
+
+				if (column > 0)
+					square.addNeighbour(squares.get(row * squaresPerSide + column - 1));
+				if (column < squaresPerSide - 1)
+					square.addNeighbour(squares.get(row * squaresPerSide + column + 1));
+				if (row > 0)
+					square.addNeighbour(squares.get((row - 1) * squaresPerSide + column));
+				if (row < squaresPerSide - 1)
+					square.addNeighbour(squares.get((row + 1) * squaresPerSide + column));
+
+			}
+
+		}
+
+		return squares;
+
+	}
+
+	@Test
+	public void testPathJoinsStartToGoal() {
+
+		Polygon startPolygon = polygons.get(0);
+		Polygon goalPolygon = polygons.get(polygons.size() - 1);
+
+		ArrayList<Polygon> path = navMesh.aStar(centreOf(startPolygon), centreOf(goalPolygon));
+
+		assertNotNull("A path should exist between two navmesh polygons", path);
+		assertSame("Path should start in the start polygon", startPolygon, path.get(0));
+		assertSame("Path should end in the goal polygon", goalPolygon, path.get(path.size() - 1));
+
+		for (int i = 0; i < path.size() - 1; i++)
+			assertTrue("Each polygon in the path should neighbour the next", path.get(i).getNeighbours().contains(path.get(i + 1)));
+
+		assertEquals("Searching again should find the same path", path, navMesh.aStar(centreOf(startPolygon), centreOf(goalPolygon)));
+
+	}
+
+	@Test
+	public void testShortestPathOnLargeMesh() {
+
+		int squaresPerSide = 100;
+
+		ArrayList<Polygon> squares = createSquares(squaresPerSide);
+		NavMesh mesh = new NavMesh(squares);
+
+		ArrayList<Polygon> path = mesh.aStar(new Vector2f(5, 5), new Vector2f(squaresPerSide * 10 - 5, squaresPerSide * 10 - 5));
+
+		// A shortest path only ever moves right or up, through one square per step
+		assertNotNull("Path should be found across the squares", path);
+		assertEquals("Path shouldn't go through more squares than needed", 2 * squaresPerSide - 1, path.size());
+
+		// A path within the same square is just that square
+		ArrayList<Polygon> shortPath = mesh.aStar(new Vector2f(2, 2), new Vector2f(8, 8));
+
+		assertEquals("Path within one square should only hold that square", 1, shortPath.size());
+		assertSame("Path within one square should hold that square", squares.get(0), shortPath.get(0));
+
+	}
+
+	@Test
+	public void testRoutingTableFindsShortestPath() {
+
+		int squaresPerSide = 10;
+
+		ArrayList<Polygon> squares = createSquares(squaresPerSide);
+		NavMesh mesh = new NavMesh(squares);
+
+		assertTrue("Small navmesh should have a routing table", mesh.hasRoutingTable());
+
+		ArrayList<Polygon> path = mesh.findPolygonPath(new Vector2f(5, 5), new Vector2f(squaresPerSide * 10 - 5, squaresPerSide * 10 - 5));
+
+		assertNotNull("Path should be found across the squares", path);
+		assertSame("Path should start in the start square", squares.get(0), path.get(0));
+		assertSame("Path should end in the goal square", squares.get(squares.size() - 1), path.get(path.size() - 1));
+		assertEquals("Path shouldn't go through more squares than needed", 2 * squaresPerSide - 1, path.size());
+
+		for (int i = 0; i < path.size() - 1; i++)
+			assertTrue("Each square in the path should neighbour the next", path.get(i).getNeighbours().contains(path.get(i + 1)));
+
+		assertEquals("Route between neighbours should go centre to centre", 10, mesh.getRouteDistance(squares.get(0), squares.get(1)), 0.001f);
+		assertEquals("Route across the squares should be measured centre to centre", 180, mesh.getRouteDistance(squares.get(0), squares.get(squares.size() - 1)), 0.01f);
+
+	}
+
+	@Test
+	public void testRoutingTableWithoutRoute() {
+
+		// Two squares that don't touch
+		ArrayList<Polygon> squares = new ArrayList<Polygon>();
+		squares.add(new PolygonOnTheFly(0, 10, 10, 10));
+		squares.add(new PolygonOnTheFly(20, 10, 10, 10));
+
+		NavMesh mesh = new NavMesh(squares);
+
+		assertNull("There should be no path between squares that don't touch", mesh.findPolygonPath(new Vector2f(5, 5), new Vector2f(25, 5)));
+		assertEquals("There should be no route between squares that don't touch", Float.POSITIVE_INFINITY, mesh.getRouteDistance(squares.get(0), squares.get(1)), 0);
+
+	}
+
+	@Test
+	public void testLargeMeshFallsBackToAStar() {
+
+		int squaresPerSide = 20;
+
+		NavMesh mesh = new NavMesh(createSquares(squaresPerSide));
+
+		assertFalse("Navmesh with more polygons than the limit shouldn't have a routing table", mesh.hasRoutingTable());
+		assertEquals("Route distance shouldn't be known without a routing table", -1, mesh.getRouteDistance(mesh.getPolygons().get(0), mesh.getPolygons().get(1)), 0);
+
+		ArrayList<Polygon> path = mesh.findPolygonPath(new Vector2f(5, 5), new Vector2f(squaresPerSide * 10 - 5, squaresPerSide * 10 - 5));
+
+		assertEquals("A* should find the shortest path", 2 * squaresPerSide - 1, path.size());
+
+	}
+
+	private static ArrayList<Polygon> createMaze(int squaresPerSide) {
+
+		ArrayList<Polygon> squares = createSquares(squaresPerSide);
+
+		// Wall off every fourth column except for one gap, alternating between the bottom and the top
+		for (int column = 3; column < squaresPerSide - 1; column += 4) {
+
+			int gapRow = (column / 4) % 2 == 0 ? 0 : squaresPerSide - 1;
+
+			for (int row = 0; row < squaresPerSide; row++) {
+
+				if (row == gapRow)
+					continue;
+
+				Polygon wall = squares.get(row * squaresPerSide + column);
+
+				for (Polygon neighbour : wall.getNeighbours())
+					neighbour.getNeighbours().remove(wall);
+
+				wall.getNeighbours().clear();
+
+			}
+
+		}
+
+		for (int i = 0; i < squares.size(); i++)
+			squares.get(i).setID("" + i);
+
+		return squares;
+
+	}
+
+	private static float lengthOf(ArrayList<Polygon> path) {
+
+		float length = 0;
+
+		for (int i = 0; i < path.size() - 1; i++)
+			length += Vector2f.sub(centreOf(path.get(i)), centreOf(path.get(i + 1)), null).length();
+
+		return length;
+
+	}
+
+	@Test
+	public void testClustersFindPathThroughMaze() {
+
+		int squaresPerSide = 40;
+
+		ArrayList<Polygon> squares = createMaze(squaresPerSide);
+		NavMesh mesh = new NavMesh(squares);
+
+		assertTrue("Large navmesh should be divided into clusters", mesh.hasHierarchy());
+
+		Vector2f start = new Vector2f(5, squaresPerSide * 10 - 5);
+		Vector2f goal = new Vector2f(squaresPerSide * 10 - 5, 5);
+
+		ArrayList<Polygon> path = mesh.findPolygonPath(start, goal);
+		ArrayList<Polygon> flatPath = mesh.aStar(start, goal);
+
+		assertNotNull("Path should be found through the maze", path);
+		assertSame("Path should start in the start square", mesh.getPolygonContaining(start), path.get(0));
+		assertSame("Path should end in the goal square", mesh.getPolygonContaining(goal), path.get(path.size() - 1));
+
+		for (int i = 0; i < path.size() - 1; i++)
+			assertTrue("Each square in the path should neighbour the next", path.get(i).getNeighbours().contains(path.get(i + 1)));
+
+		// Routes between clusters go through their centres, so they can be a little longer than the best path
+		assertTrue("Path through the clusters should be close to the shortest path", lengthOf(path) <= lengthOf(flatPath) * 1.1f);
+
+		// A walled off square can't be reached
+		Vector2f wall = new Vector2f(35, 200);
+
+		assertNull("There should be no path to a walled off square", mesh.findPolygonPath(start, wall));
+
+	}
+
+	@Test
+	public void testClustersStoredInNavMeshFile() throws Exception {
+
+		int squaresPerSide = 40;
+
+		NavMesh mesh = new NavMesh(createMaze(squaresPerSide));
+
+		File navMeshFile = File.createTempFile("maze", ".navmesh");
+		navMeshFile.deleteOnExit();
+		new File(NavMesh.getCompiledFileName(navMeshFile.getPath())).deleteOnExit();
+
+		NavMeshGenerator.storeNavMesh(mesh, navMeshFile.getPath());
+		NavMesh loadedMesh = new NavMesh(navMeshFile.getPath());
+
+		assertTrue("Loaded navmesh should be divided into clusters", loadedMesh.hasHierarchy());
+
+		Vector2f start = new Vector2f(5, squaresPerSide * 10 - 5);
+		Vector2f goal = new Vector2f(squaresPerSide * 10 - 5, 5);
+
+		ArrayList<Polygon> path = mesh.findPolygonPath(start, goal);
+		ArrayList<Polygon> loadedPath = loadedMesh.findPolygonPath(start, goal);
+
+		// Paths of the same length can be chosen between differently, so only the length has to match
+		assertEquals("Loaded clusters should give a path through as many squares", path.size(), loadedPath.size());
+		assertEquals("Loaded clusters should give a path as short", lengthOf(path), lengthOf(loadedPath), 0.01f);
+
+		for (int i = 0; i < loadedPath.size() - 1; i++)
+			assertTrue("Each square in the loaded path should neighbour the next", loadedPath.get(i).getNeighbours().contains(loadedPath.get(i + 1)));
+
+	}
+
+	@Test
+	public void testCompiledNavMeshMatchesNavMeshFile() throws Exception {
+
+		int squaresPerSide = 40;
+
+		File navMeshFile = File.createTempFile("maze", ".navmesh");
+		File compiledFile = new File(NavMesh.getCompiledFileName(navMeshFile.getPath()));
+		navMeshFile.deleteOnExit();
+		compiledFile.deleteOnExit();
+
+		NavMeshGenerator.storeNavMesh(new NavMesh(createMaze(squaresPerSide)), navMeshFile.getPath());
+		NavMesh mesh = new NavMesh(navMeshFile.getPath());
+
+		assertTrue("Compiled navmesh should be written alongside the navmesh file", compiledFile.isFile());
+
+		// Without the navmesh file the compiled file is all there is to load
+		navMeshFile.delete();
+		NavMesh compiledMesh = NavMesh.load(navMeshFile.getPath());
+
+		assertEquals("Compiled navmesh should have as many polygons", mesh.getPolygons().size(), compiledMesh.getPolygons().size());
+		assertTrue("Compiled navmesh should be divided into clusters", compiledMesh.hasHierarchy());
+
+		for (int i = 0; i < mesh.getPolygons().size(); i++) {
+
+			Polygon polygon = mesh.getPolygons().get(i);
+			Polygon compiledPolygon = compiledMesh.getPolygons().get(i);
+
+			assertEquals("Compiled polygon should have the same id", polygon.getID(), compiledPolygon.getID());
+			assertEquals("Compiled polygon should have the same vertices", polygon.getVertices(), compiledPolygon.getVertices());
+			assertEquals("Compiled polygon should have as many neighbours", polygon.getNeighbours().size(), compiledPolygon.getNeighbours().size());
+
+			for (int j = 0; j < polygon.getNeighbours().size(); j++) {
+
+				Polygon neighbour = polygon.getNeighbours().get(j);
+				Polygon compiledNeighbour = compiledPolygon.getNeighbours().get(j);
+
+				assertEquals("Compiled polygon should have the same neighbours", neighbour.getID(), compiledNeighbour.getID());
+				assertEquals("Compiled connecting edge should start at the same point", polygon.getEdgeConnectingPolygon(neighbour).getFirstVertice(), compiledPolygon.getEdgeConnectingPolygon(compiledNeighbour).getFirstVertice());
+				assertEquals("Compiled connecting edge should end at the same point", polygon.getEdgeConnectingPolygon(neighbour).getSecondVertice(), compiledPolygon.getEdgeConnectingPolygon(compiledNeighbour).getSecondVertice());
+
+			}
+
+		}
+
+		Vector2f start = new Vector2f(5, squaresPerSide * 10 - 5);
+		Vector2f goal = new Vector2f(squaresPerSide * 10 - 5, 5);
+
+		ArrayList<Polygon> path = mesh.findPolygonPath(start, goal);
+		ArrayList<Polygon> compiledPath = compiledMesh.findPolygonPath(start, goal);
+
+		assertEquals("Compiled navmesh should give a path through as many squares", path.size(), compiledPath.size());
+
+		for (int i = 0; i < path.size(); i++)
+			assertEquals("Compiled navmesh should give the same path", path.get(i).getID(), compiledPath.get(i).getID());
+
+	}
+
+	@Test
+	public void testBadCompiledNavMeshIgnored() throws Exception {
+
+		File navMeshFile = File.createTempFile("maze", ".navmesh");
+		File compiledFile = new File(NavMesh.getCompiledFileName(navMeshFile.getPath()));
+		navMeshFile.deleteOnExit();
+		compiledFile.deleteOnExit();
+
+		ArrayList<Polygon> squares = createMaze(5);
+
+		NavMeshGenerator.storeNavMesh(new NavMesh(squares), navMeshFile.getPath());
+
+		// A compiled file older than the navmesh file is out of date
+		new NavMesh(createMaze(3)).storeCompiled(compiledFile.getPath());
+		compiledFile.setLastModified(navMeshFile.lastModified() - 10000);
+
+		assertEquals("Out of date compiled navmesh should be ignored", squares.size(), NavMesh.load(navMeshFile.getPath()).getPolygons().size());
+
+		// Something that isn't a compiled navmesh
+		Files.write(compiledFile.toPath(), "<navmesh></navmesh>".getBytes(StandardCharsets.UTF_8));
+		compiledFile.setLastModified(navMeshFile.lastModified() + 10000);
+
+		assertEquals("Compiled navmesh with the wrong header should be ignored", squares.size(), NavMesh.load(navMeshFile.getPath()).getPolygons().size());
+
+		// A compiled navmesh that has been cut short
+		new NavMesh(squares).storeCompiled(compiledFile.getPath());
+		byte[] bytes = Files.readAllBytes(compiledFile.toPath());
+		Files.write(compiledFile.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+		compiledFile.setLastModified(navMeshFile.lastModified() + 10000);
+
+		assertEquals("Compiled navmesh that is cut short should be ignored", squares.size(), NavMesh.load(navMeshFile.getPath()).getPolygons().size());
+
+	}
+
+	@Test
+	public void testSamePolygonsShareCachedPath() {
+
+		Polygon startPolygon = polygons.get(0);
+		Polygon goalPolygon = polygons.get(polygons.size() - 1);
+
+		ArrayList<Polygon> firstPath = navMesh.findPolygonPath(centreOf(startPolygon), centreOf(goalPolygon));
+
+		// A different point in the same start polygon
+		Vector2f otherStart = Vector2f.add(centreOf(startPolygon), startPolygon.getVertices().get(0), null);
+		otherStart.scale(0.5f);
+
+		ArrayList<Polygon> secondPath = navMesh.findPolygonPath(otherStart, centreOf(goalPolygon));
+
+		assertNotNull("A path should exist between two navmesh polygons", firstPath);
+		assertSame("Paths between the same polygons should be shared", firstPath, secondPath);
+		assertEquals("First path should be searched for", 1, navMesh.getPathCacheMisses());
+		assertEquals("Second path should come from the cache", 1, navMesh.getPathCacheHits());
+		assertEquals("Cached path should start in the start polygon", startPolygon, secondPath.get(0));
+		assertEquals("Cached path should end in the goal polygon", goalPolygon, secondPath.get(secondPath.size() - 1));
+
+	}
+
+	@Test
+	public void testLeastRecentlyUsedPathDropped() {
+
+		navMesh.setPathCacheSize(2);
+
+		Vector2f goal = centreOf(polygons.get(0));
+
+		navMesh.findPolygonPath(centreOf(polygons.get(1)), goal);
+		navMesh.findPolygonPath(centreOf(polygons.get(2)), goal);
+
+		// Using the first path makes the second the least recently used
+		navMesh.findPolygonPath(centreOf(polygons.get(1)), goal);
+		navMesh.findPolygonPath(centreOf(polygons.get(3)), goal);
+
+		assertEquals("Only the reused path should have come from the cache", 1, navMesh.getPathCacheHits());
+
+		navMesh.findPolygonPath(centreOf(polygons.get(1)), goal);
+		navMesh.findPolygonPath(centreOf(polygons.get(2)), goal);
+
+		assertEquals("Recently used path should still be cached", 2, navMesh.getPathCacheHits());
+		assertEquals("Least recently used path should have been dropped", 4, navMesh.getPathCacheMisses());
+
+	}
+
+	@Test
+	public void testCacheTurnedOff() {
+
+		navMesh.setPathCacheSize(0);
+
+		Vector2f start = centreOf(polygons.get(0));
+		Vector2f goal = centreOf(polygons.get(polygons.size() - 1));
+
+		navMesh.findPolygonPath(start, goal);
+		navMesh.findPolygonPath(start, goal);
+
+		assertEquals("No path should come from a turned off cache", 0, navMesh.getPathCacheHits());
+		assertEquals("Every path should be searched for", 2, navMesh.getPathCacheMisses());
+
+	}
+
+	@Test
+	public void testPointOffNavMesh() {
+
+		assertNull("Point off the navmesh should have no path", navMesh.findPolygonPath(new Vector2f(-10000, -10000), centreOf(polygons.get(0))));
+
+	}
+
+	@Test
+	public void testFlowFieldLeadsToGoal() {
+
+		int squaresPerSide = 12;
+
+		ArrayList<Polygon> squares = createMaze(squaresPerSide);
+		NavMesh mesh = new NavMesh(squares);
+
+		Vector2f goal = new Vector2f(squaresPerSide * 10 - 5, 5);
+		FlowField field = mesh.getFlowField(goal);
+		Polygon goalPolygon = mesh.getPolygonContaining(goal);
+
+		assertSame("Field should be for the goal square", goalPolygon, field.getGoalPolygon());
+		assertNull("There should be no portal to cross in the goal square", field.getNextPortal(goalPolygon));
+
+		for (Polygon square : squares) {
+
+			if (square.getNeighbours().isEmpty()) {
+				assertNull("There should be no portal from a walled off square", field.getNextPortal(square));
+				assertEquals("Walled off square shouldn't reach the goal", Float.POSITIVE_INFINITY, field.getDistance(square), 0);
+				continue;
+			}
+
+			// Following the field should reach the goal in as many steps as the shortest path
+			ArrayList<Polygon> path = mesh.aStar(centreOf(square), goal);
+			Polygon current = square;
+
+			for (int step = 1; step < path.size(); step++) {
+				Polygon next = field.getNextPolygon(current);
+				assertTrue("Each square in the field should lead to a neighbour", current.getNeighbours().contains(next));
+				assertTrue("Next portal should lie on the edge to the next square", current.getEdgeConnectingPolygon(next).touches(field.getNextPortal(current)));
+				assertTrue("Each step should get closer to the goal", field.getDistance(next) < field.getDistance(current));
+				current = next;
+			}
+
+			assertSame("Following the field should reach the goal square", goalPolygon, current);
+
+		}
+
+	}
+
+	@Test
+	public void testFlowFieldSharedWithinGoalPolygon() {
+
+		NavMesh mesh = new NavMesh(createSquares(10));
+
+		FlowField field = mesh.getFlowField(new Vector2f(95, 95));
+
+		assertSame("Goals in the same square should share a field", field, mesh.getFlowField(new Vector2f(92, 98)));
+		assertEquals("Shared field should only be worked out once", 1, mesh.getFlowFieldsBuilt());
+
+		assertNotSame("Goal in another square should have its own field", field, mesh.getFlowField(new Vector2f(5, 5)));
+		assertEquals("Field for the other square should be worked out", 2, mesh.getFlowFieldsBuilt());
+
+		assertNull("Goal off the navmesh should have no field", mesh.getFlowField(new Vector2f(-10000, -10000)));
+
+	}
+
+	@Test
+	public void testFlowFieldSharedBetweenThreads() throws Exception {
+
+		final NavMesh mesh = new NavMesh(createSquares(40));
+		final Vector2f goal = new Vector2f(395, 5);
+		final FlowField[] fields = new FlowField[8];
+
+		Thread[] threads = new Thread[fields.length];
+
+		for (int i = 0; i < threads.length; i++) {
+
+			final int index = i;
+
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					fields[index] = mesh.getFlowField(goal);
+				}
+			};
+			threads[i].start();
+
+		}
+
+		for (Thread thread : threads)
+			thread.join();
+
+		// Fields worked out at the same time are only kept once, so every thread ends up with the same one
+		for (FlowField field : fields)
+			assertSame("Every thread should get the shared field", fields[0], field);
+
+	}
+
+	@Test
+	public void testFlowFieldCorners() {
+
+		int squaresPerSide = 12;
+
+		ArrayList<Polygon> squares = createMaze(squaresPerSide);
+		NavMesh mesh = new NavMesh(squares);
+
+		Vector2f goal = new Vector2f(squaresPerSide * 10 - 5, 5);
+		FlowField field = mesh.getFlowField(goal);
+
+		// Nothing is in the way across the last column
+		Vector2f nearGoal = new Vector2f(squaresPerSide * 10 - 5, squaresPerSide * 10 - 5);
+
+		assertEquals("Corner should be the goal when nothing is in the way", goal, mesh.getNextCorner(field, mesh.getPolygonContaining(nearGoal), nearGoal, goal, 1));
+
+		// From the far side of the maze the route has to turn at the walls
+		Vector2f start = new Vector2f(5, squaresPerSide * 10 - 5);
+		Polygon startSquare = mesh.getPolygonContaining(start);
+		Vector2f corner = mesh.getNextCorner(field, startSquare, start, goal, 1);
+
+		boolean atVertex = false;
+		for (Polygon square : squares)
+			atVertex |= square.getVertices().contains(corner);
+
+		assertTrue("Route should turn at the corner of a square", atVertex);
+
+		// Once the corner is close enough to count as reached the one after it is headed for instead
+		float cornerDistance = Vector2f.sub(corner, start, null).length();
+		Vector2f nextCorner = mesh.getNextCorner(field, startSquare, start, goal, cornerDistance + 1);
+
+		assertFalse("Reached corner shouldn't be headed for", corner.equals(nextCorner));
+
+		// The squares making up the walls are cut off from everything
+		Polygon wall = squares.get(5 * squaresPerSide + 3);
+
+		assertNull("There should be no corner to head for from a walled off square", mesh.getNextCorner(field, wall, centreOf(wall), goal, 1));
+
+	}
+
+	@Test
+	public void testFlowFieldCornerOnlyLooksAhead() {
+
+		int squaresPerSide = 60;
+
+		NavMesh mesh = new NavMesh(createSquares(squaresPerSide));
+
+		Vector2f start = new Vector2f(5, squaresPerSide * 10 - 5);
+		Vector2f goal = new Vector2f(squaresPerSide * 10 - 5, 5);
+		FlowField field = mesh.getFlowField(goal);
+
+		Vector2f corner = mesh.getNextCorner(field, mesh.getPolygonContaining(start), start, goal, 1);
+
+		// The route is far longer than the portals looked ahead, so the corner comes from the first of them
+		assertNotNull("Corner should be found across open squares", corner);
+		assertTrue("Corner should be no further than the portals looked ahead", Vector2f.sub(corner, start, null).length() <= (NavMesh.CORNER_LOOKAHEAD_PORTALS + 1) * 10);
+		assertTrue("Corner should be closer to the goal", Vector2f.sub(goal, corner, null).length() < Vector2f.sub(goal, start, null).length());
+
+	}
+
+	@Test
+	public void testPulledPathGoesStraightAcrossOpenSquares() {
+
+		int squaresPerSide = 10;
+
+		NavMesh mesh = new NavMesh(createSquares(squaresPerSide));
+
+		Vector2f start = new Vector2f(5, 5);
+		Vector2f goal = new Vector2f(squaresPerSide * 10 - 5, 5);
+
+		ArrayList<Polygon> polygonPath = mesh.findPolygonPath(start, goal);
+		ArrayList<Vector2f> pointPath = mesh.polygonPathToPointPath(polygonPath, start, goal);
+
+		assertEquals("There should be a point for each edge crossed", polygonPath.size() - 1, pointPath.size());
+
+		for (Vector2f point : pointPath)
+			assertSame("Straight path should head for the goal the whole way", pointPath.get(0), point);
+
+		assertEquals("Straight path should end at the goal", goal, pointPath.get(0));
+		assertTrue("Path within one square should have no points", mesh.polygonPathToPointPath(mesh.findPolygonPath(start, start), start, start).isEmpty());
+
+	}
+
+	@Test
+	public void testPulledPathStaysInCorridor() {
+
+		int squaresPerSide = 12;
+
+		NavMesh mesh = new NavMesh(createMaze(squaresPerSide));
+
+		Vector2f start = new Vector2f(5, squaresPerSide * 10 - 5);
+		Vector2f goal = new Vector2f(squaresPerSide * 10 - 5, 5);
+
+		ArrayList<Polygon> polygonPath = mesh.findPolygonPath(start, goal);
+		ArrayList<Vector2f> pointPath = mesh.polygonPathToPointPath(polygonPath, start, goal);
+
+		assertEquals("There should be a point for each edge crossed", polygonPath.size() - 1, pointPath.size());
+		assertEquals("Path should end at the goal", goal, pointPath.get(pointPath.size() - 1));
+
+		ArrayList<Vector2f> corners = new ArrayList<Vector2f>();
+		for (Vector2f point : pointPath) {
+			if (corners.isEmpty() || corners.get(corners.size() - 1) != point)
+				corners.add(point);
+		}
+
+		assertTrue("Path should turn far less often than it crosses an edge", corners.size() * 4 < pointPath.size());
+
+		// The path can only turn where it has to go around the corner of a square
+		for (int i = 0; i < corners.size() - 1; i++) {
+
+			boolean atVertex = false;
+			for (Polygon polygon : polygonPath)
+				atVertex |= polygon.getVertices().contains(corners.get(i));
+
+			assertTrue("Path should only turn at the corners of squares", atVertex);
+
+		}
+
+		// Going through the middle of each edge instead can't be any shorter
+		float midPointLength = 0;
+		float pulledLength = 0;
+		Vector2f from = start;
+		for (int i = 0; i < polygonPath.size() - 1; i++) {
+			Vector2f midPoint = polygonPath.get(i).getEdgeConnectingPolygon(polygonPath.get(i + 1)).midPoint();
+			midPointLength += Vector2f.sub(midPoint, from, null).length();
+			from = midPoint;
+		}
+		midPointLength += Vector2f.sub(goal, from, null).length();
+
+		from = start;
+		for (Vector2f corner : corners) {
+			pulledLength += Vector2f.sub(corner, from, null).length();
+			from = corner;
+		}
+
+		assertTrue("Pulled path should be shorter than going through the edge midpoints", pulledLength < midPointLength);
+
+		// Every straight line of the path should stay inside the squares the path goes through
+		from = start;
+		for (Vector2f to : corners) {
+
+			for (int sample = 0; sample < 20; sample++) {
+
+				float t = (sample + 0.5f) / 20;
+				Vector2f point = new Vector2f(from.getX() + (to.getX() - from.getX()) * t, from.getY() + (to.getY() - from.getY()) * t);
+
+				// The path may run along the edge of a square, which contains() doesn't count, and the squares fill their bounds
+				boolean inCorridor = false;
+				for (Polygon polygon : polygonPath)
+					inCorridor |= point.getX() >= polygon.getLeft() && point.getX() <= polygon.getRight() && point.getY() >= polygon.getBottom() && point.getY() <= polygon.getTop();
+
+				assertTrue("Path should stay inside the squares it goes through", inCorridor);
+
+			}
+
+			from = to;
+
+		}
+
+	}
+
+}
@@ -0,0 +1,173 @@
+package JUnitTesting;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.util.vector.Vector2f;
+
+import server.PathfindingService;
+import shared.NavMesh;
+import shared.Polygon;
+
+/**
+ * Test for the pathfinding service
+ * @author Chris
+ *
+ */
+public class PathfindingServiceTest {
+
+	NavMesh navMesh;
+
+	Vector2f start;
+	Vector2f goal;
+
+	// Work handed to the workers, run when the test chooses
+	ArrayList<Runnable> queuedWork = new ArrayList<Runnable>();
+
+	Executor queueingExecutor = new Executor() {
+
+		@Override
+		public void execute(Runnable command) {
+
+			queuedWork.add(command);
+
+		}
+
+	};
+
+	/**
+	 * Agent that records the paths it is given
+	 */
+	static class RecordingAgent implements PathfindingService.Agent {
+
+		int pathCount = 0;
+		ArrayList<Vector2f> lastPath;
+
+		@Override
+		public void onPathFound(ArrayList<Polygon> polygonPath, ArrayList<Vector2f> pointPath) {
+
+			pathCount++;
+			lastPath = pointPath;
+
+		}
+
+	}
+
+	private static Vector2f centreOf(Polygon polygon) {
+
+		Vector2f centre = new Vector2f();
+
+		for (Vector2f vertex : polygon.getVertices())
+			Vector2f.add(centre, vertex, centre);
+
+		centre.scale(1.0f / polygon.getVertices().size());
+
+		return centre;
+
+	}
+
+	private void runQueuedWork() {
+
+		for (Runnable work : queuedWork)
+			work.run();
+
+		queuedWork.clear();
+
+	}
+
+	@Before
+	public void setUp() throws Exception {
+
+		navMesh = new NavMesh("maps/original.navmesh");
+
+		ArrayList<Polygon> polygons = navMesh.getPolygons();
+
+		start = centreOf(polygons.get(0));
+		goal = centreOf(polygons.get(polygons.size() - 1));
+
+	}
+
+	@Test
+	public void testPathDelivered() {
+
+		PathfindingService service = new PathfindingService(navMesh, queueingExecutor, PathfindingService.DEFAULT_TICK_BUDGET_NS);
+		RecordingAgent agent = new RecordingAgent();
+
+		service.requestPath(agent, start, goal);
+		service.startRequests();
+
+		assertEquals("Path shouldn't be delivered before it has been found", 0, agent.pathCount);
+
+		runQueuedWork();
+		service.deliverResults();
+
+		assertEquals("Path should be delivered once", 1, agent.pathCount);
+		assertNotNull("A path should exist between two navmesh polygons", agent.lastPath);
+
+	}
+
+	@Test
+	public void testNewerRequestSupersedes() {
+
+		PathfindingService service = new PathfindingService(navMesh, queueingExecutor, PathfindingService.DEFAULT_TICK_BUDGET_NS);
+		RecordingAgent agent = new RecordingAgent();
+
+		// A waiting request is replaced
+		service.requestPath(agent, start, goal);
+		service.requestPath(agent, goal, start);
+
+		assertEquals("Agent should only have one waiting request", 1, service.getPendingCount());
+
+		service.startRequests();
+		runQueuedWork();
+		service.deliverResults();
+
+		assertEquals("Only the newest path should be delivered", 1, agent.pathCount);
+
+		// A request being worked on is dropped when it finishes
+		service.requestPath(agent, start, goal);
+		service.startRequests();
+		service.requestPath(agent, goal, start);
+		service.startRequests();
+
+		assertEquals("Agent's newer request should wait for the older one to finish", 1, queuedWork.size());
+
+		runQueuedWork();
+		service.deliverResults();
+
+		assertEquals("Superseded path shouldn't be delivered", 1, agent.pathCount);
+
+		service.startRequests();
+		runQueuedWork();
+		service.deliverResults();
+
+		assertEquals("Newest path should be delivered", 2, agent.pathCount);
+		assertEquals("Both replaced requests should be counted", 2, service.getSupersededCount());
+
+	}
+
+	@Test
+	public void testBudgetLimitsStartedRequests() {
+
+		PathfindingService service = new PathfindingService(navMesh, queueingExecutor, 0);
+
+		for (int i = 0; i < 3; i++)
+			service.requestPath(new RecordingAgent(), start, goal);
+
+		for (int waiting = 2; waiting >= 0; waiting--) {
+
+			service.startRequests();
+
+			assertEquals("One request should be started each tick when the budget is used up", waiting, service.getPendingCount());
+
+		}
+
+		assertEquals("Every request should have been started", 3, service.getStartedCount());
+
+	}
+
+}
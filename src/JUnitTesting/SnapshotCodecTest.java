@@ -0,0 +1,143 @@
+package JUnitTesting;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.util.vector.Vector2f;
+
+import client.ClientWorld;
+import shared.entities.ExampleEntity;
+import shared.net.BitReader;
+import shared.net.BitWriter;
+import shared.net.NetworkConstants;
+import shared.net.NetworkedVelocityInfo;
+import shared.net.SnapshotCodec;
+
+/**
+ * Test for the compact snapshot field encodings
+ * @author Chris
+ *
+ */
+public class SnapshotCodecTest {
+
+	ClientWorld clientWorld = null;
+
+	// 2000x1000 map centred on the origin
+	SnapshotCodec codec = null;
+
+	ByteArrayOutputStream bytes = null;
+
+	BitWriter out = null;
+
+	@Before
+	public void setUp() throws Exception {
+
+		clientWorld = new ClientWorld(null);
+
+		codec = new SnapshotCodec(2000, 1000);
+
+		bytes = new ByteArrayOutputStream();
+
+		out = new BitWriter(bytes);
+
+	}
+
+	private BitReader read() throws Exception {
+
+		out.flush();
+
+		return new BitReader(new ByteArrayInputStream(bytes.toByteArray()));
+
+	}
+
+	@Test
+	public void testPositions() throws Exception {
+
+		float step = 1 / NetworkConstants.QUANTIZED_POSITION_SCALE;
+		float edge = 1000 + NetworkConstants.QUANTIZED_BOUNDS_MARGIN;
+
+		codec.writePosition(out, new Vector2f(-123.4f, 456.7f));
+		codec.writePosition(out, new Vector2f(100000, -100000));
+
+		BitReader in = read();
+		Vector2f position = codec.readPosition(in);
+
+		assertEquals("Check x is within one step", -123.4f, position.getX(), step);
+		assertEquals("Check y is within one step", 456.7f, position.getY(), step);
+
+		position = codec.readPosition(in);
+
+		assertEquals("Check x outside the map is moved to the edge", edge, position.getX(), step);
+		assertEquals("Check y outside the map is moved to the edge", -500 - NetworkConstants.QUANTIZED_BOUNDS_MARGIN, position.getY(), step);
+
+	}
+
+	@Test
+	public void testDirections() throws Exception {
+
+		Vector2f direction = new Vector2f(-3, 4);
+		direction.normalise();
+
+		codec.writeDirection(out, direction);
+		codec.writeDirection(out, new Vector2f(0, 0));
+
+		BitReader in = read();
+		Vector2f decoded = codec.readDirection(in);
+
+		assertEquals("Check the direction's x", direction.getX(), decoded.getX(), 0.01f);
+		assertEquals("Check the direction's y", direction.getY(), decoded.getY(), 0.01f);
+		assertEquals("Check a zero vector stays zero", 0.0f, codec.readDirection(in).length(), 0.0f);
+
+	}
+
+	@Test
+	public void testTimesAreRelativeToSnapshot() throws Exception {
+
+		codec.setBaseTime(1000000000L);
+		codec.writeTime(out, 1000000000L - 40);
+		out.flush();
+
+		assertEquals("Check a recent time takes one byte", 1, bytes.size());
+
+		assertEquals("Check the time is restored", 1000000000L - 40, codec.readTime(read()));
+
+	}
+
+	@Test
+	public void testVelocityInfoIsSmaller() throws Exception {
+
+		ExampleEntity entity = new ExampleEntity(clientWorld, 0, 0);
+		NetworkedVelocityInfo field = entity.networkedVelocityInfo;
+
+		field.info.velocityStartPosition = new Vector2f(250.5f, -80.25f);
+		field.info.velocity = new Vector2f(3.0f, -3.0f);
+		field.info.velocitySetTime = 5000;
+		field.info.sequence = 12;
+		field.changed = true;
+
+		ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+		field.writeToNetStream(new DataOutputStream(uncompressed));
+
+		codec.setBaseTime(5017);
+		field.writeToSnapshot(out, codec);
+		out.flush();
+
+		assertTrue("Check the snapshot encoding is under half the size", bytes.size() * 2 < uncompressed.size());
+
+		ExampleEntity copy = new ExampleEntity(clientWorld, 0, 0);
+		copy.networkedVelocityInfo.readFromSnapshot(read(), codec);
+
+		assertEquals("Check the start position", 250.5f, copy.networkedVelocityInfo.info.velocityStartPosition.getX(), 0.0f);
+		assertEquals("Check the velocity", -3.0f, copy.networkedVelocityInfo.info.velocity.getY(), 0.0f);
+		assertEquals("Check the set time", 5000, copy.networkedVelocityInfo.info.velocitySetTime);
+		assertEquals("Check the sequence", 12, copy.networkedVelocityInfo.info.sequence);
+		assertTrue("Check the changed flag", copy.networkedVelocityInfo.changed);
+
+	}
+
+}
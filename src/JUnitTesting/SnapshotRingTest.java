@@ -0,0 +1,122 @@
+package JUnitTesting;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.util.vector.Vector2f;
+
+import client.ClientWorld;
+import server.net.EntityUpdateFrame;
+import server.net.SnapshotRing;
+import shared.entities.Flag;
+
+/**
+ * Test for the ring of recent snapshots
+ * @author Chris
+ *
+ */
+public class SnapshotRingTest {
+
+	ClientWorld clientWorld = null;
+
+	SnapshotRing snapshots = null;
+
+	@Before
+	public void setUp() throws Exception {
+
+		clientWorld = new ClientWorld(null);
+
+		snapshots = new SnapshotRing(4);
+
+	}
+
+	private Flag createFlag(int id) {
+
+		Flag flag = new Flag(clientWorld, 0, 0);
+		flag.setID(id);
+
+		return flag;
+
+	}
+
+	/**
+	 * Adds a snapshot changing each flag's position.
+	 * @param flags the flags to change
+	 */
+	private void addSnapshot(Flag... flags) {
+
+		EntityUpdateFrame frame = new EntityUpdateFrame();
+
+		for (Flag flag : flags) {
+
+			flag.setLocalPosition(new Vector2f(flag.getID(), snapshots.getLatestSequence() + 1));
+			frame.add(flag.getNetworkedEntityField(0));
+
+		}
+
+		snapshots.add(frame);
+
+	}
+
+	@Test
+	public void testCollectsDeltasSinceBaseline() {
+
+		Flag first = createFlag(1);
+		Flag second = createFlag(2);
+
+		addSnapshot(first);
+		addSnapshot(first, second);
+		addSnapshot(first);
+
+		assertEquals("Check the latest sequence", 2, snapshots.getLatestSequence());
+
+		EntityUpdateFrame delta = new EntityUpdateFrame();
+
+		assertTrue("Check the deltas are held", snapshots.collectDeltasSince(0, delta));
+		assertEquals("Check changes to the same field are collapsed", 2, delta.getFieldCount());
+
+		delta.clear();
+
+		assertTrue("Check an up to date baseline is held", snapshots.collectDeltasSince(2, delta));
+		assertTrue("Check an up to date baseline has no changes", delta.isEmpty());
+
+	}
+
+	@Test
+	public void testOldBaselineIsDropped() {
+
+		Flag flag = createFlag(1);
+
+		for (int i = 0; i < 6; i++)
+			addSnapshot(flag);
+
+		assertTrue("Check the baseline before the oldest snapshot is held", snapshots.hasDeltasSince(1));
+		assertFalse("Check an older baseline is dropped", snapshots.hasDeltasSince(0));
+		assertFalse("Check a future baseline is rejected", snapshots.hasDeltasSince(6));
+
+		EntityUpdateFrame delta = new EntityUpdateFrame();
+
+		assertFalse("Check deltas aren't collected from a dropped baseline", snapshots.collectDeltasSince(0, delta));
+
+	}
+
+	@Test
+	public void testRecyclesOldestFrame() {
+
+		Flag flag = createFlag(1);
+
+		for (int i = 0; i < 4; i++)
+			addSnapshot(flag);
+
+		EntityUpdateFrame frame = new EntityUpdateFrame();
+		frame.add(flag.getNetworkedEntityField(0));
+
+		EntityUpdateFrame recycled = snapshots.add(frame);
+
+		assertNotSame("Check the added frame is kept", frame, recycled);
+		assertTrue("Check the recycled frame is cleared", recycled.isEmpty());
+
+	}
+
+}
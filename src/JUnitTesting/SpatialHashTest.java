@@ -0,0 +1,109 @@
+package JUnitTesting;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.util.vector.Vector2f;
+
+import client.ClientWorld;
+import shared.Entity;
+import shared.SpatialHash;
+import shared.entities.TexturedBlock;
+
+/**
+ * Test for the physics spatial hash
+ * @author Chris
+ *
+ */
+public class SpatialHashTest {
+
+	ClientWorld clientWorld = null;
+
+	SpatialHash spatialHash = null;
+
+	@Before
+	public void setUp() throws Exception {
+
+		clientWorld = new ClientWorld(null);
+
+		spatialHash = new SpatialHash(SpatialHash.DEFAULT_CELL_SIZE);
+
+	}
+
+	@Test
+	public void testQueryFindsOnlyNearbyEntities() {
+
+		TexturedBlock near = new TexturedBlock(clientWorld, 10, 10, 20, 20, "rock");
+		TexturedBlock far = new TexturedBlock(clientWorld, 1000, 1000, 20, 20, "rock");
+
+		spatialHash.add(near);
+		spatialHash.add(far);
+
+		List<Entity> result = spatialHash.query(0, 0, 50, 50);
+
+		assertTrue("Check the nearby entity is returned", result.contains(near));
+		assertFalse("Check the distant entity is not returned", result.contains(far));
+
+	}
+
+	@Test
+	public void testLargeEntityReturnedOnce() {
+
+		TexturedBlock wall = new TexturedBlock(clientWorld, 0, 0, 1000, 50, "rock");
+
+		spatialHash.add(wall);
+
+		List<Entity> result = spatialHash.query(-500, -50, 500, 50);
+
+		assertEquals("Check an entity covering several cells is only returned once", 1, result.size());
+
+	}
+
+	@Test
+	public void testQueryKeepsInsertionOrder() {
+
+		TexturedBlock first = new TexturedBlock(clientWorld, 300, 0, 20, 20, "rock");
+		TexturedBlock second = new TexturedBlock(clientWorld, 0, 0, 20, 20, "rock");
+
+		spatialHash.add(first);
+		spatialHash.add(second);
+
+		List<Entity> result = spatialHash.query(-50, -50, 350, 50);
+
+		assertEquals("Check the first entity added is returned first", first, result.get(0));
+		assertEquals("Check the second entity added is returned second", second, result.get(1));
+
+	}
+
+	@Test
+	public void testUpdateMovesEntity() {
+
+		TexturedBlock block = new TexturedBlock(clientWorld, 0, 0, 20, 20, "rock");
+
+		spatialHash.add(block);
+
+		block.setLocalPosition(new Vector2f(1000, 1000));
+		spatialHash.update(block);
+
+		assertFalse("Check the entity is no longer found at its old position", spatialHash.query(-50, -50, 50, 50).contains(block));
+		assertTrue("Check the entity is found at its new position", spatialHash.query(950, 950, 1050, 1050).contains(block));
+
+	}
+
+	@Test
+	public void testRemove() {
+
+		TexturedBlock block = new TexturedBlock(clientWorld, 0, 0, 20, 20, "rock");
+
+		spatialHash.add(block);
+		spatialHash.remove(block);
+
+		assertEquals("Check the hash is empty after removing the entity", 0, spatialHash.size());
+		assertTrue("Check the removed entity is not returned", spatialHash.query(-50, -50, 50, 50).isEmpty());
+
+	}
+
+}
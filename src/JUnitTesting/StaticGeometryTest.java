@@ -0,0 +1,93 @@
+package JUnitTesting;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import client.ClientWorld;
+import shared.Entity;
+import shared.StaticGeometry;
+import shared.entities.Boundary;
+import shared.entities.Flag;
+import shared.entities.TexturedBlock;
+
+/**
+ * Test for the baked static geometry and world entity partitioning
+ * @author Chris
+ *
+ */
+public class StaticGeometryTest {
+
+	ClientWorld clientWorld = null;
+
+	@Before
+	public void setUp() throws Exception {
+
+		clientWorld = new ClientWorld(null);
+
+	}
+
+	@Test
+	public void testQueryFindsOverlappingBoxes() {
+
+		ArrayList<Entity> blocks = new ArrayList<Entity>();
+
+		TexturedBlock left = new TexturedBlock(clientWorld, -200, 0, 50, 50, "rock");
+		TexturedBlock middle = new TexturedBlock(clientWorld, 0, 0, 50, 50, "rock");
+		Boundary wide = new Boundary(clientWorld, 0, 300, 1000, 50);
+
+		blocks.add(left);
+		blocks.add(middle);
+		blocks.add(wide);
+
+		StaticGeometry geometry = new StaticGeometry(blocks);
+
+		ArrayList<Entity> result = new ArrayList<Entity>();
+		geometry.query(-10, -10, 10, 10, result);
+
+		assertEquals("Check only the overlapping block is found", 1, result.size());
+		assertEquals("Check the overlapping block is found", middle, result.get(0));
+
+		result.clear();
+		geometry.query(450, 290, 460, 310, result);
+
+		assertTrue("Check a wide box starting far to the left is still found", result.contains(wide));
+
+	}
+
+	@Test
+	public void testTouchingEdgesOverlap() {
+
+		ArrayList<Entity> blocks = new ArrayList<Entity>();
+
+		TexturedBlock block = new TexturedBlock(clientWorld, 0, 0, 50, 50, "rock");
+		blocks.add(block);
+
+		StaticGeometry geometry = new StaticGeometry(blocks);
+
+		ArrayList<Entity> result = new ArrayList<Entity>();
+		geometry.query(25, 25, 40, 40, result);
+
+		assertTrue("Check a box touching the area edge is found", result.contains(block));
+
+	}
+
+	@Test
+	public void testWorldPartitionsEntities() {
+
+		TexturedBlock block = new TexturedBlock(clientWorld, 0, 0, 50, 50, "rock");
+		Flag flag = new Flag(clientWorld, 0, 0);
+
+		clientWorld.registerEntity(block);
+		clientWorld.registerEntity(flag);
+
+		assertTrue("Check the block is static", clientWorld.getStaticEntities().contains(block));
+		assertTrue("Check the flag is dynamic", clientWorld.getDynamicEntities().contains(flag));
+		assertEquals("Check the block is baked into the static geometry", 1, clientWorld.getStaticGeometry().size());
+
+	}
+
+}
@@ -0,0 +1,151 @@
+package JUnitTesting;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import server.TickScheduler;
+
+/**
+ * Test for the fixed timestep tick scheduler
+ * @author Chris
+ *
+ */
+public class TickSchedulerTest {
+
+	// Clock time in nanoseconds read by the scheduler
+	long clock = 0;
+
+	// Time each tick takes to run in nanoseconds
+	long tickCost = 0;
+
+	ArrayList<Integer> deltas = new ArrayList<Integer>();
+
+	TickScheduler.Task task = new TickScheduler.Task() {
+
+		@Override
+		public void tick(int delta) {
+
+			deltas.add(delta);
+			clock += tickCost;
+
+		}
+
+	};
+
+	private TickScheduler createScheduler(int tickRate, int maxCatchUpTicks) {
+
+		return new TickScheduler(tickRate, maxCatchUpTicks) {
+
+			@Override
+			protected long nanoTime() {
+
+				return clock;
+
+			}
+
+		};
+
+	}
+
+	@Before
+	public void setUp() {
+
+		clock = 1000;
+		tickCost = 0;
+		deltas.clear();
+
+	}
+
+	@Test
+	public void testFixedSteps() {
+
+		TickScheduler scheduler = createScheduler(60, 5);
+		int total = 0;
+
+		// One second of ticks run on time
+		for (int i = 0; i < 60; i++) {
+
+			assertEquals("Check one tick is due", 1, scheduler.runDueTicks(task));
+			assertEquals("Check the next tick isn't due early", 0, scheduler.runDueTicks(task));
+
+			clock += 1000000000L / 60;
+
+		}
+
+		for (int delta : deltas) {
+
+			assertTrue("Check every step is 16 or 17ms", delta == 16 || delta == 17);
+			total += delta;
+
+		}
+
+		assertEquals("Check a second of steps adds up to a second", 1000, total);
+		assertEquals("Check no ticks overran", 0, scheduler.getOverrunTickCount());
+
+	}
+
+	@Test
+	public void testCatchesUpMissedTicks() {
+
+		TickScheduler scheduler = createScheduler(50, 5);
+
+		scheduler.runDueTicks(task);
+
+		// Three ticks late
+		clock += 3 * 20000000L;
+
+		assertEquals("Check the missed ticks are run", 3, scheduler.runDueTicks(task));
+		assertEquals("Check the steps are the same size", 20, (int)deltas.get(3));
+		assertEquals("Check nothing was dropped", 0, scheduler.getDroppedTickCount());
+
+	}
+
+	@Test
+	public void testDropsBacklogPastLimit() {
+
+		TickScheduler scheduler = createScheduler(50, 2);
+
+		scheduler.runDueTicks(task);
+
+		// Ten ticks late
+		clock += 10 * 20000000L;
+
+		assertEquals("Check only the catch up limit is run", 2, scheduler.runDueTicks(task));
+		assertEquals("Check the rest of the backlog is dropped", 8, scheduler.getDroppedTickCount());
+		assertEquals("Check the next tick isn't due straight away", 0, scheduler.runDueTicks(task));
+
+	}
+
+	@Test
+	public void testCountsOverruns() {
+
+		TickScheduler scheduler = createScheduler(50, 1);
+
+		tickCost = 30000000L;
+
+		scheduler.runDueTicks(task);
+
+		assertEquals("Check a tick longer than the interval is an overrun", 1, scheduler.getOverrunTickCount());
+		assertEquals("Check the longest tick time", tickCost, scheduler.getLongestTickNs());
+
+	}
+
+	@Test
+	public void testInvalidTickRate() {
+
+		try {
+
+			new TickScheduler(0, 1);
+			fail("Check a tick rate of zero is rejected");
+
+		} catch (IllegalArgumentException e) {
+
+		}
+
+	}
+
+}
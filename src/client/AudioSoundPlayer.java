@@ -0,0 +1,68 @@
+package client;
+
+import java.io.IOException;
+import java.util.EnumMap;
+
+import org.newdawn.slick.openal.Audio;
+import org.newdawn.slick.openal.AudioLoader;
+import org.newdawn.slick.util.ResourceLoader;
+
+import shared.SoundEffect;
+import shared.SoundPlayer;
+
+/**
+ * Plays sound effects through OpenAL.
+ * @author Chris
+ *
+ */
+public class AudioSoundPlayer implements SoundPlayer {
+	
+	
+	//****Class variables****
+	
+	
+	private EnumMap<SoundEffect, Audio> sounds = new EnumMap<SoundEffect, Audio>(SoundEffect.class);
+	
+	
+	//****Constructors****
+	
+	
+	/**
+	 * Loads every sound effect.
+	 * @throws IOException if a sound file can't be loaded
+	 */
+	public AudioSoundPlayer() throws IOException {
+		
+		this.sounds.put(SoundEffect.GUN_SHOT, loadWAV("GunShot"));
+		this.sounds.put(SoundEffect.DEATH, loadWAV("DeathSound"));
+		this.sounds.put(SoundEffect.ANIMAL, loadWAV("AnimalSounds"));
+		
+	}
+	
+	
+	//****Class methods****
+	
+	
+	@Override
+	public void play(SoundEffect effect) {
+		
+		Audio sound = this.sounds.get(effect);
+		
+		if (sound != null)
+			sound.playAsSoundEffect(1f, 1f, false);
+		
+	}
+	
+	/**
+	 * Loads a WAV sound file.
+	 * @param soundName the sound file name
+	 * @return the sound
+	 * @throws IOException if the file can't be loaded
+	 */
+	private static Audio loadWAV(String soundName) throws IOException {
+		
+		return AudioLoader.getAudio("WAV", ResourceLoader.getResourceAsStream("res/Sound/" + soundName + ".wav"));
+		
+	}
+	
+}
@@ -18,7 +18,10 @@ import shared.World;
 import shared.GUI.Menus.InGameHUD;
 import shared.entities.FlagCaptureRegion;
 import shared.entities.Player;
+import shared.net.BitReader;
+import shared.net.NetworkConstants;
 import shared.net.NetworkedEntityField;
+import shared.net.SnapshotCodec;
 
 /**
  * The client implementation of a game world.
@@ -58,6 +61,14 @@ public class ClientWorld extends World {
 	private long serverTime = 0;
 	private long lastServerTimeUpdate = 0;
 
+	// Sequence of the last snapshot applied
+	private int snapshotSequence = NetworkConstants.NO_BASELINE;
+	
+	// Snapshots are packed into as few bits as their values need
+	// The codec is created once the server sends the map size
+	private BitReader snapshotReader = new BitReader();
+	private SnapshotCodec snapshotCodec;
+
 	private int localPlayerID = -1;
 	
 	
@@ -68,6 +79,9 @@ public class ClientWorld extends World {
 		
 		this.gameWindow = gameWindow;
 		
+		if (gameWindow != null)
+			this.soundPlayer = gameWindow.getSoundPlayer();
+		
 		// Create physics manager
 		this.physics = new Physics(this.entities, this);
 			
@@ -143,7 +157,8 @@ public class ClientWorld extends World {
 		synchronized (entities) {
 		
 			// Update entities
-			for (Entity entity : entities) {
+			// Static entities never change so only dynamic entities are updated
+			for (Entity entity : dynamicEntities) {
 			
 				entity.update(delta);
 				
@@ -203,7 +218,7 @@ public class ClientWorld extends World {
 	@Override
 	public void registerEntity(Entity entity) {
 		
-		this.entities.add(entity);
+		addEntity(entity);
 		
 	}
 	
@@ -224,6 +239,26 @@ public class ClientWorld extends World {
 		
 	}
 
+	/**
+	 * Called by the server to send the size of the map
+	 * @param in	the input stream from the server
+	 * @return	true if successful
+	 * @throws IOException	if there is an error reading from the input stream
+	 */
+	public boolean onMapSizeMessage(DataInputStream in) throws IOException {
+		
+		int width = in.readInt();
+		int height = in.readInt();
+		
+		if (width <= 0 || height <= 0)
+			return false;
+		
+		this.snapshotCodec = new SnapshotCodec(width, height);
+		
+		return true;
+		
+	}
+
 	/**
 	 * Called by the server to send the background texture name
 	 * @param in	the input stream from the server
@@ -269,7 +304,11 @@ public class ClientWorld extends World {
 				
 				System.out.println("created entity: " + constructedObject + "," + constructedObject.getID());
 
-				if (this.getEntityByID(constructedObject.getID()) == null)
+				// An entity that left the player's view and came back can be created again
+				// before the old one has been deleted, the new one replaces it
+				Entity existing = this.getEntityByID(constructedObject.getID());
+				
+				if (existing == null || this.deadEntities.contains(existing))
 					this.registerEntity(constructedObject);
 				else
 					System.out.println("create entity msg for entity already registered");
@@ -337,47 +376,57 @@ public class ClientWorld extends World {
 	}
 
 	/**
-	 * Called by the server to send entity updates
-	 * @param in	the input stream from the server
+	 * Applies the entity updates in a snapshot
+	 * @param in	the reader for the snapshot
+	 * @param codec	the codec used for field values
 	 * @return	true if successful
 	 * @throws IOException	if there was an error reading from the input stream
 	 */
-	public boolean onEntityUpdateMessage(DataInputStream in) throws IOException {
+	public boolean onEntityUpdatesMessage(BitReader in, SnapshotCodec codec) throws IOException {
 		
 		synchronized (this.entities) {
 		
-			//System.out.println("onEntityUpdateMessage");
-			int entityID = in.readInt();
-			int fieldID = in.readInt();
-			//System.out.println("update: " + entityID + "," + fieldID);
+			int entityCount = in.readVarInt();
+			int entityID = 0;
 			
-			Entity entity = getEntityByID(entityID);
-			
-			if (entity == null) {
-				System.err.println("Entity update received for non-existent entity: " + entityID + "," + fieldID);	
-				return false;
-			}
-			
-			for (NetworkedEntityField f : entity.getNetworkedEntityFields()) {
-			
-				//System.out.println(f.getParentEntityID() + "," + f.getFieldID());
+			for (int i = 0; i < entityCount; i++) {
 				
-				if (f.getFieldID() == fieldID) {
+				// IDs are sent relative to the previous entity's
+				entityID += (int)in.readSignedVarLong();
+				int slotCount = in.readVarInt();
 				
-					f.readFromNetStream(in);
-					f.getParentEntity().onNetworkFieldChange(f);
-					
-					return true;
-					
+				Entity entity = getEntityByID(entityID);
+				
+				if (entity == null) {
+					System.err.println("Entity update received for non-existent entity: " + entityID);	
+					return false;
 				}
 				
-			}
-		
-			System.err.println("Entity update received for non-existent entity field: " + entityID + "," + fieldID);
-			System.out.println("entity fields:");
-			for (NetworkedEntityField f : entity.getNetworkedEntityFields()) {
+				// Field values aren't length prefixed so the rest of the message can't be skipped
+				if (slotCount > entity.getNetworkedEntityFieldCount()) {
+					System.err.println("Entity update received for non-existent entity field: " + entityID + "," + (slotCount - 1));
+					System.out.println("entity field count: " + entity.getNetworkedEntityFieldCount());
+					return false;
+				}
 				
-				System.out.println(f.getParentEntityID() + "," + f.getFieldID());
+				for (int fieldID = 0; fieldID < slotCount; fieldID++) {
+					
+					// Unchanged fields are one bit
+					if (!in.readBoolean())
+						continue;
+					
+					// Field IDs index straight into the entity's field table
+					NetworkedEntityField f = entity.getNetworkedEntityField(fieldID);
+					
+					if (f == null) {
+						System.err.println("Entity update received for non-existent entity field: " + entityID + "," + fieldID);
+						return false;
+					}
+					
+					f.readFromSnapshot(in, codec);
+					f.getParentEntity().onNetworkFieldChange(f);
+					
+				}
 				
 			}
 			
@@ -402,16 +451,10 @@ public class ClientWorld extends World {
 		
 			int entityID = in.readInt();
 			
-			for (Entity entity : this.getEntities()) {
+			Entity entity = getEntityByID(entityID);
 			
-				if (entity.getID() == entityID) {
-					
-					addDeadEntity(entity);
-					
-					break;
-					
-				}
-			}
+			if (entity != null)
+				addDeadEntity(entity);
 			
 		}
 		
@@ -420,17 +463,42 @@ public class ClientWorld extends World {
 	}
 	
 	/**
-	 * Called by the server to send the server time
+	 * Called by the server to send a snapshot: the server time and the entity
+	 * updates since the baseline snapshot
 	 * @param in	the input stream from the server
 	 * @return	true if successful
 	 * @throws IOException	if there was an error reading from the input stream
 	 */
-	public boolean onServerTimeMessage(DataInputStream in) throws IOException {
+	public boolean onSnapshotMessage(DataInputStream in) throws IOException {
 		
-		long curTime = in.readLong();
+		if (this.snapshotCodec == null) {
+			System.err.println("Snapshot received before the map size");
+			return false;
+		}
+		
+		BitReader bits = this.snapshotReader;
+		bits.setInputStream(in);
+		
+		int sequence = (int)bits.readSignedVarLong();
+		int baselineDistance = bits.readVarInt();
+		int baseline = baselineDistance == 0 ? NetworkConstants.NO_BASELINE : sequence - baselineDistance;
+		long curTime = bits.readLong();
+		
+		// Deltas only make sense on top of the snapshot they were made from
+		if (baseline != NetworkConstants.NO_BASELINE && baseline != this.snapshotSequence) {
+			System.err.println("Snapshot " + sequence + " is relative to " + baseline + " but the last snapshot applied was " + this.snapshotSequence);
+			return false;
+		}
 	
 		this.serverTime = curTime;
 		this.lastServerTimeUpdate = getLocalTime();
+		
+		this.snapshotCodec.setBaseTime(curTime);
+		
+		if (!onEntityUpdatesMessage(bits, this.snapshotCodec))
+			return false;
+		
+		this.snapshotSequence = sequence;
 	
 		return true;
 		
@@ -556,6 +624,16 @@ public class ClientWorld extends World {
 		
 	}
 	
+	/**
+	 * Gets the sequence of the last snapshot applied
+	 * @return	the sequence
+	 */
+	public int getSnapshotSequence() {
+		
+		return this.snapshotSequence;
+		
+	}
+	
 	/**
 	 * Gets the network client
 	 * @return	the network client
@@ -1,7 +1,9 @@
 package client;
 
 import java.io.IOException;
+import java.util.HashMap;
 
+import org.lwjgl.input.Mouse;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.util.vector.Vector2f;
 import org.newdawn.slick.Color;
@@ -28,12 +30,21 @@ public class WorldView {
 	private final int BACKGROUND_TEXTURE_WIDTH = 128;
 	private final int BACKGROUND_TEXTURE_HEIGHT = 128;
 	
+	private final float WORLD_TEXT_SIZE = 9.0f;
+	
 	private ClientWorld world;
 	private Player player;
 	private String mapTextureName;
 	
 	private Texture mapTexture;
 	
+	// Reused to draw text in the world
+	private Label textLabel;
+	private Color textColor = new Color(1.0f, 1.0f, 1.0f);
+	
+	// Entity textures loaded so far, by image name
+	private HashMap<String, Texture> textures = new HashMap<String, Texture>();
+	
 	
 	//****Constructors****
 	
@@ -61,6 +72,27 @@ public class WorldView {
 		}
 	}
 	
+	/**
+	 * Gets the texture for a PNG image, loading it the first time it is used.
+	 * @param imageName The image name
+	 * @return the texture, or null if it couldn't be loaded
+	 */
+	public Texture getTexturePNG(String imageName) {
+		Texture texture = textures.get(imageName);
+		
+		if (texture == null && !textures.containsKey(imageName)) {
+			try {
+				texture = TextureLoader.getTexture("PNG", ResourceLoader.getResourceAsStream("res/images/" + imageName + ".png"));
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			
+			textures.put(imageName, texture);
+		}
+		
+		return texture;
+	}
+	
 	/**
 	 * Draws a rectangle in the specified world position relative
 	 * to the top-down map view/player position. As the player moves
@@ -248,6 +280,38 @@ public class WorldView {
 		component.drawComponent();
 	}
 
+	/**
+	 * Draws text in the specified world position relative
+	 * to the top-down map view/player position.
+	 * @param text the text
+	 * @param x world position x
+	 * @param y world position y
+	 * @param r red colour component (0.0f-1.0f)
+	 * @param g green colour component (0.0f-1.0f)
+	 * @param b blue colour component (0.0f-1.0f)
+	 */
+	public void drawWorldText(String text, float x, float y, float r, float g, float b) {
+		if (textLabel == null)
+			textLabel = new Label(world.getGameWindow(), 0, 0, "", null, WORLD_TEXT_SIZE);
+		
+		textColor.r = r;
+		textColor.g = g;
+		textColor.b = b;
+		
+		textLabel.setColor(textColor);
+		textLabel.setLabelText(text);
+		
+		drawGUIComponent(textLabel, x, y);
+	}
+
+	/**
+	 * Gets the world coordinate under the mouse pointer.
+	 * @return world coordinate
+	 */
+	public Vector2f getMouseWorldPos() {
+		return mousePosToWorldPos(new Vector2f(Mouse.getX(), Mouse.getY()));
+	}
+
 	/**
 	 * Converts a mouse coordinate to the corresponding world coordinate.
 	 * @param mousePos mouse coordinate
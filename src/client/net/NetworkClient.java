@@ -3,8 +3,11 @@ package client.net;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.ConnectException;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 import org.lwjgl.input.Mouse;
@@ -13,6 +16,12 @@ import org.lwjgl.util.vector.Vector2f;
 import client.ClientWorld;
 
 import shared.EntityIntersectionInfo;
+import shared.net.BufferPool;
+import shared.net.ByteBufferInputStream;
+import shared.net.ByteBufferOutputStream;
+import shared.net.FrameDecoder;
+import shared.net.FrameHandler;
+import shared.net.FrameWriter;
 import shared.net.NetworkConstants;
 
 /**
@@ -26,11 +35,21 @@ public class NetworkClient {
 	//****Class variables****
 	
 
+	// Initial size of the read buffer, it grows to fit larger frames
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+	// Server message types by ID, values() copies the array on every call
+	private static final NetworkConstants.S2C[] S2C_TYPES = NetworkConstants.S2C.values();
+
 	private Socket socket;
 	private final ClientWorld clientWorld;
-	private DataOutputStream out;
+	private OutputStream out;
 	private Thread clientThread;
 	public boolean error;
+
+	// Messages to the server are framed into a reused buffer then written in one go
+	private final ByteBufferOutputStream frameStream = new ByteBufferOutputStream(new BufferPool(1024, 1));
+	private final FrameWriter frames = new FrameWriter(this.frameStream);
 	
 	
 	//****Constructor****
@@ -45,66 +64,122 @@ public class NetworkClient {
 		// Read error
 		this.error = false;
 			
+        // Frames are read from the read buffer through a reused stream
+        final ByteBufferInputStream bodyStream = new ByteBufferInputStream();
+        final DataInputStream body = new DataInputStream(bodyStream);
+        
+        final FrameHandler frameHandler = new FrameHandler() {
+        	
+        	@Override
+        	public void onFrame(int type, ByteBuffer frameBody) throws IOException {
+        		
+        		if (type >= S2C_TYPES.length) {
+        			
+        			// Framing means unknown messages can be skipped without losing the stream
+        			System.out.println("skipping unknown message type " + type);
+        			return;
+        			
+        		}
+        		
+        		bodyStream.setBuffer(frameBody);
+        		
+        		NetworkConstants.S2C messageType = S2C_TYPES[type];
+        		boolean handled = false;
+            	
+            	switch (messageType) {
+            	case CREATE_ENTITIES: // create entities
+            		handled = clientWorld.onCreateEntitiesMessage(body);
+            		break;
+            	case DELETE_ENTITIES: // delete entities
+            		handled = clientWorld.onDeleteEntitiesMessage(body);
+            		break;
+            	case SNAPSHOT: // server time and entity updates
+            		handled = clientWorld.onSnapshotMessage(body);
+            		break;
+            	case SET_BACKGROUND_TEXTURE: // background texture         		
+            		handled = clientWorld.onBackgroundMessage(body);
+            		break;
+            	case SET_PLAYER_ID: // player id
+            		handled = clientWorld.onPlayerIDMessage(body);
+            		break;
+            	case CREATE_TEAM:
+            		handled = clientWorld.onCreateTeamMessage(body);
+            		break;
+            	case TEAM_SCORE_CHANGE:
+            		handled = clientWorld.onTeamScoreChangeMessage(body);
+            		break;
+            	case SET_MAP_SIZE:
+            		handled = clientWorld.onMapSizeMessage(body);
+            		break;
+            	}
+            	
+            	bodyStream.setBuffer(null);
+            	
+            	if (!handled)
+            		throw new IOException("invalid " + messageType + " message");
+        		
+        	}
+        	
+        };
+			
         Runnable clientTask = new Runnable() {
         	
 			@Override
 			public void run() {	        
 		    
-				// Listen for packets
-				DataInputStream in = null;
+				// Listen for frames
+				InputStream in = null;
 				
 				try {
 				
-					in = new DataInputStream(socket.getInputStream());
+					in = socket.getInputStream();
+					
+					// Bytes received but not yet decoded, kept in write mode between reads
+					ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+					
+					// Last snapshot acknowledged to the server
+					int ackedSnapshot = NetworkConstants.NO_BASELINE;
 					
 					while (!error) {					
 					
-						int messageTypeID = in.readInt();
+						int count = in.read(readBuffer.array(), readBuffer.position(), readBuffer.remaining());
+						
+						if (count < 0)
+							throw new IOException("server closed the connection");
 						
-						//System.out.println("client: received message type " + messageTypeID);
-		            	
-						if (messageTypeID < 0 || messageTypeID >= NetworkConstants.S2C.values().length) {
+						readBuffer.position(readBuffer.position() + count);
+						readBuffer.flip();
 						
-							System.out.println("unknown message type " + messageTypeID);
-		            		error = true;
-		            		break;
-		            		
+						FrameDecoder.decode(readBuffer, NetworkConstants.MAX_FRAME_SIZE, frameHandler);
+						
+						// Acknowledge the newest snapshot applied, once per read rather than per snapshot
+						if (clientWorld.getSnapshotSequence() != ackedSnapshot) {
+							
+							ackedSnapshot = clientWorld.getSnapshotSequence();
+							sendSnapshotAck(ackedSnapshot);
+							
+						}
+						
+						readBuffer.compact();
+						
+						// Grow to fit a frame larger than the buffer
+						if (!readBuffer.hasRemaining()) {
+							
+							ByteBuffer larger = ByteBuffer.allocate(readBuffer.capacity() * 2);
+							
+							readBuffer.flip();
+							larger.put(readBuffer);
+							
+							readBuffer = larger;
+							
 						}
 						
-						NetworkConstants.S2C messageType = NetworkConstants.S2C.values()[messageTypeID];
-		            	
-		            	switch (messageType) {
-		            	case CREATE_ENTITIES: // create entities
-		            		error = !clientWorld.onCreateEntitiesMessage(in);
-		            		break;
-		            	case DELETE_ENTITIES: // delete entities
-		            		error = !clientWorld.onDeleteEntitiesMessage(in);
-		            		break;
-		            	case UPDATE_ENTITY_FIELD: // entity update
-		            		error = !clientWorld.onEntityUpdateMessage(in);
-		            		break;
-		            	case SET_BACKGROUND_TEXTURE: // background texture         		
-		            		error = !clientWorld.onBackgroundMessage(in);
-		            		break;
-		            	case SET_PLAYER_ID: // player id
-		            		error = !clientWorld.onPlayerIDMessage(in);
-		            		break;
-		            	case SET_SERVER_TIME:
-		            		error = !clientWorld.onServerTimeMessage(in);
-		            		break;
-		            	case CREATE_TEAM:
-		            		error = !clientWorld.onCreateTeamMessage(in);
-		            		break;
-		            	case TEAM_SCORE_CHANGE:
-		            		error = !clientWorld.onTeamScoreChangeMessage(in);
-		            		break;
-		            	}
 					}
             	} catch (IOException e) {
             		
             		//e.printStackTrace();
             		
-            		System.err.println("NetworkClient: connection lost to server");
+            		System.err.println("NetworkClient: connection lost to server: " + e.getMessage());
             		            		
             		error = true;
             		
@@ -129,7 +204,7 @@ public class NetworkClient {
         this.clientThread = new Thread(clientTask);
         this.clientThread.start();
         
-        this.out = new DataOutputStream(socket.getOutputStream());
+        this.out = socket.getOutputStream();
         
 	}
 	
@@ -137,6 +212,34 @@ public class NetworkClient {
 	//****Class methods****
 	
 
+	/**
+	 * Starts a frame for a message to the server.
+	 * Must be called holding the frame writer's lock.
+	 * @param type the message type
+	 * @return the stream to write the message body to
+	 * @throws IOException
+	 */
+	private DataOutputStream beginFrame(NetworkConstants.C2S type) throws IOException {
+		
+		// Drop anything left by a message that failed part way through
+		this.frames.reset();
+		
+		return this.frames.begin(type);
+		
+	}
+	
+	/**
+	 * Ends the current frame and writes it to the server.
+	 * Must be called holding the frame writer's lock.
+	 * @throws IOException
+	 */
+	private void sendFrame() throws IOException {
+		
+		this.frames.end();
+		this.frameStream.writeTo(this.out);
+		
+	}
+
 	/**
 	 * 
 	 */
@@ -144,10 +247,10 @@ public class NetworkClient {
 		
 		try {
 			
-			synchronized (out) {
+			synchronized (frames) {
 			
-				// Message type
-				out.writeInt(NetworkConstants.C2S.CONNECT.ordinal());
+				beginFrame(NetworkConstants.C2S.CONNECT);
+				sendFrame();
 				
 			}
 			
@@ -162,15 +265,37 @@ public class NetworkClient {
 
 	public void sendKeyboardInput(int eventKey, boolean pressed) throws IOException {
 	
-		synchronized (out) {	
+		synchronized (frames) {	
 		
-			// Message type
-			out.writeInt(NetworkConstants.C2S.KEYBOARD_INPUT.ordinal());
+			DataOutputStream out = beginFrame(NetworkConstants.C2S.KEYBOARD_INPUT);
+			
 			// Event key
 			out.writeInt(eventKey);
 			// Key pressed or not
 			out.writeBoolean(pressed);
 			
+			sendFrame();
+			
+		}
+		
+	}
+
+	/**
+	 * Tells the server the last snapshot the client has applied.
+	 * @param sequence snapshot sequence
+	 * @throws IOException
+	 */
+	public void sendSnapshotAck(int sequence) throws IOException {
+		
+		synchronized (frames) {
+			
+			DataOutputStream out = beginFrame(NetworkConstants.C2S.SNAPSHOT_ACK);
+			
+			// Snapshot sequence
+			out.writeInt(sequence);
+			
+			sendFrame();
+			
 		}
 		
 	}
@@ -181,12 +306,12 @@ public class NetworkClient {
 	 * @throws IOException
 	 */
 	public void sendMousePosition(Vector2f mouseMapPos) throws IOException {
-		synchronized (out) {
-			// Message type
-			out.writeInt(NetworkConstants.C2S.MOUSE_POSITION.ordinal());
+		synchronized (frames) {
+			DataOutputStream out = beginFrame(NetworkConstants.C2S.MOUSE_POSITION);
 			// Position
 			out.writeFloat(mouseMapPos.getX());
 			out.writeFloat(mouseMapPos.getY());
+			sendFrame();
 		}		
 	}
 	
@@ -197,10 +322,9 @@ public class NetworkClient {
         // Convert the mouse coordinates so that they are relative to the map
         Vector2f mouseMapPos = clientWorld.getView().mousePosToWorldPos(mousePos); 
     	
-		synchronized (out) {
+		synchronized (frames) {
 		
-			// Message type
-			out.writeInt(NetworkConstants.C2S.GUN_SHOT_INFO.ordinal());
+			DataOutputStream out = beginFrame(NetworkConstants.C2S.GUN_SHOT_INFO);
 			
 			// Aim vector
 			out.writeFloat(mouseMapPos.getX());
@@ -232,6 +356,8 @@ public class NetworkClient {
 				
 			}
 			
+			sendFrame();
+			
 		}	
 		
 	}
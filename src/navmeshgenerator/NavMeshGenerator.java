@@ -104,7 +104,7 @@ public class NavMeshGenerator extends JFrame {
 	}
 
 	/**
-	 * Stores a navigation mesh object in a file
+	 * Stores a navigation mesh object in a file, and in the compiled format alongside it
 	 * @param navMesh The navigation mesh object to store
 	 * @param navMeshFileName The file to store the mesh in
 	 */
@@ -181,6 +181,9 @@ public class NavMeshGenerator extends JFrame {
 				writer.newLine();
 			}
 
+			// Write the clusters of large navmeshes, so they don't have to be worked out when the navmesh is loaded
+			navMesh.writeHierarchy(writer);
+
 			// Close the root node
 			writer.write("</navmesh>");
 
@@ -197,6 +200,14 @@ public class NavMeshGenerator extends JFrame {
 				}
 			} catch (IOException e) {}
 		}
+
+		// Write the compiled navmesh the game loads, the XML file is kept for looking at and editing by hand
+		try {
+			navMesh.storeCompiled(NavMesh.getCompiledFileName(navMeshFileName));
+		} catch (IOException e) {
+			System.out.println("Could not write to file:");
+			System.out.println(e.getMessage());
+		}
 	}
 
 	/**
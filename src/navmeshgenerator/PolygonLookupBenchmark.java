@@ -0,0 +1,174 @@
+package navmeshgenerator;
+
+import java.util.ArrayList;
+import java.util.Random;
+import org.lwjgl.util.vector.Vector2f;
+
+import shared.InvalidMapException;
+import shared.NavMesh;
+import shared.Polygon;
+import shared.PolygonOnTheFly;
+
+/**
+ * Compares finding the polygon containing a point using the navmesh's grid against testing every polygon in turn
+ * Run with the navmesh files to measure, a synthetic map of small squares is always measured as well
+ * @author Barney
+ */
+public class PolygonLookupBenchmark {
+	// The number of random points looked up in each run
+	private static final int LOOKUP_COUNT = 200000;
+
+	// The number of runs before timing, so the JIT has compiled both lookups
+	private static final int WARMUP_RUNS = 10;
+
+	// The number of squares along each side of the synthetic map
+	private static final int SYNTHETIC_SQUARES_PER_SIDE = 200;
+
+	// The width and height of each square of the synthetic map
+	private static final int SYNTHETIC_SQUARE_SIZE = 32;
+
+	/**
+	 * Runs the benchmark
+	 * @param args The navmesh files to measure, defaults to the maps shipped with the game
+	 */
+	public static void main(String[] args) throws InvalidMapException {
+		if (args.length == 0) {
+			args = new String[] {"maps/original.navmesh", "maps/dessert.navmesh"};
+		}
+
+		for (String navMeshFileName : args) {
+			benchmark(navMeshFileName, new NavMesh(navMeshFileName));
+		}
+
+		benchmark("synthetic " + SYNTHETIC_SQUARES_PER_SIDE + "x" + SYNTHETIC_SQUARES_PER_SIDE, createSyntheticNavMesh());
+	}
+
+	/**
+	 * Creates a large navmesh made of a grid of squares
+	 * @return The navmesh
+	 */
+	private static NavMesh createSyntheticNavMesh() {
+		ArrayList<Polygon> polygons = new ArrayList<Polygon>();
+		for (int row = 0; row < SYNTHETIC_SQUARES_PER_SIDE; row++) {
+			for (int column = 0; column < SYNTHETIC_SQUARES_PER_SIDE; column++) {
+				polygons.add(new PolygonOnTheFly(column * SYNTHETIC_SQUARE_SIZE, (row + 1) * SYNTHETIC_SQUARE_SIZE, SYNTHETIC_SQUARE_SIZE, SYNTHETIC_SQUARE_SIZE));
+			}
+		}
+
+		return new NavMesh(polygons);
+	}
+
+	/**
+	 * Times both lookups on the same random points, and checks they find the same polygons
+	 * @param name The name to print the results under
+	 * @param navMesh The navmesh to measure
+	 */
+	private static void benchmark(String name, NavMesh navMesh) {
+		ArrayList<Polygon> polygons = navMesh.getPolygons();
+
+		// Pick points inside the bounds of the navmesh, some will fall between polygons
+		float minX = Float.MAX_VALUE;
+		float minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE;
+		float maxY = -Float.MAX_VALUE;
+		for (Polygon p : polygons) {
+			minX = Math.min(minX, p.getLeft());
+			minY = Math.min(minY, p.getBottom());
+			maxX = Math.max(maxX, p.getRight());
+			maxY = Math.max(maxY, p.getTop());
+		}
+
+		Random random = new Random(42);
+		Vector2f[] points = new Vector2f[LOOKUP_COUNT];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = new Vector2f(minX + random.nextFloat() * (maxX - minX), minY + random.nextFloat() * (maxY - minY));
+		}
+
+		// Only run the slow scan on some of the points on large maps, it takes too long otherwise
+		int scanCount = Math.max(1000, LOOKUP_COUNT * 500 / Math.max(polygons.size(), 500));
+		scanCount = Math.min(scanCount, LOOKUP_COUNT);
+
+		// Check the grid gives the same answers before timing it
+		for (int i = 0; i < scanCount; i++) {
+			if (navMesh.getPolygonContaining(points[i]) != linearScan(polygons, points[i])) {
+				throw new IllegalStateException(name + ": grid and linear scan disagree at " + points[i]);
+			}
+		}
+
+		long gridNs = 0;
+		long scanNs = 0;
+		for (int run = 0; run <= WARMUP_RUNS; run++) {
+			gridNs = timeGrid(navMesh, points, points.length);
+			scanNs = timeLinearScan(polygons, points, scanCount);
+		}
+
+		double gridPerLookup = (double)gridNs / points.length;
+		double scanPerLookup = (double)scanNs / scanCount;
+		System.out.println(String.format("%s: %d polygons, grid %.1f ns/lookup, linear scan %.1f ns/lookup, %.1fx faster",
+				name, polygons.size(), gridPerLookup, scanPerLookup, scanPerLookup / gridPerLookup));
+	}
+
+	/**
+	 * Times looking points up using the navmesh's grid
+	 * @param navMesh The navmesh
+	 * @param points The points to look up
+	 * @param count The number of points to look up
+	 * @return The time taken in nanoseconds
+	 */
+	private static long timeGrid(NavMesh navMesh, Vector2f[] points, int count) {
+		long start = System.nanoTime();
+		int found = 0;
+		for (int i = 0; i < count; i++) {
+			if (navMesh.getPolygonContaining(points[i]) != null) {
+				found++;
+			}
+		}
+		long time = System.nanoTime() - start;
+
+		// Use the result so the lookups can't be optimised away
+		if (found < 0) {
+			System.out.println(found);
+		}
+		return time;
+	}
+
+	/**
+	 * Times looking points up by testing every polygon
+	 * @param polygons The navmesh polygons
+	 * @param points The points to look up
+	 * @param count The number of points to look up
+	 * @return The time taken in nanoseconds
+	 */
+	private static long timeLinearScan(ArrayList<Polygon> polygons, Vector2f[] points, int count) {
+		long start = System.nanoTime();
+		int found = 0;
+		for (int i = 0; i < count; i++) {
+			if (linearScan(polygons, points[i]) != null) {
+				found++;
+			}
+		}
+		long time = System.nanoTime() - start;
+
+		// Use the result so the lookups can't be optimised away
+		if (found < 0) {
+			System.out.println(found);
+		}
+		return time;
+	}
+
+	/**
+	 * Finds the polygon containing a point by testing every polygon, as the navmesh did before it had a grid
+	 * @param polygons The navmesh polygons
+	 * @param position The point
+	 * @return The first polygon containing the point, or null if there isn't one
+	 */
+	private static Polygon linearScan(ArrayList<Polygon> polygons, Vector2f position) {
+		for (Polygon p : polygons) {
+			if (p.contains(position)) {
+				return p;
+			}
+		}
+
+		return null;
+	}
+}
@@ -1,8 +1,8 @@
 package server;
 
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
 
 import shared.InvalidMapException;
 import shared.net.NetworkConstants;
@@ -11,6 +11,7 @@ import server.net.ClientAcceptor;;
 
 /**
  * Creates a server instance that clients can join.
+ * The server hosts one or more matches, which clients are shared between.
  * @author Chris
  *
  */
@@ -18,16 +19,46 @@ public class DedicatedServer {
 	
 	
 	//****Class variables****
-
-	private static final long FRAME_INTERVAL_MS = 17; // ~60fps
 	
-	private ServerWorld serverWorld;
-	private int lastUpdateTime = 0;
+	// Interval between printing client send queue metrics
+	private static final long NETWORK_STATS_INTERVAL_MS = 10000;
+	
+	// Map used when none is given
+	private static final String DEFAULT_MAP_FILE = "maps/original.xml";
+	
+	private MatchHost matchHost;
+	private long lastNetworkStatsTime = 0;
+	
+	// Runs the matches at a fixed tick rate
+	private TickScheduler tickScheduler;
+	
+	private int matchCount;
+	private String mapFileName;
 	
-	private ServerSocket serverSocket;
+	private ServerSocketChannel serverChannel;
 	private ClientAcceptor clientAcceptor;
 	
 	
+	//****Constructors****
+	
+	
+	/**
+	 * Constructor.
+	 * @param tickRate ticks per second
+	 * @param matchCount number of matches to host
+	 * @param maxPlayersPerMatch number of players that can join one match
+	 * @param mapFileName map every match is played on
+	 */
+	public DedicatedServer(int tickRate, int matchCount, int maxPlayersPerMatch, String mapFileName) {
+		
+		this.tickScheduler = new TickScheduler(tickRate, TickScheduler.DEFAULT_MAX_CATCH_UP_TICKS);
+		this.matchHost = new MatchHost(maxPlayersPerMatch);
+		this.matchCount = matchCount;
+		this.mapFileName = mapFileName;
+		
+	}
+	
+	
 	//****Class methods****
 	
 	
@@ -36,7 +67,8 @@ public class DedicatedServer {
 		// Initiate server socket
 		try {
 		
-			serverSocket = new ServerSocket(NetworkConstants.SERVER_PORT);
+			serverChannel = ServerSocketChannel.open();
+			serverChannel.socket().bind(new InetSocketAddress(NetworkConstants.SERVER_PORT));
 			
 		} catch (IOException e) {
 			
@@ -46,10 +78,11 @@ public class DedicatedServer {
 			
 		}
 		
-		// Initiate server world
+		// Initiate matches
 		try {
 			
-			serverWorld = new ServerWorld("maps/original.xml");
+			for (int i = 0; i < matchCount; i++)
+				matchHost.addMatch(mapFileName);
 			
 		} catch (InvalidMapException e) {
 			
@@ -59,22 +92,13 @@ public class DedicatedServer {
 			
 		}
 		
-		// Start listening for clients
+		// Start listening for clients, which are routed to the matches
 		try {
 			
-			clientAcceptor = new ClientAcceptor(serverSocket, serverWorld);
+			clientAcceptor = new ClientAcceptor(serverChannel, matchHost);
+			matchHost.setClientAcceptor(clientAcceptor);
 			clientAcceptor.startListening();
 			
-			try {
-			
-				serverWorld.init(clientAcceptor);
-				
-			} catch (InvalidMapException e) {
-				
-				e.printStackTrace();
-				
-			}
-			
 		} catch (IOException e) {
 			
 			e.printStackTrace();
@@ -83,43 +107,56 @@ public class DedicatedServer {
 			
 		}
 
-		System.out.println("Server initiated");
+		System.out.println("Server initiated, hosting " + matchCount + " matches on " + MatchHost.UPDATE_THREAD_COUNT + " threads");
 		
-		while (true) {
-			
-			int delta = 0;
-			int curTime = (int)serverWorld.getTime();
-			
-			if (lastUpdateTime > 0) {
-			
-				delta = curTime - lastUpdateTime;
-				
-			}
+		// Every tick steps the matches by the same time, however long the last one took
+		tickScheduler.run(new TickScheduler.Task() {
 			
-			lastUpdateTime = curTime;
-			
-			serverWorld.update(delta);
-			
-			try {
+			@Override
+			public void tick(int delta) {
 				
-				Thread.sleep(FRAME_INTERVAL_MS);
+				matchHost.update(delta);
 				
-			} catch (InterruptedException e) {
+				long curTime = System.nanoTime() / 1000000;
 				
-				e.printStackTrace();
+				if (curTime - lastNetworkStatsTime >= NETWORK_STATS_INTERVAL_MS) {
+					
+					lastNetworkStatsTime = curTime;
+					System.out.print(tickScheduler.getStats());
+					System.out.print(matchHost.getNetworkStats());
+					
+				}
 				
 			}
 			
-		}
+		});
 		
 	}
 	
 	/**
-	 * @param args
+	 * @param args	optional tick rate in ticks per second, number of matches,
+	 * players per match and map file, in that order
 	 */
 	public static void main(String[] args) {
 		
-		DedicatedServer dedicatedServer = new DedicatedServer();
+		int tickRate = TickScheduler.DEFAULT_TICK_RATE;
+		int matchCount = 1;
+		int maxPlayersPerMatch = MatchHost.DEFAULT_MAX_PLAYERS_PER_MATCH;
+		String mapFileName = DEFAULT_MAP_FILE;
+		
+		if (args.length > 0)
+			tickRate = Integer.parseInt(args[0]);
+		
+		if (args.length > 1)
+			matchCount = Integer.parseInt(args[1]);
+		
+		if (args.length > 2)
+			maxPlayersPerMatch = Integer.parseInt(args[2]);
+		
+		if (args.length > 3)
+			mapFileName = args[3];
+		
+		DedicatedServer dedicatedServer = new DedicatedServer(tickRate, matchCount, maxPlayersPerMatch, mapFileName);
 		dedicatedServer.start();
 		
 	}
@@ -0,0 +1,73 @@
+package server;
+
+import java.util.concurrent.RecursiveAction;
+
+import shared.Entity;
+
+/**
+ * Computes the intents of a range of entities on a fork/join pool.
+ * Ranges larger than the partition size are split in half, so the
+ * entities are shared between the pool's threads.
+ * @author Chris
+ *
+ */
+public class EntityIntentTask extends RecursiveAction {
+
+
+	//****Class variables****
+
+
+	private static final long serialVersionUID = 1L;
+
+	// Most entities computed by one task without splitting
+	public static final int PARTITION_SIZE = 16;
+
+	private final Entity[] entities;
+	private final int start;
+	private final int end;
+	private final int delta;
+
+
+	//****Constructors****
+
+
+	/**
+	 * Constructor.
+	 * @param entities entities to compute the intents of
+	 * @param start index of the first entity in the range
+	 * @param end index after the last entity in the range
+	 * @param delta time passed since last update
+	 */
+	public EntityIntentTask(Entity[] entities, int start, int end, int delta) {
+
+		this.entities = entities;
+		this.start = start;
+		this.end = end;
+		this.delta = delta;
+
+	}
+
+
+	//****Class methods****
+
+
+	@Override
+	protected void compute() {
+
+		if (this.end - this.start <= PARTITION_SIZE) {
+
+			for (int i = this.start; i < this.end; i++)
+				this.entities[i].computeIntent(this.delta);
+
+			return;
+
+		}
+
+		int middle = (this.start + this.end) >>> 1;
+
+		invokeAll(new EntityIntentTask(this.entities, this.start, middle, this.delta),
+				new EntityIntentTask(this.entities, middle, this.end, this.delta));
+
+	}
+
+}
@@ -0,0 +1,243 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import server.net.ClientAcceptor;
+import server.net.ClientRouter;
+import shared.InvalidMapException;
+
+/**
+ * Hosts several matches in one server process.
+ * Each match is its own server world. Clients are routed to the first match
+ * with room, and every tick the matches are updated in parallel on a pool
+ * of threads sized to the number of cores.
+ * Matches on the same map share its navmesh, which is read-only.
+ * @author Chris
+ *
+ */
+public class MatchHost implements ClientRouter {
+
+
+	//****Class variables****
+
+
+	// Default number of players that can join one match
+	public static final int DEFAULT_MAX_PLAYERS_PER_MATCH = 8;
+
+	// Number of threads the matches are updated on
+	public static final int UPDATE_THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+
+	private final int maxPlayersPerMatch;
+
+	// Hosted matches, read by the acceptor thread while routing
+	private final List<ServerWorld> matches = new CopyOnWriteArrayList<ServerWorld>();
+
+	// One update task per match, all run each tick
+	private final List<Callable<Void>> updateTasks = new CopyOnWriteArrayList<Callable<Void>>();
+
+	private final ExecutorService updateThreads;
+
+	// Time step of the tick being run, published to the update threads when the tasks are submitted
+	private int tickDelta;
+
+	private ClientAcceptor clientAcceptor;
+
+
+	//****Constructors****
+
+
+	/**
+	 * Constructor.
+	 * @param maxPlayersPerMatch number of players that can join one match
+	 */
+	public MatchHost(int maxPlayersPerMatch) {
+
+		if (maxPlayersPerMatch < 1)
+			throw new IllegalArgumentException("A match must have room for at least one player");
+
+		this.maxPlayersPerMatch = maxPlayersPerMatch;
+
+		this.updateThreads = Executors.newFixedThreadPool(UPDATE_THREAD_COUNT, new ThreadFactory() {
+
+			private int threadCount = 0;
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+
+				Thread thread = new Thread(runnable, "Match update thread " + this.threadCount++);
+				thread.setDaemon(true);
+
+				return thread;
+
+			}
+
+		});
+
+	}
+
+
+	//****Class methods****
+
+
+	/**
+	 * Creates a match and initialises its world.
+	 * The match shares the host's client acceptor, so the world is given none of its own.
+	 * @param mapFileName map the match is played on
+	 * @return the match's world
+	 * @throws InvalidMapException if the map can't be loaded
+	 */
+	public ServerWorld addMatch(String mapFileName) throws InvalidMapException {
+
+		final ServerWorld serverWorld = new ServerWorld(mapFileName);
+		serverWorld.init(null);
+
+		this.updateTasks.add(new Callable<Void>() {
+
+			@Override
+			public Void call() {
+
+				serverWorld.update(MatchHost.this.tickDelta);
+
+				return null;
+
+			}
+
+		});
+
+		this.matches.add(serverWorld);
+
+		return serverWorld;
+
+	}
+
+	/**
+	 * Chooses the first match that isn't full.
+	 * Filling matches in order keeps players together rather than spread thinly across matches.
+	 */
+	@Override
+	public ServerWorld routeClient() {
+
+		for (ServerWorld serverWorld : this.matches) {
+
+			if (serverWorld.getConnectionCount() < this.maxPlayersPerMatch)
+				return serverWorld;
+
+		}
+
+		return null;
+
+	}
+
+	/**
+	 * Updates every match by one tick and waits for them all to finish.
+	 * A match that throws is reported but doesn't stop the others.
+	 * @param delta time step in milliseconds
+	 */
+	public void update(int delta) {
+
+		this.tickDelta = delta;
+
+		List<Future<Void>> results;
+
+		try {
+
+			results = this.updateThreads.invokeAll(this.updateTasks);
+
+		} catch (InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+			return;
+
+		}
+
+		for (int i = 0; i < results.size(); i++) {
+
+			try {
+
+				results.get(i).get();
+
+			} catch (ExecutionException e) {
+
+				System.err.println("MatchHost: match " + i + " failed to update");
+				e.getCause().printStackTrace();
+
+			} catch (InterruptedException e) {
+
+				Thread.currentThread().interrupt();
+				return;
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Shuts down every match, the client acceptor and the update threads.
+	 */
+	public void shutdown() {
+
+		if (this.clientAcceptor != null)
+			this.clientAcceptor.shutdown();
+
+		for (ServerWorld serverWorld : this.matches)
+			serverWorld.shutdown();
+
+		this.updateThreads.shutdown();
+
+	}
+
+
+	//****Getters and setters****
+
+
+	/**
+	 * Gets the hosted matches.
+	 * @return the match worlds
+	 */
+	public List<ServerWorld> getMatches() {
+
+		return new ArrayList<ServerWorld>(this.matches);
+
+	}
+
+	/**
+	 * Gets the network statistics of every match.
+	 * @return one block of statistics per match
+	 */
+	public String getNetworkStats() {
+
+		StringBuilder stats = new StringBuilder();
+
+		for (int i = 0; i < this.matches.size(); i++) {
+
+			ServerWorld serverWorld = this.matches.get(i);
+
+			stats.append("match ").append(i).append(": ").append(serverWorld.getConnectionCount()).append(" connections\n");
+			stats.append(serverWorld.getNetworkStats());
+
+		}
+
+		return stats.toString();
+
+	}
+
+	/**
+	 * Sets the client acceptor routing clients to the matches, shut down with the host.
+	 * @param clientAcceptor the acceptor
+	 */
+	public void setClientAcceptor(ClientAcceptor clientAcceptor) {
+
+		this.clientAcceptor = clientAcceptor;
+
+	}
+
+}
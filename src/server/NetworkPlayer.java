@@ -1,14 +1,15 @@
 package server;
 
-import java.io.DataOutputStream;
-import java.io.IOException;
-import java.net.Socket;
+import java.nio.ByteBuffer;
 
+import server.net.ClientConnection;
+import server.net.InterestSet;
 import shared.entities.Player;
+import shared.net.NetworkConstants;
 import client.ClientWorld;
 
 /**
- * Links a client's network socket with their player entity.
+ * Links a client's network connection with their player entity.
  * @author Chris
  *
  */
@@ -22,17 +23,29 @@ public class NetworkPlayer {
 	// needs to be a network socket or something eventually
 	public ClientWorld clientWorld;
 	
-	// Client socket
-	private Socket socket;
+	// Client connection
+	private ClientConnection connection;
 	
 	// Player entity
 	private Player player;
 	
 	// Input handler
 	public InputHandler inputHandler;
-
-	private DataOutputStream outStream;
 	
+	// Sequence of the last snapshot sent to the client
+	// Snapshots held back while the client is behind are sent later as one delta from this one
+	private int lastSentSnapshot = NetworkConstants.NO_BASELINE;
+	
+	// Sequence of the last snapshot the client has applied
+	private int ackedSnapshot = NetworkConstants.NO_BASELINE;
+	
+	// Number of ticks whose snapshots were held back
+	private long collapsedTickCount = 0;
+	
+	// Entities the client has been sent
+	private final InterestSet interest = new InterestSet(NetworkConstants.INTEREST_VIEW_WIDTH, NetworkConstants.INTEREST_VIEW_HEIGHT,
+			NetworkConstants.INTEREST_ENTER_MARGIN, NetworkConstants.INTEREST_EXIT_MARGIN);
+
 	
 	//****Constructors****
 	
@@ -51,60 +64,149 @@ public class NetworkPlayer {
 	}
 	
 	/**
-	 * Used to initialise the network player using the socket and player
-	 * @param socket	the socket belonging to the player
+	 * Used to initialise the network player using the connection and player
+	 * @param connection	the connection belonging to the player
 	 * @param player	the player corresponding to the network player
 	 */
-	public NetworkPlayer(Socket socket, Player player) {
+	public NetworkPlayer(ClientConnection connection, Player player) {
 		
-		this.socket = socket;
+		this.connection = connection;
+		this.player = player;
+		this.inputHandler = new InputHandler(player);
 		
-		try {
+	}
+	
+	
+	//****Class methods****
+	
+	
+	/**
+	 * Sends already encoded messages to the player.
+	 * The messages are copied into the connection's write buffer and
+	 * written to the socket by its selector thread.
+	 * @param payload	buffer holding the messages, its position is moved past the sent bytes
+	 */
+	public void send(ByteBuffer payload) {
 		
-			this.outStream = new DataOutputStream(socket.getOutputStream());
-			
-		} catch (IOException e) {
-			
-			e.printStackTrace();
-			
-		}
+		this.connection.send(payload);
 		
-		this.player = player;
-		this.inputHandler = new InputHandler(player);
+	}
+	
+	
+	/**
+	 * Sets the snapshot the client starts from.
+	 * The world sent when the client connects stands in for this snapshot, so it isn't waited on for an ack.
+	 * @param sequence	the snapshot's sequence
+	 */
+	public void setBaselineSnapshot(int sequence) {
+		
+		this.lastSentSnapshot = sequence;
+		this.ackedSnapshot = sequence;
+		
+	}
+	
+	/**
+	 * Called when a tick's snapshot is held back because the client is behind.
+	 */
+	public void onSnapshotHeldBack() {
+		
+		this.collapsedTickCount++;
 		
 	}
 	
+	/**
+	 * Called when the client acknowledges applying a snapshot.
+	 * Acks for snapshots that weren't sent, or older than the last ack, are ignored.
+	 * @param sequence	the snapshot's sequence
+	 */
+	public void onSnapshotAck(int sequence) {
+		
+		if (sequence > this.ackedSnapshot && sequence <= this.lastSentSnapshot)
+			this.ackedSnapshot = sequence;
+		
+	}
 	
-	//****Getters****
+	
+	//****Getters and setters****
 	
 
 	/**
-	 * Gets the socket corresponding to the player
-	 * @return	the socket
+	 * Gets the connection corresponding to the player
+	 * @return	the connection
 	 */
-	public Socket getSocket() {
+	public ClientConnection getConnection() {
 		
-		return this.socket;
+		return this.connection;
 		
 	}
 	
 	/**
-	 * Gets the player corresponding to this network player
-	 * @return	the player entity
+	 * Gets the sequence of the last snapshot sent to the client
+	 * @return	the sequence
 	 */
-	public Player getPlayerEntity() {
+	public int getLastSentSnapshot() {
 		
-		return this.player;
+		return this.lastSentSnapshot;
 		
 	}
-
+	
+	/**
+	 * Sets the sequence of the last snapshot sent to the client
+	 * @param sequence	the sequence
+	 */
+	public void setLastSentSnapshot(int sequence) {
+		
+		this.lastSentSnapshot = sequence;
+		
+	}
+	
 	/**
-	 * Gets the output stream corresponding to the player
-	 * @return	the output stream
+	 * Gets the sequence of the last snapshot the client has applied
+	 * @return	the sequence
 	 */
-	public DataOutputStream getOutStream() {
+	public int getAckedSnapshot() {
+		
+		return this.ackedSnapshot;
 		
-		return this.outStream;
+	}
+	
+	/**
+	 * Gets the number of snapshots sent to the client that it hasn't acknowledged yet
+	 * @return	snapshot count
+	 */
+	public int getUnackedSnapshotCount() {
+		
+		return this.lastSentSnapshot - this.ackedSnapshot;
+		
+	}
+	
+	/**
+	 * Gets the number of ticks whose entity updates were held back
+	 * @return	tick count
+	 */
+	public long getCollapsedTickCount() {
+		
+		return this.collapsedTickCount;
+		
+	}
+	
+	/**
+	 * Gets the entities the client has been sent
+	 * @return	the interest set
+	 */
+	public InterestSet getInterest() {
+		
+		return this.interest;
+		
+	}
+	
+	/**
+	 * Gets the player corresponding to this network player
+	 * @return	the player entity
+	 */
+	public Player getPlayerEntity() {
+		
+		return this.player;
 		
 	}
 	
@@ -0,0 +1,319 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.lwjgl.util.vector.Vector2f;
+
+import shared.NavMesh;
+import shared.Polygon;
+
+/**
+ * Finds paths across a world's navmesh on a fixed pool of worker threads.
+ * Requests and results are handled on the world's tick thread. Each agent
+ * has at most one request waiting, a newer request replaces the older one,
+ * and a path that has been superseded while it was being found is dropped.
+ * Each tick only as many requests are started as are expected to fit in the
+ * tick's time budget, the rest wait for the next tick.
+ * @author Chris
+ *
+ */
+public class PathfindingService {
+
+
+	//****Class variables****
+
+
+	// Number of threads finding paths, shared by every world in the process
+	public static final int WORKER_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+	// Worker time a world can start each tick
+	public static final long DEFAULT_TICK_BUDGET_NS = 2000000;
+
+	// Expected time to find a path before any have been timed
+	private static final long INITIAL_PATH_COST_NS = 100000;
+
+	// Workers shared by every world
+	public static final ExecutorService SHARED_WORKERS = Executors.newFixedThreadPool(WORKER_COUNT, new ThreadFactory() {
+
+		private int threadCount = 0;
+
+		@Override
+		public synchronized Thread newThread(Runnable runnable) {
+
+			Thread thread = new Thread(runnable, "Pathfinding thread " + this.threadCount++);
+			thread.setDaemon(true);
+
+			return thread;
+
+		}
+
+	});
+
+	/**
+	 * An agent that paths are found for.
+	 */
+	public interface Agent {
+
+		/**
+		 * Called on the tick thread when the agent's latest path has been found.
+		 * @param polygonPath navmesh polygons from start to goal, or null if there is no path,
+		 * shared with other agents so must not be modified
+		 * @param pointPath points to move through, or null if there is no path
+		 */
+		public void onPathFound(ArrayList<Polygon> polygonPath, ArrayList<Vector2f> pointPath);
+
+	}
+
+	private final NavMesh navMesh;
+	private final Executor workers;
+	private final long tickBudgetNs;
+
+	// Requests waiting to be started, oldest first, at most one per agent
+	private final LinkedHashMap<Agent, Request> pendingRequests = new LinkedHashMap<Agent, Request>();
+
+	// Agents with a request being worked on
+	private final HashSet<Agent> activeAgents = new HashSet<Agent>();
+
+	// Latest request number of each agent, older results are dropped
+	private final HashMap<Agent, Integer> latestRequests = new HashMap<Agent, Integer>();
+	private int nextRequestNumber = 0;
+
+	// Results handed back by the workers
+	private final ConcurrentLinkedQueue<Request> finishedRequests = new ConcurrentLinkedQueue<Request>();
+
+	// Moving average of the time taken to find a path
+	private long averagePathCostNs = INITIAL_PATH_COST_NS;
+
+	private int startedCount = 0;
+	private int supersededCount = 0;
+
+
+	//****Constructors****
+
+
+	/**
+	 * Constructor.
+	 * @param navMesh the navmesh paths are found on
+	 * @param workers the threads paths are found on
+	 * @param tickBudgetNs worker time that can be started each tick
+	 */
+	public PathfindingService(NavMesh navMesh, Executor workers, long tickBudgetNs) {
+
+		this.navMesh = navMesh;
+		this.workers = workers;
+		this.tickBudgetNs = tickBudgetNs;
+
+	}
+
+
+	//****Class methods****
+
+
+	/**
+	 * Asks for a path, replacing the agent's waiting request if it has one.
+	 * Must be called on the tick thread.
+	 * @param agent the agent the path is for
+	 * @param start start of the path, copied
+	 * @param goal end of the path, copied
+	 */
+	public void requestPath(Agent agent, Vector2f start, Vector2f goal) {
+
+		int number = this.nextRequestNumber++;
+
+		if (this.pendingRequests.containsKey(agent) || this.activeAgents.contains(agent))
+			this.supersededCount++;
+
+		// Replacing a waiting request keeps its place in the queue
+		this.pendingRequests.put(agent, new Request(agent, number, new Vector2f(start), new Vector2f(goal)));
+		this.latestRequests.put(agent, number);
+
+	}
+
+	/**
+	 * Forgets an agent's requests, e.g. when it is removed from the world.
+	 * Must be called on the tick thread.
+	 * @param agent the agent
+	 */
+	public void cancel(Agent agent) {
+
+		this.pendingRequests.remove(agent);
+		this.latestRequests.remove(agent);
+
+	}
+
+	/**
+	 * Hands finished paths to their agents.
+	 * Results for requests that have since been replaced or cancelled are dropped.
+	 * Must be called on the tick thread.
+	 */
+	public void deliverResults() {
+
+		Request request;
+
+		while ((request = this.finishedRequests.poll()) != null) {
+
+			this.activeAgents.remove(request.agent);
+
+			// Weight recent paths more, so the estimate follows the map and the load
+			this.averagePathCostNs += (request.costNs - this.averagePathCostNs) / 8;
+
+			Integer latest = this.latestRequests.get(request.agent);
+
+			if (latest == null || latest.intValue() != request.number)
+				continue;
+
+			this.latestRequests.remove(request.agent);
+
+			request.agent.onPathFound(request.polygonPath, request.pointPath);
+
+		}
+
+	}
+
+	/**
+	 * Starts waiting requests on the workers until this tick's budget is used.
+	 * At least one request is started each tick so slow paths can't stall the queue.
+	 * Agents that already have a request being worked on wait for it to finish.
+	 * Must be called on the tick thread.
+	 */
+	public void startRequests() {
+
+		long budgetNs = this.tickBudgetNs;
+		boolean started = false;
+
+		Iterator<Request> requests = this.pendingRequests.values().iterator();
+
+		while (requests.hasNext() && (!started || budgetNs > 0)) {
+
+			final Request request = requests.next();
+
+			if (this.activeAgents.contains(request.agent))
+				continue;
+
+			requests.remove();
+			this.activeAgents.add(request.agent);
+
+			this.workers.execute(new Runnable() {
+
+				@Override
+				public void run() {
+
+					findPath(request);
+
+				}
+
+			});
+
+			this.startedCount++;
+
+			budgetNs -= this.averagePathCostNs;
+			started = true;
+
+		}
+
+	}
+
+	/**
+	 * Finds a request's path. Called on a worker thread.
+	 * The navmesh is only read, so any number of paths can be found at once.
+	 * @param request the request
+	 */
+	private void findPath(Request request) {
+
+		long startTime = System.nanoTime();
+
+		try {
+
+			ArrayList<Polygon> polygonPath = this.navMesh.findPolygonPath(request.start, request.goal);
+
+			if (polygonPath != null) {
+
+				request.pointPath = this.navMesh.polygonPathToPointPath(polygonPath, request.start, request.goal);
+				request.polygonPath = polygonPath;
+
+			}
+
+		} catch (RuntimeException e) {
+
+			// A search that fails only loses this agent's path
+			System.err.println("PathfindingService: couldn't find path: " + e);
+
+		}
+
+		request.costNs = System.nanoTime() - startTime;
+
+		this.finishedRequests.add(request);
+
+	}
+
+
+	//****Getters****
+
+
+	/**
+	 * Gets the number of requests waiting to be started.
+	 * @return request count
+	 */
+	public int getPendingCount() {
+
+		return this.pendingRequests.size();
+
+	}
+
+	/**
+	 * Gets the number of requests started on the workers.
+	 * @return request count
+	 */
+	public int getStartedCount() {
+
+		return this.startedCount;
+
+	}
+
+	/**
+	 * Gets the number of requests replaced by a newer one from the same agent.
+	 * @return request count
+	 */
+	public int getSupersededCount() {
+
+		return this.supersededCount;
+
+	}
+
+
+	/**
+	 * A path request and, once found, its result.
+	 */
+	private static class Request {
+
+		final Agent agent;
+		final int number;
+		final Vector2f start;
+		final Vector2f goal;
+
+		// Written by the worker, read on the tick thread after the request is handed back
+		ArrayList<Polygon> polygonPath;
+		ArrayList<Vector2f> pointPath;
+		long costNs;
+
+		Request(Agent agent, int number, Vector2f start, Vector2f goal) {
+
+			this.agent = agent;
+			this.number = number;
+			this.start = start;
+			this.goal = goal;
+
+		}
+
+	}
+
+}
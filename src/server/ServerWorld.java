@@ -1,18 +1,26 @@
 package server;
 
-import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
 
-import org.lwjgl.Sys;
 import org.lwjgl.util.vector.Vector2f;
 
 import server.net.ClientAcceptor;
+import server.net.ClientConnection;
+import server.net.EntityUpdateFrame;
+import server.net.InterestSet;
+import server.net.SnapshotRing;
 import shared.Entity;
 import shared.EntityIntersectionInfo;
 import shared.GameWindow;
@@ -23,8 +31,14 @@ import shared.Team;
 import shared.World;
 import shared.entities.Player;
 import shared.entities.AIPlayer;
+import shared.net.BitWriter;
+import shared.net.BufferPool;
+import shared.net.ByteBufferOutputStream;
+import shared.net.FrameHandler;
+import shared.net.FrameWriter;
 import shared.net.NetworkConstants;
 import shared.net.NetworkedEntityField;
+import shared.net.SnapshotCodec;
 
 /**
  * The server implementation of a game world.
@@ -38,6 +52,9 @@ public class ServerWorld extends World {
 	
 
 	private static final int TEST_AI_COUNT = 2;
+	
+	// Computes entity intents, shared by every world in the process
+	private static final ForkJoinPool INTENT_POOL = new ForkJoinPool();
 
 	private int nextEntityID = 0;
 	
@@ -46,11 +63,57 @@ public class ServerWorld extends World {
 	private ArrayList<NetworkPlayer> deadNetworkPlayers = new ArrayList<NetworkPlayer>();
 	private ArrayList<NetworkPlayer> newNetworkPlayers = new ArrayList<NetworkPlayer>();
 
-	private List<NetworkedEntityField> entityFieldsToBroadcast = Collections.synchronizedList(new ArrayList<NetworkedEntityField>());
+	private EntityUpdateFrame entityUpdateFrame = new EntityUpdateFrame();
+
+	// Entity updates of recent ticks, each tick's updates are one snapshot delta
+	private SnapshotRing snapshots = new SnapshotRing(NetworkConstants.SNAPSHOT_RING_SIZE);
+
+	// Reused to collapse the snapshots a player missed into one delta
+	private EntityUpdateFrame catchUpFrame = new EntityUpdateFrame();
+
+	// Latest score of each team whose score changed this tick
+	private Map<Integer, Integer> teamScoreChanges = Collections.synchronizedMap(new LinkedHashMap<Integer, Integer>());
+
+	// Messages sent to players are encoded into pooled buffers
+	private BufferPool bufferPool = new BufferPool();
+	private ByteBufferOutputStream payload = new ByteBufferOutputStream(this.bufferPool);
+	private FrameWriter frames = new FrameWriter(this.payload);
+	
+	// Snapshots are packed into as few bits as their values need
+	private BitWriter snapshotWriter = new BitWriter();
+	private SnapshotCodec snapshotCodec;
+	
+	// Dynamic entities sent to every player wherever they are
+	private List<Entity> alwaysRelevantEntities = new ArrayList<Entity>();
+	
+	// Reused to collect the entities each player is sent or told to delete
+	private List<Entity> enteringEntities = new ArrayList<Entity>();
+	private List<Entity> leavingEntities = new ArrayList<Entity>();
+	
+	// Static entities registered this tick
 	private List<Entity> newEntities = Collections.synchronizedList(new ArrayList<Entity>());
 
 	private ClientAcceptor clientAcceptor;
 	
+	// Finds paths for the AI players
+	private PathfindingService pathfindingService;
+	
+	// Dynamic entities handed to the intent pool, reused between ticks
+	private Entity[] intentEntities = new Entity[0];
+	
+	// Connections handed to this world, including clients that haven't joined yet
+	// Added on the acceptor thread and removed once the world has seen them close
+	private Set<ClientConnection> connections = Collections.newSetFromMap(new ConcurrentHashMap<ClientConnection, Boolean>());
+	
+	// Connections that have received frames or closed since the last tick
+	private ConcurrentLinkedQueue<ClientConnection> clientInput = new ConcurrentLinkedQueue<ClientConnection>();
+
+	// Passes received frames to the message handlers
+	private ClientFrameHandler clientFrameHandler = new ClientFrameHandler();
+
+	// Client message types by ID, values() copies the array on every call
+	private static final NetworkConstants.C2S[] C2S_TYPES = NetworkConstants.C2S.values();
+	
 	
 	//****Constructors****
 	 
@@ -72,6 +135,11 @@ public class ServerWorld extends World {
 		// Create physics manager
 		this.physics = new Physics(this.entities, this);
 		
+		// Positions in snapshots are packed to fit the map
+		this.snapshotCodec = new SnapshotCodec(this.mapFile.getWidth(), this.mapFile.getHeight());
+		
+		this.pathfindingService = new PathfindingService(this.mapFile.getNavMesh(), PathfindingService.SHARED_WORKERS, PathfindingService.DEFAULT_TICK_BUDGET_NS);
+		
 	}
 
 	/**
@@ -98,20 +166,10 @@ public class ServerWorld extends World {
 		
 		for (NetworkPlayer networkPlayer : this.getNetworkPlayers()) {
 		
-			Socket s = networkPlayer.getSocket();
+			ClientConnection connection = networkPlayer.getConnection();
 			
-			if (s == null)
-				continue;
-			
-			try {
-		
-				s.close();
-				
-			} catch (IOException e) {
-				
-				e.printStackTrace();
-				
-			}
+			if (connection != null)
+				connection.close();
 			
 		}
 		
@@ -122,7 +180,8 @@ public class ServerWorld extends World {
 	
 	/**
 	 * Initialises the server
-	 * @param clientAcceptor	Accepts client connections
+	 * @param clientAcceptor	Accepts client connections, shut down with the world.
+	 * Null if the acceptor is shared with other worlds
 	 * @throws InvalidMapException	If there is an error loading from the map
 	 */
 	public void init(ClientAcceptor clientAcceptor) throws InvalidMapException {	
@@ -134,6 +193,9 @@ public class ServerWorld extends World {
 		ArrayList<Entity> mapEntities = this.mapFile.getEntities();
 		for (Entity e : mapEntities)
 			e.register();
+		
+		// Map geometry is now in place
+		bakeStaticGeometry();
 
 		// Register teams
 		ArrayList<Team> mapTeams = this.mapFile.getTeams();
@@ -172,167 +234,341 @@ public class ServerWorld extends World {
 		// Remove network players that are marked to be deleted and add new ones
 		updateNetworkPlayers();
 		
+		// Handle messages that arrived since the last update
+		// Players that connect now are added on the next update
+		handleClientInput();
+		
+		// Paths found since the last update are handed to the AI before it moves
+		this.pathfindingService.deliverResults();
+		
 		// Do physics
 		physics.update(delta);
 		
 		// Update entities
+		// Static entities never change so only dynamic entities are updated
 		synchronized (this.getEntities()) {
 			
-			for (Entity entity : this.getEntities()) {
+			// Entities decide what to do in parallel, only reading the world
+			computeIntents(delta);
+			
+			// Then act on it one at a time in registration order,
+			// so field broadcasts, gun shots and deaths happen in the same order every run
+			for (Entity entity : this.getDynamicEntities()) {
 			
 				entity.update(delta);
 				
 			}
 			
 		}
+		
+		// Start finding the paths asked for this update
+		this.pathfindingService.startRequests();
 				
 		// Do networking
+		// Each player is sent the entities near them, so every player's messages are encoded separately
+		int sequence = this.snapshots.getLatestSequence() + 1;
+		EntityUpdateFrame tickUpdates = this.entityUpdateFrame;
+		
+		// Keep this tick's updates as the latest snapshot, players that are behind are caught up from these
+		this.entityUpdateFrame = this.snapshots.add(tickUpdates);
+		
 		synchronized (this.networkPlayers) {
 			
 			for (NetworkPlayer networkPlayer : this.networkPlayers) {		
-				Socket socket = networkPlayer.getSocket();
-					
-				if (socket == null)
+			
+				ClientConnection connection = networkPlayer.getConnection();
+				
+				if (connection == null || !connection.isOpen())
 					continue;
-		
+				
 				try {
-			
-					broadcastServerTime(networkPlayer);
-	
-					if (this.deadEntities.size() > 0)
-						broadcastDeadEntities(networkPlayer);
-					
-					if (this.newEntities.size() > 0)
-						broadcastNewEntities(networkPlayer);
 					
-					if (this.entityFieldsToBroadcast.size() > 0)
-						broadcastEntityUpdates(networkPlayer);
+					sendTick(networkPlayer, tickUpdates, sequence);
 					
 				} catch (IOException e) {
 					
 					e.printStackTrace();
 					
-					removeNetworkPlayer(networkPlayer);
-					
 				}
 				
 			}
 			
 		}
+		
+		this.alwaysRelevantEntities.removeAll(this.deadEntities);
+		
+		// Forget paths still being found for removed agents
+		for (Entity entity : this.deadEntities) {
+			
+			if (entity instanceof PathfindingService.Agent)
+				this.pathfindingService.cancel((PathfindingService.Agent)entity);
+			
+		}
 			
 		// Remove entities that are marked to be deleted
 		deleteDeadEntities();
 	
 		//this.deadEntities.clear();
 		this.newEntities.clear();
-		this.entityFieldsToBroadcast.clear();
+		this.teamScoreChanges.clear();
 		
 	}
 	
 	/**
-	 * Removes a network player from the entity list
-	 * @param networkPlayer	the player to be removed
+	 * Computes the intents of the dynamic entities.
+	 * Small worlds are computed on the calling thread, larger ones are
+	 * partitioned across the intent pool. Must be called holding the entities lock.
+	 * @param delta	time passed since last update
 	 */
-	private void removeNetworkPlayer(NetworkPlayer networkPlayer) {
+	private void computeIntents(int delta) {
 		
-		deadNetworkPlayers.add(networkPlayer);
-		addDeadEntity(networkPlayer.getPlayerEntity());
+		List<Entity> dynamicEntities = this.getDynamicEntities();
+		int count = dynamicEntities.size();
+		
+		if (count <= EntityIntentTask.PARTITION_SIZE) {
+			
+			for (int i = 0; i < count; i++)
+				dynamicEntities.get(i).computeIntent(delta);
+			
+			return;
+			
+		}
+		
+		this.intentEntities = dynamicEntities.toArray(this.intentEntities);
+		
+		INTENT_POOL.invoke(new EntityIntentTask(this.intentEntities, 0, count, delta));
 		
 	}
-
+	
 	/**
-	 * Sends the information of dead entities to the network player
-	 * @param networkPlayer	the player being contacted
-	 * @throws IOException	if there is an error writing to the output stream
+	 * Sends a player this tick's messages.
+	 * The player is told about entities that came near them or moved away, and
+	 * sent the changes to the entities they have. Players that are behind, because
+	 * their send queue is congested or they have too many snapshots unacknowledged,
+	 * are only sent the events. Once they have caught up the snapshots they missed
+	 * are sent as one delta.
+	 * @param networkPlayer	the player
+	 * @param tickUpdates	this tick's entity updates
+	 * @param sequence	sequence of this tick's snapshot
+	 * @throws IOException	if there is an error writing a message
 	 */
-	private void broadcastDeadEntities(NetworkPlayer networkPlayer) throws IOException {
+	private void sendTick(NetworkPlayer networkPlayer, EntityUpdateFrame tickUpdates, int sequence) throws IOException {
 		
-		DataOutputStream out = networkPlayer.getOutStream();
+		List<Entity> entering = this.enteringEntities;
+		List<Entity> leaving = this.leavingEntities;
 		
-		synchronized (out) {
+		entering.clear();
+		leaving.clear();
 		
-			// Message type
-			out.writeInt(NetworkConstants.S2C.DELETE_ENTITIES.ordinal());
-			
-			synchronized (this.deadEntities) {
+		updateInterest(networkPlayer, entering, leaving);
+		
+		// Every player has the static entities
+		synchronized (this.deadEntities) {
 			
-				// Number of entities
-				out.writeInt(this.deadEntities.size());
+			for (Entity entity : this.deadEntities) {
 				
-				for (Entity entity : this.deadEntities) {
-				
-					// entity id
-					out.writeInt(entity.getID());
-					
-				}
+				if (entity.isStatic())
+					leaving.add(entity);
 				
 			}
 			
 		}
 		
+		synchronized (this.newEntities) {
+			
+			entering.addAll(this.newEntities);
+			
+		}
+		
+		FrameWriter frames = this.frames;
+		
+		frames.reset();
+		
+		// Events the player must receive
+		if (leaving.size() > 0)
+			writeDeleteEntities(frames, leaving);
+		
+		if (entering.size() > 0)
+			writeCreateEntities(frames, entering);
+		
+		if (this.teamScoreChanges.size() > 0)
+			writeTeamScoreChanges(frames);
+		
+		// State that is replaced by later ticks
+		boolean lagging = networkPlayer.getUnackedSnapshotCount() > NetworkConstants.MAX_UNACKED_SNAPSHOTS;
+		boolean congested = networkPlayer.getConnection().updateCongestion(lagging);
+		
+		if (congested) {
+			
+			networkPlayer.onSnapshotHeldBack();
+			
+		} else if (networkPlayer.getLastSentSnapshot() == sequence - 1) {
+			
+			// Up to date, this tick's updates are the delta from the previous snapshot
+			writeSnapshot(frames, sequence, sequence - 1, tickUpdates, networkPlayer.getInterest());
+			networkPlayer.setLastSentSnapshot(sequence);
+			
+		} else {
+			
+			writeCatchUpSnapshot(frames, networkPlayer, sequence);
+			
+		}
+		
+		ByteBuffer tickPayload = this.payload.takeBuffer();
+		networkPlayer.send(tickPayload);
+		this.bufferPool.release(tickPayload);
+		
 	}
 	
 	/**
-	 * Sends the new entity information to the network player
-	 * @param networkPlayer	the player being contacted
-	 * @throws IOException	if there is an error writing to the output stream
+	 * Updates the entities a player has from where their player entity is.
+	 * @param networkPlayer	the player
+	 * @param entering	filled with the entities the player should be sent
+	 * @param leaving	filled with the entities the player should delete
 	 */
-	private void broadcastNewEntities(NetworkPlayer networkPlayer) throws IOException {	
+	private void updateInterest(NetworkPlayer networkPlayer, List<Entity> entering, List<Entity> leaving) {
 		
-		System.out.println("sending new entities");
+		InterestSet interest = networkPlayer.getInterest();
+		Player player = networkPlayer.getPlayerEntity();
 		
-		DataOutputStream out = networkPlayer.getOutStream();
+		float x = player.getX();
+		float y = player.getY();
 		
-		synchronized (out) {
+		List<Entity> nearbyEntities = this.physics.getDynamicEntitiesInArea(x - interest.getExitHalfWidth(), y - interest.getExitHalfHeight(),
+				x + interest.getExitHalfWidth(), y + interest.getExitHalfHeight());
 		
-			// Message type
-			out.writeInt(NetworkConstants.S2C.CREATE_ENTITIES.ordinal());
+		synchronized (this.deadEntities) {
 			
-			synchronized (this.newEntities) {
+			interest.update(x, y, nearbyEntities, this.alwaysRelevantEntities, this.deadEntities, entering, leaving);
 			
-				// Number of entities
-				out.writeInt(this.newEntities.size());
+		}
+		
+	}
 	
-				for (Entity entity : this.newEntities) {
+	/**
+	 * Writes one snapshot covering every snapshot since the last one a player was sent.
+	 * Players too far behind for the snapshot ring are sent the value of every field.
+	 * @param frames	the frame writer to write to
+	 * @param networkPlayer	the player
+	 * @param sequence	sequence of this tick's snapshot
+	 * @throws IOException	if there is an error writing the snapshot
+	 */
+	private void writeCatchUpSnapshot(FrameWriter frames, NetworkPlayer networkPlayer, int sequence) throws IOException {
+		
+		EntityUpdateFrame delta = this.catchUpFrame;
+		int baseline = networkPlayer.getLastSentSnapshot();
+		
+		if (!this.snapshots.collectDeltasSince(baseline, delta)) {
+			
+			baseline = NetworkConstants.NO_BASELINE;
+			
+			synchronized (getEntities()) {
+				
+				for (Entity entity : getEntities()) {
 					
-					// entity class name (without shared.entities. prefix)
-					out.writeUTF(entity.getClass().getSimpleName());
-					// entity properties
-					entity.writeToNetStream(out);
+					for (int fieldID = 0; fieldID < entity.getNetworkedEntityFieldCount(); fieldID++) {
+						
+						NetworkedEntityField entityField = entity.getNetworkedEntityField(fieldID);
+						
+						if (entityField != null)
+							delta.add(entityField);
+						
+					}
 					
 				}
 				
-			}	
+			}
+			
+		}
+		
+		writeSnapshot(frames, sequence, baseline, delta, networkPlayer.getInterest());
+		
+		delta.clear();
+		
+		networkPlayer.setLastSentSnapshot(sequence);
+		
+	}
+	
+	/**
+	 * Removes a network player from the entity list
+	 * @param networkPlayer	the player to be removed
+	 */
+	private void removeNetworkPlayer(NetworkPlayer networkPlayer) {
+		
+		deadNetworkPlayers.add(networkPlayer);
+		addDeadEntity(networkPlayer.getPlayerEntity());
+		
+	}
+
+	/**
+	 * Writes the IDs of entities a player should delete
+	 * @param frames	the frame writer to write to
+	 * @param entities	the entities to delete
+	 * @throws IOException	if there is an error writing to the output stream
+	 */
+	private void writeDeleteEntities(FrameWriter frames, List<Entity> entities) throws IOException {
+		
+		DataOutputStream out = frames.begin(NetworkConstants.S2C.DELETE_ENTITIES);
+		
+		// Number of entities
+		out.writeInt(entities.size());
+		
+		for (Entity entity : entities) {
+		
+			// entity id
+			out.writeInt(entity.getID());
 			
 		}
 		
+		frames.end();
+		
 	}
 	
 	/**
-	 * Sends the entity update information to the network player
-	 * @param networkPlayer	the player being contacted
+	 * Writes the information of entities a player should create
+	 * @param frames	the frame writer to write to
+	 * @param entities	the entities to create
 	 * @throws IOException	if there is an error writing to the output stream
 	 */
-	private void broadcastEntityUpdates(NetworkPlayer networkPlayer) throws IOException {		
+	private void writeCreateEntities(FrameWriter frames, List<Entity> entities) throws IOException {	
+		
+		DataOutputStream out = frames.begin(NetworkConstants.S2C.CREATE_ENTITIES);
 		
-		DataOutputStream out = networkPlayer.getOutStream();
+		// Number of entities
+		out.writeInt(entities.size());
+
+		for (Entity entity : entities) {
+			
+			// entity class name (without shared.entities. prefix)
+			out.writeUTF(entity.getClass().getSimpleName());
+			// entity properties
+			entity.writeToNetStream(out);
+			
+		}
+		
+		frames.end();
+		
+	}
 	
-		synchronized (out) {
+	/**
+	 * Writes the scores of teams whose score changed this tick
+	 * @param frames	the frame writer to write to
+	 * @throws IOException	if there is an error writing to the output stream
+	 */
+	private void writeTeamScoreChanges(FrameWriter frames) throws IOException {
+		
+		synchronized (this.teamScoreChanges) {
 		
-			synchronized (this.entityFieldsToBroadcast) {
+			for (Map.Entry<Integer, Integer> teamScore : this.teamScoreChanges.entrySet()) {
 			
-				for (NetworkedEntityField entityField : this.entityFieldsToBroadcast) {
+				DataOutputStream out = frames.begin(NetworkConstants.S2C.TEAM_SCORE_CHANGE);
 				
-					// Message type
-					out.writeInt(NetworkConstants.S2C.UPDATE_ENTITY_FIELD.ordinal());
-					// Entity ID
-					out.writeInt(entityField.getParentEntityID());
-					// Field ID
-					out.writeInt(entityField.getFieldID());
-					// Field value
-					entityField.writeToNetStream(out);
-					
-				}
+				// Team ID
+				out.writeInt(teamScore.getKey());
+				// Team score
+				out.writeInt(teamScore.getValue());
+				
+				frames.end();
 				
 			}
 			
@@ -341,22 +577,33 @@ public class ServerWorld extends World {
 	}
 	
 	/**
-	 * Sends the server time to the network player
-	 * @param networkPlayer	the player being contacted
+	 * Writes a snapshot: the server time and the entity updates since a baseline snapshot
+	 * @param frames	the frame writer to write to
+	 * @param sequence	the snapshot's sequence
+	 * @param baseline	sequence of the snapshot the updates are relative to, or NO_BASELINE
+	 * @param entityUpdates	the entity updates since the baseline
+	 * @param interest	the entities the player has, only their updates are written
 	 * @throws IOException	if there is an error writing to the output stream
 	 */
-	private void broadcastServerTime(NetworkPlayer networkPlayer) throws IOException {
+	private void writeSnapshot(FrameWriter frames, int sequence, int baseline, EntityUpdateFrame entityUpdates, InterestSet interest) throws IOException {
 		
-		DataOutputStream out = networkPlayer.getOutStream();
+		BitWriter out = this.snapshotWriter;
+		long time = getTime();
 		
-		synchronized (out) {
+		out.setOutputStream(frames.begin(NetworkConstants.S2C.SNAPSHOT));
 		
-			// Message type
-			out.writeInt(NetworkConstants.S2C.SET_SERVER_TIME.ordinal());
-			// Server time
-			out.writeLong(getTime());
-			
-		}
+		// Snapshot sequence
+		out.writeSignedVarLong(sequence);
+		// Baseline, as the number of snapshots before this one, zero for none
+		out.writeVarLong(baseline == NetworkConstants.NO_BASELINE ? 0 : sequence - baseline);
+		// Server time, field times are sent relative to it
+		out.writeLong(time);
+		this.snapshotCodec.setBaseTime(time);
+		// Entity updates
+		entityUpdates.encode(out, this.snapshotCodec, this.deadEntities, interest);
+		
+		out.flush();
+		frames.end();
 		
 	}
 
@@ -401,15 +648,25 @@ public class ServerWorld extends World {
 		
 		entity.setID(this.nextEntityID++);
 		
-		this.entities.add(entity);
+		addEntity(entity);
 		
-		if (this.networkPlayers.size() > 0 || this.newNetworkPlayers.size() > 0)
+		// Dynamic entities are sent to players once they are near, static entities are sent to everyone
+		if (!entity.isStatic()) {
+			
+			if (entity.isAlwaysRelevant())
+				this.alwaysRelevantEntities.add(entity);
+			
+		} else if (this.networkPlayers.size() > 0 || this.newNetworkPlayers.size() > 0) {
+			
 			this.newEntities.add(entity);
+			
+		}
 		
 	}
 	
 	/**
 	 * Called when a team's score changes.
+	 * The new score is sent to players with the rest of the tick's broadcast.
 	 * @param teamID the team id
 	 * @param teamScore the team score
 	 */
@@ -417,111 +674,103 @@ public class ServerWorld extends World {
 		
 		//System.out.println("server: onTeamScoreChanged");
 		
-		synchronized (getNetworkPlayers()) {
-		
-			for (NetworkPlayer networkPlayer : getNetworkPlayers()) {
-			
-				try {
-				
-					DataOutputStream out = networkPlayer.getOutStream();
-					
-					synchronized (out) {
-					
-						// Message type
-						out.writeInt(NetworkConstants.S2C.TEAM_SCORE_CHANGE.ordinal());
-						// Team ID
-						out.writeInt(teamID);
-						// Team score
-						out.writeInt(teamScore);
-						
-					}	
-					
-				} catch (IOException e) {
-					
-					removeNetworkPlayer(networkPlayer);
-					continue;
-					
-				}
-				
-			}
-			
-		}
+		this.teamScoreChanges.put(teamID, teamScore);
 		
 	}
 
 	/**
 	 * Called when a player connects to the server.
-	 * @param socket player socket
+	 * @param connection player connection
 	 * @throws IOException
 	 */
-	public void onConnectReceived(Socket socket) throws IOException {
+	public void onConnectReceived(ClientConnection connection) throws IOException {
 		
 		System.out.println("Received connect, send info");
 		
-		DataOutputStream out = new DataOutputStream(socket.getOutputStream());
-		
-		synchronized (out) {
+		// Create player object
+		Player player = new Player(this, 0, 0);
+		player.setPlayerClass(getRandomAnimalClass());
 
-			// Create player object
-			Player player = new Player(this, 0, 0);
-			player.setPlayerClass(getRandomAnimalClass());
-	
-			// Add to team
-			Team team = getTeamToJoin();
-			team.addPlayer(player);
+		// Add to team
+		Team team = getTeamToJoin();
+		team.addPlayer(player);
 
-			// Send to spawnpoint
-			player.setPosition(team.getSpawnPointCopy());
+		// Send to spawnpoint
+		player.setPosition(team.getSpawnPointCopy());
 
-			// Register player
-			player.register();
+		// Register player
+		player.register();
 
-			// Store player+socket
-			NetworkPlayer networkPlayer = new NetworkPlayer(socket, player);
-			this.newNetworkPlayers.add(networkPlayer);
-			
-			// Message type
-			out.writeInt(NetworkConstants.S2C.CREATE_ENTITIES.ordinal());
-			// Number of entities
-			out.writeInt(getEntities().size());
-				
-			// Entities
-			synchronized (getEntities()) {
+		// Store player+connection
+		NetworkPlayer networkPlayer = new NetworkPlayer(connection, player);
+		connection.setNetworkPlayer(networkPlayer);
+		this.newNetworkPlayers.add(networkPlayer);
+		
+		FrameWriter frames = this.frames;
+		
+		frames.reset();
+		
+		// Entities the player starts with, the static entities and the dynamic entities near them
+		InterestSet interest = networkPlayer.getInterest();
+		List<Entity> entering = this.enteringEntities;
+		
+		updateInterest(networkPlayer, entering, this.leavingEntities);
+		
+		entering.clear();
+		this.leavingEntities.clear();
+		
+		synchronized (getEntities()) {
+		
+			for (Entity e : getEntities()) {
 			
-				for (Entity e : getEntities()) {
-				
-					// entity class name (without shared.entities. prefix)
-					out.writeUTF(e.getClass().getSimpleName());
-					// entity properties
-					e.writeToNetStream(out);
-					
-				}
-				
-			}			
+				if (interest.contains(e))
+					entering.add(e);
 				
-			// Send teams info
-			out.writeInt(NetworkConstants.S2C.CREATE_TEAM.ordinal());
-			out.writeInt(getTeams().size());
-			for (Team _team : getTeams()) {
-				out.writeInt(_team.getID());
-				out.writeUTF(_team.getTeamName());
-				out.writeInt(_team.getTeamScore());
-				out.writeInt(_team.getFlagCaptureRegion().getID());
 			}
 			
-			// Send background texture
-			out.writeInt(NetworkConstants.S2C.SET_BACKGROUND_TEXTURE.ordinal());
-			out.writeUTF(mapFile.getBackgroundTexture());
-			
-			// Send server time
-			out.writeInt(NetworkConstants.S2C.SET_SERVER_TIME.ordinal());
-			out.writeLong(getTime());
-			
-			// Send player entity ID
-			out.writeInt(NetworkConstants.S2C.SET_PLAYER_ID.ordinal());
-			out.writeInt(player.getID());
+		}
+		
+		writeCreateEntities(frames, entering);
+		
+		entering.clear();
 			
+		// Send teams info
+		DataOutputStream out = frames.begin(NetworkConstants.S2C.CREATE_TEAM);
+		out.writeInt(getTeams().size());
+		for (Team _team : getTeams()) {
+			out.writeInt(_team.getID());
+			out.writeUTF(_team.getTeamName());
+			out.writeInt(_team.getTeamScore());
+			out.writeInt(_team.getFlagCaptureRegion().getID());
 		}
+		frames.end();
+		
+		// Send background texture
+		out = frames.begin(NetworkConstants.S2C.SET_BACKGROUND_TEXTURE);
+		out.writeUTF(mapFile.getBackgroundTexture());
+		frames.end();
+		
+		// Send map size, used to decode positions in snapshots
+		out = frames.begin(NetworkConstants.S2C.SET_MAP_SIZE);
+		out.writeInt(this.mapFile.getWidth());
+		out.writeInt(this.mapFile.getHeight());
+		frames.end();
+		
+		// Send server time, the world above stands in for the latest snapshot
+		int sequence = this.snapshots.getLatestSequence();
+		
+		this.catchUpFrame.clear();
+		writeSnapshot(frames, sequence, NetworkConstants.NO_BASELINE, this.catchUpFrame, interest);
+		networkPlayer.setBaselineSnapshot(sequence);
+		
+		// Send player entity ID
+		out = frames.begin(NetworkConstants.S2C.SET_PLAYER_ID);
+		out.writeInt(player.getID());
+		frames.end();
+		
+		ByteBuffer worldInfo = this.payload.takeBuffer();
+		networkPlayer.send(worldInfo);
+		this.bufferPool.release(worldInfo);
 		
 	}
 	
@@ -562,68 +811,128 @@ public class ServerWorld extends World {
 	}
 
 	/**
-	 * Adds an updated entity to the list to be broadcasted
-	 * @param entityField	the updated entity
+	 * Adds an updated entity field to this tick's update frame.
+	 * Only the last value set in a tick is broadcast.
+	 * @param entityField	the updated entity field
 	 */
 	public void broadcastEntityUpdate(NetworkedEntityField entityField) {
 		
-		/*synchronized (entityFieldsToBroadcast) {
-			// Remove old updates if any
-			for (NetworkedEntityField f : entityFieldsToBroadcast) {
-				if (f.getParentEntityID() == entityField.getParentEntityID() && f.getFieldID() == entityField.getFieldID()) {
-					entityFieldsToBroadcast.remove(entityField);
-					break;
-				}
-			}
-		}*/
+		this.entityUpdateFrame.add(entityField);
+		
+	}
 
-		// Add updated field
-		try {
+	/**
+	 * Queues a connection that has received frames or closed.
+	 * Called on the connection's selector thread, the frames are handled on the next update.
+	 * @param connection	the connection
+	 */
+	public void queueClientInput(ClientConnection connection) {
 		
-			entityFieldsToBroadcast.add((NetworkedEntityField)entityField.clone());
+		this.clientInput.add(connection);
+		
+	}
+	
+	/**
+	 * Handles the frames received from clients since the last update.
+	 * Players whose connection has closed are removed.
+	 */
+	private void handleClientInput() {
+		
+		ClientConnection connection;
+		
+		while ((connection = this.clientInput.poll()) != null) {
 			
-		} catch (CloneNotSupportedException e) {
+			if (connection.isOpen()) {
+				
+				this.clientFrameHandler.connection = connection;
+				
+				try {
+					
+					connection.handleFrames(this.clientFrameHandler);
+					
+				} catch (IOException e) {
+					
+					e.printStackTrace();
+					
+					System.err.println("Invalid message from client, disconnecting");
+					
+					connection.close();
+					
+				}
+				
+			}
 			
-			e.printStackTrace();
+			if (!connection.isOpen())
+				onClientDisconnect(connection);
 			
 		}
 		
 	}
-
+	
 	/**
-	 * Gets the network player associated with a socket
-	 * @param socket	the socket
-	 * @return	the network player
+	 * Handles a message received from a client.
+	 * @param connection	the connection the message arrived on
+	 * @param typeID	the message type ID
+	 * @param body	the message body
+	 * @throws IOException	if the message body is invalid
 	 */
-	public NetworkPlayer socketToNetworkPlayer(Socket socket) {
+	private void handleClientMessage(ClientConnection connection, int typeID, ByteBuffer body) throws IOException {
+		
+		if (typeID >= C2S_TYPES.length) {
+			
+			// Framing means unknown messages can be skipped without losing the stream
+			System.err.println("Skipping unknown message type " + typeID);
+			return;
+			
+		}
 		
-		for (NetworkPlayer networkPlayer : this.networkPlayers) {			
+		NetworkConstants.C2S type = C2S_TYPES[typeID];
 		
-			if (socket == networkPlayer.getSocket()) {
+		if (type == NetworkConstants.C2S.CONNECT) {
 			
-				return networkPlayer;
-				
-			}
+			if (connection.getNetworkPlayer() == null)
+				onConnectReceived(connection);
+			
+			return;
 			
 		}
 		
-		return null;
+		// Other messages need a player
+		NetworkPlayer networkPlayer = connection.getNetworkPlayer();
+		
+		if (networkPlayer == null)
+			return;
+		
+		switch (type) {
+		case KEYBOARD_INPUT:
+			onKeyInputReceived(networkPlayer, body);
+			break;
+		case GUN_SHOT_INFO:
+			onGunShotInfo(networkPlayer, body);
+			break;
+		case MOUSE_POSITION:
+			onMousePosition(networkPlayer, body);
+			break;
+		case SNAPSHOT_ACK:
+			networkPlayer.onSnapshotAck(body.getInt());
+			break;
+		default:
+			break;
+		}
 		
 	}
 	
 	/**
 	 * Called when a key input is received - handles the input
-	 * @param socket	the socket where the input originated
-	 * @throws IOException	if there was an error reading from the socket
+	 * @param networkPlayer	the player the input came from
+	 * @param in	the message body
+	 * @throws IOException	if there was an error reading the message
 	 */
-	public void onKeyInputReceived(Socket socket) throws IOException {
+	public void onKeyInputReceived(NetworkPlayer networkPlayer, ByteBuffer in) throws IOException {
 		
-		DataInputStream in = new DataInputStream(socket.getInputStream());
+		int eventKey = in.getInt();
+		boolean pressed = in.get() != 0;
 		
-		int eventKey = in.readInt();
-		boolean pressed = in.readBoolean();
-		
-		NetworkPlayer networkPlayer = socketToNetworkPlayer(socket);
 		networkPlayer.inputHandler.handleKeyboardInput(eventKey, pressed);
 		
 		//System.out.println("received input from client: " + eventKey);
@@ -632,25 +941,27 @@ public class ServerWorld extends World {
 
 	/**
 	 * Called when a client fires their gun.
-	 * @param socket client socket
-	 * @throws IOException if there was an error reading from the socket
+	 * @param networkPlayer the player who fired
+	 * @param in the message body
+	 * @throws IOException if there was an error reading the message
 	 */
-	public void onGunShotInfo(Socket socket) throws IOException {
+	public void onGunShotInfo(NetworkPlayer networkPlayer, ByteBuffer in) throws IOException {
 	
-		NetworkPlayer networkPlayer = socketToNetworkPlayer(socket);
 		Player networkPlayerEntity = networkPlayer.getPlayerEntity();
-
-		DataInputStream in = new DataInputStream(socket.getInputStream());
 	
 		// Current mouse position in map coordinates
-		float mouseX = in.readFloat();
-		float mouseY = in.readFloat();
+		float mouseX = in.getFloat();
+		float mouseY = in.getFloat();
 		Vector2f mouseMapPos = new Vector2f(mouseX, mouseY);
 		
 		// List of intersection info
-		int intersectionCount = in.readInt();
+		int intersectionCount = in.getInt();
 		ArrayList<EntityIntersectionInfo> intersectionInfoList = null;
 		
+		// Each intersection takes at least 8 bytes, larger counts can only come from a broken client
+		if (intersectionCount < 0 || intersectionCount > in.remaining() / 8)
+			throw new IOException("Invalid intersection count: " + intersectionCount);
+		
 		if (intersectionCount > 0) {
 		
 			intersectionInfoList = new ArrayList<EntityIntersectionInfo>(intersectionCount);
@@ -659,7 +970,7 @@ public class ServerWorld extends World {
 			for (int i = 0; i < intersectionCount; i++) {
 				boolean ignore = false;
 				
-				Entity hitEntity = getEntityByID(in.readInt());
+				Entity hitEntity = getEntityByID(in.getInt());
 				
 				if (hitEntity == null) {
 					System.out.println("Invalid intersection info received");
@@ -670,12 +981,15 @@ public class ServerWorld extends World {
 				EntityIntersectionInfo info = new EntityIntersectionInfo(hitEntity);
 				
 				// List of intersection points
-				int intersectionPointCount = in.readInt();
+				int intersectionPointCount = in.getInt();
+				
+				if (intersectionPointCount < 0 || intersectionPointCount > in.remaining() / 8)
+					throw new IOException("Invalid intersection point count: " + intersectionPointCount);
 				
 				for (int j = 0; j < intersectionPointCount; j++) {
 				
-					float x = in.readFloat();
-					float y = in.readFloat();
+					float x = in.getFloat();
+					float y = in.getFloat();
 					
 					Vector2f p = new Vector2f(x, y);
 					
@@ -711,18 +1025,16 @@ public class ServerWorld extends World {
 
 	/**
 	 * Called when there is a change in mouse position
-	 * @param socket	the socket where the change originated
-	 * @throws IOException	if there was an error reading from the socket
+	 * @param networkPlayer	the player whose mouse moved
+	 * @param in	the message body
+	 * @throws IOException	if there was an error reading the message
 	 */
-	public void onMousePosition(Socket socket) throws IOException {
+	public void onMousePosition(NetworkPlayer networkPlayer, ByteBuffer in) throws IOException {
 		
-		NetworkPlayer networkPlayer = socketToNetworkPlayer(socket);
 		Player networkPlayerEntity = networkPlayer.getPlayerEntity();
-
-		DataInputStream in = new DataInputStream(socket.getInputStream());
 		
-		float mouseX = in.readFloat();
-		float mouseY = in.readFloat();
+		float mouseX = in.getFloat();
+		float mouseY = in.getFloat();
 		Vector2f mouseMapPos = new Vector2f(mouseX, mouseY);
 			
 		networkPlayerEntity.calculateAimVec(mouseMapPos, this);
@@ -733,20 +1045,23 @@ public class ServerWorld extends World {
 
 	/**
 	 * Called when a client disconnects - removes the player from the server
-	 * @param socket	the socket associated with the disconnected player
+	 * @param connection	the connection of the disconnected player
 	 */
-	public void onSocketDisconnect(Socket socket) {
+	public void onClientDisconnect(ClientConnection connection) {
 		
-		for (NetworkPlayer networkPlayer : this.getNetworkPlayers()) {
-    	
-			if (networkPlayer.getSocket() == socket) {
-    			
-				removeNetworkPlayer(networkPlayer);
-    			break;
-    			
-    		}
+		this.connections.remove(connection);
+		
+		NetworkPlayer networkPlayer = connection.getNetworkPlayer();
+		
+		// Clients that never joined the world have nothing to remove
+		if (networkPlayer != null) {
+			
+			removeNetworkPlayer(networkPlayer);
 			
-    	}
+			// Only remove the player once if the connection is queued again
+			connection.setNetworkPlayer(null);
+			
+		}
 		
 	}
 
@@ -825,11 +1140,12 @@ public class ServerWorld extends World {
 	
 	/**
 	 * Gets the server time in milliseconds
+	 * Uses the monotonic system clock so the server doesn't need the display library's timer
 	 */
 	@Override
 	public long getTime() {
 		
-		return (Sys.getTime() * 1000) / Sys.getTimerResolution();
+		return System.nanoTime() / 1000000;
 		
 	}
 	
@@ -853,6 +1169,71 @@ public class ServerWorld extends World {
 		
 	}
 
+	/**
+	 * Gets the send queue metrics of each network player.
+	 * @return one line per player
+	 */
+	public String getNetworkStats() {
+		
+		StringBuilder stats = new StringBuilder();
+		
+		synchronized (this.networkPlayers) {
+			
+			for (NetworkPlayer networkPlayer : this.networkPlayers) {
+				
+				ClientConnection connection = networkPlayer.getConnection();
+				
+				if (connection == null)
+					continue;
+				
+				stats.append("player ").append(networkPlayer.getPlayerEntity().getID());
+				stats.append(": queued ").append(connection.getPendingWriteSize()).append(" bytes");
+				stats.append(", peak ").append(connection.getPeakPendingWriteSize()).append(" bytes");
+				stats.append(", congested ").append(connection.isCongested());
+				stats.append(", unacked snapshots ").append(networkPlayer.getUnackedSnapshotCount());
+				stats.append(", collapsed ticks ").append(networkPlayer.getCollapsedTickCount());
+				stats.append('\n');
+				
+			}
+			
+		}
+		
+		return stats.toString();
+		
+	}
+
+	/**
+	 * Adds a connection routed to this world.
+	 * Called by the client acceptor before the connection starts receiving.
+	 * @param connection	the connection
+	 */
+	public void addConnection(ClientConnection connection) {
+		
+		this.connections.add(connection);
+		
+	}
+	
+	/**
+	 * Gets the number of open connections routed to this world,
+	 * including clients that haven't joined yet.
+	 * @return connection count
+	 */
+	public int getConnectionCount() {
+		
+		return this.connections.size();
+		
+	}
+
+	/**
+	 * Gets the service finding paths for the AI players
+	 * @return pathfinding service
+	 */
+	public PathfindingService getPathfindingService() {
+		
+		return this.pathfindingService;
+		
+	}
+
 	/**
 	 * Gets the network players
 	 * @return network players
@@ -879,4 +1260,21 @@ public class ServerWorld extends World {
 		return true;
 	}
 	
+	/**
+	 * Passes the frames received on a connection to the message handlers.
+	 */
+	private class ClientFrameHandler implements FrameHandler {
+		
+		// Connection whose frames are being handled
+		private ClientConnection connection;
+		
+		@Override
+		public void onFrame(int type, ByteBuffer body) throws IOException {
+			
+			handleClientMessage(this.connection, type, body);
+			
+		}
+		
+	}
+	
 }
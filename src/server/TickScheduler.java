@@ -0,0 +1,291 @@
+package server;
+
+/**
+ * Runs the server world at a fixed tick rate.
+ * Every tick is given the same simulated time step whatever the load, and
+ * time is measured with the monotonic System.nanoTime clock. When ticks
+ * run late the missed steps are caught up straight away, up to a limit,
+ * after which the backlog is dropped so the server doesn't spiral.
+ * @author Chris
+ *
+ */
+public class TickScheduler {
+	
+	
+	//****Class variables****
+	
+	
+	// Default number of ticks per second
+	public static final int DEFAULT_TICK_RATE = 60;
+	
+	// Default largest number of ticks run back to back to catch up
+	public static final int DEFAULT_MAX_CATCH_UP_TICKS = 5;
+	
+	/**
+	 * Work done each tick.
+	 */
+	public interface Task {
+		
+		/**
+		 * Runs one tick.
+		 * @param delta simulated time step in milliseconds
+		 */
+		public void tick(int delta);
+		
+	}
+	
+	private final int tickRate;
+	private final int maxCatchUpTicks;
+	
+	// Time between ticks in nanoseconds
+	private final long tickIntervalNs;
+	
+	// Clock time the next tick is due, set when the first tick runs
+	private long nextTickTime = 0;
+	private boolean started = false;
+	
+	// Ticks run since the scheduler started
+	// Used to spread the remainder of whole millisecond steps so simulated time doesn't drift
+	private long tickCount = 0;
+	
+	// Ticks that took longer than the tick interval to run
+	private long overrunTickCount = 0;
+	
+	// Ticks skipped because the server was too far behind to catch up
+	private long droppedTickCount = 0;
+	
+	// Longest time a tick has taken to run in nanoseconds
+	private long longestTickNs = 0;
+	
+	private volatile boolean running = false;
+	
+	
+	//****Constructors****
+	
+	
+	/**
+	 * Constructor.
+	 * @param tickRate ticks per second
+	 * @param maxCatchUpTicks largest number of ticks run back to back to catch up, at least one
+	 */
+	public TickScheduler(int tickRate, int maxCatchUpTicks) {
+		
+		if (tickRate <= 0 || tickRate > 1000)
+			throw new IllegalArgumentException("Tick rate must be between 1 and 1000: " + tickRate);
+		
+		if (maxCatchUpTicks < 1)
+			throw new IllegalArgumentException("At least one tick must be run at a time");
+		
+		this.tickRate = tickRate;
+		this.maxCatchUpTicks = maxCatchUpTicks;
+		this.tickIntervalNs = 1000000000L / tickRate;
+		
+	}
+	
+	/**
+	 * Constructor using the default tick rate and catch up limit.
+	 */
+	public TickScheduler() {
+		
+		this(DEFAULT_TICK_RATE, DEFAULT_MAX_CATCH_UP_TICKS);
+		
+	}
+	
+	
+	//****Class methods****
+	
+	
+	/**
+	 * Runs ticks on the calling thread until stopped.
+	 * @param task the work done each tick
+	 */
+	public void run(Task task) {
+		
+		this.running = true;
+		
+		while (this.running) {
+			
+			runDueTicks(task);
+			
+			long wait = this.nextTickTime - nanoTime();
+			
+			if (wait > 0) {
+				
+				try {
+					
+					sleep(wait);
+					
+				} catch (InterruptedException e) {
+					
+					e.printStackTrace();
+					
+					this.running = false;
+					
+				}
+				
+			}
+			
+		}
+		
+	}
+	
+	/**
+	 * Stops the scheduler after the current tick.
+	 */
+	public void stop() {
+		
+		this.running = false;
+		
+	}
+	
+	/**
+	 * Runs every tick that is due, up to the catch up limit.
+	 * @param task the work done each tick
+	 * @return number of ticks run
+	 */
+	public int runDueTicks(Task task) {
+		
+		long now = nanoTime();
+		
+		if (!this.started) {
+			
+			this.nextTickTime = now;
+			this.started = true;
+			
+		}
+		
+		int ticksRun = 0;
+		
+		while (now - this.nextTickTime >= 0 && ticksRun < this.maxCatchUpTicks) {
+			
+			task.tick(getNextTickDelta());
+			
+			long finished = nanoTime();
+			long tickTime = finished - now;
+			
+			if (tickTime > this.tickIntervalNs)
+				this.overrunTickCount++;
+			
+			this.longestTickNs = Math.max(this.longestTickNs, tickTime);
+			
+			this.tickCount++;
+			this.nextTickTime += this.tickIntervalNs;
+			
+			ticksRun++;
+			now = finished;
+			
+		}
+		
+		// Too far behind to catch up, carry on from now rather than running a burst of ticks
+		if (now - this.nextTickTime >= 0) {
+			
+			long behind = (now - this.nextTickTime) / this.tickIntervalNs + 1;
+			
+			this.droppedTickCount += behind;
+			this.nextTickTime += behind * this.tickIntervalNs;
+			
+		}
+		
+		return ticksRun;
+		
+	}
+	
+	/**
+	 * Gets the simulated time step of the next tick.
+	 * Steps are whole milliseconds, so at rates that don't divide a second evenly
+	 * the steps vary by a millisecond so their total matches the tick rate exactly.
+	 * @return time step in milliseconds
+	 */
+	private int getNextTickDelta() {
+		
+		return (int)((this.tickCount + 1) * 1000 / this.tickRate - this.tickCount * 1000 / this.tickRate);
+		
+	}
+	
+	/**
+	 * Reads the clock.
+	 * @return time in nanoseconds
+	 */
+	protected long nanoTime() {
+		
+		return System.nanoTime();
+		
+	}
+	
+	/**
+	 * Waits until the next tick is due.
+	 * @param nanos time to wait in nanoseconds
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	protected void sleep(long nanos) throws InterruptedException {
+		
+		Thread.sleep(nanos / 1000000, (int)(nanos % 1000000));
+		
+	}
+	
+	
+	//****Getters****
+	
+	
+	/**
+	 * Gets the number of ticks per second.
+	 * @return tick rate
+	 */
+	public int getTickRate() {
+		
+		return this.tickRate;
+		
+	}
+	
+	/**
+	 * Gets the number of ticks run.
+	 * @return tick count
+	 */
+	public long getTickCount() {
+		
+		return this.tickCount;
+		
+	}
+	
+	/**
+	 * Gets the number of ticks that took longer than the tick interval to run.
+	 * @return tick count
+	 */
+	public long getOverrunTickCount() {
+		
+		return this.overrunTickCount;
+		
+	}
+	
+	/**
+	 * Gets the number of ticks skipped because the server was too far behind.
+	 * @return tick count
+	 */
+	public long getDroppedTickCount() {
+		
+		return this.droppedTickCount;
+		
+	}
+	
+	/**
+	 * Gets the longest time a tick has taken to run.
+	 * @return time in nanoseconds
+	 */
+	public long getLongestTickNs() {
+		
+		return this.longestTickNs;
+		
+	}
+	
+	/**
+	 * Gets a summary of the tick timings.
+	 * @return one line of statistics
+	 */
+	public String getStats() {
+		
+		return "ticks " + this.tickCount + " at " + this.tickRate + "/s, overruns " + this.overrunTickCount
+				+ ", dropped " + this.droppedTickCount + ", longest " + (this.longestTickNs / 1000000.0) + "ms\n";
+		
+	}
+	
+}
@@ -0,0 +1,169 @@
+package server.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * A circular byte buffer used to hold data waiting to be written to a socket.
+ * Data that wraps around the end of the array is written with a single
+ * gathering write so it never has to be copied back to the start.
+ * Not thread-safe, callers must synchronise access.
+ * @author Chris
+ *
+ */
+public class ByteRingBuffer {
+
+
+	//****Class variables****
+
+
+	private byte[] data;
+
+	// Index of the first unread byte
+	private int head = 0;
+
+	// Number of unread bytes
+	private int size = 0;
+
+	// Views of the array handed to gathering writes, reused between writes
+	private final ByteBuffer[] segments = new ByteBuffer[2];
+
+
+	//****Constructors****
+
+
+	/**
+	 * Constructor.
+	 * @param capacity initial capacity in bytes
+	 */
+	public ByteRingBuffer(int capacity) {
+
+		this.data = new byte[capacity];
+
+	}
+
+
+	//****Class methods****
+
+
+	/**
+	 * Appends the remaining bytes of a buffer, growing if there isn't enough room.
+	 * @param src buffer to copy from, its position is moved past the copied bytes
+	 */
+	public void put(ByteBuffer src) {
+
+		int count = src.remaining();
+
+		ensureCapacity(this.size + count);
+
+		int tail = (this.head + this.size) % this.data.length;
+		int firstPart = Math.min(count, this.data.length - tail);
+
+		src.get(this.data, tail, firstPart);
+		src.get(this.data, 0, count - firstPart);
+
+		this.size += count;
+
+	}
+
+	/**
+	 * Writes as much unread data as the channel accepts.
+	 * @param channel the channel to write to
+	 * @return number of bytes written
+	 * @throws IOException if the write fails
+	 */
+	public int writeTo(GatheringByteChannel channel) throws IOException {
+
+		if (this.size == 0)
+			return 0;
+
+		int firstPart = Math.min(this.size, this.data.length - this.head);
+
+		this.segments[0] = ByteBuffer.wrap(this.data, this.head, firstPart);
+		this.segments[1] = ByteBuffer.wrap(this.data, 0, this.size - firstPart);
+
+		int written = (int)channel.write(this.segments);
+
+		skip(written);
+
+		return written;
+
+	}
+
+	/**
+	 * Discards unread bytes.
+	 * @param count number of bytes to discard
+	 */
+	public void skip(int count) {
+
+		this.head = (this.head + count) % this.data.length;
+		this.size -= count;
+
+		// Start from the beginning again so later writes are less likely to wrap
+		if (this.size == 0)
+			this.head = 0;
+
+	}
+
+	/**
+	 * Discards all unread bytes.
+	 */
+	public void clear() {
+
+		this.head = 0;
+		this.size = 0;
+
+	}
+
+	/**
+	 * Grows the array, keeping the unread bytes in order.
+	 * @param minCapacity capacity needed
+	 */
+	private void ensureCapacity(int minCapacity) {
+
+		if (minCapacity <= this.data.length)
+			return;
+
+		int capacity = this.data.length;
+
+		while (capacity < minCapacity)
+			capacity <<= 1;
+
+		byte[] larger = new byte[capacity];
+
+		int firstPart = Math.min(this.size, this.data.length - this.head);
+
+		System.arraycopy(this.data, this.head, larger, 0, firstPart);
+		System.arraycopy(this.data, 0, larger, firstPart, this.size - firstPart);
+
+		this.data = larger;
+		this.head = 0;
+
+	}
+
+
+	//****Getters****
+
+
+	/**
+	 * Gets the number of unread bytes.
+	 * @return byte count
+	 */
+	public int size() {
+
+		return this.size;
+
+	}
+
+	/**
+	 * Gets the current capacity.
+	 * @return capacity in bytes
+	 */
+	public int capacity() {
+
+		return this.data.length;
+
+	}
+
+}
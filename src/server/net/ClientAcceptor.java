@@ -1,12 +1,17 @@
 package server.net;
 
 import java.io.IOException;
-import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 
 import server.ServerWorld;
+import shared.net.NetworkConstants;
 
 /**
  * Listens for players trying to join the server.
+ * Accepted connections are shared between a small number of selector threads.
+ * Each client is handed to the world chosen by the acceptor's router, so one
+ * acceptor can serve every match hosted by the server.
  * @author Chris
  *
  */
@@ -16,18 +21,68 @@ public class ClientAcceptor {
 	//****Class variables****
 	
 	
-	private ServerSocket serverSocket;
+	// Number of threads handling client socket I/O
+	public static final int SELECTOR_THREAD_COUNT = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+	
+	private ServerSocketChannel serverChannel;
 	private boolean listening;
 	private Runnable serverTask;
 	private Thread serverThread;
+	
+	// Chooses the world each client joins
+	private final ClientRouter router;
+	
+	private SelectorThread[] selectorThreads;
+	
+	// Selector thread the next connection is given to
+	private int nextSelectorThread = 0;
+	
+	// Send queue limits given to new connections
+	private int sendQueueLowWatermark = NetworkConstants.SEND_QUEUE_LOW_WATERMARK;
+	private int sendQueueHighWatermark = NetworkConstants.SEND_QUEUE_HIGH_WATERMARK;
+	private int sendQueueLimit = NetworkConstants.SEND_QUEUE_LIMIT;
+	private long sendQueueEvictionMs = NetworkConstants.SEND_QUEUE_EVICTION_MS;
     
 	
 	//****Constructors****
 	
 	
-	public ClientAcceptor(final ServerSocket serverSocket, final ServerWorld serverWorld) throws IOException {		
+	/**
+	 * Constructor for an acceptor serving a single world.
+	 * @param serverChannel the bound server socket channel
+	 * @param serverWorld the world every client joins
+	 * @throws IOException if the selector threads can't be created
+	 */
+	public ClientAcceptor(ServerSocketChannel serverChannel, final ServerWorld serverWorld) throws IOException {
+		
+		this(serverChannel, new ClientRouter() {
+			
+			@Override
+			public ServerWorld routeClient() {
+				
+				return serverWorld;
+				
+			}
+			
+		});
+		
+	}
+	
+	/**
+	 * Constructor.
+	 * @param serverChannel the bound server socket channel
+	 * @param router chooses the world each client joins
+	 * @throws IOException if the selector threads can't be created
+	 */
+	public ClientAcceptor(final ServerSocketChannel serverChannel, ClientRouter router) throws IOException {		
 	
-		this.serverSocket = serverSocket;
+		this.serverChannel = serverChannel;
+		this.router = router;
+		
+		this.selectorThreads = new SelectorThread[SELECTOR_THREAD_COUNT];
+		
+		for (int i = 0; i < this.selectorThreads.length; i++)
+			this.selectorThreads[i] = new SelectorThread("Server SelectorThread " + i);
 		
 		this.serverTask = new Runnable() {
 		
@@ -38,8 +93,29 @@ public class ClientAcceptor {
 		        
 					try {
 		        	
-						// TODO: use thread pool
-						new ListenerThread(serverSocket.accept(), serverWorld).start();
+						SocketChannel channel = serverChannel.accept();
+						
+						ServerWorld serverWorld = ClientAcceptor.this.router.routeClient();
+						
+						if (serverWorld == null) {
+							
+							System.err.println("ClientAcceptor: every match is full, turning client away");
+							
+							turnAway(channel);
+							continue;
+							
+						}
+						
+						channel.configureBlocking(false);
+						
+						SelectorThread selectorThread = selectorThreads[nextSelectorThread];
+						nextSelectorThread = (nextSelectorThread + 1) % selectorThreads.length;
+						
+						ClientConnection connection = new ClientConnection(channel, selectorThread, serverWorld);
+						connection.setSendQueueLimits(sendQueueLowWatermark, sendQueueHighWatermark, sendQueueLimit, sendQueueEvictionMs);
+						
+						serverWorld.addConnection(connection);
+						selectorThread.addConnection(connection);
 						
 					} catch (IOException e) {
 						
@@ -70,11 +146,51 @@ public class ClientAcceptor {
 		
 		this.listening = true;
 		
+		for (SelectorThread selectorThread : this.selectorThreads)
+			selectorThread.start();
+		
 		this.serverThread = new Thread(this.serverTask);
 		this.serverThread.start();
 		
 	}
 
+	/**
+	 * Sets the send queue limits for connections accepted from now on.
+	 * @param lowWatermark bytes a congested client must drain down to before it is caught up
+	 * @param highWatermark bytes waiting before a client is congested
+	 * @param limit bytes waiting before a client is disconnected
+	 * @param evictionMs time a client can stay congested before it is disconnected
+	 */
+	public void setSendQueueLimits(int lowWatermark, int highWatermark, int limit, long evictionMs) {
+		
+		if (lowWatermark > highWatermark || highWatermark > limit)
+			throw new IllegalArgumentException("Send queue limits must satisfy low <= high <= limit");
+		
+		this.sendQueueLowWatermark = lowWatermark;
+		this.sendQueueHighWatermark = highWatermark;
+		this.sendQueueLimit = limit;
+		this.sendQueueEvictionMs = evictionMs;
+		
+	}
+
+	/**
+	 * Closes the channel of a client that no world has room for.
+	 * @param channel the channel
+	 */
+	private static void turnAway(SocketChannel channel) {
+		
+		try {
+			
+			channel.close();
+			
+		} catch (IOException e) {
+			
+			e.printStackTrace();
+			
+		}
+		
+	}
+
 	/**
 	 * Shut down the client acceptor
 	 */
@@ -84,7 +200,7 @@ public class ClientAcceptor {
 
 		try {
 		
-			this.serverSocket.close();
+			this.serverChannel.close();
 			
 		} catch (IOException e) {
 			
@@ -92,6 +208,9 @@ public class ClientAcceptor {
 			
 		}	
 		
+		for (SelectorThread selectorThread : this.selectorThreads)
+			selectorThread.shutdown();
+		
 	}
 	
 }
@@ -0,0 +1,506 @@
+package server.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+import server.NetworkPlayer;
+import server.ServerWorld;
+import shared.net.FrameDecoder;
+import shared.net.FrameHandler;
+import shared.net.NetworkConstants;
+
+/**
+ * A non-blocking connection to a client.
+ * All socket reads and writes happen on the connection's selector thread.
+ * Other threads only copy outgoing data into the write buffer, so a slow
+ * client can never block the game loop.
+ * Whole frames received from the client are collected in an inbox that the
+ * server world swaps out and decodes once per tick.
+ * The write buffer has high and low watermarks. A client whose buffer goes
+ * over the high watermark is congested until it drains below the low watermark,
+ * and is disconnected if it stays congested too long or the buffer reaches its limit.
+ * @author Chris
+ *
+ */
+public class ClientConnection {
+
+
+	//****Class variables****
+
+
+	// Size of the read buffer, also the largest frame a client can send
+	public static final int READ_BUFFER_SIZE = 64 * 1024;
+
+	// Largest frame body a client can send
+	public static final int MAX_BODY_SIZE = READ_BUFFER_SIZE - NetworkConstants.FRAME_HEADER_SIZE;
+
+	// Most received bytes that can wait to be handled before the client is disconnected
+	public static final int INBOX_LIMIT = 1024 * 1024;
+
+	// Initial size of the write buffer
+	public static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+	private final SocketChannel channel;
+	private final SelectorThread selectorThread;
+
+	// World the client's messages are handled by
+	private final ServerWorld serverWorld;
+
+	private SelectionKey selectionKey;
+
+	// Bytes received but not yet decoded, kept in write mode between reads
+	private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+	// Whole frames waiting to be handled, guarded by the inbox lock
+	// The selector thread fills one buffer while the server world decodes the other
+	private ByteBuffer inbox = ByteBuffer.allocate(READ_BUFFER_SIZE);
+	private ByteBuffer handledFrames = ByteBuffer.allocate(READ_BUFFER_SIZE);
+	private final Object inboxLock = new Object();
+
+	// Whether the connection is waiting in the server world's input queue
+	private boolean queued = false;
+
+	// Bytes waiting to be written to the socket, guarded by itself
+	private final ByteRingBuffer writeBuffer = new ByteRingBuffer(WRITE_BUFFER_SIZE);
+
+	// Set while the connection is waiting for the selector thread to flush it
+	private boolean flushRequested = false;
+
+	// Send queue limits in bytes
+	private int lowWatermark = NetworkConstants.SEND_QUEUE_LOW_WATERMARK;
+	private int highWatermark = NetworkConstants.SEND_QUEUE_HIGH_WATERMARK;
+	private int sendQueueLimit = NetworkConstants.SEND_QUEUE_LIMIT;
+
+	// Time in nanoseconds a client can stay congested before it is disconnected
+	private long evictionTimeNs = NetworkConstants.SEND_QUEUE_EVICTION_MS * 1000000L;
+
+	// Whether the client isn't reading fast enough, guarded by the write buffer
+	private boolean congested = false;
+	private long congestedSince = 0;
+
+	// Largest number of bytes that have been waiting to be written
+	private int peakPendingWriteSize = 0;
+
+	private volatile boolean open = true;
+
+	// Player using this connection, set once the client has connected to the world
+	private NetworkPlayer networkPlayer;
+
+
+	//****Constructors****
+
+
+	/**
+	 * Constructor.
+	 * @param channel the accepted socket channel, already in non-blocking mode
+	 * @param selectorThread the selector thread handling the connection's I/O
+	 * @param serverWorld the world the client's messages are sent to
+	 */
+	public ClientConnection(SocketChannel channel, SelectorThread selectorThread, ServerWorld serverWorld) {
+
+		this.channel = channel;
+		this.selectorThread = selectorThread;
+		this.serverWorld = serverWorld;
+
+	}
+
+
+	//****Class methods****
+
+
+	/**
+	 * Queues data to be sent to the client.
+	 * The data is copied, so the caller can reuse the buffer straight away.
+	 * @param data buffer holding the data, its position is moved past the queued bytes
+	 */
+	public void send(ByteBuffer data) {
+
+		if (!this.open) {
+
+			data.position(data.limit());
+			return;
+
+		}
+
+		boolean requestFlush;
+		boolean overLimit;
+
+		synchronized (this.writeBuffer) {
+
+			this.writeBuffer.put(data);
+
+			this.peakPendingWriteSize = Math.max(this.peakPendingWriteSize, this.writeBuffer.size());
+			overLimit = this.writeBuffer.size() > this.sendQueueLimit;
+
+			requestFlush = !this.flushRequested;
+			this.flushRequested = true;
+
+		}
+
+		if (overLimit) {
+
+			System.err.println("ClientConnection: send queue limit reached, disconnecting client");
+			close();
+
+		} else if (requestFlush) {
+
+			this.selectorThread.requestFlush(this);
+
+		}
+
+	}
+
+	/**
+	 * Checks the send queue against its watermarks.
+	 * Called by the server world before sending entity updates. A client that
+	 * has been congested longer than the eviction time is disconnected.
+	 * @param lagging whether the client is too far behind acknowledging snapshots,
+	 * which counts as congestion even if the send queue is short
+	 * @return true if the client is congested and stale updates should be held back
+	 */
+	public boolean updateCongestion(boolean lagging) {
+
+		boolean congested;
+		boolean evict;
+
+		synchronized (this.writeBuffer) {
+
+			int pending = this.writeBuffer.size();
+
+			if (!this.congested && (pending > this.highWatermark || lagging)) {
+
+				this.congested = true;
+				this.congestedSince = System.nanoTime();
+
+			} else if (this.congested && pending <= this.lowWatermark && !lagging) {
+
+				this.congested = false;
+
+			}
+
+			congested = this.congested;
+			evict = congested && System.nanoTime() - this.congestedSince > this.evictionTimeNs;
+
+		}
+
+		if (evict) {
+
+			System.err.println("ClientConnection: client congested for too long, disconnecting");
+			close();
+
+		}
+
+		return congested;
+
+	}
+
+	/**
+	 * Reads from the socket and moves any whole frames to the inbox.
+	 * Called on the selector thread when the socket is readable.
+	 * @throws IOException if the read fails, the client closed the connection or sent an invalid frame
+	 */
+	void onReadable() throws IOException {
+
+		if (this.channel.read(this.readBuffer) < 0)
+			throw new IOException("Client closed the connection");
+
+		this.readBuffer.flip();
+
+		int length = FrameDecoder.getWholeFramesLength(this.readBuffer, MAX_BODY_SIZE);
+
+		if (length > 0) {
+
+			synchronized (this.inboxLock) {
+
+				ensureInboxRemaining(length);
+
+				int limit = this.readBuffer.limit();
+
+				this.readBuffer.limit(this.readBuffer.position() + length);
+				this.inbox.put(this.readBuffer);
+				this.readBuffer.limit(limit);
+
+			}
+
+			queueWithWorld();
+
+		}
+
+		this.readBuffer.compact();
+
+	}
+
+	/**
+	 * Makes sure the inbox has room for more frames, moving to a larger buffer if needed.
+	 * Must be called holding the inbox lock.
+	 * @param count number of bytes about to be added
+	 * @throws IOException if the client has sent more than the inbox limit
+	 */
+	private void ensureInboxRemaining(int count) throws IOException {
+
+		if (this.inbox.remaining() >= count)
+			return;
+
+		int minCapacity = this.inbox.position() + count;
+
+		if (minCapacity > INBOX_LIMIT)
+			throw new IOException("Client is sending messages faster than they can be handled");
+
+		int capacity = this.inbox.capacity();
+
+		while (capacity < minCapacity)
+			capacity <<= 1;
+
+		ByteBuffer larger = ByteBuffer.allocate(capacity);
+
+		this.inbox.flip();
+		larger.put(this.inbox);
+
+		this.inbox = larger;
+
+	}
+
+	/**
+	 * Hands the frames received since the last call to a handler.
+	 * Called by the server world, frames are decoded straight from the inbox without being copied.
+	 * @param handler the handler
+	 * @throws IOException if the handler couldn't read a frame
+	 */
+	public void handleFrames(FrameHandler handler) throws IOException {
+
+		ByteBuffer frames;
+
+		synchronized (this.inboxLock) {
+
+			frames = this.inbox;
+
+			this.inbox = this.handledFrames;
+			this.handledFrames = frames;
+			this.queued = false;
+
+		}
+
+		frames.flip();
+
+		try {
+
+			FrameDecoder.decode(frames, MAX_BODY_SIZE, handler);
+
+		} finally {
+
+			frames.clear();
+
+		}
+
+	}
+
+	/**
+	 * Adds the connection to the server world's input queue if it isn't already waiting there.
+	 */
+	private void queueWithWorld() {
+
+		boolean queue;
+
+		synchronized (this.inboxLock) {
+
+			queue = !this.queued;
+			this.queued = true;
+
+		}
+
+		if (queue)
+			this.serverWorld.queueClientInput(this);
+
+	}
+
+	/**
+	 * Writes as much queued data as the socket accepts.
+	 * Called on the selector thread.
+	 * @return true if everything queued has been written
+	 * @throws IOException if the write fails
+	 */
+	boolean flush() throws IOException {
+
+		synchronized (this.writeBuffer) {
+
+			this.flushRequested = false;
+
+			this.writeBuffer.writeTo(this.channel);
+
+			return this.writeBuffer.size() == 0;
+
+		}
+
+	}
+
+	/**
+	 * Closes the connection and tells the server world the client has gone.
+	 * Does nothing if the connection is already closed.
+	 */
+	public void close() {
+
+		synchronized (this) {
+
+			if (!this.open)
+				return;
+
+			this.open = false;
+
+		}
+
+		if (this.selectionKey != null)
+			this.selectionKey.cancel();
+
+		try {
+
+			this.channel.close();
+
+		} catch (IOException e) {
+
+			e.printStackTrace();
+
+		}
+
+		synchronized (this.writeBuffer) {
+
+			this.writeBuffer.clear();
+
+		}
+
+		// The server world sees the connection is closed and removes the player
+		queueWithWorld();
+
+	}
+
+
+	//****Getters and setters****
+
+
+	/**
+	 * Gets the socket channel.
+	 * @return the channel
+	 */
+	public SocketChannel getChannel() {
+
+		return this.channel;
+
+	}
+
+	/**
+	 * Sets the selection key the channel is registered with.
+	 * @param selectionKey the key
+	 */
+	void setSelectionKey(SelectionKey selectionKey) {
+
+		this.selectionKey = selectionKey;
+
+	}
+
+	/**
+	 * Gets the selection key the channel is registered with.
+	 * @return the key, or null if not registered yet
+	 */
+	SelectionKey getSelectionKey() {
+
+		return this.selectionKey;
+
+	}
+
+	/**
+	 * Returns whether the connection is open.
+	 * @return true if open
+	 */
+	public boolean isOpen() {
+
+		return this.open;
+
+	}
+
+	/**
+	 * Gets the player using this connection.
+	 * @return the network player, or null if the client hasn't connected to the world yet
+	 */
+	public NetworkPlayer getNetworkPlayer() {
+
+		return this.networkPlayer;
+
+	}
+
+	/**
+	 * Sets the player using this connection.
+	 * @param networkPlayer the network player
+	 */
+	public void setNetworkPlayer(NetworkPlayer networkPlayer) {
+
+		this.networkPlayer = networkPlayer;
+
+	}
+
+	/**
+	 * Gets the number of bytes waiting to be written to the socket.
+	 * @return byte count
+	 */
+	public int getPendingWriteSize() {
+
+		synchronized (this.writeBuffer) {
+
+			return this.writeBuffer.size();
+
+		}
+
+	}
+
+	/**
+	 * Gets the largest number of bytes that have been waiting to be written to the socket.
+	 * @return byte count
+	 */
+	public int getPeakPendingWriteSize() {
+
+		synchronized (this.writeBuffer) {
+
+			return this.peakPendingWriteSize;
+
+		}
+
+	}
+
+	/**
+	 * Returns whether the client was congested when last checked.
+	 * @return true if congested
+	 */
+	public boolean isCongested() {
+
+		synchronized (this.writeBuffer) {
+
+			return this.congested;
+
+		}
+
+	}
+
+	/**
+	 * Sets the send queue limits.
+	 * @param lowWatermark bytes a congested client must drain down to before it is caught up
+	 * @param highWatermark bytes waiting before a client is congested
+	 * @param sendQueueLimit bytes waiting before a client is disconnected
+	 * @param evictionTimeMs time a client can stay congested before it is disconnected
+	 */
+	public void setSendQueueLimits(int lowWatermark, int highWatermark, int sendQueueLimit, long evictionTimeMs) {
+
+		if (lowWatermark > highWatermark || highWatermark > sendQueueLimit)
+			throw new IllegalArgumentException("Send queue limits must satisfy low <= high <= limit");
+
+		synchronized (this.writeBuffer) {
+
+			this.lowWatermark = lowWatermark;
+			this.highWatermark = highWatermark;
+			this.sendQueueLimit = sendQueueLimit;
+			this.evictionTimeNs = evictionTimeMs * 1000000L;
+
+		}
+
+	}
+
+}
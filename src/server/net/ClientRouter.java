@@ -0,0 +1,20 @@
+package server.net;
+
+import server.ServerWorld;
+
+/**
+ * Chooses the world each accepted client joins.
+ * Lets one client acceptor serve several worlds.
+ * @author Chris
+ *
+ */
+public interface ClientRouter {
+
+	/**
+	 * Chooses the world for a newly accepted client.
+	 * Called on the acceptor thread.
+	 * @return the world, or null if no world has room for the client
+	 */
+	public ServerWorld routeClient();
+
+}
@@ -0,0 +1,250 @@
+package server.net;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import shared.Entity;
+import shared.net.BitWriter;
+import shared.net.NetworkedEntityField;
+import shared.net.SnapshotCodec;
+
+/**
+ * Collects the entity field changes made during a server tick.
+ * Only the last value set for each field is kept and fields are
+ * grouped under their entity so the whole tick can be sent as one message.
+ * @author Chris
+ *
+ */
+public class EntityUpdateFrame {
+
+
+	//****Class variables****
+
+
+	// Latest copy of each changed field, indexed by field ID
+	// Entities are kept in the order they first changed
+	private LinkedHashMap<Entity, NetworkedEntityField<?>[]> changedFields = new LinkedHashMap<Entity, NetworkedEntityField<?>[]>();
+
+	// Number of changed fields across all entities
+	private int fieldCount = 0;
+
+
+	//****Class methods****
+
+
+	/**
+	 * Adds a changed field to the frame, replacing any earlier change to the same field.
+	 * @param entityField the changed field
+	 */
+	public synchronized void add(NetworkedEntityField<?> entityField) {
+
+		try {
+
+			// Copy the field so its value is the one set this tick
+			put((NetworkedEntityField<?>)entityField.clone());
+
+		} catch (CloneNotSupportedException e) {
+
+			e.printStackTrace();
+
+		}
+
+	}
+
+	/**
+	 * Adds all the changes in another frame, replacing any earlier changes to the same fields.
+	 * Used to collapse several ticks of changes into one frame.
+	 * @param frame the frame to add
+	 */
+	public synchronized void addAll(EntityUpdateFrame frame) {
+
+		synchronized (frame) {
+
+			for (NetworkedEntityField<?>[] fields : frame.changedFields.values()) {
+
+				for (NetworkedEntityField<?> entityField : fields) {
+
+					// Fields in a frame are already copies and are never changed
+					if (entityField != null)
+						put(entityField);
+
+				}
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Stores a field copy under its entity and field ID.
+	 * @param entityField the field copy
+	 */
+	private void put(NetworkedEntityField<?> entityField) {
+
+		Entity entity = entityField.getParentEntity();
+		int fieldID = entityField.getFieldID();
+
+		NetworkedEntityField<?>[] fields = this.changedFields.get(entity);
+
+		if (fields == null) {
+
+			fields = new NetworkedEntityField<?>[Math.max(fieldID + 1, entity.getNetworkedEntityFieldCount())];
+			this.changedFields.put(entity, fields);
+
+		} else if (fieldID >= fields.length) {
+
+			fields = Arrays.copyOf(fields, fieldID + 1);
+			this.changedFields.put(entity, fields);
+
+		}
+
+		if (fields[fieldID] == null)
+			this.fieldCount++;
+
+		fields[fieldID] = entityField;
+
+	}
+
+	/**
+	 * Encodes the frame as the entity updates of a snapshot.
+	 * Layout: entity count, then for each entity the difference between its ID
+	 * and the previous entity's, the number of field slots, then for each slot
+	 * a bit saying whether the field changed followed by the value if it did.
+	 * Changes to entities that have already been deleted are left out.
+	 * @param out the writer to write the updates to
+	 * @param codec the codec used for field values
+	 * @param deadEntities entities being deleted this tick, their changes are not sent
+	 * @throws IOException if a field could not be written
+	 */
+	public void encode(BitWriter out, SnapshotCodec codec, List<Entity> deadEntities) throws IOException {
+
+		encode(out, codec, deadEntities, null);
+
+	}
+
+	/**
+	 * Encodes the changes to entities a client has as the entity updates of a snapshot.
+	 * @param out the writer to write the updates to
+	 * @param codec the codec used for field values
+	 * @param deadEntities entities being deleted this tick, their changes are not sent
+	 * @param interest the entities the client has, or null to send changes to every entity
+	 * @throws IOException if a field could not be written
+	 */
+	public synchronized void encode(BitWriter out, SnapshotCodec codec, List<Entity> deadEntities, InterestSet interest) throws IOException {
+
+		synchronized (deadEntities) {
+
+			int entityCount = 0;
+
+			for (Entity entity : this.changedFields.keySet()) {
+
+				if (isSendable(entity, deadEntities, interest))
+					entityCount++;
+
+			}
+
+			// Number of entities
+			out.writeVarLong(entityCount);
+
+			int previousID = 0;
+
+			for (Map.Entry<Entity, NetworkedEntityField<?>[]> entry : this.changedFields.entrySet()) {
+
+				if (!isSendable(entry.getKey(), deadEntities, interest))
+					continue;
+
+				NetworkedEntityField<?>[] fields = entry.getValue();
+				int entityID = entry.getKey().getID();
+				int slotCount = countFieldSlots(fields);
+
+				// Entity ID, relative to the previous one
+				out.writeSignedVarLong(entityID - previousID);
+				// Number of field slots
+				out.writeVarLong(slotCount);
+
+				for (int fieldID = 0; fieldID < slotCount; fieldID++) {
+
+					// Whether the field changed, followed by its value if it did
+					out.writeBoolean(fields[fieldID] != null);
+
+					if (fields[fieldID] != null)
+						fields[fieldID].writeToSnapshot(out, codec);
+
+				}
+
+				previousID = entityID;
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Removes all changes from the frame, ready for the next tick.
+	 */
+	public synchronized void clear() {
+
+		this.changedFields.clear();
+		this.fieldCount = 0;
+
+	}
+
+	/**
+	 * Checks an entity still exists on clients.
+	 * @param entity the entity
+	 * @param deadEntities entities being deleted this tick
+	 * @param interest the entities the client has, or null for every entity
+	 * @return true if the entity's changes should be sent
+	 */
+	private static boolean isSendable(Entity entity, List<Entity> deadEntities, InterestSet interest) {
+
+		return entity.isValid() && !deadEntities.contains(entity) && (interest == null || interest.contains(entity));
+
+	}
+
+	/**
+	 * Counts the field slots of an entity up to its last changed field.
+	 * @param fields the entity's field slots
+	 * @return last changed field ID plus one
+	 */
+	private static int countFieldSlots(NetworkedEntityField<?>[] fields) {
+
+		int count = fields.length;
+
+		while (count > 0 && fields[count - 1] == null)
+			count--;
+
+		return count;
+
+	}
+
+
+	//****Getters****
+
+
+	/**
+	 * Returns whether any fields changed this tick.
+	 * @return true if there are no changes
+	 */
+	public synchronized boolean isEmpty() {
+
+		return this.fieldCount == 0;
+
+	}
+
+	/**
+	 * Gets the number of changed fields across all entities.
+	 * @return field count
+	 */
+	public synchronized int getFieldCount() {
+
+		return this.fieldCount;
+
+	}
+
+}
@@ -0,0 +1,186 @@
+package server.net;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+import shared.Entity;
+
+/**
+ * The entities a client has been sent and is kept up to date with.
+ * A dynamic entity becomes relevant once it is within a margin of the
+ * client's view and stays relevant until it leaves a larger area, so
+ * entities near the edge aren't created and destroyed every tick.
+ * Static entities are sent when the client connects and are always relevant.
+ * @author Chris
+ *
+ */
+public class InterestSet {
+
+
+	//****Class variables****
+
+
+	// Dynamic entities the client has
+	private final HashSet<Entity> entities = new HashSet<Entity>();
+
+	// Entities found to still be relevant, reused between updates
+	private final HashSet<Entity> retained = new HashSet<Entity>();
+
+	// Half size of the area entities become relevant in
+	private final float enterHalfWidth;
+	private final float enterHalfHeight;
+
+	// Half size of the area relevant entities must stay in
+	private final float exitHalfWidth;
+	private final float exitHalfHeight;
+
+
+	//****Constructors****
+
+
+	/**
+	 * Constructor.
+	 * @param viewWidth width of the client's view
+	 * @param viewHeight height of the client's view
+	 * @param enterMargin distance outside the view an entity becomes relevant
+	 * @param exitMargin distance outside the view a relevant entity stops being relevant, at least the enter margin
+	 */
+	public InterestSet(float viewWidth, float viewHeight, float enterMargin, float exitMargin) {
+
+		if (exitMargin < enterMargin)
+			throw new IllegalArgumentException("Exit margin must be at least the enter margin");
+
+		this.enterHalfWidth = viewWidth / 2 + enterMargin;
+		this.enterHalfHeight = viewHeight / 2 + enterMargin;
+		this.exitHalfWidth = viewWidth / 2 + exitMargin;
+		this.exitHalfHeight = viewHeight / 2 + exitMargin;
+
+	}
+
+
+	//****Class methods****
+
+
+	/**
+	 * Updates the set for a view centred on a point.
+	 * Dead entities are never relevant, so the client is told to destroy any it has.
+	 * @param centreX x coordinate of the view centre
+	 * @param centreY y coordinate of the view centre
+	 * @param nearbyEntities dynamic entities that may be inside the exit area
+	 * @param alwaysRelevantEntities dynamic entities every client should have
+	 * @param deadEntities entities being deleted this tick
+	 * @param entering filled with the entities that became relevant
+	 * @param leaving filled with the entities that stopped being relevant
+	 */
+	public void update(float centreX, float centreY, List<Entity> nearbyEntities, List<Entity> alwaysRelevantEntities,
+			List<Entity> deadEntities, List<Entity> entering, List<Entity> leaving) {
+
+		this.retained.clear();
+
+		for (Entity entity : alwaysRelevantEntities)
+			consider(entity, true, deadEntities, entering);
+
+		for (Entity entity : nearbyEntities) {
+
+			if (entity.isAlwaysRelevant())
+				continue;
+
+			float dx = Math.abs(entity.getX() - centreX);
+			float dy = Math.abs(entity.getY() - centreY);
+
+			if (dx <= this.exitHalfWidth && dy <= this.exitHalfHeight)
+				consider(entity, dx <= this.enterHalfWidth && dy <= this.enterHalfHeight, deadEntities, entering);
+
+		}
+
+		// Anything the client has that wasn't found again has left
+		Iterator<Entity> it = this.entities.iterator();
+
+		while (it.hasNext()) {
+
+			Entity entity = it.next();
+
+			if (!this.retained.contains(entity)) {
+
+				leaving.add(entity);
+				it.remove();
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Keeps an entity the client has, or adds it if it has come into view.
+	 * @param entity the entity
+	 * @param inView whether the entity is inside the enter area
+	 * @param deadEntities entities being deleted this tick
+	 * @param entering filled with the entity if it became relevant
+	 */
+	private void consider(Entity entity, boolean inView, List<Entity> deadEntities, List<Entity> entering) {
+
+		if (!entity.isValid() || deadEntities.contains(entity))
+			return;
+
+		if (this.entities.contains(entity)) {
+
+			this.retained.add(entity);
+
+		} else if (inView) {
+
+			this.entities.add(entity);
+			this.retained.add(entity);
+			entering.add(entity);
+
+		}
+
+	}
+
+	/**
+	 * Returns whether the client has an entity.
+	 * @param entity the entity
+	 * @return true if the entity is static or relevant
+	 */
+	public boolean contains(Entity entity) {
+
+		return entity.isStatic() || this.entities.contains(entity);
+
+	}
+
+
+	//****Getters****
+
+
+	/**
+	 * Gets half the width of the area relevant entities must stay in.
+	 * @return half width
+	 */
+	public float getExitHalfWidth() {
+
+		return this.exitHalfWidth;
+
+	}
+
+	/**
+	 * Gets half the height of the area relevant entities must stay in.
+	 * @return half height
+	 */
+	public float getExitHalfHeight() {
+
+		return this.exitHalfHeight;
+
+	}
+
+	/**
+	 * Gets the number of dynamic entities the client has.
+	 * @return entity count
+	 */
+	public int size() {
+
+		return this.entities.size();
+
+	}
+
+}
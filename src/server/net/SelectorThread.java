@@ -0,0 +1,227 @@
+package server.net;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Handles the socket I/O of a group of client connections.
+ * @author Chris
+ *
+ */
+public class SelectorThread extends Thread {
+
+
+	//****Class variables****
+
+
+	private final Selector selector;
+
+	// Connections waiting to be registered with the selector
+	private final ConcurrentLinkedQueue<ClientConnection> newConnections = new ConcurrentLinkedQueue<ClientConnection>();
+
+	// Connections with data waiting to be written
+	private final ConcurrentLinkedQueue<ClientConnection> flushRequests = new ConcurrentLinkedQueue<ClientConnection>();
+
+	private volatile boolean running = true;
+
+
+	//****Constructors****
+
+
+	/**
+	 * Constructor.
+	 * @param name thread name
+	 * @throws IOException if the selector can't be opened
+	 */
+	public SelectorThread(String name) throws IOException {
+
+		super(name);
+
+		this.selector = Selector.open();
+
+		setDaemon(true);
+
+	}
+
+
+	//****Class methods****
+
+
+	@Override
+	public void run() {
+
+		while (this.running) {
+
+			try {
+
+				this.selector.select();
+
+			} catch (IOException e) {
+
+				e.printStackTrace();
+				break;
+
+			}
+
+			registerNewConnections();
+			flushRequestedConnections();
+
+			Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+
+			while (keys.hasNext()) {
+
+				SelectionKey key = keys.next();
+				keys.remove();
+
+				ClientConnection connection = (ClientConnection)key.attachment();
+
+				try {
+
+					if (key.isReadable())
+						connection.onReadable();
+
+					if (key.isValid() && key.isWritable() && connection.flush()) {
+
+						// Everything is written, stop waiting for the socket to become writable
+						key.interestOps(SelectionKey.OP_READ);
+
+					}
+
+				} catch (CancelledKeyException e) {
+
+					connection.close();
+
+				} catch (IOException e) {
+
+					System.err.println("SelectorThread: lost connection to client: " + e.getMessage());
+
+					connection.close();
+
+				}
+
+			}
+
+		}
+
+		closeAll();
+
+		System.err.println("SelectorThread: finished");
+
+	}
+
+	/**
+	 * Hands a new connection to the thread.
+	 * @param connection the connection
+	 */
+	public void addConnection(ClientConnection connection) {
+
+		this.newConnections.add(connection);
+		this.selector.wakeup();
+
+	}
+
+	/**
+	 * Asks the thread to write a connection's queued data.
+	 * @param connection the connection
+	 */
+	void requestFlush(ClientConnection connection) {
+
+		this.flushRequests.add(connection);
+		this.selector.wakeup();
+
+	}
+
+	/**
+	 * Stops the thread and closes its connections.
+	 */
+	public void shutdown() {
+
+		this.running = false;
+		this.selector.wakeup();
+
+	}
+
+	/**
+	 * Registers connections added since the last select.
+	 */
+	private void registerNewConnections() {
+
+		ClientConnection connection;
+
+		while ((connection = this.newConnections.poll()) != null) {
+
+			try {
+
+				connection.setSelectionKey(connection.getChannel().register(this.selector, SelectionKey.OP_READ, connection));
+
+			} catch (ClosedChannelException e) {
+
+				connection.close();
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Writes queued data for connections that asked for a flush.
+	 * Connections that couldn't write everything wait for their socket to become writable.
+	 */
+	private void flushRequestedConnections() {
+
+		ClientConnection connection;
+
+		while ((connection = this.flushRequests.poll()) != null) {
+
+			SelectionKey key = connection.getSelectionKey();
+
+			if (key == null || !key.isValid())
+				continue;
+
+			try {
+
+				if (!connection.flush())
+					key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+
+			} catch (IOException e) {
+
+				System.err.println("SelectorThread: lost connection to client: " + e.getMessage());
+
+				connection.close();
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Closes every connection registered with the selector.
+	 */
+	private void closeAll() {
+
+		for (SelectionKey key : this.selector.keys()) {
+
+			((ClientConnection)key.attachment()).close();
+
+		}
+
+		try {
+
+			this.selector.close();
+
+		} catch (IOException e) {
+
+			e.printStackTrace();
+
+		}
+
+	}
+
+}
@@ -0,0 +1,122 @@
+package server.net;
+
+/**
+ * Holds the entity updates of the most recent server ticks.
+ * Each tick's updates are a snapshot delta numbered by a sequence. A client
+ * that missed some snapshots is sent the deltas since the last one it was
+ * sent, collapsed into one frame, instead of every tick it missed.
+ * @author Chris
+ *
+ */
+public class SnapshotRing {
+
+
+	//****Class variables****
+
+
+	private final EntityUpdateFrame[] frames;
+
+	// Sequence of the newest snapshot, -1 if none have been added
+	private int latestSequence = -1;
+
+	// Number of snapshots held
+	private int size = 0;
+
+
+	//****Constructors****
+
+
+	/**
+	 * Constructor.
+	 * @param capacity number of snapshots kept
+	 */
+	public SnapshotRing(int capacity) {
+
+		this.frames = new EntityUpdateFrame[capacity];
+
+		for (int i = 0; i < capacity; i++)
+			this.frames[i] = new EntityUpdateFrame();
+
+	}
+
+
+	//****Class methods****
+
+
+	/**
+	 * Adds the next snapshot, replacing the oldest one once the ring is full.
+	 * The frame is kept by the ring rather than copied.
+	 * @param frame the snapshot's entity updates
+	 * @return a cleared frame to collect the next tick's updates in
+	 */
+	public synchronized EntityUpdateFrame add(EntityUpdateFrame frame) {
+
+		this.latestSequence++;
+
+		int slot = this.latestSequence % this.frames.length;
+
+		EntityUpdateFrame oldest = this.frames[slot];
+		oldest.clear();
+
+		this.frames[slot] = frame;
+		this.size = Math.min(this.size + 1, this.frames.length);
+
+		return oldest;
+
+	}
+
+	/**
+	 * Returns whether the deltas since a baseline snapshot are still held.
+	 * @param baseline sequence of the baseline snapshot
+	 * @return true if every snapshot after the baseline is held
+	 */
+	public synchronized boolean hasDeltasSince(int baseline) {
+
+		return baseline >= this.latestSequence - this.size && baseline <= this.latestSequence;
+
+	}
+
+	/**
+	 * Collapses the deltas since a baseline snapshot into one frame.
+	 * Only the latest value of each field is kept.
+	 * @param baseline sequence of the baseline snapshot
+	 * @param delta frame to add the changes to
+	 * @return false if some of the deltas are no longer held
+	 */
+	public synchronized boolean collectDeltasSince(int baseline, EntityUpdateFrame delta) {
+
+		if (!hasDeltasSince(baseline))
+			return false;
+
+		for (int sequence = baseline + 1; sequence <= this.latestSequence; sequence++)
+			delta.addAll(this.frames[sequence % this.frames.length]);
+
+		return true;
+
+	}
+
+
+	//****Getters****
+
+
+	/**
+	 * Gets the sequence of the newest snapshot.
+	 * @return the sequence, or -1 if none have been added
+	 */
+	public synchronized int getLatestSequence() {
+
+		return this.latestSequence;
+
+	}
+
+	/**
+	 * Gets the number of snapshots kept.
+	 * @return capacity
+	 */
+	public int getCapacity() {
+
+		return this.frames.length;
+
+	}
+
+}
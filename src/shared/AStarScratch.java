@@ -0,0 +1,77 @@
+package shared;
+
+import java.util.Arrays;
+
+/**
+ * The working state of an A* search over a navmesh, kept between searches so that searching doesn't allocate
+ * Each thread searching a navmesh has its own scratch
+ * Rather than clearing the arrays before every search, each search has a new generation number and
+ * a polygon's entries only count if its stamp matches the current generation
+ * @author Barney
+ */
+class AStarScratch {
+	// The cost of the best known path from the start to each polygon
+	final float[] g;
+
+	// The estimated cost of the path from the start to the goal via each polygon
+	final float[] f;
+
+	// The point each polygon is entered at along its best known path
+	final float[] entryX;
+	final float[] entryY;
+
+	// The polygon before each polygon along its best known path, -1 for the start
+	final int[] cameFrom;
+
+	// The generation in which each polygon was reached, and in which it was closed
+	final int[] reachedStamp;
+	final int[] closedStamp;
+
+	// The open set
+	final PolygonHeap openSet;
+
+	// The generation of the current search
+	private int generation = 0;
+
+	/**
+	 * Constructor
+	 * @param polygonCount The number of polygons in the navmesh
+	 */
+	public AStarScratch(int polygonCount) {
+		this.g = new float[polygonCount];
+		this.f = new float[polygonCount];
+		this.entryX = new float[polygonCount];
+		this.entryY = new float[polygonCount];
+		this.cameFrom = new int[polygonCount];
+		this.reachedStamp = new int[polygonCount];
+		this.closedStamp = new int[polygonCount];
+		this.openSet = new PolygonHeap(this.f);
+	}
+
+	/**
+	 * Checks whether the current search reached a polygon
+	 * @param polygon The index of the polygon
+	 * @return True if the polygon was reached
+	 */
+	public boolean wasReached(int polygon) {
+		return this.reachedStamp[polygon] == this.generation;
+	}
+
+	/**
+	 * Starts a new search, forgetting everything about the last one
+	 * @return The generation of the new search
+	 */
+	public int startSearch() {
+		this.generation++;
+
+		// The stamps are only cleared when the generation wraps around, about every four billion searches
+		if (this.generation == 0) {
+			Arrays.fill(this.reachedStamp, 0);
+			Arrays.fill(this.closedStamp, 0);
+			this.generation = 1;
+		}
+
+		this.openSet.clear();
+		return this.generation;
+	}
+}
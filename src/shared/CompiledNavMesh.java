@@ -0,0 +1,296 @@
+package shared;
+
+import org.lwjgl.util.vector.Vector2f;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads and writes navmeshes in a compiled binary format, which loads much faster than the XML navmesh files
+ * The polygons are stored as flat arrays of vertices, neighbours as indices and each connecting edge as its two ends,
+ * so loading is a few bulk copies out of a memory mapped file instead of parsing and looking polygons up by their id
+ * @author Barney
+ */
+final class CompiledNavMesh {
+	// The first int of every compiled navmesh, "NAVM"
+	private static final int MAGIC = 0x4E41564D;
+
+	// Files written with a different version are not read
+	private static final int VERSION = 1;
+
+	private CompiledNavMesh() {
+	}
+
+	/**
+	 * Writes a navmesh in the compiled format
+	 * Neighbours outside the navmesh or without a connecting edge can't be searched through, so they are left out
+	 * @param polygons The polygons of the navmesh
+	 * @param hierarchy The clusters of the navmesh, or null if it doesn't have any
+	 * @param fileName The file to write to
+	 */
+	static void write(ArrayList<Polygon> polygons, NavMeshHierarchy hierarchy, String fileName) throws IOException {
+		IdentityHashMap<Polygon,Integer> indices = new IdentityHashMap<Polygon,Integer>();
+		for (int i = 0; i < polygons.size(); i++) {
+			indices.put(polygons.get(i), i);
+		}
+
+		// Flatten the vertices, neighbours and ids so the counts can be written before them
+		int vertexCount = 0;
+		int neighbourCount = 0;
+		int[] vertexStarts = new int[polygons.size() + 1];
+		int[] neighbourStarts = new int[polygons.size() + 1];
+		int[] idStarts = new int[polygons.size() + 1];
+		byte[][] ids = new byte[polygons.size()][];
+		for (int i = 0; i < polygons.size(); i++) {
+			Polygon polygon = polygons.get(i);
+			vertexStarts[i] = vertexCount;
+			vertexCount += polygon.getVertices().size();
+
+			neighbourStarts[i] = neighbourCount;
+			for (Polygon neighbour : polygon.getNeighbours()) {
+				if (indices.containsKey(neighbour) && polygon.getEdgeConnectingPolygon(neighbour) != null) {
+					neighbourCount++;
+				}
+			}
+
+			ids[i] = polygon.getID().getBytes(StandardCharsets.UTF_8);
+			idStarts[i + 1] = idStarts[i] + ids[i].length;
+		}
+		vertexStarts[polygons.size()] = vertexCount;
+		neighbourStarts[polygons.size()] = neighbourCount;
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(polygons.size());
+			out.writeInt(vertexCount);
+			out.writeInt(neighbourCount);
+			out.writeInt(idStarts[polygons.size()]);
+
+			// The vertices of polygon i are vertexStarts[i] up to vertexStarts[i + 1], all the x coordinates then all the y coordinates
+			writeInts(out, vertexStarts);
+			for (Polygon polygon : polygons) {
+				for (Vector2f vertex : polygon.getVertices()) {
+					out.writeFloat(vertex.getX());
+				}
+			}
+			for (Polygon polygon : polygons) {
+				for (Vector2f vertex : polygon.getVertices()) {
+					out.writeFloat(vertex.getY());
+				}
+			}
+
+			// The neighbours of polygon i are neighbourStarts[i] up to neighbourStarts[i + 1], then the ends of each connecting edge
+			writeInts(out, neighbourStarts);
+			for (Polygon polygon : polygons) {
+				for (Polygon neighbour : polygon.getNeighbours()) {
+					if (indices.containsKey(neighbour) && polygon.getEdgeConnectingPolygon(neighbour) != null) {
+						out.writeInt(indices.get(neighbour));
+					}
+				}
+			}
+			for (Polygon polygon : polygons) {
+				for (Polygon neighbour : polygon.getNeighbours()) {
+					Edge edge = polygon.getEdgeConnectingPolygon(neighbour);
+					if (indices.containsKey(neighbour) && edge != null) {
+						out.writeFloat(edge.getFirstVertice().getX());
+						out.writeFloat(edge.getFirstVertice().getY());
+						out.writeFloat(edge.getSecondVertice().getX());
+						out.writeFloat(edge.getSecondVertice().getY());
+					}
+				}
+			}
+
+			// The ids, kept so the navmesh matches the XML file it was compiled alongside
+			writeInts(out, idStarts);
+			for (byte[] id : ids) {
+				out.write(id);
+			}
+
+			writeHierarchy(out, hierarchy);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the cluster of each polygon and the costs of the routes between the border polygons of each cluster
+	 * @param out The stream to write to
+	 * @param hierarchy The clusters of the navmesh, or null if it doesn't have any
+	 */
+	private static void writeHierarchy(DataOutputStream out, NavMeshHierarchy hierarchy) throws IOException {
+		if (hierarchy == null) {
+			out.writeBoolean(false);
+			return;
+		}
+		out.writeBoolean(true);
+
+		int[] clusterOf = hierarchy.getClusterOf();
+		writeInts(out, clusterOf);
+
+		// Each route is stored once for both directions, like in the XML file
+		ArrayList<Integer> froms = new ArrayList<Integer>();
+		ArrayList<Integer> tos = new ArrayList<Integer>();
+		ArrayList<Float> costs = new ArrayList<Float>();
+		for (int cluster = 0; cluster < hierarchy.getClusterCount(); cluster++) {
+			for (int from : hierarchy.getClusterBorders(cluster)) {
+				int node = hierarchy.getBorderNode(from);
+				int[] links = hierarchy.getLinks(node);
+				float[] linkCosts = hierarchy.getLinkCosts(node);
+				for (int k = 0; k < links.length; k++) {
+					int to = hierarchy.getBorderPolygon(links[k]);
+					if (clusterOf[to] == cluster && from < to) {
+						froms.add(from);
+						tos.add(to);
+						costs.add(linkCosts[k]);
+					}
+				}
+			}
+		}
+
+		out.writeInt(costs.size());
+		for (int from : froms) {
+			out.writeInt(from);
+		}
+		for (int to : tos) {
+			out.writeInt(to);
+		}
+		for (float cost : costs) {
+			out.writeFloat(cost);
+		}
+	}
+
+	/**
+	 * Writes an array of ints
+	 * @param out The stream to write to
+	 * @param values The ints to write
+	 */
+	private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+		for (int value : values) {
+			out.writeInt(value);
+		}
+	}
+
+	/**
+	 * Reads a navmesh in the compiled format
+	 * @param fileName The file to read
+	 * @return The navmesh
+	 * @throws InvalidMapException If the file can't be read or isn't a compiled navmesh of this version
+	 */
+	static NavMesh read(String fileName) throws InvalidMapException {
+		RandomAccessFile file = null;
+		try {
+			file = new RandomAccessFile(fileName, "r");
+			FileChannel channel = file.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new InvalidMapException("NavMesh Exception: " + fileName + " isn't a compiled navmesh of version " + VERSION);
+			}
+			int polygonCount = buffer.getInt();
+			int vertexCount = buffer.getInt();
+			int neighbourCount = buffer.getInt();
+			int idByteCount = buffer.getInt();
+
+			int[] vertexStarts = readInts(buffer, polygonCount + 1);
+			float[] verticesX = readFloats(buffer, vertexCount);
+			float[] verticesY = readFloats(buffer, vertexCount);
+			int[] neighbourStarts = readInts(buffer, polygonCount + 1);
+			int[] neighbours = readInts(buffer, neighbourCount);
+			float[] edgeEnds = readFloats(buffer, 4 * neighbourCount);
+			int[] idStarts = readInts(buffer, polygonCount + 1);
+			byte[] ids = new byte[idByteCount];
+			buffer.get(ids);
+
+			// The hierarchy, if there is one
+			int[] clusterOf = null;
+			HashMap<Long,Float> portalCosts = null;
+			if (buffer.get() != 0) {
+				clusterOf = readInts(buffer, polygonCount);
+				int costCount = buffer.getInt();
+				int[] froms = readInts(buffer, costCount);
+				int[] tos = readInts(buffer, costCount);
+				float[] costs = readFloats(buffer, costCount);
+				portalCosts = new HashMap<Long,Float>();
+				for (int k = 0; k < costCount; k++) {
+					portalCosts.put((long)froms[k] * polygonCount + tos[k], costs[k]);
+					portalCosts.put((long)tos[k] * polygonCount + froms[k], costs[k]);
+				}
+			}
+
+			// Build the polygons, then link them to their neighbours by index
+			ArrayList<Polygon> polygons = new ArrayList<Polygon>(polygonCount);
+			for (int i = 0; i < polygonCount; i++) {
+				ArrayList<Vector2f> vertices = new ArrayList<Vector2f>(vertexStarts[i + 1] - vertexStarts[i]);
+				for (int v = vertexStarts[i]; v < vertexStarts[i + 1]; v++) {
+					vertices.add(new Vector2f(verticesX[v], verticesY[v]));
+				}
+				String id = new String(ids, idStarts[i], idStarts[i + 1] - idStarts[i], StandardCharsets.UTF_8);
+				polygons.add(new PolygonFromMap(id, vertices));
+			}
+			for (int i = 0; i < polygonCount; i++) {
+				PolygonFromMap polygon = (PolygonFromMap)polygons.get(i);
+				for (int k = neighbourStarts[i]; k < neighbourStarts[i + 1]; k++) {
+					Edge edge = new Edge(new Vector2f(edgeEnds[4 * k], edgeEnds[4 * k + 1]), new Vector2f(edgeEnds[4 * k + 2], edgeEnds[4 * k + 3]));
+					polygon.addNeighbourAndConnectingEdge(polygons.get(neighbours[k]), edge);
+				}
+			}
+
+			return new NavMesh(polygons, clusterOf, portalCosts);
+		} catch (IOException ex) {
+			throw new InvalidMapException("NavMesh Exception: " + ex.getMessage());
+		} catch (BufferUnderflowException ex) {
+			throw new InvalidMapException("NavMesh Exception: " + fileName + " is cut short");
+		} catch (IndexOutOfBoundsException ex) {
+			throw new InvalidMapException("NavMesh Exception: " + fileName + " is corrupt");
+		} catch (NegativeArraySizeException ex) {
+			throw new InvalidMapException("NavMesh Exception: " + fileName + " is corrupt");
+		} finally {
+			// Closing the file doesn't unmap the buffer, but nothing refers to it once the arrays have been copied out
+			try {
+				if (file != null) {
+					file.close();
+				}
+			} catch (IOException ex) {
+				// There's nothing more to read, so the navmesh is still fine
+			}
+		}
+	}
+
+	/**
+	 * Copies ints out of a buffer and moves past them
+	 * @param buffer The buffer to read from
+	 * @param count The number of ints to read
+	 * @return The ints
+	 */
+	private static int[] readInts(ByteBuffer buffer, int count) {
+		int[] values = new int[count];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + 4 * count);
+		return values;
+	}
+
+	/**
+	 * Copies floats out of a buffer and moves past them
+	 * @param buffer The buffer to read from
+	 * @param count The number of floats to read
+	 * @return The floats
+	 */
+	private static float[] readFloats(ByteBuffer buffer, int count) {
+		float[] values = new float[count];
+		buffer.asFloatBuffer().get(values);
+		buffer.position(buffer.position() + 4 * count);
+		return values;
+	}
+}
@@ -2,12 +2,9 @@ package shared;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.lwjgl.util.vector.Vector2f;
-import org.newdawn.slick.opengl.Texture;
-import org.newdawn.slick.opengl.TextureLoader;
-import org.newdawn.slick.util.ResourceLoader;
 
 import client.WorldView;
 
@@ -43,7 +40,8 @@ public abstract class Entity {
 
 	private boolean valid = true;
 
-	private ArrayList<NetworkedEntityField> networkedEntityFields;
+	// Networked fields indexed by field ID
+	private NetworkedEntityField[] networkedEntityFields;
 	private int nextFieldID = 0;
 	
 	//****Constructors****
@@ -108,21 +106,6 @@ public abstract class Entity {
 		getWorld().registerEntity(this);
 	}
 	
-	/**
-	 * Gets a texture object from an image name.
-	 * Note: This should be moved
-	 * @param imageName the texture image name
-	 * @return the texture object
-	 */
-	public static Texture getPNGTexture(String imageName) {
-		try {
-			return TextureLoader.getTexture("PNG", ResourceLoader.getResourceAsStream("res/images/" + imageName + ".png"));
-		} catch (IOException e) {
-			e.printStackTrace();
-			return null;
-		}
-	}
-	
 	/**
 	 * Called when an entity touches this entity or this entity touches another entity.
 	 * @param entity the other entity in involved in the touch event
@@ -150,6 +133,21 @@ public abstract class Entity {
 	public void onNetworkFieldChange(NetworkedEntityField field) {	
 	}
 
+	/**
+	 * Called when a networked vector field of the entity is set.
+	 * Keeps the physics broadphase up to date when the position changes.
+	 * @param field the field that was set
+	 */
+	public void onNetworkedVectorSet(NetworkedVector field) {
+		if (field != this.position || this.world == null)
+			return;
+		
+		Physics physics = this.world.getPhysics();
+		
+		if (physics != null)
+			physics.onEntityMoved(this);
+	}
+
 	/**
 	 * Returns whether or not the entity is active.
 	 * For moveable entities, this determines whether they should be updated or not.
@@ -163,6 +161,16 @@ public abstract class Entity {
 	//****Abstract methods****
 	
 	
+	/**
+	 * Works out what the entity will do this tick, before it is updated.
+	 * Entities are asked in parallel, so this must only read the world
+	 * and only write the entity's own private state. Changes to the world,
+	 * including broadcasting networked fields, belong in update.
+	 * @param delta time passed since last update
+	 */
+	public void computeIntent(int delta) {
+	}
+	
 	/**
 	 * Method called to update the entity.
 	 * @param delta time passed since last update
@@ -236,22 +244,45 @@ public abstract class Entity {
 	}
 	
 	/**
-	 * Gets the list of networked entity fields.
-	 * @return list of networked entity fields
+	 * Gets a networked entity field by its field ID.
+	 * @param fieldID the field ID
+	 * @return the field, or null if the entity has no field with the ID
 	 */
-	public ArrayList<NetworkedEntityField> getNetworkedEntityFields() {
-		if (this.networkedEntityFields == null)
-			this.networkedEntityFields = new ArrayList<NetworkedEntityField>();
+	@SuppressWarnings("rawtypes")
+	public NetworkedEntityField getNetworkedEntityField(int fieldID) {
+		if (fieldID < 0 || fieldID >= this.nextFieldID)
+			return null;
 		
-		return this.networkedEntityFields;
+		return this.networkedEntityFields[fieldID];
+	}
+	
+	/**
+	 * Gets the number of networked entity fields registered with the entity.
+	 * Field IDs run from 0 to this count minus one.
+	 * @return number of networked entity fields
+	 */
+	public int getNetworkedEntityFieldCount() {
+		return this.nextFieldID;
 	}
 	
 	/**
-	 * Gets next available field ID for the entity.
+	 * Registers a networked entity field with the entity and gives it the next available field ID.
+	 * Fields must be created in the same order on the server and client so the IDs match.
+	 * @param field the field to register
 	 * @return the field ID
 	 */
-	public int getNextFieldID() {
-		return this.nextFieldID++;
+	@SuppressWarnings("rawtypes")
+	public int registerNetworkedEntityField(NetworkedEntityField field) {
+		if (this.networkedEntityFields == null) {
+			this.networkedEntityFields = new NetworkedEntityField[8];
+		} else if (this.nextFieldID == this.networkedEntityFields.length) {
+			this.networkedEntityFields = Arrays.copyOf(this.networkedEntityFields, this.nextFieldID * 2);
+		}
+		
+		int fieldID = this.nextFieldID++;
+		this.networkedEntityFields[fieldID] = field;
+		
+		return fieldID;
 	}
 	
 	/**
@@ -286,6 +317,25 @@ public abstract class Entity {
 		return true;
 	}
 	
+	/**
+	 * Determines whether or not the entity is static map geometry, i.e. it never moves or updates.
+	 * Static entities are kept apart from dynamic entities for physics and updating.
+	 * @return whether or not the entity is static
+	 */
+	public boolean isStatic() {
+		return false;
+	}
+	
+	/**
+	 * Determines whether or not every client should have the entity wherever it is.
+	 * Other entities are only sent to clients near them.
+	 * Static entities are only sent when a client connects so they are always relevant.
+	 * @return whether or not the entity is always relevant
+	 */
+	public boolean isAlwaysRelevant() {
+		return isStatic();
+	}
+	
 	/**
 	 * Determines if this is a valid entity
 	 * @return whether or not the entity is valid
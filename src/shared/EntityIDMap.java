@@ -0,0 +1,196 @@
+package shared;
+
+import java.util.Arrays;
+
+/**
+ * Maps entity IDs to entities without boxing.
+ * Uses open addressing with linear probing. Removals shift later
+ * entries back so lookups never have to skip tombstones.
+ * Not thread-safe, callers must synchronise access.
+ * @author Chris
+ *
+ */
+public class EntityIDMap {
+
+	// Marks an empty slot, entity IDs are never negative
+	private static final int EMPTY = -1;
+
+	// Resize once the table is this full
+	private static final float MAX_LOAD_FACTOR = 0.5f;
+
+	private int[] keys;
+	private Entity[] values;
+	private int size;
+
+	/**
+	 * Constructor.
+	 * @param expectedSize number of entities expected, used to size the table
+	 */
+	public EntityIDMap(int expectedSize) {
+		int capacity = 16;
+
+		while (capacity * MAX_LOAD_FACTOR < expectedSize)
+			capacity <<= 1;
+
+		allocate(capacity);
+	}
+
+	/**
+	 * Constructor using a default size.
+	 */
+	public EntityIDMap() {
+		this(16);
+	}
+
+	/**
+	 * Gets the entity with an ID.
+	 * @param id the entity id
+	 * @return the entity, or null if there is no entity with the ID
+	 */
+	public Entity get(int id) {
+		if (id < 0)
+			return null;
+
+		int mask = this.keys.length - 1;
+
+		for (int i = slot(id, mask); this.keys[i] != EMPTY; i = (i + 1) & mask) {
+			if (this.keys[i] == id)
+				return this.values[i];
+		}
+
+		return null;
+	}
+
+	/**
+	 * Stores an entity under its ID, replacing any entity already stored with that ID.
+	 * @param entity the entity to store
+	 */
+	public void put(Entity entity) {
+		int id = entity.getID();
+
+		if (id < 0)
+			throw new IllegalArgumentException("Invalid entity ID: " + id);
+
+		if (this.size + 1 > this.keys.length * MAX_LOAD_FACTOR)
+			allocate(this.keys.length << 1);
+
+		insert(id, entity);
+	}
+
+	/**
+	 * Removes an entity from the map.
+	 * Does nothing if a different entity is stored under the entity's ID.
+	 * @param entity the entity to remove
+	 */
+	public void remove(Entity entity) {
+		int id = entity.getID();
+
+		if (id < 0)
+			return;
+
+		int mask = this.keys.length - 1;
+		int i = slot(id, mask);
+
+		while (this.keys[i] != id) {
+			if (this.keys[i] == EMPTY)
+				return;
+
+			i = (i + 1) & mask;
+		}
+
+		if (this.values[i] != entity)
+			return;
+
+		// Shift back later entries in the probe run so there are no gaps
+		int gap = i;
+
+		for (int j = (gap + 1) & mask; this.keys[j] != EMPTY; j = (j + 1) & mask) {
+			int home = slot(this.keys[j], mask);
+
+			// Move the entry if its home slot is not between the gap and its current slot
+			if (((j - home) & mask) >= ((j - gap) & mask)) {
+				this.keys[gap] = this.keys[j];
+				this.values[gap] = this.values[j];
+				gap = j;
+			}
+		}
+
+		this.keys[gap] = EMPTY;
+		this.values[gap] = null;
+		this.size--;
+	}
+
+	/**
+	 * Removes all entities from the map.
+	 */
+	public void clear() {
+		Arrays.fill(this.keys, EMPTY);
+		Arrays.fill(this.values, null);
+		this.size = 0;
+	}
+
+	/**
+	 * Gets the number of entities in the map.
+	 * @return entity count
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Stores an entity without checking the load factor.
+	 * @param id the entity id
+	 * @param entity the entity
+	 */
+	private void insert(int id, Entity entity) {
+		int mask = this.keys.length - 1;
+		int i = slot(id, mask);
+
+		while (this.keys[i] != EMPTY) {
+			if (this.keys[i] == id) {
+				this.values[i] = entity;
+				return;
+			}
+
+			i = (i + 1) & mask;
+		}
+
+		this.keys[i] = id;
+		this.values[i] = entity;
+		this.size++;
+	}
+
+	/**
+	 * Allocates a new table and moves any existing entries into it.
+	 * @param capacity new table size, a power of two
+	 */
+	private void allocate(int capacity) {
+		int[] oldKeys = this.keys;
+		Entity[] oldValues = this.values;
+
+		this.keys = new int[capacity];
+		this.values = new Entity[capacity];
+		this.size = 0;
+		Arrays.fill(this.keys, EMPTY);
+
+		if (oldKeys == null)
+			return;
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY)
+				insert(oldKeys[i], oldValues[i]);
+		}
+	}
+
+	/**
+	 * Gets the home slot for an ID.
+	 * IDs are mostly sequential so they are mixed to spread out probe runs.
+	 * @param id the entity id
+	 * @param mask table size minus one
+	 * @return slot index
+	 */
+	private static int slot(int id, int mask) {
+		int h = id * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+}
@@ -0,0 +1,107 @@
+package shared;
+
+import org.lwjgl.util.vector.Vector2f;
+import java.util.IdentityHashMap;
+
+/**
+ * The direction to a goal from every polygon of a navmesh, found with one search outwards from the goal
+ * Any number of characters heading for the same goal can share the field, each looks up the portal to head for from its own polygon
+ * Fields are made by the navmesh and never change, so they are safe to read from several threads at once
+ * @author Barney
+ */
+public class FlowField {
+	// The polygon the goal is in
+	private final Polygon goalPolygon;
+
+	// The index of each navmesh polygon, shared with the navmesh
+	private final IdentityHashMap<Polygon,Integer> polygonIndices;
+
+	// The midpoint of the edge to cross next from each polygon, null for the goal polygon and polygons that can't reach the goal
+	private final Vector2f[] nextPortals;
+
+	// The polygon on the far side of each next portal, null wherever the portal is
+	private final Polygon[] nextPolygons;
+
+	// The index of each next polygon, -1 wherever the portal is null
+	private final int[] nextIndices;
+
+	// The length of the route from each polygon to the goal, Float.POSITIVE_INFINITY if there isn't one
+	private final float[] distances;
+
+	/**
+	 * Constructor, used by the navmesh once it has worked out the field
+	 * @param goalPolygon The polygon the goal is in
+	 * @param polygonIndices The index of each navmesh polygon
+	 * @param nextPortals The midpoint of the edge to cross next from each polygon
+	 * @param nextPolygons The polygon on the far side of each next portal
+	 * @param nextIndices The index of each next polygon
+	 * @param distances The length of the route from each polygon to the goal
+	 */
+	FlowField(Polygon goalPolygon, IdentityHashMap<Polygon,Integer> polygonIndices, Vector2f[] nextPortals, Polygon[] nextPolygons, int[] nextIndices, float[] distances) {
+		this.goalPolygon = goalPolygon;
+		this.polygonIndices = polygonIndices;
+		this.nextPortals = nextPortals;
+		this.nextPolygons = nextPolygons;
+		this.nextIndices = nextIndices;
+		this.distances = distances;
+	}
+
+	/**
+	 * Gets the point to head for from a polygon to get closer to the goal
+	 * @param polygon The polygon the character is in
+	 * @return The midpoint of the edge to cross next, which must not be modified, or null if the polygon is the goal polygon, can't reach the goal or isn't in the navmesh
+	 */
+	public Vector2f getNextPortal(Polygon polygon) {
+		Integer index = this.polygonIndices.get(polygon);
+		if (index == null) {
+			return null;
+		}
+
+		return this.nextPortals[index];
+	}
+
+	/**
+	 * Gets the polygon entered by crossing the next portal from a polygon
+	 * @param polygon The polygon the character is in
+	 * @return The next polygon towards the goal, or null if there's no next portal from the polygon
+	 */
+	public Polygon getNextPolygon(Polygon polygon) {
+		Integer index = this.polygonIndices.get(polygon);
+		if (index == null) {
+			return null;
+		}
+
+		return this.nextPolygons[index];
+	}
+
+	/**
+	 * Gets the index of the polygon entered by crossing the next portal, used by the navmesh to follow the field without looking polygons up
+	 * @param index The index of the polygon the character is in
+	 * @return The index of the next polygon towards the goal, or -1 if there's no next portal from the polygon
+	 */
+	int getNextIndex(int index) {
+		return this.nextIndices[index];
+	}
+
+	/**
+	 * Gets the length of the route from a polygon to the goal
+	 * @param polygon The polygon
+	 * @return The length of the route, or Float.POSITIVE_INFINITY if the goal can't be reached from the polygon
+	 */
+	public float getDistance(Polygon polygon) {
+		Integer index = this.polygonIndices.get(polygon);
+		if (index == null) {
+			return Float.POSITIVE_INFINITY;
+		}
+
+		return this.distances[index];
+	}
+
+	/**
+	 * Gets the polygon the goal is in, the field is used for any goal inside it
+	 * @return The goal polygon
+	 */
+	public Polygon getGoalPolygon() {
+		return this.goalPolygon;
+	}
+}
@@ -0,0 +1,180 @@
+package shared;
+
+/**
+ * Straightens a path through a corridor of polygons with the simple stupid funnel algorithm, so that it only turns at the ends of portals
+ * The corridor is given as the portals crossed along it, with the start and the goal as portals whose ends are the same point
+ * The buffers are kept between paths so that straightening a path doesn't allocate, each thread has its own funnel
+ * @author Barney
+ */
+class Funnel {
+	// The ends of each portal, left and right as seen looking along the corridor
+	private final float[] leftX;
+	private final float[] leftY;
+	private final float[] rightX;
+	private final float[] rightY;
+
+	// The corners the straightened path turns at and the portal each one lies on, the last corner is the goal
+	final float[] cornersX;
+	final float[] cornersY;
+	final int[] cornerPortals;
+
+	/**
+	 * Constructor
+	 * @param polygonCount The number of polygons in the navmesh, a corridor can't cross more portals than this
+	 */
+	public Funnel(int polygonCount) {
+		// There is a portal between each pair of polygons, plus the start and the goal
+		int size = polygonCount + 1;
+		this.leftX = new float[size];
+		this.leftY = new float[size];
+		this.rightX = new float[size];
+		this.rightY = new float[size];
+		this.cornersX = new float[size];
+		this.cornersY = new float[size];
+		this.cornerPortals = new int[size];
+	}
+
+	/**
+	 * Sets the ends of a portal along the corridor
+	 * @param portal The index of the portal, 0 for the start
+	 * @param leftX The x coordinate of the left end
+	 * @param leftY The y coordinate of the left end
+	 * @param rightX The x coordinate of the right end
+	 * @param rightY The y coordinate of the right end
+	 */
+	public void setPortal(int portal, float leftX, float leftY, float rightX, float rightY) {
+		this.leftX[portal] = leftX;
+		this.leftY[portal] = leftY;
+		this.rightX[portal] = rightX;
+		this.rightY[portal] = rightY;
+	}
+
+	/**
+	 * Gets the x coordinate of the middle of a portal
+	 * @param portal The index of the portal
+	 * @return The x coordinate halfway between its ends
+	 */
+	public float getMiddleX(int portal) {
+		return (this.leftX[portal] + this.rightX[portal]) / 2;
+	}
+
+	/**
+	 * Gets the y coordinate of the middle of a portal
+	 * @param portal The index of the portal
+	 * @return The y coordinate halfway between its ends
+	 */
+	public float getMiddleY(int portal) {
+		return (this.leftY[portal] + this.rightY[portal]) / 2;
+	}
+
+	/**
+	 * Works out the corners of the shortest path through the portals that have been set
+	 * The funnel is narrowed portal by portal from the apex, when one side crosses over the other the path must turn at the end of that side,
+	 * which becomes the new apex, and the portals after it are looked at again
+	 * @param portalCount The number of portals, including the start and the goal
+	 * @return The number of corners, which are held in cornersX, cornersY and cornerPortals
+	 */
+	public int pull(int portalCount) {
+		int cornerCount = 0;
+
+		// The funnel starts as a point at the start
+		float apexX = this.leftX[0];
+		float apexY = this.leftY[0];
+		float funnelLeftX = apexX;
+		float funnelLeftY = apexY;
+		float funnelRightX = apexX;
+		float funnelRightY = apexY;
+		int apexIndex = 0;
+		int funnelLeftIndex = 0;
+		int funnelRightIndex = 0;
+
+		for (int i = 1; i < portalCount; i++) {
+			float leftX = this.leftX[i];
+			float leftY = this.leftY[i];
+			float rightX = this.rightX[i];
+			float rightY = this.rightY[i];
+
+			// Narrow the right side of the funnel if the portal's right end is inside it
+			if (cross(apexX, apexY, funnelRightX, funnelRightY, rightX, rightY) >= 0) {
+				if ((apexX == funnelRightX && apexY == funnelRightY) || cross(apexX, apexY, funnelLeftX, funnelLeftY, rightX, rightY) < 0) {
+					funnelRightX = rightX;
+					funnelRightY = rightY;
+					funnelRightIndex = i;
+				} else {
+					// The right side has crossed the left, so the path turns at the left end of the funnel
+					cornerCount = this.addCorner(cornerCount, funnelLeftX, funnelLeftY, funnelLeftIndex);
+
+					// Start a new funnel from the corner and look again at the portals after it
+					apexX = funnelLeftX;
+					apexY = funnelLeftY;
+					apexIndex = funnelLeftIndex;
+					funnelRightX = apexX;
+					funnelRightY = apexY;
+					funnelRightIndex = apexIndex;
+					i = apexIndex;
+					continue;
+				}
+			}
+
+			// Narrow the left side of the funnel if the portal's left end is inside it
+			if (cross(apexX, apexY, funnelLeftX, funnelLeftY, leftX, leftY) <= 0) {
+				if ((apexX == funnelLeftX && apexY == funnelLeftY) || cross(apexX, apexY, funnelRightX, funnelRightY, leftX, leftY) > 0) {
+					funnelLeftX = leftX;
+					funnelLeftY = leftY;
+					funnelLeftIndex = i;
+				} else {
+					// The left side has crossed the right, so the path turns at the right end of the funnel
+					cornerCount = this.addCorner(cornerCount, funnelRightX, funnelRightY, funnelRightIndex);
+
+					apexX = funnelRightX;
+					apexY = funnelRightY;
+					apexIndex = funnelRightIndex;
+					funnelLeftX = apexX;
+					funnelLeftY = apexY;
+					funnelLeftIndex = apexIndex;
+					i = apexIndex;
+					continue;
+				}
+			}
+		}
+
+		// The path always ends at the goal
+		int goal = portalCount - 1;
+		return this.addCorner(cornerCount, this.leftX[goal], this.leftY[goal], goal);
+	}
+
+	/**
+	 * Adds a corner to the path, unless the path is already there, which happens when the start is on the end of a portal
+	 * @param cornerCount The number of corners so far
+	 * @param x The x coordinate of the corner
+	 * @param y The y coordinate of the corner
+	 * @param portal The index of the portal the corner lies on
+	 * @return The number of corners now
+	 */
+	private int addCorner(int cornerCount, float x, float y, int portal) {
+		float lastX = cornerCount == 0 ? this.leftX[0] : this.cornersX[cornerCount - 1];
+		float lastY = cornerCount == 0 ? this.leftY[0] : this.cornersY[cornerCount - 1];
+		if (lastX == x && lastY == y) {
+			return cornerCount;
+		}
+
+		this.cornersX[cornerCount] = x;
+		this.cornersY[cornerCount] = y;
+		this.cornerPortals[cornerCount] = portal;
+		return cornerCount + 1;
+	}
+
+	/**
+	 * Works out which side of the line from a to b the point c is on
+	 * @param ax The x coordinate of a
+	 * @param ay The y coordinate of a
+	 * @param bx The x coordinate of b
+	 * @param by The y coordinate of b
+	 * @param cx The x coordinate of c
+	 * @param cy The y coordinate of c
+	 * @return Positive if c is to the left of the line, negative if it is to the right and 0 if it is on it
+	 */
+	private static float cross(float ax, float ay, float bx, float by, float cx, float cy) {
+		return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+	}
+}
@@ -1,6 +1,7 @@
 package shared;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.ListIterator;
 
 import org.lwjgl.Sys;
@@ -21,6 +22,10 @@ import static org.lwjgl.opengl.GL11.*;
  *
  */
 public class GameInformation {
+	
+	private static final int TEAM_LABELS_ORIGIN_X = 30;
+	private static final int TEAM_LABELS_ORIGIN_Y = 0;
+	private static final int TEAM_LABELS_SPACING_Y = 30;
 
 	/**
 	 * Keeps a list of the on screen components
@@ -32,6 +37,11 @@ public class GameInformation {
 	 */
 	private ArrayList<Team> teams;
 
+	/**
+	 * Score label for each team
+	 */
+	private HashMap<Team, Label> scoreLabels = new HashMap<Team, Label>();
+
 	/**
 	 * GameWindow
 	 */
@@ -50,7 +60,7 @@ public class GameInformation {
 	public void render(){		
 		
 		for(Team team : teams){
-			team.getScoreLabel().drawComponent();
+			getScoreLabel(team).drawComponent();
 		}
 
 		drawMenuButton();
@@ -62,6 +72,24 @@ public class GameInformation {
 
 	}
 
+	/**
+	 * Gets a team's score label, creating it the first time
+	 * @param team	the team
+	 * @return	the label showing the team's current score
+	 */
+	private Label getScoreLabel(Team team) {
+		Label label = scoreLabels.get(team);
+		
+		if (label == null) {
+			label = new Label(game, TEAM_LABELS_ORIGIN_X, TEAM_LABELS_ORIGIN_Y+team.getID()*TEAM_LABELS_SPACING_Y, team.getTeamName() + ": " + team.getTeamScore(), Color.white, 16f);
+			scoreLabels.put(team, label);
+		}
+		
+		label.setLabelText(team.getScoreText());
+		
+		return label;
+	}
+
 	/**
 	 * Creates score label
 	 */
@@ -3,7 +3,8 @@ package shared;
 import java.io.IOException;
 import java.net.BindException;
 import java.net.ConnectException;
-import java.net.ServerSocket;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
 
 import org.lwjgl.LWJGLException;
 import org.lwjgl.Sys;
@@ -25,8 +26,8 @@ import shared.GUI.Menus.InGameMenu;
 import shared.GUI.Menus.LobbyMenu;
 import shared.GUI.Menus.MainMenu;
 import shared.GUI.Menus.PlayerSelectMenu;
-import shared.entities.Player;
 import shared.net.NetworkConstants;
+import client.AudioSoundPlayer;
 import client.ClientWorld;
 import client.InputHandler;
 import client.net.NetworkClient;
@@ -56,6 +57,9 @@ public class GameWindow {
 	
 	//Audio for the game
 	public static Audio inGameTheme;
+	
+	//Sound effects for the game
+	private SoundPlayer soundPlayer;
 
 	// Window resolution
 	// Constant for now
@@ -116,9 +120,7 @@ public class GameWindow {
 			
 			inGameTheme = AudioLoader.getAudio("WAV", ResourceLoader.getResourceAsStream("res/Sound/DST-BreakOut.wav"));
 			
-			Player.gunShot = AudioLoader.getAudio("WAV", ResourceLoader.getResourceAsStream("res/Sound/GunShot.wav"));
-			Player.deathSound = AudioLoader.getAudio("WAV", ResourceLoader.getResourceAsStream("res/Sound/DeathSound.wav"));
-			Player.animalSounds = AudioLoader.getAudio("WAV", ResourceLoader.getResourceAsStream("res/Sound/AnimalSounds.wav"));
+			soundPlayer = new AudioSoundPlayer();
 			
 		} catch (IOException e) {
 			
@@ -215,12 +217,13 @@ public class GameWindow {
 		
 		try {
 			
-			ServerSocket serverSocket;
+			ServerSocketChannel serverChannel;
 
 			// Initiate server socket
 			try {
 
-				serverSocket = new ServerSocket(NetworkConstants.SERVER_PORT);
+				serverChannel = ServerSocketChannel.open();
+				serverChannel.socket().bind(new InetSocketAddress(NetworkConstants.SERVER_PORT));
 				
 			} catch (BindException e) {
 
@@ -241,7 +244,7 @@ public class GameWindow {
 			// Start listening for clients
 			try {
 				
-				ClientAcceptor clientAcceptor = new ClientAcceptor(serverSocket, serverWorld);
+				ClientAcceptor clientAcceptor = new ClientAcceptor(serverChannel, serverWorld);
 				clientAcceptor.startListening();
 				
 				serverWorld.init(clientAcceptor);
@@ -600,6 +603,16 @@ public class GameWindow {
 		
 	}
 	
+	/**
+	 * Gets the sound effect player
+	 * @return	sound player
+	 */
+	public SoundPlayer getSoundPlayer() {
+		
+		return soundPlayer;
+		
+	}
+	
 	/**
 	 * Checks if user is in game
 	 * @return True if the user is in the game and false otherwise
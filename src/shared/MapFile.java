@@ -1,11 +1,5 @@
 package shared;
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.util.Point;
 import org.lwjgl.util.vector.Vector2f;
-import org.newdawn.slick.Color;
-import org.newdawn.slick.opengl.Texture;
-import org.newdawn.slick.opengl.TextureLoader;
-import org.newdawn.slick.util.ResourceLoader;
 
 
 // Map file related imports
@@ -17,6 +11,7 @@ import java.io.File;
 import java.io.IOException;
 import org.xml.sax.SAXException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import shared.Entity;
 
 import shared.entities.Player;
@@ -33,6 +28,12 @@ import java.lang.reflect.InvocationTargetException;
  */
 public class MapFile {
 
+	// Navigation meshes that have been loaded, by file name
+	// Every world on the same map shares one navmesh, its polygons never change once loaded
+	// It does keep mutable, thread safe caches of paths and flow fields, so sharing it is what makes the
+	// pathCache and flowFields locks contended across matches
+	private static final HashMap<String, NavMesh> loadedNavMeshes = new HashMap<String, NavMesh>();
+
 	// World
 	private World world;
 	
@@ -402,6 +403,25 @@ public class MapFile {
 		return this.navMesh;	
 	}
 
+	/**
+	 * Gets the navigation mesh stored in a file, only loading it the first time it is asked for
+	 * @param navMeshFileName The name of the file containing the navigation mesh
+	 * @return The navmesh, shared with every other map file using the same file
+	 * @throws InvalidMapException If the navmesh file can't be loaded
+	 */
+	private static NavMesh getSharedNavMesh(String navMeshFileName) throws InvalidMapException {
+		synchronized (loadedNavMeshes) {
+			NavMesh navMesh = loadedNavMeshes.get(navMeshFileName);
+
+			if (navMesh == null) {
+				navMesh = NavMesh.load(navMeshFileName);
+				loadedNavMeshes.put(navMeshFileName, navMesh);
+			}
+
+			return navMesh;
+		}
+	}
+
 	/**
 	 * Constructor.
 	 * @param mapFileName The file containing the information about the map, such as the spawn point co-ordinates and size of the map
@@ -420,7 +440,7 @@ public class MapFile {
 		}
 
 		// Initialise the navigation mesh
-		this.navMesh = new NavMesh(navMeshFileName);
+		this.navMesh = getSharedNavMesh(navMeshFileName);
 		
 		// Parse the info from the map file
 		parseMapFile(mapFileName);
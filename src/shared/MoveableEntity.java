@@ -439,7 +439,10 @@ public abstract class MoveableEntity extends Entity {
 			
 			if (this.predictionError != null) {
 			
-				this.getPosition().translate(predictionError.getX(), predictionError.getY());
+				Vector2f correctedPosition = new Vector2f(this.getPosition());
+				correctedPosition.translate(predictionError.getX(), predictionError.getY());
+				
+				this.setLocalPosition(correctedPosition);
 				
 				this.predictionError = null;
 				
@@ -2,24 +2,122 @@ package shared;
 
 import org.lwjgl.util.vector.Vector2f;
 import java.util.ArrayList;
-import java.util.PriorityQueue;
 import client.WorldView;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Iterator;
 import javax.xml.parsers.*;
 import java.io.File;
 import org.w3c.dom.*;
 import org.xml.sax.SAXException;
 import java.io.IOException;
+import java.io.BufferedWriter;
 
 /**
  * Represents a navigation mesh for a map file
  * @author Barney
  */
 public class NavMesh {
+	// The number of polygon paths kept in the path cache by default
+	public static final int DEFAULT_PATH_CACHE_SIZE = 256;
+
+	// The most polygons a navmesh can have and still get a routing table, larger navmeshes are searched with A*
+	public static final int MAX_ROUTING_TABLE_POLYGONS = 256;
+
+	// The fewest polygons a navmesh must have to be searched through clusters, smaller navmeshes are quick enough to search whole
+	public static final int MIN_HIERARCHY_POLYGONS = 1024;
+
+	// The number of polygons aimed for in each cluster
+	public static final int POLYGONS_PER_CLUSTER = 64;
+
+	// The number of flow fields kept, one for each goal polygon that has been used recently
+	public static final int FLOW_FIELD_CACHE_SIZE = 32;
+
+	// The most portals along a flow field pulled tight when looking for the next corner, so steering doesn't cost more the further away the goal is
+	public static final int CORNER_LOOKAHEAD_PORTALS = 16;
+
 	// Contains the list of navmesh polygons
 	private final ArrayList<Polygon> polygons;
 
+	// Index used to find the polygon containing a point
+	private final PolygonGrid polygonGrid;
+
+	// The index of each polygon in the polygon list, used by the A* search
+	private final IdentityHashMap<Polygon,Integer> polygonIndices = new IdentityHashMap<Polygon,Integer>();
+
+	// The indices of each polygon's neighbours, and the midpoints of the edges connecting them
+	private final int[][] neighbourIndices;
+	private final float[][] edgeMidPointsX;
+	private final float[][] edgeMidPointsY;
+
+	// The ends of the edges connecting each polygon to its neighbours, the right end then the left as seen from inside the polygon
+	private final float[][] portalEndsX;
+	private final float[][] portalEndsY;
+
+	// The centre of each polygon
+	private final float[] centresX;
+	private final float[] centresY;
+
+	// The shortest routes between every pair of polygons, null if the navmesh is too large for one
+	private final RoutingTable routingTable;
+
+	// The clusters of polygons and the links between them, null if the navmesh is too small to need them
+	private final NavMeshHierarchy hierarchy;
+
+	// The scratch arrays of each thread searching the navmesh
+	private final ThreadLocal<AStarScratch> scratch = new ThreadLocal<AStarScratch>() {
+		@Override
+		protected AStarScratch initialValue() {
+			return new AStarScratch(polygons.size());
+		}
+	};
+
+	// The scratch arrays of each thread searching the clusters, with room for the start and goal nodes
+	private final ThreadLocal<AStarScratch> hierarchyScratch = new ThreadLocal<AStarScratch>() {
+		@Override
+		protected AStarScratch initialValue() {
+			return new AStarScratch(hierarchy.getBorderCount() + 2);
+		}
+	};
+
+	// The funnel each thread straightens paths with
+	private final ThreadLocal<Funnel> funnel = new ThreadLocal<Funnel>() {
+		@Override
+		protected Funnel initialValue() {
+			return new Funnel(polygons.size());
+		}
+	};
+
+	// Recently found polygon paths, least recently used first, guarded by itself
+	// Paths are found on several threads at once, and navmeshes are shared between worlds
+	private final LinkedHashMap<PolygonPair,ArrayList<Polygon>> pathCache = new LinkedHashMap<PolygonPair,ArrayList<Polygon>>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<PolygonPair,ArrayList<Polygon>> eldest) {
+			return this.size() > pathCacheSize;
+		}
+	};
+
+	// The most paths the cache can hold, 0 turns the cache off
+	private int pathCacheSize = DEFAULT_PATH_CACHE_SIZE;
+
+	// The number of paths found in and missing from the cache
+	private long pathCacheHits = 0;
+	private long pathCacheMisses = 0;
+
+	// Flow fields to recently used goal polygons, least recently used first, guarded by itself
+	private final LinkedHashMap<Polygon,FlowField> flowFields = new LinkedHashMap<Polygon,FlowField>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Polygon,FlowField> eldest) {
+			return this.size() > FLOW_FIELD_CACHE_SIZE;
+		}
+	};
+
+	// The number of flow fields that have been worked out
+	private long flowFieldsBuilt = 0;
+
 	/**
 	 * Constructor for the NavMesh class, builds the navigation mesh from a file
 	 * @param navMeshFileName The name of the file containing the navigation mesh
@@ -47,6 +145,25 @@ public class NavMesh {
 		// Parse the file
 		this.polygons = this.parsePolygons(doc.getDocumentElement());
 		this.parseNeighbours(doc.getDocumentElement());
+		this.polygonGrid = new PolygonGrid(this.polygons);
+
+		// Build the graph A* searches
+		this.neighbourIndices = new int[this.polygons.size()][];
+		this.edgeMidPointsX = new float[this.polygons.size()][];
+		this.edgeMidPointsY = new float[this.polygons.size()][];
+		this.portalEndsX = new float[this.polygons.size()][];
+		this.portalEndsY = new float[this.polygons.size()][];
+		this.centresX = new float[this.polygons.size()];
+		this.centresY = new float[this.polygons.size()];
+		this.buildSearchGraph();
+		this.routingTable = this.buildRoutingTable();
+
+		// Use the clusters stored in the file if there are any
+		if (this.polygons.size() < MIN_HIERARCHY_POLYGONS) {
+			this.hierarchy = null;
+		} else {
+			this.hierarchy = this.parseHierarchy(doc.getDocumentElement());
+		}
 	}
 
 	/**
@@ -54,7 +171,76 @@ public class NavMesh {
 	 * @param polygons A list of polygons that describe the navigation mesh
 	 */
 	public NavMesh(ArrayList<Polygon> polygons) {
+		this(polygons, null, null);
+	}
+
+	/**
+	 * Constructs the navigation mesh from a list of polygons and the clusters they were stored with
+	 * @param polygons A list of polygons that describe the navigation mesh
+	 * @param clusterOf The cluster of each polygon, or null to work the clusters out
+	 * @param portalCosts The costs of the routes between the border polygons of each cluster keyed by from * polygon count + to,
+	 * or null to work them out by searching each cluster
+	 */
+	NavMesh(ArrayList<Polygon> polygons, int[] clusterOf, HashMap<Long,Float> portalCosts) {
 		this.polygons = polygons;
+		this.polygonGrid = new PolygonGrid(this.polygons);
+
+		// Build the graph A* searches, the polygons' neighbours must already be set
+		this.neighbourIndices = new int[this.polygons.size()][];
+		this.edgeMidPointsX = new float[this.polygons.size()][];
+		this.edgeMidPointsY = new float[this.polygons.size()][];
+		this.portalEndsX = new float[this.polygons.size()][];
+		this.portalEndsY = new float[this.polygons.size()][];
+		this.centresX = new float[this.polygons.size()];
+		this.centresY = new float[this.polygons.size()];
+		this.buildSearchGraph();
+		this.routingTable = this.buildRoutingTable();
+
+		if (this.polygons.size() < MIN_HIERARCHY_POLYGONS) {
+			this.hierarchy = null;
+		} else if (clusterOf == null) {
+			this.hierarchy = this.buildHierarchy(NavMeshHierarchy.clusterByGrid(this.centresX, this.centresY, POLYGONS_PER_CLUSTER), null);
+		} else {
+			this.hierarchy = this.buildHierarchy(clusterOf, portalCosts);
+		}
+	}
+
+	/**
+	 * Loads a navigation mesh, from its compiled file if there is one at least as new as the navmesh file
+	 * @param navMeshFileName The name of the file containing the navigation mesh
+	 * @return The navigation mesh
+	 * @throws InvalidMapException If neither file can be loaded
+	 */
+	public static NavMesh load(String navMeshFileName) throws InvalidMapException {
+		File navMeshFile = new File(navMeshFileName);
+		File compiledFile = new File(getCompiledFileName(navMeshFileName));
+		if (compiledFile.isFile() && compiledFile.lastModified() >= navMeshFile.lastModified()) {
+			try {
+				return CompiledNavMesh.read(compiledFile.getPath());
+			} catch (InvalidMapException ex) {
+				// The navmesh file is still there to fall back on
+				System.err.println(ex.getMessage() + ", loading " + navMeshFileName + " instead");
+			}
+		}
+
+		return new NavMesh(navMeshFileName);
+	}
+
+	/**
+	 * Gets the name of the compiled file stored alongside a navmesh file
+	 * @param navMeshFileName The name of the navmesh file
+	 * @return The name of the compiled file
+	 */
+	public static String getCompiledFileName(String navMeshFileName) {
+		return navMeshFileName + ".bin";
+	}
+
+	/**
+	 * Stores the navigation mesh in the compiled format, which loads much faster than the navmesh file
+	 * @param compiledFileName The file to store the navigation mesh in
+	 */
+	public void storeCompiled(String compiledFileName) throws IOException {
+		CompiledNavMesh.write(this.polygons, this.hierarchy, compiledFileName);
 	}
 
 	/**
@@ -62,11 +248,19 @@ public class NavMesh {
 	 * @param documentElement The document element to parse
 	 */
 	private void parseNeighbours(Element documentElement) throws InvalidMapException {
+		// Look the polygons up by their id
+		HashMap<String,Polygon> polygonsByID = new HashMap<String,Polygon>();
+		for (Polygon p : this.getPolygons()) {
+			if (!polygonsByID.containsKey(p.getID())) {
+				polygonsByID.put(p.getID(), p);
+			}
+		}
+
 		NodeList polygonsNodeList = documentElement.getElementsByTagName("polygon");
 		for (int i = 0; i < polygonsNodeList.getLength(); i++) {
 			Element polygonNode = (Element)polygonsNodeList.item(i);
 			String polygonID = polygonNode.getAttribute("id");
-			Polygon polygon = this.getPolygonByID(polygonID);
+			Polygon polygon = polygonsByID.get(polygonID);
 			if (polygon == null) {
 				throw new InvalidMapException("NavMesh Exception: Cannot find polygon with id " + polygonID);
 			}
@@ -75,7 +269,7 @@ public class NavMesh {
 			for (int j = 0; j < neighboursNodeList.getLength(); j++) {
 				Element neighbourElement = (Element)neighboursNodeList.item(j);
 				String neighbourID = neighbourElement.getAttribute("id");
-				Polygon neighbour = this.getPolygonByID(neighbourID);
+				Polygon neighbour = polygonsByID.get(neighbourID);
 				if (neighbour == null) {
 					throw new InvalidMapException("NavMesh Exception: Cannot find polygon with id " + neighbourID);
 				}
@@ -119,21 +313,6 @@ public class NavMesh {
 		}
 	}
 
-	/**
-	 * Get a polygon from the list by it's id
-	 * @param id The id
-	 * @return The polygon if it exists, else null
-	 */
-	private Polygon getPolygonByID(String id) {
-		for (Polygon p : this.getPolygons()) {
-			if (p.getID().equals(id)) {
-				return p;
-			}
-		}
-
-		return null;
-	}
-
 	/**
 	 * Parses a documentElement and constructs a list of polygons from the information within the file
 	 * @param documentElement The document element to parse
@@ -156,236 +335,793 @@ public class NavMesh {
 	}
 
 	/**
-	 * Performs an A* search, using the polygons, which form the navigation mesh, as nodes.
-	 * @param start The polygon to start the search from
-	 * @param goal The polygon to find a path to
-	 * @return The path from the start polygon to the end polygon
+	 * Builds the clusters from the hierarchy stored in the navmesh file, or works them out if the file doesn't have one
+	 * @param documentElement The document element to parse
+	 * @return The clusters and the links between them
 	 */
-	public ArrayList<Polygon> aStar(Vector2f start, Vector2f goal) {
-		// Find the polygons containing the start and goal points
-		Polygon startPolygon = getPolygonContaining(start);
-		Polygon goalPolygon = getPolygonContaining(goal);
-
-		// Convert the polygons to nodes so that we can use them for A* search
-		PolygonNode startNode = new PolygonNode(startPolygon);
-		PolygonNode goalNode = new PolygonNode(goalPolygon);
-
-		// The set of nodes already evaluated
-		ArrayList<PolygonNode> closedSet = new ArrayList<PolygonNode>();
+	private NavMeshHierarchy parseHierarchy(Element documentElement) throws InvalidMapException {
+		NodeList hierarchyNodeList = documentElement.getElementsByTagName("hierarchy");
+		if (hierarchyNodeList.getLength() == 0) {
+			return this.buildHierarchy(NavMeshHierarchy.clusterByGrid(this.centresX, this.centresY, POLYGONS_PER_CLUSTER), null);
+		}
 
-		// The set of tentative nodes to be evaluated, initially containing the start node
-		PriorityQueue<PolygonNode> openSet = new PriorityQueue<PolygonNode>(this.getPolygons().size(), new PolygonNodeComparator());
-		openSet.add(startNode);
+		// Look the polygons up by their id
+		HashMap<String,Integer> indicesByID = new HashMap<String,Integer>();
+		for (int i = 0; i < this.polygons.size(); i++) {
+			indicesByID.put(this.polygons.get(i).getID(), i);
+		}
 
-		// Maps a node to the previous node in the shortest path
-		HashMap<PolygonNode,PolygonNode> cameFrom = new HashMap<PolygonNode,PolygonNode>();
+		int[] clusterOf = new int[this.polygons.size()];
+		Arrays.fill(clusterOf, -1);
+		HashMap<Long,Float> portalCosts = new HashMap<Long,Float>();
 
-		// Cost from start along best known path
-		startNode.setG(0);
+		NodeList clusterNodeList = ((Element)hierarchyNodeList.item(0)).getElementsByTagName("cluster");
+		for (int i = 0; i < clusterNodeList.getLength(); i++) {
+			Element clusterElement = (Element)clusterNodeList.item(i);
+			int cluster = Integer.parseInt(clusterElement.getAttribute("id"));
 
-		// Estimated total cost from start to goal
-		startNode.setF(startNode.getG() + h(start, goal));
+			NodeList memberNodeList = clusterElement.getElementsByTagName("member");
+			for (int j = 0; j < memberNodeList.getLength(); j++) {
+				String polygonID = ((Element)memberNodeList.item(j)).getAttribute("id");
+				Integer polygon = indicesByID.get(polygonID);
+				if (polygon == null) {
+					throw new InvalidMapException("NavMesh Exception: Cannot find polygon with id " + polygonID);
+				}
+				clusterOf[polygon] = cluster;
+			}
 
-		// While we still have nodes available to look at
-		while (!openSet.isEmpty()) {
-			// Get the next node to look at from the open set
-			PolygonNode current = openSet.poll();
+			// The cost of the route between two border polygons is stored once for both directions
+			NodeList portalNodeList = clusterElement.getElementsByTagName("portal");
+			for (int j = 0; j < portalNodeList.getLength(); j++) {
+				Element portalElement = (Element)portalNodeList.item(j);
+				Integer from = indicesByID.get(portalElement.getAttribute("from"));
+				Integer to = indicesByID.get(portalElement.getAttribute("to"));
+				if (from == null || to == null) {
+					throw new InvalidMapException("NavMesh Exception: Cannot find the polygons of a portal in cluster " + cluster);
+				}
+				float cost = Float.parseFloat(portalElement.getAttribute("cost"));
+				portalCosts.put((long)from * this.polygons.size() + to, cost);
+				portalCosts.put((long)to * this.polygons.size() + from, cost);
+			}
+		}
 
-			// Check whether it is the goal or not
-// TODO: Override equals methods in the Polygon and PolygonNode classes
-			if (current.equals(goalNode)) {
-				// If it is, simply return the path
-				return reconstructPath(cameFrom, goalNode);
+		for (int i = 0; i < clusterOf.length; i++) {
+			if (clusterOf[i] == -1) {
+				throw new InvalidMapException("NavMesh Exception: Polygon " + this.polygons.get(i).getID() + " isn't in a cluster");
 			}
+		}
 
-			// Move the node to the closed set
-			closedSet.add(current);
+		return this.buildHierarchy(clusterOf, portalCosts);
+	}
 
-			// Look at the neighbours of the current node and add them to the open set if we haven't seen them before
-			for (PolygonNode neighbour : current.getNeighbours()) {
-				// Skip over any nodes that we've already looked at
-				if (closedSet.contains(neighbour)) {
-					continue;
+	/**
+	 * Builds the links between the clusters
+	 * @param clusterOf The cluster of each polygon
+	 * @param portalCosts The costs of the routes between the border polygons of each cluster keyed by from * polygon count + to,
+	 * or null to work them out by searching each cluster
+	 * @return The clusters and the links between them
+	 */
+	private NavMeshHierarchy buildHierarchy(final int[] clusterOf, final HashMap<Long,Float> portalCosts) {
+		return new NavMeshHierarchy(clusterOf, this.neighbourIndices, this.edgeMidPointsX, this.edgeMidPointsY, this.centresX, this.centresY,
+				new NavMeshHierarchy.ClusterRouteCosts() {
+			@Override
+			public void getCosts(int from, int[] to, float[] costs) {
+				if (portalCosts == null) {
+					routeCosts(scratch.get(), from, centresX[from], centresY[from], clusterOf, to, costs);
+					return;
 				}
 
-				// Work out the g score for the neighbour via the current path
-				float distance;
-				if (cameFrom.get(current) == null) {
-					distance = distanceBetween(start, current, neighbour);
-				} else {
-					distance = distanceBetween(cameFrom.get(current), current, neighbour);
+				for (int k = 0; k < to.length; k++) {
+					Float cost = portalCosts.get((long)from * polygons.size() + to[k]);
+					costs[k] = cost == null ? Float.POSITIVE_INFINITY : cost;
 				}
-				float tentativeGScore = current.getG() + distance;
+			}
+		});
+	}
 
-				// If we haven't looked at this neighbour yet or we've found a shorter route
-				if (!openSet.contains(neighbour) || tentativeGScore < neighbour.getG()) {
-					// Update the map to indicate how we got to the neighbour node
-					cameFrom.put(neighbour, current);
-					if (neighbour.equals(goalNode)) {
-						PolygonNode test = cameFrom.get(goalNode);
-					}
+	/**
+	 * Writes the clusters and the costs of the routes between their border polygons in the navmesh file format
+	 * Storing them in the file saves working them out each time a large navmesh is loaded
+	 * @param writer The writer for the navmesh file, positioned inside the navmesh element
+	 */
+	public void writeHierarchy(BufferedWriter writer) throws IOException {
+		if (this.hierarchy == null) {
+			return;
+		}
 
-					// Update the g and f scores for the neighbour
-					neighbour.setG(tentativeGScore);
-					neighbour.setF(neighbour.getG() + h(getConnectingEdgeMidPoint(current, neighbour), goal));
+		writer.write("	<hierarchy>");
+		writer.newLine();
 
-					// Add the neighbour to the open set if it's not already present
-					if (!openSet.contains(neighbour)) {
-						openSet.add(neighbour);
+		// Gather the polygons of each cluster
+		int[] clusterOf = this.hierarchy.getClusterOf();
+		for (int cluster = 0; cluster < this.hierarchy.getClusterCount(); cluster++) {
+			writer.write("		<cluster id=\""+cluster+"\">");
+			writer.newLine();
+
+			for (int i = 0; i < clusterOf.length; i++) {
+				if (clusterOf[i] == cluster) {
+					writer.write("			<member id=\""+this.polygons.get(i).getID()+"\"/>");
+					writer.newLine();
+				}
+			}
+
+			// Write each route between two border polygons once
+			for (int from : this.hierarchy.getClusterBorders(cluster)) {
+				int node = this.hierarchy.getBorderNode(from);
+				int[] links = this.hierarchy.getLinks(node);
+				float[] linkCosts = this.hierarchy.getLinkCosts(node);
+				for (int k = 0; k < links.length; k++) {
+					int to = this.hierarchy.getBorderPolygon(links[k]);
+					if (clusterOf[to] == cluster && from < to) {
+						writer.write("			<portal from=\""+this.polygons.get(from).getID()+"\" to=\""+this.polygons.get(to).getID()+"\" cost=\""+linkCosts[k]+"\"/>");
+						writer.newLine();
 					}
 				}
 			}
+
+			writer.write("		</cluster>");
+			writer.newLine();
 		}
 
-		// No paths exist, this should never happen with a navigation mesh
-		return null;
+		writer.write("	</hierarchy>");
+		writer.newLine();
 	}
 
 	/**
-	 * Reconstructs the path from the start node to the goal node
-	 * @param cameFrom A map describing the previous node in the path of a specified node
-	 * @param goalNode The goal node
-	 * @return A list of polygons describing the path from the start polygon to the end polygon
+	 * Gets the flow field to a goal, shared by every character heading for a goal in the same polygon
+	 * The field is only worked out again once the goal moves into another polygon, so the cost doesn't depend on how many characters use it.
+	 * Safe to call from several threads at once, two threads needing the same new field may both work it out but only the first is kept.
+	 * @param goal The goal point
+	 * @return The flow field to the goal, or null if the goal is off the navmesh
 	 */
-	private ArrayList<Polygon> reconstructPath(HashMap<PolygonNode,PolygonNode> cameFrom, PolygonNode goalNode) {
-		// Initialise the reversed list with the goal node
-		ArrayList<Polygon> pathInReverse = new ArrayList<Polygon>();
-		pathInReverse.add(goalNode.getPolygon());
+	public FlowField getFlowField(Vector2f goal) {
+		Polygon goalPolygon = getPolygonContaining(goal);
+		if (goalPolygon == null) {
+			return null;
+		}
 
-		// Work out the reverse path and add the nodes to the pathInReverse list
-		for(PolygonNode previous = cameFrom.get(goalNode); previous != null; previous = cameFrom.get(previous)) {
-			pathInReverse.add(previous.getPolygon());
+		synchronized (this.flowFields) {
+			FlowField flowField = this.flowFields.get(goalPolygon);
+			if (flowField != null) {
+				return flowField;
+			}
 		}
 
-		// Reverse the path
-		ArrayList<Polygon> path = pathInReverse;
-		Collections.reverse(path);
+		// Search outside the lock so other matches sharing the navmesh can still use the cache
+		FlowField flowField = this.buildFlowField(goalPolygon, goal);
+		synchronized (this.flowFields) {
+			this.flowFieldsBuilt++;
+			FlowField sharedField = this.flowFields.get(goalPolygon);
+			if (sharedField != null) {
+				return sharedField;
+			}
+			this.flowFields.put(goalPolygon, flowField);
+			return flowField;
+		}
+	}
 
-		for (int i = 0; i < path.size(); i++) {
-			Polygon p = path.get(i);
-			ArrayList<Vector2f> vertices = p.getVertices();
-			for (int j = 0; j < vertices.size(); j++) {
-				Vector2f v = vertices.get(j);
+	/**
+	 * Works out a flow field by searching outwards from the goal to every polygon that can reach it
+	 * Moving between polygons costs the same in both directions, so the polygon each one was reached from is the next step towards the goal,
+	 * and the edge it was entered by is the portal to head for.
+	 * @param goalPolygon The polygon the goal is in
+	 * @param goal The goal point
+	 * @return The flow field
+	 */
+	private FlowField buildFlowField(Polygon goalPolygon, Vector2f goal) {
+		AStarScratch scratch = this.scratch.get();
+		this.search(scratch, this.polygonIndices.get(goalPolygon), goal.getX(), goal.getY(), -1, 0, 0, null, 0);
+
+		Vector2f[] nextPortals = new Vector2f[this.polygons.size()];
+		Polygon[] nextPolygons = new Polygon[this.polygons.size()];
+		int[] nextIndices = new int[this.polygons.size()];
+		float[] distances = new float[this.polygons.size()];
+		for (int i = 0; i < this.polygons.size(); i++) {
+			if (!scratch.wasReached(i)) {
+				distances[i] = Float.POSITIVE_INFINITY;
+				nextIndices[i] = -1;
+				continue;
+			}
+
+			distances[i] = scratch.g[i] + distance(scratch.entryX[i], scratch.entryY[i], this.centresX[i], this.centresY[i]);
+			if (scratch.cameFrom[i] != -1) {
+				nextPortals[i] = new Vector2f(scratch.entryX[i], scratch.entryY[i]);
+				nextPolygons[i] = this.polygons.get(scratch.cameFrom[i]);
+			}
+			nextIndices[i] = scratch.cameFrom[i];
+		}
+
+		return new FlowField(goalPolygon, this.polygonIndices, nextPortals, nextPolygons, nextIndices, distances);
+	}
+
+	/**
+	 * Finds the polygon path between two points, reusing the path found earlier for the same start and goal polygons.
+	 * Agents heading for the same goal from the same area share the same polygon path, so A* only has to be run once for them.
+	 * Small navmeshes walk their routing table instead of running A*, and large navmeshes search through their clusters.
+	 * The returned list is shared with every other caller and must not be modified, the point path is worked out by each caller.
+	 * Safe to call from several threads at once.
+	 * @param start The point to start the path from
+	 * @param goal The point to find a path to
+	 * @return The path from the polygon containing the start to the polygon containing the goal, or null if either point is off the navmesh or there is no path
+	 */
+	public ArrayList<Polygon> findPolygonPath(Vector2f start, Vector2f goal) {
+		Polygon startPolygon = getPolygonContaining(start);
+		Polygon goalPolygon = getPolygonContaining(goal);
+		if (startPolygon == null || goalPolygon == null) {
+			return null;
+		}
+
+		PolygonPair key = new PolygonPair(startPolygon, goalPolygon);
+		synchronized (this.pathCache) {
+			ArrayList<Polygon> cachedPath = this.pathCache.get(key);
+			if (cachedPath != null) {
+				this.pathCacheHits++;
+				return cachedPath;
+			}
+			this.pathCacheMisses++;
+		}
+
+		// Search outside the lock so other threads can still use the cache
+		ArrayList<Polygon> path;
+		if (this.routingTable != null) {
+			path = this.walkRoutingTable(this.polygonIndices.get(startPolygon), this.polygonIndices.get(goalPolygon));
+		} else if (this.hierarchy != null) {
+			path = this.hierarchicalPath(this.polygonIndices.get(startPolygon), start, this.polygonIndices.get(goalPolygon), goal);
+		} else {
+			path = aStar(start, goal);
+		}
+		if (path != null) {
+			synchronized (this.pathCache) {
+				// With the cache turned off the path is dropped again straight away
+				this.pathCache.put(key, path);
 			}
 		}
+
 		return path;
 	}
 
 	/**
-	 * Works out the distance betwen the current and neighbour nodes, by working out the distance between the edge midpoints
-	 * @param previous The node in the path before the current node. Required in order to use the edge midpoints (3 nodes = 2 edges).
-	 * @param current The current node, the start
-	 * @param neighbour The neighbour node, the end
+	 * Builds the search graph used by A*, giving each polygon an index and working out the edge midpoints between neighbours
+	 * Must be called once the polygons and their neighbours are known
 	 */
-	private float distanceBetween(PolygonNode previous, PolygonNode current, PolygonNode neighbour) {
-		// Calculate the 2 edge midpoints between the 3 polygons
-		Vector2f midPoint1 = getConnectingEdgeMidPoint(previous, current);
-		Vector2f midPoint2 = getConnectingEdgeMidPoint(current, neighbour);
+	private void buildSearchGraph() {
+		// Index the polygons by their position in the list
+		for (int i = 0; i < this.polygons.size(); i++) {
+			this.polygonIndices.put(this.polygons.get(i), i);
+		}
+
+		for (int i = 0; i < this.polygons.size(); i++) {
+			Polygon p = this.polygons.get(i);
 
-		// Return the length between the two midpoints
-		return lengthOfLineBetween(midPoint1, midPoint2);
+			// Work out the centre of the polygon
+			ArrayList<Vector2f> vertices = p.getVertices();
+			for (Vector2f v : vertices) {
+				this.centresX[i] += v.getX();
+				this.centresY[i] += v.getY();
+			}
+			this.centresX[i] /= vertices.size();
+			this.centresY[i] /= vertices.size();
+
+			// Count the neighbours that can be moved to, they must be in this navmesh and have a connecting edge
+			int count = 0;
+			for (Polygon neighbour : p.getNeighbours()) {
+				if (this.polygonIndices.containsKey(neighbour) && p.getEdgeConnectingPolygon(neighbour) != null) {
+					count++;
+				}
+			}
+
+			this.neighbourIndices[i] = new int[count];
+			this.edgeMidPointsX[i] = new float[count];
+			this.edgeMidPointsY[i] = new float[count];
+			this.portalEndsX[i] = new float[2 * count];
+			this.portalEndsY[i] = new float[2 * count];
+
+			int k = 0;
+			for (Polygon neighbour : p.getNeighbours()) {
+				Integer neighbourIndex = this.polygonIndices.get(neighbour);
+				Edge edge = p.getEdgeConnectingPolygon(neighbour);
+				if (neighbourIndex == null || edge == null) {
+					continue;
+				}
+
+				Vector2f midPoint = edge.midPoint();
+				this.neighbourIndices[i][k] = neighbourIndex;
+				this.edgeMidPointsX[i][k] = midPoint.getX();
+				this.edgeMidPointsY[i][k] = midPoint.getY();
+
+				// The second vertex is on the left if it is anticlockwise from the first around the centre
+				Vector2f first = edge.getFirstVertice();
+				Vector2f second = edge.getSecondVertice();
+				float turn = (first.getX() - this.centresX[i]) * (second.getY() - this.centresY[i]) - (first.getY() - this.centresY[i]) * (second.getX() - this.centresX[i]);
+				Vector2f right = turn > 0 ? first : second;
+				Vector2f left = turn > 0 ? second : first;
+				this.portalEndsX[i][2 * k] = right.getX();
+				this.portalEndsY[i][2 * k] = right.getY();
+				this.portalEndsX[i][2 * k + 1] = left.getX();
+				this.portalEndsY[i][2 * k + 1] = left.getY();
+				k++;
+			}
+		}
 	}
 
 	/**
-	 * Works out the distance betwen the current and neighbour nodes, by working out the distance between the start point and next edge midpoint
-	 * @param start The start point of the path
-	 * @param startNode The current node, the start
-	 * @param neighbour The neighbour node, the end
+	 * Builds the routing table if the navmesh is small enough for one
+	 * @return The routing table, or null if there are too many polygons
 	 */
-	private float distanceBetween(Vector2f start, PolygonNode startNode, PolygonNode neighbour) {
-		ArrayList<Vector2f> startVertices = startNode.getPolygon().getVertices();
-		ArrayList<Vector2f> neighbourVertices = neighbour.getPolygon().getVertices();
+	private RoutingTable buildRoutingTable() {
+		if (this.polygons.size() > MAX_ROUTING_TABLE_POLYGONS) {
+			return null;
+		}
+
+		return new RoutingTable(this.neighbourIndices, this.edgeMidPointsX, this.edgeMidPointsY, this.centresX, this.centresY);
+	}
+
+	/**
+	 * Follows the routing table from one polygon to another
+	 * @param start The index of the polygon to start from
+	 * @param goal The index of the polygon to find a path to
+	 * @return The path from the start polygon to the goal polygon, or null if there is no route
+	 */
+	private ArrayList<Polygon> walkRoutingTable(int start, int goal) {
+		if (this.routingTable.getNextHop(start, goal) == -1) {
+			return null;
+		}
 
-		// Work out the edge midpoint connecting the start node and neighbour nodes
-		Vector2f edgeMidPoint = getConnectingEdgeMidPoint(startNode, neighbour);
+		ArrayList<Polygon> path = new ArrayList<Polygon>();
+		path.add(this.polygons.get(start));
+		for (int p = start; p != goal; ) {
+			p = this.routingTable.getNextHop(p, goal);
+			path.add(this.polygons.get(p));
+		}
 
-		// Return the length of the line between the points
-		return lengthOfLineBetween(start, edgeMidPoint);
+		return path;
 	}
 
 	/**
-	 * Finds the midpoint of the edge connecting the two polygons together
-	 * @param p1 The first polygon
-	 * @param p2 The second polygon
-	 * @return The midpoint of the edge connecting the polygons
+	 * Finds a path by searching the clusters first, then filling in the path inside each cluster it passes through
+	 * Only the polygons of the start and goal clusters and of the clusters along the path are searched.
+	 * @param start The index of the polygon to start from
+	 * @param startPoint The point to start from
+	 * @param goal The index of the polygon to find a path to
+	 * @param goalPoint The point to find a path to
+	 * @return The path from the start polygon to the goal polygon, or null if there is no path
 	 */
-	private Vector2f getConnectingEdgeMidPoint(Polygon p1, Polygon p2) {
-		Edge edge = p1.getEdgeConnectingPolygon(p2);
-		return edge.midPoint();
+	private ArrayList<Polygon> hierarchicalPath(int start, Vector2f startPoint, int goal, Vector2f goalPoint) {
+		int[] clusterOf = this.hierarchy.getClusterOf();
+		AStarScratch scratch = this.scratch.get();
+		float goalX = goalPoint.getX();
+		float goalY = goalPoint.getY();
+
+		// A path that stays inside one cluster doesn't need the clusters at all
+		if (clusterOf[start] == clusterOf[goal] && this.search(scratch, start, startPoint.getX(), startPoint.getY(), goal, goalX, goalY, clusterOf, clusterOf[start])) {
+			ArrayList<Polygon> path = new ArrayList<Polygon>();
+			this.appendPath(scratch, goal, path);
+			return path;
+		}
+
+		// Work out the costs from the start to the border polygons of its cluster, and from the goal to those of its cluster
+		// The routes to the goal are measured from the goal outwards, they cost about the same either way
+		int[] startBorders = this.hierarchy.getClusterBorders(clusterOf[start]);
+		float[] startCosts = new float[startBorders.length];
+		this.routeCosts(scratch, start, startPoint.getX(), startPoint.getY(), clusterOf, startBorders, startCosts);
+		int[] goalBorders = this.hierarchy.getClusterBorders(clusterOf[goal]);
+		float[] goalCosts = new float[goalBorders.length];
+		this.routeCosts(scratch, goal, goalX, goalY, clusterOf, goalBorders, goalCosts);
+
+		// Search the abstract graph, with the start and goal as two extra nodes
+		AStarScratch abstractScratch = this.hierarchyScratch.get();
+		int startNode = this.hierarchy.getBorderCount();
+		int goalNode = startNode + 1;
+		int generation = abstractScratch.startSearch();
+		abstractScratch.g[startNode] = 0;
+		abstractScratch.f[startNode] = distance(startPoint.getX(), startPoint.getY(), goalX, goalY);
+		abstractScratch.cameFrom[startNode] = -1;
+		abstractScratch.reachedStamp[startNode] = generation;
+		abstractScratch.openSet.add(startNode);
+
+		boolean found = false;
+		while (!abstractScratch.openSet.isEmpty()) {
+			int current = abstractScratch.openSet.poll();
+			if (current == goalNode) {
+				found = true;
+				break;
+			}
+			abstractScratch.closedStamp[current] = generation;
+
+			if (current == startNode) {
+				// The start is linked to the border polygons of its cluster
+				for (int k = 0; k < startBorders.length; k++) {
+					this.relaxLink(abstractScratch, generation, current, this.hierarchy.getBorderNode(startBorders[k]), startCosts[k], goalX, goalY);
+				}
+			} else {
+				int[] links = this.hierarchy.getLinks(current);
+				float[] linkCosts = this.hierarchy.getLinkCosts(current);
+				for (int k = 0; k < links.length; k++) {
+					this.relaxLink(abstractScratch, generation, current, links[k], linkCosts[k], goalX, goalY);
+				}
+
+				// The border polygons of the goal's cluster are linked to the goal
+				int polygon = this.hierarchy.getBorderPolygon(current);
+				if (clusterOf[polygon] == clusterOf[goal]) {
+					for (int k = 0; k < goalBorders.length; k++) {
+						if (goalBorders[k] == polygon) {
+							this.relaxLink(abstractScratch, generation, current, goalNode, goalCosts[k], goalX, goalY);
+						}
+					}
+				}
+			}
+		}
+
+		if (!found) {
+			return null;
+		}
+
+		// Read the abstract path back from the goal
+		int length = 0;
+		for (int node = goalNode; node != -1; node = abstractScratch.cameFrom[node]) {
+			length++;
+		}
+		int[] nodes = new int[length];
+		for (int node = goalNode; node != -1; node = abstractScratch.cameFrom[node]) {
+			nodes[--length] = node;
+		}
+
+		// Fill in each step, searching only the cluster it is in
+		ArrayList<Polygon> path = new ArrayList<Polygon>();
+		path.add(this.polygons.get(start));
+		int previous = start;
+		float previousX = startPoint.getX();
+		float previousY = startPoint.getY();
+		for (int i = 1; i < nodes.length; i++) {
+			int next = nodes[i] == goalNode ? goal : this.hierarchy.getBorderPolygon(nodes[i]);
+			float nextX = nodes[i] == goalNode ? goalX : this.centresX[next];
+			float nextY = nodes[i] == goalNode ? goalY : this.centresY[next];
+
+			if (clusterOf[previous] == clusterOf[next]) {
+				if (!this.search(scratch, previous, previousX, previousY, next, nextX, nextY, clusterOf, clusterOf[next])) {
+					return null;
+				}
+				this.appendPath(scratch, next, path);
+			} else {
+				// Steps between clusters are between neighbours
+				path.add(this.polygons.get(next));
+			}
+
+			previous = next;
+			previousX = nextX;
+			previousY = nextY;
+		}
+
+		return path;
 	}
 
 	/**
-	 * Finds the midpoint of the edge connecting the two polygon nodes together
-	 * @param p1 The first polygon node
-	 * @param p2 The second polygon node
-	 * @return The midpoint of the edge connecting the polygons
+	 * Updates the cost of an abstract graph node if it is cheaper to reach through another node
+	 * @param scratch The scratch of the abstract search
+	 * @param generation The generation of the abstract search
+	 * @param from The node being looked at
+	 * @param to The node it is linked to
+	 * @param cost The cost of the link
+	 * @param goalX The x coordinate of the goal point
+	 * @param goalY The y coordinate of the goal point
 	 */
-	private Vector2f getConnectingEdgeMidPoint(PolygonNode p1, PolygonNode p2) {
-		return this.getConnectingEdgeMidPoint(p1.getPolygon(), p2.getPolygon());
+	private void relaxLink(AStarScratch scratch, int generation, int from, int to, float cost, float goalX, float goalY) {
+		if (scratch.closedStamp[to] == generation) {
+			return;
+		}
+
+		float tentativeGScore = scratch.g[from] + cost;
+		boolean inOpenSet = scratch.reachedStamp[to] == generation;
+		if (!inOpenSet || tentativeGScore < scratch.g[to]) {
+			scratch.cameFrom[to] = from;
+			scratch.g[to] = tentativeGScore;
+
+			// Border polygons are estimated from their centres, the goal node is the goal itself
+			float h = 0;
+			if (to < this.hierarchy.getBorderCount()) {
+				int polygon = this.hierarchy.getBorderPolygon(to);
+				h = distance(this.centresX[polygon], this.centresY[polygon], goalX, goalY);
+			}
+			scratch.f[to] = tentativeGScore + h;
+
+			if (inOpenSet) {
+				scratch.openSet.decreaseKey(to);
+			} else {
+				scratch.reachedStamp[to] = generation;
+				scratch.openSet.add(to);
+			}
+		}
 	}
 
 	/**
-	 * Calculates the length of the straight line between two points
-	 * @param p1 The first end point of the line
-	 * @param p2 The second end point of the line
-	 * @return The length of the straight line between the points
+	 * Works out the cost of the routes from a point to the centres of some polygons, without leaving the point's cluster
+	 * @param scratch The scratch of the searching thread
+	 * @param from The index of the polygon containing the point
+	 * @param fromX The x coordinate of the point
+	 * @param fromY The y coordinate of the point
+	 * @param clusterOf The cluster of each polygon
+	 * @param to The indices of the polygons to find the routes to
+	 * @param costs Filled in with the cost of the route to each polygon, Float.POSITIVE_INFINITY if it can't be reached inside the cluster
 	 */
-	private float lengthOfLineBetween(Vector2f p1, Vector2f p2) {
-		// Subtract the vectors
-		Vector2f result = Vector2f.sub(p1, p2, null);
+	private void routeCosts(AStarScratch scratch, int from, float fromX, float fromY, int[] clusterOf, int[] to, float[] costs) {
+		this.search(scratch, from, fromX, fromY, -1, 0, 0, clusterOf, clusterOf[from]);
 
-		// Work out the length
-		float distance = result.length();
-		return distance;
+		for (int k = 0; k < to.length; k++) {
+			int p = to[k];
+			if (scratch.wasReached(p)) {
+				costs[k] = scratch.g[p] + distance(scratch.entryX[p], scratch.entryY[p], this.centresX[p], this.centresY[p]);
+			} else {
+				costs[k] = Float.POSITIVE_INFINITY;
+			}
+		}
 	}
 
 	/**
-	 * Heuristic function used to estimate the cost from a node to the goal
-	 * @param estimateStart The point we are estimating the distance to the goal from
-	 * @param goal The goal point
-	 * @return The cost estimate of the distance from the node to the goal
+	 * Performs an A* search, using the polygons, which form the navigation mesh, as nodes.
+	 * The cost of moving through a polygon is the distance from the point it is entered at to the midpoint of the edge it is left by,
+	 * the start point for the start polygon and the midpoint of the edge it was entered by for the rest.
+	 * The search works on the polygon indices and the thread's scratch arrays, so the only thing allocated is the returned path.
+	 * @param start The polygon to start the search from
+	 * @param goal The polygon to find a path to
+	 * @return The path from the start polygon to the end polygon, or null if either point is off the navmesh or there is no path
 	 */
-	private float h(Vector2f estimateStart, Vector2f goal) {
-		return lengthOfLineBetween(estimateStart, goal);
-	} 
+	public ArrayList<Polygon> aStar(Vector2f start, Vector2f goal) {
+		// Find the polygons containing the start and goal points
+		Integer startIndex = this.polygonIndices.get(getPolygonContaining(start));
+		Integer goalIndex = this.polygonIndices.get(getPolygonContaining(goal));
+		if (startIndex == null || goalIndex == null) {
+			return null;
+		}
+
+		AStarScratch scratch = this.scratch.get();
+		if (!this.search(scratch, startIndex, start.getX(), start.getY(), goalIndex, goal.getX(), goal.getY(), null, 0)) {
+			// No paths exist, this should never happen with a navigation mesh
+			return null;
+		}
+
+		ArrayList<Polygon> path = new ArrayList<Polygon>();
+		this.appendPath(scratch, goalIndex, path);
+		return path;
+	}
 
 	/**
-	 * Gets the polygon in the navmesh that contains the coordinates specififed by the position
-	 * @param position The position contained by the returned polygon
-	 * @return The polygon containing the position
+	 * Searches the polygon graph, leaving the results in the scratch arrays
+	 * With a goal this is an A* search that stops when the goal is reached. Without one there is no heuristic and every
+	 * polygon that can be reached is searched, giving the cheapest route from the start to each of them.
+	 * @param scratch The scratch of the searching thread
+	 * @param start The index of the polygon to start from
+	 * @param startX The x coordinate of the start point
+	 * @param startY The y coordinate of the start point
+	 * @param goal The index of the polygon to find a path to, or -1 to search every polygon that can be reached
+	 * @param goalX The x coordinate of the goal point
+	 * @param goalY The y coordinate of the goal point
+	 * @param clusterOf The cluster of each polygon, or null to search the whole navmesh
+	 * @param cluster The only cluster searched when clusterOf is given
+	 * @return True if the goal was reached, always false when there is no goal
 	 */
-	public Polygon getPolygonContaining(Vector2f position) {
-		for (Polygon p : this.getPolygons()) {
-			for (Vector2f v : p.getVertices()) {
+	private boolean search(AStarScratch scratch, int start, float startX, float startY, int goal, float goalX, float goalY, int[] clusterOf, int cluster) {
+		int generation = scratch.startSearch();
+		boolean hasGoal = goal != -1;
+
+		// The open set initially contains the start polygon, entered at the start point
+		scratch.g[start] = 0;
+		scratch.f[start] = hasGoal ? distance(startX, startY, goalX, goalY) : 0;
+		scratch.entryX[start] = startX;
+		scratch.entryY[start] = startY;
+		scratch.cameFrom[start] = -1;
+		scratch.reachedStamp[start] = generation;
+		scratch.openSet.add(start);
+
+		// While we still have polygons available to look at
+		while (!scratch.openSet.isEmpty()) {
+			// Get the polygon with the lowest estimated cost from the open set
+			int current = scratch.openSet.poll();
+
+			// If it is the goal, we are done
+			if (current == goal) {
+				return true;
 			}
-			if (p.contains(position)) {
-				return p;
+
+			// Move the polygon to the closed set
+			scratch.closedStamp[current] = generation;
+
+			// Look at the neighbours of the current polygon and add them to the open set if we haven't seen them before
+			int[] neighbours = this.neighbourIndices[current];
+			for (int k = 0; k < neighbours.length; k++) {
+				int neighbour = neighbours[k];
+
+				// Skip over any polygons that we've already looked at, or that are outside the cluster being searched
+				if (scratch.closedStamp[neighbour] == generation || (clusterOf != null && clusterOf[neighbour] != cluster)) {
+					continue;
+				}
+
+				// Work out the g score for the neighbour via the current path
+				float midX = this.edgeMidPointsX[current][k];
+				float midY = this.edgeMidPointsY[current][k];
+				float tentativeGScore = scratch.g[current] + distance(scratch.entryX[current], scratch.entryY[current], midX, midY);
+
+				// If we haven't looked at this neighbour yet or we've found a shorter route
+				boolean inOpenSet = scratch.reachedStamp[neighbour] == generation;
+				if (!inOpenSet || tentativeGScore < scratch.g[neighbour]) {
+					// Remember how we got to the neighbour and update its scores
+					scratch.cameFrom[neighbour] = current;
+					scratch.entryX[neighbour] = midX;
+					scratch.entryY[neighbour] = midY;
+					scratch.g[neighbour] = tentativeGScore;
+					scratch.f[neighbour] = hasGoal ? tentativeGScore + distance(midX, midY, goalX, goalY) : tentativeGScore;
+
+					// Add the neighbour to the open set, or move it up if it's already there
+					if (inOpenSet) {
+						scratch.openSet.decreaseKey(neighbour);
+					} else {
+						scratch.reachedStamp[neighbour] = generation;
+						scratch.openSet.add(neighbour);
+					}
+				}
 			}
 		}
 
-		return null;
+		return false;
+	}
+
+	/**
+	 * Adds the path to a polygon reached by the last search onto the end of a path
+	 * If the path already ends with the first polygon of the new part, it isn't added twice
+	 * @param scratch The scratch of the finished search
+	 * @param goal The index of the polygon the path goes to
+	 * @param path The path to add to
+	 */
+	private void appendPath(AStarScratch scratch, int goal, ArrayList<Polygon> path) {
+		// Count the polygons so the new part can be filled in from the end
+		int length = 0;
+		for (int p = goal; p != -1; p = scratch.cameFrom[p]) {
+			length++;
+		}
+
+		int first = path.size();
+		for (int i = 0; i < length; i++) {
+			path.add(null);
+		}
+		int i = path.size();
+		for (int p = goal; p != -1; p = scratch.cameFrom[p]) {
+			path.set(--i, this.polygons.get(p));
+		}
+
+		if (first > 0 && path.get(first - 1) == path.get(first)) {
+			path.remove(first);
+		}
+	}
+
+	/**
+	 * Calculates the length of the straight line between two points, also used as the heuristic estimate of the cost to the goal
+	 * @param x1 The x coordinate of the first point
+	 * @param y1 The y coordinate of the first point
+	 * @param x2 The x coordinate of the second point
+	 * @param y2 The y coordinate of the second point
+	 * @return The length of the straight line between the points
+	 */
+	private static float distance(float x1, float y1, float x2, float y2) {
+		float dx = x2 - x1;
+		float dy = y2 - y1;
+		return (float)Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Gets the polygon in the navmesh that contains the coordinates specififed by the position
+	 * Only the polygons near the position are tested, using the grid built when the navmesh was loaded
+	 * @param position The position contained by the returned polygon
+	 * @return The polygon containing the position, or null if the position is off the navmesh
+	 */
+	public Polygon getPolygonContaining(Vector2f position) {
+		return this.polygonGrid.getPolygonContaining(position);
 	}	
 
 	/**
 	 * Converts a path of polygons into a path of points along the polygon path
-	 * @param polygonPath The polygon path
+	 * The path is pulled tight through the edges connecting the polygons, so it only turns at the corners it has to go around
+	 * There is a point for each edge crossed, the corner to head for until that edge has been crossed,
+	 * so consecutive points are often the same Vector2f and the direction only changes at a corner
+	 * @param polygonPath The polygon path, which must be joined by edges between neighbours
+	 * @param start The point the path starts from, inside the first polygon
+	 * @param goal The point the path goes to, inside the last polygon
 	 * @return The point path along the polygon path
 	 */
-	public ArrayList<Vector2f> polygonPathToPointPath(ArrayList<Polygon> polygonPath) {
-		// Initialise the point path
-		ArrayList<Vector2f> pointPath = new ArrayList<Vector2f>();
+	public ArrayList<Vector2f> polygonPathToPointPath(ArrayList<Polygon> polygonPath, Vector2f start, Vector2f goal) {
+		ArrayList<Vector2f> pointPath = new ArrayList<Vector2f>(polygonPath.size());
+		if (polygonPath.size() < 2) {
+			return pointPath;
+		}
 
-		// We need to work out the edge midpoints between all of the polygons
-		// And add them to the list that we will return
-		for (int i = 0; i < polygonPath.size() - 1; i++) {
-			Vector2f midPoint = getConnectingEdgeMidPoint(polygonPath.get(i), polygonPath.get(i + 1));
-			pointPath.add(midPoint);
+		// The start and the goal are portals with both ends at the same point, with the connecting edges between them
+		Funnel funnel = this.funnel.get();
+		funnel.setPortal(0, start.getX(), start.getY(), start.getX(), start.getY());
+		for (int i = 1; i < polygonPath.size(); i++) {
+			this.setCorridorPortal(funnel, i, this.polygonIndices.get(polygonPath.get(i - 1)), this.polygonIndices.get(polygonPath.get(i)));
+		}
+		funnel.setPortal(polygonPath.size(), goal.getX(), goal.getY(), goal.getX(), goal.getY());
+
+		funnel.pull(polygonPath.size() + 1);
+
+		// Each edge crossed heads for the first corner on or after it, the goal is always the last corner
+		int corner = 0;
+		Vector2f cornerPoint = new Vector2f(funnel.cornersX[0], funnel.cornersY[0]);
+		for (int i = 1; i < polygonPath.size(); i++) {
+			if (funnel.cornerPortals[corner] < i) {
+				corner++;
+				cornerPoint = new Vector2f(funnel.cornersX[corner], funnel.cornersY[corner]);
+			}
+
+			pointPath.add(cornerPoint);
 		}
 
-		// Return the point path
 		return pointPath;
 	}
 
+	/**
+	 * Gets the first corner to head for when following a flow field, pulling the route the field gives tight like a polygon path
+	 * Only the first CORNER_LOOKAHEAD_PORTALS portals are pulled, when the goal is further away the route ends at the middle of the last of them
+	 * Safe to call from several threads at once.
+	 * @param flowField The flow field to follow
+	 * @param polygon The polygon the position is in
+	 * @param position The position to head from
+	 * @param goal The goal point of the flow field
+	 * @param reachedDistance Corners closer to the position than this count as already reached, and the next one is given instead
+	 * @return The corner to head for, or null if the goal can't be reached from the polygon
+	 */
+	public Vector2f getNextCorner(FlowField flowField, Polygon polygon, Vector2f position, Vector2f goal, float reachedDistance) {
+		if (flowField.getDistance(polygon) == Float.POSITIVE_INFINITY) {
+			return null;
+		}
+
+		// Follow the field towards the goal polygon for as many portals as are looked ahead
+		Funnel funnel = this.funnel.get();
+		funnel.setPortal(0, position.getX(), position.getY(), position.getX(), position.getY());
+		int portalCount = 1;
+		int current = this.polygonIndices.get(polygon);
+		int next = flowField.getNextIndex(current);
+		while (next != -1 && portalCount <= CORNER_LOOKAHEAD_PORTALS) {
+			this.setCorridorPortal(funnel, portalCount++, current, next);
+			current = next;
+			next = flowField.getNextIndex(current);
+		}
+
+		// Head for the goal if it was reached, else for the middle of the last portal
+		if (next == -1) {
+			funnel.setPortal(portalCount++, goal.getX(), goal.getY(), goal.getX(), goal.getY());
+		} else {
+			float middleX = funnel.getMiddleX(portalCount - 1);
+			float middleY = funnel.getMiddleY(portalCount - 1);
+			funnel.setPortal(portalCount++, middleX, middleY, middleX, middleY);
+		}
+
+		int cornerCount = funnel.pull(portalCount);
+
+		// The goal is always the last corner, so it is given however close it is
+		int corner = 0;
+		while (corner < cornerCount - 1 && distance(position.getX(), position.getY(), funnel.cornersX[corner], funnel.cornersY[corner]) < reachedDistance) {
+			corner++;
+		}
+
+		return new Vector2f(funnel.cornersX[corner], funnel.cornersY[corner]);
+	}
+
+	/**
+	 * Sets a portal of a corridor to the edge between two neighbouring polygons
+	 * @param funnel The funnel the corridor is being pulled through
+	 * @param portal The index of the portal
+	 * @param from The index of the polygon the corridor leaves
+	 * @param to The index of the polygon the corridor enters
+	 */
+	private void setCorridorPortal(Funnel funnel, int portal, int from, int to) {
+		// Find the edge the corridor crosses among the neighbours of the polygon it leaves
+		int k = 0;
+		while (this.neighbourIndices[from][k] != to) {
+			k++;
+		}
+
+		funnel.setPortal(portal, this.portalEndsX[from][2 * k + 1], this.portalEndsY[from][2 * k + 1], this.portalEndsX[from][2 * k], this.portalEndsY[from][2 * k]);
+	}
+
 	/**
 	 * Gets the list of polygons
 	 * @return The list of polygons
@@ -393,4 +1129,79 @@ public class NavMesh {
 	public ArrayList<Polygon> getPolygons() {
 		return this.polygons;
 	}
+
+	/**
+	 * Checks whether the navmesh is searched through clusters of polygons
+	 * @return True if the navmesh is large enough to be divided into clusters
+	 */
+	public boolean hasHierarchy() {
+		return this.hierarchy != null;
+	}
+
+	/**
+	 * Checks whether the navmesh has a routing table, which is used instead of A* to find paths
+	 * @return True if the navmesh is small enough to have a routing table
+	 */
+	public boolean hasRoutingTable() {
+		return this.routingTable != null;
+	}
+
+	/**
+	 * Gets the length of the shortest route between two polygons, measured between the polygon centres
+	 * @param from The polygon the route starts from
+	 * @param to The polygon the route goes to
+	 * @return The length of the route, Float.POSITIVE_INFINITY if there is no route, or -1 if the navmesh has no routing table
+	 */
+	public float getRouteDistance(Polygon from, Polygon to) {
+		if (this.routingTable == null) {
+			return -1;
+		}
+
+		return this.routingTable.getDistance(this.polygonIndices.get(from), this.polygonIndices.get(to));
+	}
+
+	/**
+	 * Sets the most paths the path cache can hold, dropping the least recently used paths if there are too many
+	 * @param size The number of paths, 0 turns the cache off
+	 */
+	public void setPathCacheSize(int size) {
+		synchronized (this.pathCache) {
+			this.pathCacheSize = size;
+			Iterator<PolygonPair> keys = this.pathCache.keySet().iterator();
+			while (this.pathCache.size() > size) {
+				keys.next();
+				keys.remove();
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of flow fields that have been worked out
+	 * @return The number of flow fields built
+	 */
+	public long getFlowFieldsBuilt() {
+		synchronized (this.flowFields) {
+			return this.flowFieldsBuilt;
+		}
+	}
+
+	/**
+	 * Gets the number of paths that were found in the path cache
+	 * @return The number of cache hits
+	 */
+	public long getPathCacheHits() {
+		synchronized (this.pathCache) {
+			return this.pathCacheHits;
+		}
+	}
+
+	/**
+	 * Gets the number of paths that had to be searched for because they weren't in the path cache
+	 * @return The number of cache misses
+	 */
+	public long getPathCacheMisses() {
+		synchronized (this.pathCache) {
+			return this.pathCacheMisses;
+		}
+	}
 }
@@ -0,0 +1,264 @@
+package shared;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Groups the polygons of a large navmesh into clusters and links the clusters together through their border polygons
+ * A border polygon is one with a neighbour in another cluster. Border polygons are the nodes of a small abstract graph,
+ * joined to the border polygons of the same cluster by the cost of the route between them inside the cluster, and to
+ * their neighbours in other clusters by the cost of stepping across.
+ * Paths are found on the abstract graph first, then each step is filled in by a search of a single cluster.
+ * @author Barney
+ */
+class NavMeshHierarchy {
+	/**
+	 * Works out the cost of the route between two polygons of the same cluster
+	 */
+	interface ClusterRouteCosts {
+		/**
+		 * Gets the cost of the routes from a border polygon to the other border polygons of its cluster
+		 * @param from The index of the border polygon the routes start from
+		 * @param to The indices of the border polygons of the cluster
+		 * @param costs Filled in with the cost of the route to each polygon, Float.POSITIVE_INFINITY if it can't be reached inside the cluster
+		 */
+		public void getCosts(int from, int[] to, float[] costs);
+	}
+
+	// The cluster each polygon belongs to
+	private final int[] clusterOf;
+
+	// The number of clusters
+	private final int clusterCount;
+
+	// The polygon index of each border polygon, the position in this array is the border polygon's node in the abstract graph
+	private final int[] borderPolygons;
+
+	// The abstract graph node of each polygon, -1 if it isn't a border polygon
+	private final int[] borderNodes;
+
+	// The polygon indices of the border polygons of each cluster
+	private final int[][] clusterBorders;
+
+	// The abstract graph nodes each node is joined to, and the cost of each link
+	private final int[][] links;
+	private final float[][] linkCosts;
+
+	/**
+	 * Builds the abstract graph
+	 * @param clusterOf The cluster each polygon belongs to, numbered from 0
+	 * @param neighbourIndices The indices of each polygon's neighbours
+	 * @param edgeMidPointsX The x coordinates of the midpoints of the edges connecting each polygon to its neighbours
+	 * @param edgeMidPointsY The y coordinates of the midpoints of the edges connecting each polygon to its neighbours
+	 * @param centresX The x coordinates of the polygon centres
+	 * @param centresY The y coordinates of the polygon centres
+	 * @param routeCosts Works out the cost of the routes between the border polygons of each cluster
+	 */
+	public NavMeshHierarchy(int[] clusterOf, int[][] neighbourIndices, float[][] edgeMidPointsX, float[][] edgeMidPointsY,
+			float[] centresX, float[] centresY, ClusterRouteCosts routeCosts) {
+		int n = clusterOf.length;
+		this.clusterOf = clusterOf;
+
+		int count = 0;
+		for (int cluster : clusterOf) {
+			count = Math.max(count, cluster + 1);
+		}
+		this.clusterCount = count;
+
+		// Find the border polygons and give them nodes in the abstract graph
+		this.borderNodes = new int[n];
+		int borderCount = 0;
+		int[] clusterBorderCounts = new int[this.clusterCount];
+		for (int i = 0; i < n; i++) {
+			this.borderNodes[i] = -1;
+			for (int neighbour : neighbourIndices[i]) {
+				if (clusterOf[neighbour] != clusterOf[i]) {
+					this.borderNodes[i] = borderCount++;
+					clusterBorderCounts[clusterOf[i]]++;
+					break;
+				}
+			}
+		}
+
+		this.borderPolygons = new int[borderCount];
+		this.clusterBorders = new int[this.clusterCount][];
+		for (int cluster = 0; cluster < this.clusterCount; cluster++) {
+			this.clusterBorders[cluster] = new int[clusterBorderCounts[cluster]];
+			clusterBorderCounts[cluster] = 0;
+		}
+		for (int i = 0; i < n; i++) {
+			if (this.borderNodes[i] != -1) {
+				this.borderPolygons[this.borderNodes[i]] = i;
+				this.clusterBorders[clusterOf[i]][clusterBorderCounts[clusterOf[i]]++] = i;
+			}
+		}
+
+		// Link each border polygon to the others in its cluster, and to its neighbours in other clusters
+		this.links = new int[borderCount][];
+		this.linkCosts = new float[borderCount][];
+		ArrayList<Integer> nodes = new ArrayList<Integer>();
+		ArrayList<Float> costs = new ArrayList<Float>();
+		for (int node = 0; node < borderCount; node++) {
+			int p = this.borderPolygons[node];
+			int[] sameCluster = this.clusterBorders[clusterOf[p]];
+			float[] routeCostsFromP = new float[sameCluster.length];
+			routeCosts.getCosts(p, sameCluster, routeCostsFromP);
+
+			nodes.clear();
+			costs.clear();
+			for (int k = 0; k < sameCluster.length; k++) {
+				if (sameCluster[k] != p && routeCostsFromP[k] != Float.POSITIVE_INFINITY) {
+					nodes.add(this.borderNodes[sameCluster[k]]);
+					costs.add(routeCostsFromP[k]);
+				}
+			}
+			for (int k = 0; k < neighbourIndices[p].length; k++) {
+				int neighbour = neighbourIndices[p][k];
+				if (clusterOf[neighbour] != clusterOf[p]) {
+					// Centre to centre through the connecting edge, the same way the routes inside clusters are measured
+					float midX = edgeMidPointsX[p][k];
+					float midY = edgeMidPointsY[p][k];
+					nodes.add(this.borderNodes[neighbour]);
+					costs.add(length(centresX[p], centresY[p], midX, midY) + length(midX, midY, centresX[neighbour], centresY[neighbour]));
+				}
+			}
+
+			this.links[node] = new int[nodes.size()];
+			this.linkCosts[node] = new float[nodes.size()];
+			for (int k = 0; k < nodes.size(); k++) {
+				this.links[node][k] = nodes.get(k);
+				this.linkCosts[node][k] = costs.get(k);
+			}
+		}
+	}
+
+	/**
+	 * Divides the polygons into clusters using a grid over their centres, sized so each cluster holds about the given number of polygons
+	 * @param centresX The x coordinates of the polygon centres
+	 * @param centresY The y coordinates of the polygon centres
+	 * @param polygonsPerCluster The number of polygons to aim for in each cluster
+	 * @return The cluster of each polygon, numbered from 0 with no empty clusters
+	 */
+	public static int[] clusterByGrid(float[] centresX, float[] centresY, int polygonsPerCluster) {
+		int n = centresX.length;
+		float minX = Float.MAX_VALUE;
+		float minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE;
+		float maxY = -Float.MAX_VALUE;
+		for (int i = 0; i < n; i++) {
+			minX = Math.min(minX, centresX[i]);
+			minY = Math.min(minY, centresY[i]);
+			maxX = Math.max(maxX, centresX[i]);
+			maxY = Math.max(maxY, centresY[i]);
+		}
+
+		// Use a square grid with about the right number of cells
+		int cellsPerSide = Math.max(1, (int)Math.ceil(Math.sqrt((double)n / polygonsPerCluster)));
+		float cellWidth = Math.max(maxX - minX, 1) / cellsPerSide;
+		float cellHeight = Math.max(maxY - minY, 1) / cellsPerSide;
+
+		int[] cellOf = new int[n];
+		for (int i = 0; i < n; i++) {
+			int column = Math.min(cellsPerSide - 1, (int)((centresX[i] - minX) / cellWidth));
+			int row = Math.min(cellsPerSide - 1, (int)((centresY[i] - minY) / cellHeight));
+			cellOf[i] = row * cellsPerSide + column;
+		}
+
+		// Number the cells that have polygons in them
+		int[] clusterOfCell = new int[cellsPerSide * cellsPerSide];
+		Arrays.fill(clusterOfCell, -1);
+		int[] clusterOf = new int[n];
+		int clusterCount = 0;
+		for (int i = 0; i < n; i++) {
+			if (clusterOfCell[cellOf[i]] == -1) {
+				clusterOfCell[cellOf[i]] = clusterCount++;
+			}
+			clusterOf[i] = clusterOfCell[cellOf[i]];
+		}
+
+		return clusterOf;
+	}
+
+	/**
+	 * Gets the cluster each polygon belongs to
+	 * @return The cluster of each polygon, by polygon index
+	 */
+	public int[] getClusterOf() {
+		return this.clusterOf;
+	}
+
+	/**
+	 * Gets the number of clusters
+	 * @return The number of clusters
+	 */
+	public int getClusterCount() {
+		return this.clusterCount;
+	}
+
+	/**
+	 * Gets the number of nodes in the abstract graph, one per border polygon
+	 * @return The number of border polygons
+	 */
+	public int getBorderCount() {
+		return this.borderPolygons.length;
+	}
+
+	/**
+	 * Gets the polygon of an abstract graph node
+	 * @param node The node
+	 * @return The index of the border polygon
+	 */
+	public int getBorderPolygon(int node) {
+		return this.borderPolygons[node];
+	}
+
+	/**
+	 * Gets the abstract graph node of a polygon
+	 * @param polygon The index of the polygon
+	 * @return The node, or -1 if the polygon isn't a border polygon
+	 */
+	public int getBorderNode(int polygon) {
+		return this.borderNodes[polygon];
+	}
+
+	/**
+	 * Gets the border polygons of a cluster
+	 * @param cluster The cluster
+	 * @return The indices of the cluster's border polygons
+	 */
+	public int[] getClusterBorders(int cluster) {
+		return this.clusterBorders[cluster];
+	}
+
+	/**
+	 * Gets the nodes an abstract graph node is linked to
+	 * @param node The node
+	 * @return The linked nodes
+	 */
+	public int[] getLinks(int node) {
+		return this.links[node];
+	}
+
+	/**
+	 * Gets the costs of the links of an abstract graph node, in the same order as the linked nodes
+	 * @param node The node
+	 * @return The link costs
+	 */
+	public float[] getLinkCosts(int node) {
+		return this.linkCosts[node];
+	}
+
+	/**
+	 * Calculates the length of the straight line between two points
+	 * @param x1 The x coordinate of the first point
+	 * @param y1 The y coordinate of the first point
+	 * @param x2 The x coordinate of the second point
+	 * @param y2 The y coordinate of the second point
+	 * @return The length of the line
+	 */
+	private static float length(float x1, float y1, float x2, float y2) {
+		float dx = x2 - x1;
+		float dy = y2 - y1;
+		return (float)Math.sqrt(dx * dx + dy * dy);
+	}
+}
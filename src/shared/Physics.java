@@ -3,6 +3,8 @@ import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 import org.lwjgl.util.vector.Vector2f;
@@ -19,12 +21,19 @@ public class Physics {
 	// Used to scale physics with time
 	public static final float TIME_SCALE = 15.0f;
 
+	// Maximum distance an entity moves in one collision step
+	private static final float MAX_MOVEMENT_STEP = 3.0f;
+
 	// List of all world entities
 	private List<Entity> entities;
 	
 	// World
 	private World world;
 	
+	// Broadphase used to find dynamic entities near a moving entity
+	// Static entities are found using the world's baked static geometry
+	private SpatialHash spatialHash;
+	
 	/**
 	 * Constructor.
 	 * @param entities list of all world entities
@@ -32,6 +41,47 @@ public class Physics {
 	public Physics(List<Entity> entities, World world) {
 		this.entities = entities;
 		this.world = world;
+		this.spatialHash = new SpatialHash(SpatialHash.DEFAULT_CELL_SIZE);
+	}
+
+	/**
+	 * Adds a registered dynamic entity to the collision broadphase.
+	 * @param entity the entity to add
+	 */
+	public void addEntity(Entity entity) {
+		this.spatialHash.add(entity);
+	}
+
+	/**
+	 * Removes a deleted dynamic entity from the collision broadphase.
+	 * @param entity the entity to remove
+	 */
+	public void removeEntity(Entity entity) {
+		this.spatialHash.remove(entity);
+	}
+
+	/**
+	 * Finds the dynamic entities that may overlap an area.
+	 * @param minX left of the area
+	 * @param minY bottom of the area
+	 * @param maxX right of the area
+	 * @param maxY top of the area
+	 * @return candidate entities, each entity once
+	 */
+	public List<Entity> getDynamicEntitiesInArea(float minX, float minY, float maxX, float maxY) {
+		return this.spatialHash.query(minX, minY, maxX, maxY);
+	}
+
+	/**
+	 * Called when an entity's position changes to keep the broadphase up to date.
+	 * @param entity the entity that moved
+	 */
+	public void onEntityMoved(Entity entity) {
+		if (entity.isStatic()) {
+			this.world.invalidateStaticGeometry();
+		} else {
+			this.spatialHash.update(entity);
+		}
 	}
 
 	public boolean intersectionCheck(Vector2f e1Pos, int e1Width, int e1Height, Vector2f e2Pos, int e2Width, int e2Height) {
@@ -45,7 +95,8 @@ public class Physics {
 	 */
 	public void update(int delta) {
 		synchronized (entities) {
-			for (Entity entity1 : entities) {
+			// Static entities never move
+			for (Entity entity1 : this.world.getDynamicEntities()) {
 				if (!entity1.isActive())
 					continue;
 				
@@ -98,9 +149,19 @@ public class Physics {
 		Vector2f ent1NewPosX = new Vector2f(startPosition);
 		Vector2f ent1NewPosY = new Vector2f(startPosition);
 
-		float MAX_MOVEMENT_STEP = 3.0f;
+		// Only entities near the path of the movement can be touched or collided with
+		int hashModificationCount = this.spatialHash.getModificationCount();
+		StaticGeometry staticGeometry = this.world.getStaticGeometry();
+		List<Entity> nearbyEntities = getEntitiesNear(entity, startPosition, velocity);
 	
 		while (velocity.length() > 0) {
+			// Touch events can move other entities, so look again if anything has changed
+			if (hashModificationCount != this.spatialHash.getModificationCount() || staticGeometry != this.world.getStaticGeometry()) {
+				hashModificationCount = this.spatialHash.getModificationCount();
+				staticGeometry = this.world.getStaticGeometry();
+				nearbyEntities = getEntitiesNear(entity, startPosition, velocity);
+			}
+
 			float dx = velocity.getX() >= 0 ? Math.min(velocity.getX(), MAX_MOVEMENT_STEP) : Math.max(velocity.getX(), -MAX_MOVEMENT_STEP);
 			float dy = velocity.getY() >= 0 ? Math.min(velocity.getY(), MAX_MOVEMENT_STEP) : Math.max(velocity.getY(), -MAX_MOVEMENT_STEP);
 			
@@ -108,7 +169,7 @@ public class Physics {
 			ent1NewPosY.translate(0, dy);
 			
 			// Check for touches and collisions
-			for (Entity entity2 : entities) {
+			for (Entity entity2 : nearbyEntities) {
 				if (entity == entity2)
 					continue;
 				
@@ -169,6 +230,51 @@ public class Physics {
 		return startPosition;
 	}
 
+	/**
+	 * Gets the entities whose bounding boxes may overlap an entity's bounding box
+	 * at any point while it moves from a start position by a velocity.
+	 * @param entity the moving entity
+	 * @param startPosition position the movement starts from
+	 * @param velocity the full movement for this update
+	 * @return candidate entities, in world entity list order
+	 */
+	private List<Entity> getEntitiesNear(Entity entity, Vector2f startPosition, Vector2f velocity) {
+		// Pad by one step to cover floating point error in the stepping
+		float halfWidth = entity.getBoundingBoxWidth() / 2.0f + MAX_MOVEMENT_STEP;
+		float halfHeight = entity.getBoundingBoxHeight() / 2.0f + MAX_MOVEMENT_STEP;
+
+		float endX = startPosition.getX() + velocity.getX();
+		float endY = startPosition.getY() + velocity.getY();
+
+		float minX = Math.min(startPosition.getX(), endX) - halfWidth;
+		float maxX = Math.max(startPosition.getX(), endX) + halfWidth;
+		float minY = Math.min(startPosition.getY(), endY) - halfHeight;
+		float maxY = Math.max(startPosition.getY(), endY) + halfHeight;
+
+		return getEntitiesIn(minX, minY, maxX, maxY);
+	}
+
+	/**
+	 * Gets the static and dynamic entities whose bounding boxes may overlap an area.
+	 * @param minX left of the area
+	 * @param minY bottom of the area
+	 * @param maxX right of the area
+	 * @param maxY top of the area
+	 * @return candidate entities, in world entity list order
+	 */
+	private List<Entity> getEntitiesIn(float minX, float minY, float maxX, float maxY) {
+		List<Entity> candidates = this.spatialHash.query(minX, minY, maxX, maxY);
+		int dynamicCount = candidates.size();
+
+		this.world.getStaticGeometry().query(minX, minY, maxX, maxY, candidates);
+
+		// Entity IDs are handed out in registration order, which is the world entity list order
+		if (candidates.size() > dynamicCount && candidates.size() > 1)
+			Collections.sort(candidates, ENTITY_ID_ORDER);
+
+		return candidates;
+	}
+
 	// Source: https://community.oracle.com/thread/1264395?start=0&tstart=0
 	public Point2D getIntersectionPoint(Line2D line1, Line2D line2) {
 		if (!line1.intersectsLine(line2))
@@ -215,7 +321,10 @@ public class Physics {
 		
 		ArrayList<EntityIntersectionInfo> intersectionInfoList = null;
 		
-		for (Entity e : this.world.getEntities()) {
+		// Only entities within the bounds of the line can intersect it
+		List<Entity> candidates = getEntitiesIn(Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2));
+		
+		for (Entity e : candidates) {
 			if (e.equals(ignore))
 				continue;
 			
@@ -267,4 +376,20 @@ public class Physics {
 		
 		return intersectionInfoList;
 	}
+
+	/**
+	 * Orders entities by ID.
+	 */
+	private static final Comparator<Entity> ENTITY_ID_ORDER = new Comparator<Entity>() {
+		@Override
+		public int compare(Entity e1, Entity e2) {
+			if (e1.getID() < e2.getID()) {
+				return -1;
+			} else if (e1.getID() > e2.getID()) {
+				return 1;
+			} else {
+				return 0;
+			}
+		}
+	};
 }
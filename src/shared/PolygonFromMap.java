@@ -29,6 +29,18 @@ public class PolygonFromMap extends Polygon {
 		this.setID(node.getAttribute("id"));
 	}
 
+	/**
+	 * Construct a polygon read from a compiled navmesh file
+	 * @param id The id of the polygon
+	 * @param vertices The vertices of the polygon
+	 */
+	public PolygonFromMap(String id, ArrayList<Vector2f> vertices) {
+		super(vertices);
+		calculateMinMaxFromVertices();
+		this.edgesConnectingNeighbours = new HashMap<Polygon, Edge>();
+		this.setID(id);
+	}
+
 	/**
 	 * Gets the list of nodes that are direct children of a given node, and have the specified tagname
 	 * @param node The node to look for vertice nodes under
@@ -0,0 +1,128 @@
+package shared;
+
+import org.lwjgl.util.vector.Vector2f;
+import java.util.ArrayList;
+
+/**
+ * A uniform grid over the bounding boxes of the navmesh polygons, used to find the polygon containing a point without testing every polygon
+ * @author Barney
+ */
+class PolygonGrid {
+	// The most cells the grid can have along each side
+	private static final int MAX_CELLS_PER_SIDE = 1024;
+
+	// The bottom left corner of the grid
+	private final float originX;
+	private final float originY;
+
+	// The width and height of each cell
+	private final float cellSize;
+
+	// The number of cells along each side
+	private final int columns;
+	private final int rows;
+
+	// The polygons whose bounding boxes overlap each cell, row by row, kept in navmesh order
+	private final Polygon[][] cells;
+
+	/**
+	 * Builds the grid over a list of polygons
+	 * The cell size is chosen so there are about as many cells as polygons
+	 * @param polygons The polygons to index, they must not change after the grid has been built
+	 */
+	public PolygonGrid(ArrayList<Polygon> polygons) {
+		// Work out the area covered by the polygons
+		float minX = Float.MAX_VALUE;
+		float minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE;
+		float maxY = -Float.MAX_VALUE;
+		for (Polygon p : polygons) {
+			minX = Math.min(minX, p.getLeft());
+			minY = Math.min(minY, p.getBottom());
+			maxX = Math.max(maxX, p.getRight());
+			maxY = Math.max(maxY, p.getTop());
+		}
+
+		if (polygons.isEmpty()) {
+			minX = minY = maxX = maxY = 0;
+		}
+
+		float width = Math.max(maxX - minX, 1);
+		float height = Math.max(maxY - minY, 1);
+
+		// Aim for about one polygon per cell, without letting either side get too many cells
+		float size = (float)Math.sqrt(width * height / Math.max(polygons.size(), 1));
+		size = Math.max(size, Math.max(width, height) / MAX_CELLS_PER_SIDE);
+
+		this.originX = minX;
+		this.originY = minY;
+		this.cellSize = size;
+		this.columns = (int)(width / size) + 1;
+		this.rows = (int)(height / size) + 1;
+
+		// Add each polygon to every cell its bounding box overlaps
+		ArrayList<ArrayList<Polygon>> cellLists = new ArrayList<ArrayList<Polygon>>(this.columns * this.rows);
+		for (int i = 0; i < this.columns * this.rows; i++) {
+			cellLists.add(new ArrayList<Polygon>());
+		}
+		for (Polygon p : polygons) {
+			int left = this.toColumn(p.getLeft());
+			int right = this.toColumn(p.getRight());
+			int bottom = this.toRow(p.getBottom());
+			int top = this.toRow(p.getTop());
+			for (int row = bottom; row <= top; row++) {
+				for (int column = left; column <= right; column++) {
+					cellLists.get(row * this.columns + column).add(p);
+				}
+			}
+		}
+
+		// Arrays are quicker to walk than lists when searching
+		this.cells = new Polygon[cellLists.size()][];
+		for (int i = 0; i < cellLists.size(); i++) {
+			this.cells[i] = cellLists.get(i).toArray(new Polygon[cellLists.get(i).size()]);
+		}
+	}
+
+	/**
+	 * Gets the polygon containing a position, only testing the polygons in the position's cell
+	 * The first containing polygon in navmesh order is returned, the same polygon a search of every polygon would find
+	 * @param position The position
+	 * @return The polygon containing the position, or null if no polygon contains it
+	 */
+	public Polygon getPolygonContaining(Vector2f position) {
+		float x = (position.getX() - this.originX) / this.cellSize;
+		float y = (position.getY() - this.originY) / this.cellSize;
+
+		// Points outside the grid can't be in any of the polygons
+		if (x < 0 || y < 0 || x >= this.columns || y >= this.rows) {
+			return null;
+		}
+
+		for (Polygon p : this.cells[(int)y * this.columns + (int)x]) {
+			if (p.contains(position)) {
+				return p;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Works out the column containing an x coordinate, clamped to the grid
+	 * @param x The x coordinate
+	 * @return The column
+	 */
+	private int toColumn(float x) {
+		return Math.max(0, Math.min(this.columns - 1, (int)((x - this.originX) / this.cellSize)));
+	}
+
+	/**
+	 * Works out the row containing a y coordinate, clamped to the grid
+	 * @param y The y coordinate
+	 * @return The row
+	 */
+	private int toRow(float y) {
+		return Math.max(0, Math.min(this.rows - 1, (int)((y - this.originY) / this.cellSize)));
+	}
+}
@@ -0,0 +1,129 @@
+package shared;
+
+/**
+ * A binary min heap of polygon indices, ordered by their f scores, that can lower the score of a polygon already in the heap
+ * Used as the open set of the A* search, it never allocates once it has been created
+ * @author Barney
+ */
+class PolygonHeap {
+	// The polygon indices in heap order
+	private final int[] heap;
+
+	// The position of each polygon in the heap, only valid while the polygon is in the heap
+	private final int[] positions;
+
+	// The f score of each polygon, shared with the search that owns the heap
+	private final float[] f;
+
+	// The number of polygons in the heap
+	private int size = 0;
+
+	/**
+	 * Constructor
+	 * @param f The f scores the polygons are ordered by, one for every polygon in the navmesh
+	 */
+	public PolygonHeap(float[] f) {
+		this.heap = new int[f.length];
+		this.positions = new int[f.length];
+		this.f = f;
+	}
+
+	/**
+	 * Removes every polygon from the heap
+	 */
+	public void clear() {
+		this.size = 0;
+	}
+
+	/**
+	 * Checks whether the heap is empty
+	 * @return True if there are no polygons in the heap
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Adds a polygon to the heap, its f score must already be set
+	 * @param polygon The index of the polygon, it must not already be in the heap
+	 */
+	public void add(int polygon) {
+		this.heap[this.size] = polygon;
+		this.positions[polygon] = this.size;
+		this.size++;
+		this.siftUp(this.size - 1);
+	}
+
+	/**
+	 * Moves a polygon towards the top of the heap after its f score has been lowered
+	 * @param polygon The index of the polygon, it must be in the heap
+	 */
+	public void decreaseKey(int polygon) {
+		this.siftUp(this.positions[polygon]);
+	}
+
+	/**
+	 * Removes the polygon with the lowest f score from the heap
+	 * @return The index of the polygon
+	 */
+	public int poll() {
+		int top = this.heap[0];
+		this.size--;
+		if (this.size > 0) {
+			this.place(this.heap[this.size], 0);
+			this.siftDown(0);
+		}
+		return top;
+	}
+
+	/**
+	 * Moves the polygon at a position up the heap until its parent has a lower or equal f score
+	 * @param position The position in the heap
+	 */
+	private void siftUp(int position) {
+		int polygon = this.heap[position];
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			if (this.f[this.heap[parent]] <= this.f[polygon]) {
+				break;
+			}
+			this.place(this.heap[parent], position);
+			position = parent;
+		}
+		this.place(polygon, position);
+	}
+
+	/**
+	 * Moves the polygon at a position down the heap until both its children have higher or equal f scores
+	 * @param position The position in the heap
+	 */
+	private void siftDown(int position) {
+		int polygon = this.heap[position];
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= this.size) {
+				break;
+			}
+			// Pick the child with the lower score
+			if (child + 1 < this.size && this.f[this.heap[child + 1]] < this.f[this.heap[child]]) {
+				child++;
+			}
+			if (this.f[polygon] <= this.f[this.heap[child]]) {
+				break;
+			}
+			this.place(this.heap[child], position);
+			position = child;
+		}
+		this.place(polygon, position);
+	}
+
+	/**
+	 * Puts a polygon at a position in the heap and remembers where it is
+	 * @param polygon The index of the polygon
+	 * @param position The position in the heap
+	 */
+	private void place(int polygon, int position) {
+		this.heap[position] = polygon;
+		this.positions[polygon] = position;
+	}
+}
@@ -0,0 +1,46 @@
+package shared;
+
+/**
+ * A start and goal polygon, used as the key of the navmesh path cache
+ * @author Barney
+ */
+class PolygonPair {
+	// The polygon the path starts in
+	private final Polygon start;
+
+	// The polygon the path ends in
+	private final Polygon goal;
+
+	/**
+	 * Constructor
+	 * @param start The polygon the path starts in
+	 * @param goal The polygon the path ends in
+	 */
+	public PolygonPair(Polygon start, Polygon goal) {
+		this.start = start;
+		this.goal = goal;
+	}
+
+	/**
+	 * Checks whether an object is equal to this pair, it is equal when it holds the same polygons in the same order
+	 * @param obj The object to check for equality with
+	 * @return True if the other object is a PolygonPair of the same polygons and false otherwise
+	 */
+	public boolean equals(Object obj) {
+		if (obj instanceof PolygonPair) {
+			PolygonPair otherPair = (PolygonPair)obj;
+			// The polygons of a navmesh are never copied, so they can be compared by reference
+			return otherPair.start == this.start && otherPair.goal == this.goal;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Builds a hashcode from the two polygons
+	 * @return Returns a hashcode, a code that identifies this object
+	 */
+	public int hashCode() {
+		return 31 * System.identityHashCode(this.start) + System.identityHashCode(this.goal);
+	}
+}
@@ -0,0 +1,107 @@
+package shared;
+
+import java.util.Arrays;
+
+/**
+ * A precomputed table of the shortest routes between every pair of navmesh polygons
+ * For each (from, to) pair it stores the next polygon to move to and the length of the route, so finding a path is a walk along the table
+ * The table grows with the square of the number of polygons, so it is only built for small navmeshes
+ * @author Barney
+ */
+class RoutingTable {
+	// Marks a pair of polygons with no route between them
+	private static final short NO_ROUTE = -1;
+
+	// The number of polygons in the navmesh
+	private final int size;
+
+	// The next polygon on the route from each polygon to each other polygon, row by row, NO_ROUTE if there isn't one
+	private final short[] nextHop;
+
+	// The length of the route from each polygon to each other polygon, row by row, infinite if there isn't one
+	private final float[] distance;
+
+	/**
+	 * Builds the table using the Floyd-Warshall algorithm
+	 * Moving between neighbours costs the distance from the centre of one polygon, through the midpoint of their connecting edge, to the centre of the other
+	 * @param neighbourIndices The indices of each polygon's neighbours, for at most Short.MAX_VALUE polygons
+	 * @param edgeMidPointsX The x coordinates of the midpoints of the edges connecting each polygon to its neighbours
+	 * @param edgeMidPointsY The y coordinates of the midpoints of the edges connecting each polygon to its neighbours
+	 * @param centresX The x coordinates of the polygon centres
+	 * @param centresY The y coordinates of the polygon centres
+	 */
+	public RoutingTable(int[][] neighbourIndices, float[][] edgeMidPointsX, float[][] edgeMidPointsY, float[] centresX, float[] centresY) {
+		int n = neighbourIndices.length;
+		this.size = n;
+		this.nextHop = new short[n * n];
+		this.distance = new float[n * n];
+		Arrays.fill(this.nextHop, NO_ROUTE);
+		Arrays.fill(this.distance, Float.POSITIVE_INFINITY);
+
+		// Start with the routes to each polygon itself and to its neighbours
+		for (int i = 0; i < n; i++) {
+			this.distance[i * n + i] = 0;
+			this.nextHop[i * n + i] = (short)i;
+			for (int k = 0; k < neighbourIndices[i].length; k++) {
+				int j = neighbourIndices[i][k];
+				float cost = length(centresX[i], centresY[i], edgeMidPointsX[i][k], edgeMidPointsY[i][k])
+						+ length(edgeMidPointsX[i][k], edgeMidPointsY[i][k], centresX[j], centresY[j]);
+				if (cost < this.distance[i * n + j]) {
+					this.distance[i * n + j] = cost;
+					this.nextHop[i * n + j] = (short)j;
+				}
+			}
+		}
+
+		// Allow each polygon in turn to be a stop along the routes
+		for (int via = 0; via < n; via++) {
+			for (int from = 0; from < n; from++) {
+				float toVia = this.distance[from * n + via];
+				if (toVia == Float.POSITIVE_INFINITY) {
+					continue;
+				}
+				for (int to = 0; to < n; to++) {
+					float throughVia = toVia + this.distance[via * n + to];
+					if (throughVia < this.distance[from * n + to]) {
+						this.distance[from * n + to] = throughVia;
+						this.nextHop[from * n + to] = this.nextHop[from * n + via];
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the next polygon to move to on the route between two polygons
+	 * @param from The index of the polygon the route starts from
+	 * @param to The index of the polygon the route goes to
+	 * @return The index of the next polygon, to itself if the polygons are the same, or -1 if there is no route
+	 */
+	public int getNextHop(int from, int to) {
+		return this.nextHop[from * this.size + to];
+	}
+
+	/**
+	 * Gets the length of the route between two polygons, measured between the polygon centres
+	 * @param from The index of the polygon the route starts from
+	 * @param to The index of the polygon the route goes to
+	 * @return The length of the route, or Float.POSITIVE_INFINITY if there is no route
+	 */
+	public float getDistance(int from, int to) {
+		return this.distance[from * this.size + to];
+	}
+
+	/**
+	 * Calculates the length of the straight line between two points
+	 * @param x1 The x coordinate of the first point
+	 * @param y1 The y coordinate of the first point
+	 * @param x2 The x coordinate of the second point
+	 * @param y2 The y coordinate of the second point
+	 * @return The length of the line
+	 */
+	private static float length(float x1, float y1, float x2, float y2) {
+		float dx = x2 - x1;
+		float dy = y2 - y1;
+		return (float)Math.sqrt(dx * dx + dy * dy);
+	}
+}
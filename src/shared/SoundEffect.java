@@ -0,0 +1,12 @@
+package shared;
+
+/**
+ * Sound effects played for game events.
+ * @author Chris
+ *
+ */
+public enum SoundEffect {
+	GUN_SHOT,
+	DEATH,
+	ANIMAL
+}
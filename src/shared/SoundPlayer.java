@@ -0,0 +1,17 @@
+package shared;
+
+/**
+ * Plays sound effects for a world.
+ * Only clients have a sound player, so the server never loads the audio library.
+ * @author Chris
+ *
+ */
+public interface SoundPlayer {
+
+	/**
+	 * Plays a sound effect once.
+	 * @param effect the sound effect
+	 */
+	public void play(SoundEffect effect);
+
+}
@@ -0,0 +1,303 @@
+package shared;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Uniform grid spatial hash used as the broadphase for physics.
+ * Each entity is stored in every cell its bounding box overlaps.
+ * Cell membership is updated incrementally when an entity moves,
+ * so only entities whose cell range changed touch the grid.
+ * @author Chris
+ *
+ */
+public class SpatialHash {
+
+	// Default width and height of a grid cell in world units
+	public static final int DEFAULT_CELL_SIZE = 128;
+
+	// Width and height of a grid cell
+	private final int cellSize;
+
+	// Entities stored in each cell, keyed by packed cell coordinates
+	private final HashMap<Long, ArrayList<Entry>> cells = new HashMap<Long, ArrayList<Entry>>();
+
+	// Grid entry for each entity in the hash
+	private final HashMap<Entity, Entry> entries = new HashMap<Entity, Entry>();
+
+	// Used to return query results in the order entities were added
+	private long nextInsertionOrder = 0;
+
+	// Incremented whenever an entity is added, removed or changes cells
+	private int modificationCount = 0;
+
+	/**
+	 * Constructor.
+	 * @param cellSize width and height of a grid cell
+	 */
+	public SpatialHash(int cellSize) {
+		if (cellSize <= 0)
+			throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * Adds an entity to the hash using its current bounding box.
+	 * @param entity entity to add
+	 */
+	public synchronized void add(Entity entity) {
+		if (this.entries.containsKey(entity))
+			return;
+
+		Entry entry = new Entry(entity, this.nextInsertionOrder++);
+		setEntryBounds(entry);
+
+		this.entries.put(entity, entry);
+		insertEntry(entry);
+
+		this.modificationCount++;
+	}
+
+	/**
+	 * Removes an entity from the hash.
+	 * @param entity entity to remove
+	 */
+	public synchronized void remove(Entity entity) {
+		Entry entry = this.entries.remove(entity);
+
+		if (entry != null) {
+			removeEntry(entry);
+
+			this.modificationCount++;
+		}
+	}
+
+	/**
+	 * Updates the cells an entity is stored in after it has moved.
+	 * Does nothing if the entity is still in the same cells or isn't in the hash.
+	 * @param entity entity that moved
+	 */
+	public synchronized void update(Entity entity) {
+		Entry entry = this.entries.get(entity);
+
+		if (entry == null)
+			return;
+
+		int minCellX = entry.minCellX;
+		int minCellY = entry.minCellY;
+		int maxCellX = entry.maxCellX;
+		int maxCellY = entry.maxCellY;
+
+		setEntryBounds(entry);
+
+		if (entry.minCellX == minCellX && entry.minCellY == minCellY && entry.maxCellX == maxCellX && entry.maxCellY == maxCellY)
+			return;
+
+		// Move the entry from its old cells to its new cells
+		removeEntryFromCells(entry, minCellX, minCellY, maxCellX, maxCellY);
+		insertEntry(entry);
+
+		this.modificationCount++;
+	}
+
+	/**
+	 * Finds the entities whose cells overlap an area.
+	 * Results contain each entity once, in the order the entities were added.
+	 * @param minX left of the area
+	 * @param minY bottom of the area
+	 * @param maxX right of the area
+	 * @param maxY top of the area
+	 * @return candidate entities that may overlap the area
+	 */
+	public synchronized List<Entity> query(float minX, float minY, float maxX, float maxY) {
+		ArrayList<Entry> found = new ArrayList<Entry>();
+
+		int minCellX = toCell(minX);
+		int minCellY = toCell(minY);
+		int maxCellX = toCell(maxX);
+		int maxCellY = toCell(maxY);
+
+		for (int cx = minCellX; cx <= maxCellX; cx++) {
+			for (int cy = minCellY; cy <= maxCellY; cy++) {
+				ArrayList<Entry> cell = this.cells.get(cellKey(cx, cy));
+
+				if (cell != null)
+					found.addAll(cell);
+			}
+		}
+
+		// Keep the same ordering as the world entity list and drop entities found in several cells
+		Collections.sort(found, ENTRY_ORDER);
+
+		ArrayList<Entity> result = new ArrayList<Entity>(found.size());
+		Entry previous = null;
+
+		for (Entry entry : found) {
+			if (entry != previous)
+				result.add(entry.entity);
+
+			previous = entry;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Removes all entities from the hash.
+	 */
+	public synchronized void clear() {
+		this.cells.clear();
+		this.entries.clear();
+
+		this.modificationCount++;
+	}
+
+	/**
+	 * Gets a counter that changes whenever the contents of the hash change.
+	 * Used to tell whether earlier query results may be out of date.
+	 * @return modification count
+	 */
+	public synchronized int getModificationCount() {
+		return this.modificationCount;
+	}
+
+	/**
+	 * Gets the number of entities in the hash.
+	 * @return entity count
+	 */
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Gets the width and height of a grid cell.
+	 * @return cell size
+	 */
+	public int getCellSize() {
+		return this.cellSize;
+	}
+
+	/**
+	 * Works out the cell range covered by an entry's entity bounding box.
+	 * @param entry the entry to update
+	 */
+	private void setEntryBounds(Entry entry) {
+		Entity entity = entry.entity;
+		float halfWidth = entity.getBoundingBoxWidth() / 2.0f;
+		float halfHeight = entity.getBoundingBoxHeight() / 2.0f;
+
+		entry.minCellX = toCell(entity.getX() - halfWidth);
+		entry.minCellY = toCell(entity.getY() - halfHeight);
+		entry.maxCellX = toCell(entity.getX() + halfWidth);
+		entry.maxCellY = toCell(entity.getY() + halfHeight);
+	}
+
+	/**
+	 * Adds an entry to every cell in its cell range.
+	 * @param entry the entry to insert
+	 */
+	private void insertEntry(Entry entry) {
+		for (int cx = entry.minCellX; cx <= entry.maxCellX; cx++) {
+			for (int cy = entry.minCellY; cy <= entry.maxCellY; cy++) {
+				Long key = cellKey(cx, cy);
+				ArrayList<Entry> cell = this.cells.get(key);
+
+				if (cell == null) {
+					cell = new ArrayList<Entry>(4);
+					this.cells.put(key, cell);
+				}
+
+				cell.add(entry);
+			}
+		}
+	}
+
+	/**
+	 * Removes an entry from every cell in its cell range.
+	 * @param entry the entry to remove
+	 */
+	private void removeEntry(Entry entry) {
+		removeEntryFromCells(entry, entry.minCellX, entry.minCellY, entry.maxCellX, entry.maxCellY);
+	}
+
+	/**
+	 * Removes an entry from every cell in a cell range.
+	 * @param entry the entry to remove
+	 * @param minCellX left cell of the range
+	 * @param minCellY bottom cell of the range
+	 * @param maxCellX right cell of the range
+	 * @param maxCellY top cell of the range
+	 */
+	private void removeEntryFromCells(Entry entry, int minCellX, int minCellY, int maxCellX, int maxCellY) {
+		for (int cx = minCellX; cx <= maxCellX; cx++) {
+			for (int cy = minCellY; cy <= maxCellY; cy++) {
+				Long key = cellKey(cx, cy);
+				ArrayList<Entry> cell = this.cells.get(key);
+
+				if (cell == null)
+					continue;
+
+				cell.remove(entry);
+
+				if (cell.isEmpty())
+					this.cells.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Converts a world coordinate to a cell coordinate.
+	 * @param v world coordinate
+	 * @return cell coordinate
+	 */
+	private int toCell(float v) {
+		return (int)Math.floor(v / this.cellSize);
+	}
+
+	/**
+	 * Packs two cell coordinates into a single key.
+	 * @param cx cell x coordinate
+	 * @param cy cell y coordinate
+	 * @return cell key
+	 */
+	private static Long cellKey(int cx, int cy) {
+		return Long.valueOf(((long)cx << 32) | (cy & 0xffffffffL));
+	}
+
+	/**
+	 * An entity stored in the hash along with the cells it covers.
+	 */
+	private static class Entry {
+		private final Entity entity;
+		private final long insertionOrder;
+		private int minCellX;
+		private int minCellY;
+		private int maxCellX;
+		private int maxCellY;
+
+		private Entry(Entity entity, long insertionOrder) {
+			this.entity = entity;
+			this.insertionOrder = insertionOrder;
+		}
+	}
+
+	/**
+	 * Orders entries by the order they were added to the hash.
+	 */
+	private static final Comparator<Entry> ENTRY_ORDER = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry e1, Entry e2) {
+			if (e1.insertionOrder < e2.insertionOrder) {
+				return -1;
+			} else if (e1.insertionOrder > e2.insertionOrder) {
+				return 1;
+			} else {
+				return 0;
+			}
+		}
+	};
+}
@@ -0,0 +1,125 @@
+package shared;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable collision data for the static entities of a map.
+ * Bounding boxes are baked into flat arrays sorted by their left edge
+ * so area queries can binary search to the first candidate and scan
+ * forward through contiguous memory.
+ * @author Chris
+ *
+ */
+public class StaticGeometry {
+
+	// Static entities sorted by the left edge of their bounding boxes
+	private final Entity[] entities;
+
+	// Bounding boxes of the entities, in the same order
+	private final float[] minX;
+	private final float[] minY;
+	private final float[] maxX;
+	private final float[] maxY;
+
+	// Width of the widest bounding box, used to bound the search
+	private final float maxWidth;
+
+	/**
+	 * Bakes the bounding boxes of a list of static entities.
+	 * @param staticEntities the entities to bake
+	 */
+	public StaticGeometry(List<Entity> staticEntities) {
+		Entity[] sorted = staticEntities.toArray(new Entity[staticEntities.size()]);
+		Arrays.sort(sorted, LEFT_EDGE_ORDER);
+
+		int count = sorted.length;
+		this.entities = sorted;
+		this.minX = new float[count];
+		this.minY = new float[count];
+		this.maxX = new float[count];
+		this.maxY = new float[count];
+
+		float widest = 0.0f;
+
+		for (int i = 0; i < count; i++) {
+			Entity e = sorted[i];
+			float halfWidth = e.getBoundingBoxWidth() / 2.0f;
+			float halfHeight = e.getBoundingBoxHeight() / 2.0f;
+
+			this.minX[i] = e.getX() - halfWidth;
+			this.maxX[i] = e.getX() + halfWidth;
+			this.minY[i] = e.getY() - halfHeight;
+			this.maxY[i] = e.getY() + halfHeight;
+
+			widest = Math.max(widest, this.maxX[i] - this.minX[i]);
+		}
+
+		this.maxWidth = widest;
+	}
+
+	/**
+	 * Finds the static entities whose bounding boxes overlap an area.
+	 * Touching edges count as overlapping, matching the physics intersection check.
+	 * @param qMinX left of the area
+	 * @param qMinY bottom of the area
+	 * @param qMaxX right of the area
+	 * @param qMaxY top of the area
+	 * @param result list the overlapping entities are added to
+	 */
+	public void query(float qMinX, float qMinY, float qMaxX, float qMaxY, List<Entity> result) {
+		// No box can start further left than this and still reach the area
+		int i = firstIndexWithMinXAtLeast(qMinX - this.maxWidth);
+
+		for (; i < this.entities.length && this.minX[i] <= qMaxX; i++) {
+			if (this.maxX[i] < qMinX || this.maxY[i] < qMinY || this.minY[i] > qMaxY)
+				continue;
+
+			result.add(this.entities[i]);
+		}
+	}
+
+	/**
+	 * Gets the number of baked entities.
+	 * @return entity count
+	 */
+	public int size() {
+		return this.entities.length;
+	}
+
+	/**
+	 * Binary searches for the first box whose left edge is at or after a value.
+	 * @param x the value to search for
+	 * @return index of the first matching box, or the box count if there are none
+	 */
+	private int firstIndexWithMinXAtLeast(float x) {
+		int low = 0;
+		int high = this.entities.length;
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (this.minX[mid] < x) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Orders entities by the left edge of their bounding boxes.
+	 */
+	private static final Comparator<Entity> LEFT_EDGE_ORDER = new Comparator<Entity>() {
+		@Override
+		public int compare(Entity e1, Entity e2) {
+			float left1 = e1.getX() - e1.getBoundingBoxWidth() / 2.0f;
+			float left2 = e2.getX() - e2.getBoundingBoxWidth() / 2.0f;
+
+			return Float.compare(left1, left2);
+		}
+	};
+}
@@ -4,10 +4,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 
 import org.lwjgl.util.vector.Vector2f;
-import org.newdawn.slick.Color;
 
 import server.ServerWorld;
-import shared.GUI.Components.Label;
 import shared.entities.FlagCaptureRegion;
 import shared.entities.Player;
 import shared.net.NetworkedEntity;
@@ -20,10 +18,6 @@ import client.ClientWorld;
  *
  */
 public class Team {	
-	private static final int TEAM_LABELS_ORIGIN_X = 30;
-	private static final int TEAM_LABELS_ORIGIN_Y = 0;
-	private static final int TEAM_LABELS_SPACING_Y = 30;
-	
 	private World world;
 	
 	private int teamID;
@@ -31,7 +25,6 @@ public class Team {
 	private ArrayList<Player> players;
 	//private ArrayList<Score> teamScore;
 	private int teamScore;
-	private Label scoreLabel;
 	private int labelXPos;
 	private int labelYPos;
 	private String scoreLabelText;
@@ -69,12 +62,6 @@ public class Team {
 		return new Vector2f(this.spawnpoint);
 	}
 	
-	public void createScoreLabel(int xPos, int yPos) {
-		
-		scoreLabel = new Label(world.getGameWindow(), xPos, yPos, getTeamName() + ": " + getTeamScore(), Color.white, 16f);
-
-	}
-	
 	/**
 	 * Return an ArrayList of the team players
 	 * @return Return an ArrayList of the team players
@@ -190,14 +177,12 @@ public class Team {
 		this.teamName = teamName;
 	}
 
-	public Label getScoreLabel() {
-		if (scoreLabel == null) {
-			createScoreLabel(TEAM_LABELS_ORIGIN_X, TEAM_LABELS_ORIGIN_Y+teamID*TEAM_LABELS_SPACING_Y);
-		}
-		
-		scoreLabel.setLabelText(scoreLabelText);
-		
-		return scoreLabel;
+	/**
+	 * Gets the text shown on the team's score label
+	 * @return	the team name and score
+	 */
+	public String getScoreText() {
+		return scoreLabelText;
 	}
 	
 	public int getID() {
@@ -25,6 +25,19 @@ public abstract class World {
 	// World entities
 	protected List<Entity> entities = Collections.synchronizedList(new ArrayList<Entity>());
 
+	// Partitions of the world entities
+	// Guarded by the entities list lock
+	protected ArrayList<Entity> staticEntities = new ArrayList<Entity>();
+	protected ArrayList<Entity> dynamicEntities = new ArrayList<Entity>();
+
+	// World entities indexed by ID
+	// Guarded by the entities list lock
+	protected EntityIDMap entitiesByID = new EntityIDMap();
+
+	// Baked collision data for the static entities
+	// Rebuilt on next use when static entities are added or removed
+	private StaticGeometry staticGeometry;
+
 	// Entities to be deleted
 	// Deletion cannot happen on update
 	// as entities are being iterated through
@@ -36,6 +49,9 @@ public abstract class World {
 	// Player teams
 	protected ArrayList<Team> teams = new ArrayList<Team>();
 
+	// Plays sound effects, null if the world has no audio
+	protected SoundPlayer soundPlayer;
+
 	public abstract boolean isClient();
 	
 	public abstract boolean isServer();
@@ -72,6 +88,19 @@ public abstract class World {
 			
 				entity.setValid(false);
 				entities.remove(entity);
+				entitiesByID.remove(entity);
+				
+				if (entity.isStatic()) {
+					
+					staticEntities.remove(entity);
+					invalidateStaticGeometry();
+					
+				} else {
+					
+					dynamicEntities.remove(entity);
+					physics.removeEntity(entity);
+					
+				}
 				
 			}
 			
@@ -80,6 +109,60 @@ public abstract class World {
 		deadEntities.clear();
 	}
 	
+	/**
+	 * Adds an entity to the world entity list and its static or dynamic partition.
+	 * @param entity entity to add
+	 */
+	protected void addEntity(Entity entity) {
+		
+		synchronized (this.entities) {
+			
+			this.entities.add(entity);
+			this.entitiesByID.put(entity);
+			
+			if (entity.isStatic()) {
+				
+				this.staticEntities.add(entity);
+				invalidateStaticGeometry();
+				
+			} else {
+				
+				this.dynamicEntities.add(entity);
+				this.physics.addEntity(entity);
+				
+			}
+			
+		}
+		
+	}
+	
+	/**
+	 * Bakes the static entities into collision data.
+	 * Called once the map has loaded.
+	 */
+	public void bakeStaticGeometry() {
+		
+		synchronized (this.entities) {
+			
+			this.staticGeometry = new StaticGeometry(this.staticEntities);
+			
+		}
+		
+	}
+	
+	/**
+	 * Marks the baked static collision data as out of date.
+	 */
+	public void invalidateStaticGeometry() {
+		
+		synchronized (this.entities) {
+			
+			this.staticGeometry = null;
+			
+		}
+		
+	}
+	
 	/**
 	 * Adds a team to the list of teams.
 	 * @param team team to add
@@ -138,6 +221,17 @@ public abstract class World {
 		
 	}
 	
+	/**
+	 * Plays a sound effect if the world has audio.
+	 * @param effect the sound effect
+	 */
+	public void playSoundEffect(SoundEffect effect) {
+		
+		if (this.soundPlayer != null)
+			this.soundPlayer.play(effect);
+		
+	}
+	
 	/**
 	 * Gets the game window containing the world.
 	 * @return game window
@@ -160,15 +254,9 @@ public abstract class World {
 		
 		synchronized (this.entities) {
 		
-			for (Entity entity : this.entities) {
-			
-				if (entity.getID() == id)
-					return entity;
-			}
+			return this.entitiesByID.get(id);
 			
 		}
-			
-		return null;
 		
 	}
 	
@@ -210,4 +298,44 @@ public abstract class World {
 		
 	}
 	
+	/**
+	 * Gets the static world entities, i.e. map geometry that never moves.
+	 * Hold the getEntities() lock while iterating.
+	 * @return static world entities
+	 */
+	public List<Entity> getStaticEntities() {
+		
+		return this.staticEntities;
+		
+	}
+	
+	/**
+	 * Gets the dynamic world entities, i.e. entities that move or update.
+	 * Hold the getEntities() lock while iterating.
+	 * @return dynamic world entities
+	 */
+	public List<Entity> getDynamicEntities() {
+		
+		return this.dynamicEntities;
+		
+	}
+	
+	/**
+	 * Gets the baked collision data for the static entities.
+	 * Bakes it first if static entities have changed since it was last baked.
+	 * @return static collision data
+	 */
+	public StaticGeometry getStaticGeometry() {
+		
+		synchronized (this.entities) {
+			
+			if (this.staticGeometry == null)
+				bakeStaticGeometry();
+			
+			return this.staticGeometry;
+			
+		}
+		
+	}
+	
 }
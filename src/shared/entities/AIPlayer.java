@@ -5,11 +5,14 @@ import java.io.IOException;
 
 import org.lwjgl.util.vector.Vector2f;
 
+import server.PathfindingService;
+import server.ServerWorld;
 import shared.World;
 import shared.net.NetworkedEntity;
 import client.WorldView;
 
 import java.util.ArrayList;
+import shared.FlowField;
 import shared.Polygon;
 import shared.MapFile;
 import shared.NavMesh;
@@ -19,12 +22,15 @@ import shared.NavMesh;
  * @author Chris, Barney
  *
  */
-public class AIPlayer extends Player {	
+public class AIPlayer extends Player implements PathfindingService.Agent {	
 	private NetworkedEntity goalFlag;
 	
 	private long lastUpdateTime = 0;
 	private final long UPDATE_INTERVAL = 300;
 
+	// How close to a corner counts as standing on it, the AI then heads for the corner after it instead
+	private final float CORNER_REACHED_DISTANCE = 1.0f;
+
 	// The last path generated by the AI's pathfinding algorithm
 	private ArrayList<Vector2f> path;
 
@@ -41,6 +47,23 @@ public class AIPlayer extends Player {
 	private Polygon expectedNextPolygon;
 
 	private ArrayList<Polygon> expectedPolygonPath;
+
+	// The corner the AI is heading for, the velocity only changes once it heads for another one
+	private Vector2f headingPoint;
+
+	// Whether a path has been asked for and not found yet
+	private boolean awaitingPath = false;
+
+	// Where the AI is heading this tick, worked out in computeIntent and used by update
+	private boolean hasIntent = false;
+	private Vector2f intentGoalPosition;
+	private Polygon intentAIPolygon;
+	private Polygon intentGoalPolygon;
+	private FlowField intentFlowField;
+
+	// Whether the AI steers using the flow field to its goal, which is shared with every AI heading the same way,
+	// rather than asking for a path of its own
+	private boolean useFlowField = true;
 	
 	public AIPlayer(World world, int x, int y, Flag goalFlag, MapFile mapFile) {
 		super(world, x, y);
@@ -74,6 +97,45 @@ public class AIPlayer extends Player {
 		this.goalFlag.writeToNetStream(out);
 	}
 
+	/**
+	 * Finds the navmesh polygons the AI and its goal are in.
+	 * This is the costly part of deciding where to move, and only reads the world,
+	 * so it is done here in parallel with the other entities.
+	 */
+	@Override
+	public void computeIntent(int delta) {
+		
+		this.hasIntent = false;
+		
+		World thisWorld = this.getWorld();
+		
+		if (this.getIsDead() || thisWorld.isClient())
+			return;
+		
+		if (thisWorld.getTime() - this.lastUpdateTime < UPDATE_INTERVAL)
+			return;
+		
+		locateGoal();
+		
+		this.hasIntent = true;
+	}
+	
+	/**
+	 * Works out the goal position and the navmesh polygons containing the AI and the goal.
+	 */
+	private void locateGoal() {
+		if (heldFlag.get() == null) {
+			this.intentGoalPosition = this.goalFlag.get().getPosition();
+		} else {
+			this.intentGoalPosition = this.getTeam().getFlagCaptureRegion().getPosition();
+		}
+
+		NavMesh navMesh = this.getMapFile().getNavMesh();
+		this.intentAIPolygon = navMesh.getPolygonContaining(this.getPosition());
+		this.intentGoalPolygon = navMesh.getPolygonContaining(this.intentGoalPosition);
+		this.intentFlowField = this.useFlowField ? navMesh.getFlowField(this.intentGoalPosition) : null;
+	}
+
 	@Override
 	public void update(int delta) {		
 		
@@ -81,6 +143,10 @@ public class AIPlayer extends Player {
 		
 		World thisWorld = this.getWorld();
 		
+		// Intents only last for the tick they were computed in
+		boolean hasIntent = this.hasIntent;
+		this.hasIntent = false;
+		
 		if (this.getIsDead())
 			return;
 		
@@ -91,10 +157,13 @@ public class AIPlayer extends Player {
 			return;
 		
 		this.lastUpdateTime = thisWorld.getTime();
+		
+		// The intent is missing if the AI has just respawned, or the world didn't compute intents
+		if (!hasIntent)
+			locateGoal();
 
-		// final because they are used with threads below
-		final Vector2f aiPosition = this.getPosition();
-		final Vector2f goalPosition;
+		Vector2f aiPosition = this.getPosition();
+		Vector2f goalPosition = this.intentGoalPosition;
 
 		Flag goalFlag = (Flag)this.goalFlag.get();
 		Player flagHolder = goalFlag.getFlagHolder();
@@ -107,16 +176,9 @@ public class AIPlayer extends Player {
 			}
 		}
 
-		if (heldFlag.get() == null) {
-			goalPosition = this.goalFlag.get().getPosition();
-		} else {
-			goalPosition = this.getTeam().getFlagCaptureRegion().getPosition();
-		}
-
 		// First we check whether we are in the same navmesh polygon as the goal, if so then we don't need to do any complex pathfinding
-		NavMesh navMesh = this.getMapFile().getNavMesh();
-		Polygon aiPolygon = navMesh.getPolygonContaining(aiPosition);
-		Polygon goalPolygon = navMesh.getPolygonContaining(goalPosition);
+		Polygon aiPolygon = this.intentAIPolygon;
+		Polygon goalPolygon = this.intentGoalPolygon;
 		if (aiPolygon.equals(goalPolygon)) {
 			// Simply work out the shortest path, because we are in the same convex polygon as the goal we can get to it using a straight line
 			Vector2f movementVector = new Vector2f(goalPosition.getX()-aiPosition.getX(), goalPosition.getY()-aiPosition.getY());
@@ -125,26 +187,27 @@ public class AIPlayer extends Player {
 				movementVector.scale(this.getSpeed());
 			}
 			this.setVelocity(movementVector);
+			this.headingPoint = null;
 			
 			// Set the path to null to clear any old paths
 			if (this.getPath() != null) {
 				this.setPath(null);
 			}
 		}
+		// Head for the next portal towards the goal, the flow field is shared so there is no path to wait for
+		else if (this.useFlowField) {
+			this.steerAlongFlowField(aiPolygon);
+		}
 		// If there is no path to follow, or the path has become invalid, we need to calculate a new path
-		else if (this.getPath() == null || !this.oldGoalPolygon.equals(goalPolygon)) {
+		else if ((this.getPath() == null && !this.awaitingPath) || !this.oldGoalPolygon.equals(goalPolygon)) {
 			// Store the old polygon so that we know when we need to update the path
 			// Also stop the player from moving so that we don't change the start position
 			this.oldGoalPolygon = goalPolygon;
 			this.setVelocity(new Vector2f(0.0f, 0.0f));
 
-			// Start a new thread to calculate the new path
-			(new Thread(new Runnable() {
-				public void run() {
-					ArrayList<Vector2f> newPath = calculateNewPath(aiPosition, goalPosition);
-					setPath(newPath);
-				}
-			})).start();
+			// Ask the world's pathfinding workers for the new path, replacing any older request
+			((ServerWorld)thisWorld).getPathfindingService().requestPath(this, aiPosition, goalPosition);
+			this.awaitingPath = true;
 		}
 		// Follow the current path
 		else {
@@ -161,30 +224,28 @@ public class AIPlayer extends Player {
 	}
 
 	/**
-	 * Calculates the path that gets the character to the goal, whilst avoiding static obstacles, via the shortest path. (thread-safe)
-	 * @param start The start position of the path
-	 * @param goal The goal position of the path
-	 * @return The list of vertices to follow
+	 * Stores the path found for the character, called on the world's tick thread
+	 * @param polygonPath The navmesh polygons from the start to the goal, or null if there is no path
+	 * @param pointPath The list of vertices to follow, or null if there is no path
 	 */
-	private ArrayList<Vector2f> calculateNewPath(Vector2f start, Vector2f goal) {
-		// Get the navmesh
-		NavMesh navMesh = this.getMapFile().getNavMesh();
+	@Override
+	public void onPathFound(ArrayList<Polygon> polygonPath, ArrayList<Vector2f> pointPath) {
+		this.awaitingPath = false;
 
-		// Use a* search to find the shortest polygon path between the navigation mesh
-		ArrayList<Polygon> polygonPath = navMesh.aStar(start, goal);
+		// Without a path a new one is asked for on the next update
+		if (polygonPath == null || !this.isValid())
+			return;
 
 		// Store the polygon path so that we can check the character hasn't strayed from the path
 		// Move the first element from the path and into the next expected polygon, because we expect to be in there
 		this.setExpectedPolygonPath(new ArrayList<Polygon>(polygonPath));
 		this.setExpectedNextPolygon(this.getExpectedPolygonPath().remove(0));
-		
-		// Convert the polygon path to points on the map that we can use to navigate
-		ArrayList<Vector2f> pointPath = navMesh.polygonPathToPointPath(polygonPath);
 
 		// Reset the oldPolygon so that the tests don't get confused
 		this.setOldPolygon(null);
-		
-		return pointPath;
+		this.headingPoint = null;
+
+		this.setPath(pointPath);
 	}
 
 	/**
@@ -220,6 +281,12 @@ public class AIPlayer extends Player {
 		Vector2f aiPosition = this.getPosition();
 		Vector2f nextPoint = this.getPath().remove(0);
 
+		// Still heading for the same corner, so keep going in the same direction rather than sending a new velocity
+		if (nextPoint == this.headingPoint) {
+			return;
+		}
+		this.headingPoint = nextPoint;
+
 		// Calculate the movement vector
 		Vector2f movementVector = Vector2f.sub(nextPoint, aiPosition, null);
 
@@ -233,6 +300,48 @@ public class AIPlayer extends Player {
 		this.setVelocity(movementVector);
 	}
 	
+	/**
+	 * Works out the movement vector towards the next corner of the route the flow field gives
+	 * @param currentPolygon The current polygon that the ai character is in
+	 */
+	private void steerAlongFlowField(Polygon currentPolygon) {
+		Vector2f nextCorner = null;
+		if (this.intentFlowField != null) {
+			nextCorner = this.getMapFile().getNavMesh().getNextCorner(this.intentFlowField, currentPolygon, this.getPosition(), this.intentGoalPosition, CORNER_REACHED_DISTANCE);
+		}
+
+		// Stand still if the goal can't be reached from here
+		if (nextCorner == null) {
+			this.headingPoint = null;
+			this.setVelocity(new Vector2f(0.0f, 0.0f));
+			return;
+		}
+
+		// Still heading for the same corner, so keep going in the same direction rather than sending a new velocity
+		if (nextCorner.equals(this.headingPoint) && this.getVelocity().length() != 0) {
+			return;
+		}
+		this.headingPoint = nextCorner;
+
+		Vector2f movementVector = Vector2f.sub(nextCorner, this.getPosition(), null);
+
+		// Make sure that the velocity is constant, the only thing that changes is the direction
+		if (movementVector.length() != 0) {
+			movementVector.normalise();
+			movementVector.scale(this.getSpeed());
+		}
+
+		this.setVelocity(movementVector);
+	}
+
+	/**
+	 * Sets whether the AI steers using the flow field to its goal or follows a path of its own
+	 * @param useFlowField True to use the flow field
+	 */
+	public void setUseFlowField(boolean useFlowField) {
+		this.useFlowField = useFlowField;
+	}
+
 	@Override
 	public void render(WorldView view) {
 		super.render(view);
@@ -242,74 +351,74 @@ public class AIPlayer extends Player {
 	}
 
 	/**
-	 * Gets the last known polygon that the character was in (thread-safe)
+	 * Gets the last known polygon that the character was in
 	 * @return The last known polygon
 	 */
-	private synchronized Polygon getOldPolygon() {
+	private Polygon getOldPolygon() {
 		return this.oldPolygon;
 	}
 
 	/**
-	 * Sets the last known polygon that the character was in (thread-safe)
+	 * Sets the last known polygon that the character was in
 	 * @param polygon The last known polygon
 	 */
-	private synchronized void setOldPolygon(Polygon polygon) {
+	private void setOldPolygon(Polygon polygon) {
 		this.oldPolygon = polygon;
 	}
 
 	/**
-	 * Gets the currently stored path (thread-safe)
+	 * Gets the currently stored path
 	 * @return The path
 	 */
-	private synchronized ArrayList<Vector2f> getPath() {
+	private ArrayList<Vector2f> getPath() {
 		return this.path;
 	}
 
 	/**
-	 * Sets the path (thread-safe)
+	 * Sets the path
 	 * @param path The new path
 	 */
-	private synchronized void setPath(ArrayList<Vector2f> path) {
+	private void setPath(ArrayList<Vector2f> path) {
 		this.path = path;
 	}
 
 	/**
-	 * Gets the next expected polygon in the path (thread-safe)
+	 * Gets the next expected polygon in the path
 	 * @return The next expected polygon
 	 */
-	private synchronized Polygon getExpectedNextPolygon() {
+	private Polygon getExpectedNextPolygon() {
 		return this.expectedNextPolygon;
 	}
 
 	/**
-	 * Sets the next expected polygon in the path (thread-safe)
+	 * Sets the next expected polygon in the path
 	 * @param polygon The next expected polygon
 	 */
-	private synchronized void setExpectedNextPolygon(Polygon polygon) {
+	private void setExpectedNextPolygon(Polygon polygon) {
 		this.expectedNextPolygon = polygon;
 	}
 
 	/**
-	 * Gets the expected polygon path (thread-safe)
+	 * Gets the expected polygon path
 	 * @return The expected polygon path
 	 */
-	private synchronized ArrayList<Polygon> getExpectedPolygonPath() {
+	private ArrayList<Polygon> getExpectedPolygonPath() {
 		return this.expectedPolygonPath;
 	}
 
 	/**
-	 * Sets the expected polygon path (thread-safe)
+	 * Sets the expected polygon path
 	 * @param polygonPath The expected polygon path
 	 */
-	private synchronized void setExpectedPolygonPath(ArrayList<Polygon> polygonPath) {
+	private void setExpectedPolygonPath(ArrayList<Polygon> polygonPath) {
 		this.expectedPolygonPath = polygonPath;
 	}
 
 	/**
-	 * Gets the map file (thread-safe)
+	 * Gets the map file
 	 * @return The map file
 	 */
-	private synchronized MapFile getMapFile() {
+	private MapFile getMapFile() {
 		return this.mapFile;
 	}
 }
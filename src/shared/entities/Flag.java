@@ -5,7 +5,6 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 
 import org.lwjgl.util.vector.Vector2f;
-import org.newdawn.slick.opengl.Texture;
 
 import client.WorldView;
 
@@ -36,8 +35,6 @@ public class Flag extends MoveableEntity {
 	
 	private NetworkedPlayer flagHolder;
 	
-	private Texture texture;
-
 	private Vector2f origin;
 	
 	
@@ -180,11 +177,8 @@ public class Flag extends MoveableEntity {
 	@Override
 	public void render(WorldView view) {
 		
-		if (texture == null)
-			texture = getPNGTexture(FLAG_TEXTURE);
-		
 		Vector2f p = getPosition();		
-		view.drawWorldRectangleCentered(p.getX(), p.getY(), WIDTH, HEIGHT, texture);
+		view.drawWorldRectangleCentered(p.getX(), p.getY(), WIDTH, HEIGHT, view.getTexturePNG(FLAG_TEXTURE));
 		
 	}
 	
@@ -229,6 +223,17 @@ public class Flag extends MoveableEntity {
 		
 	}
 	
+	/**
+	 * States whether or not every client should have the flag
+	 * Players need to know where the flag is even when it is off screen
+	 */
+	@Override
+	public boolean isAlwaysRelevant() {
+		
+		return true;
+		
+	}
+	
 	/**
 	 * states whether or not the flag is touchable
 	 * true if there is no flag holder, false otherwise
@@ -3,7 +3,6 @@ import java.io.DataInputStream;
 import java.io.IOException;
 
 import org.lwjgl.util.vector.Vector2f;
-import org.newdawn.slick.openal.Audio;
 
 import client.ClientWorld;
 import client.WorldView;
@@ -31,7 +30,6 @@ public class FlagCaptureRegion extends Entity {
 	private final int WIDTH = 100;
 	private final int HEIGHT = 100;
 	private Team team;
-	private Audio flagCapture;
 	
 	
 	//****Constructors****
@@ -200,6 +198,16 @@ public class FlagCaptureRegion extends Entity {
 		
 	}
 	
+	/**
+	 * States whether the region is static or not
+	 */
+	@Override
+	public boolean isStatic() {
+		
+		return true;
+		
+	}
+	
 	public Team getOwnerTeam() {
 	
 		return team;
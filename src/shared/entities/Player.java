@@ -6,11 +6,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 
 import org.lwjgl.input.Keyboard;
-import org.lwjgl.input.Mouse;
 import org.lwjgl.util.vector.Vector2f;
-import org.newdawn.slick.Color;
-import org.newdawn.slick.openal.Audio;
-import org.newdawn.slick.opengl.Texture;
 
 import client.ClientWorld;
 import client.WorldView;
@@ -18,10 +14,9 @@ import server.ServerWorld;
 import shared.Entity;
 import shared.EntityIntersectionInfo;
 import shared.MoveableEntity;
+import shared.SoundEffect;
 import shared.Team;
 import shared.World;
-import shared.GUI.Components.Label;
-import shared.GUI.Components.RectangleComponent;
 import shared.entities.animals.AnimalClass;
 import shared.net.NetworkConstants;
 import shared.net.NetworkedBoolean;
@@ -31,6 +26,7 @@ import shared.net.NetworkedFloat;
 import shared.net.NetworkedLong;
 import shared.net.NetworkedString;
 import shared.net.NetworkedTeam;
+import shared.net.NetworkedDirection;
 import shared.net.NetworkedVector;
 
 /**
@@ -60,19 +56,9 @@ public class Player extends MoveableEntity {
 	private static final int PLAYER_INFO_BG_HEIGHT = 10;
 	private static final int PLAYER_INFO_BG_OFFSET_X = (int)(-PLAYER_INFO_BG_WIDTH/2.0f);
 	private static final int PLAYER_INFO_BG_OFFSET_Y = HEALTH_BAR_OFFSET_Y+PLAYER_INFO_BG_HEIGHT;
-	private static final Color PLAYER_INFO_BG_COLOR = new Color(0.0f, 0.0f, 0.0f);
 	
-			
-	private static final Color TEAM_MEMBER_INFO_COLOR = new Color(0.0f, 1.0f, 0.0f);
-	private static final Color ENEMY_INFO_COLOR = new Color(1.0f, 0.0f, 0.0f);
-	
-	private Texture texture;
 	private String imageName;
-	
-	private Texture gunTexture;
 	private String gunTextureName;
-	
-	private Texture muzzleFlashTexture;
 	private String muzzleFlashTextureName;
 	
 	private AnimalClass playerClass;
@@ -108,14 +94,8 @@ public class Player extends MoveableEntity {
 	private int weaponFireDelay;
 	private float weaponFireRange;
 
-	private Label teamLabel;
-	
 	private HashMap<Integer, Boolean> keysPressed = new HashMap<Integer, Boolean>();
 	
-	public static Audio gunShot;
-	public static Audio deathSound;
-	public static Audio animalSounds;
-	
 	private boolean playGunShot = false;
 	private boolean playDeathSound = false;
 	
@@ -163,7 +143,7 @@ public class Player extends MoveableEntity {
 	private void createNetworkFields() {
 		this.heldFlag = new NetworkedEntity(this);
 		this.orientation = new NetworkedFloat(this);
-		this.aimVec = new NetworkedVector(this);
+		this.aimVec = new NetworkedDirection(this);
 		this.networkedMuzzleFlash = new NetworkedBoolean(this);
 		this.isDead = new NetworkedBoolean(this);
 		this.health = new NetworkedLong(this);
@@ -303,7 +283,7 @@ public class Player extends MoveableEntity {
 
 			if (thisWorld.isClient()) {
 				if (this.playDeathSound) {
-					deathSound.playAsSoundEffect(1f, 1f, false);
+					thisWorld.playSoundEffect(SoundEffect.DEATH);
 					this.playDeathSound = false;
 				}
 			} else {	//on server
@@ -325,11 +305,8 @@ public class Player extends MoveableEntity {
 			
 			if (getIsLocalPlayer()) {	//this is the local player
 				
-				// Get the mouse coordinates relative to the window
-		        Vector2f mousePos = new Vector2f(Mouse.getX(), Mouse.getY());
-		        
-		        // Convert the mouse coordinates so that they are relative to the map
-		        Vector2f mouseMapPos = clientWorld.getView().mousePosToWorldPos(mousePos);
+				// Get the mouse coordinates relative to the map
+		        Vector2f mouseMapPos = clientWorld.getView().getMouseWorldPos();
 		        
 		        //Calculate the aim vector
 		        calculateAimVec(mouseMapPos, thisWorld);
@@ -341,7 +318,7 @@ public class Player extends MoveableEntity {
 			updateMuzzleFlash(thisWorld);
 				
 			if (this.playGunShot) {			
-				gunShot.playAsSoundEffect(1f, 1f, false);
+				thisWorld.playSoundEffect(SoundEffect.GUN_SHOT);
 				
 				this.playGunShot = false;
 			}
@@ -436,8 +413,6 @@ public class Player extends MoveableEntity {
 			return;
 		}
 		
-		prepareTextures();
-			
 		//get player orientation
 		float playerOrientation = getOrientation();
 		
@@ -456,23 +431,6 @@ public class Player extends MoveableEntity {
 
 	}
 	
-	/**
-	 * Prepares textures for rendering
-	 */
-	private void prepareTextures() {
-
-		if (texture == null)
-			texture = getPNGTexture(imageName);
-		
-		if (gunTexture == null)
-			gunTexture = getPNGTexture(gunTextureName);
-		
-		if (muzzleFlashTexture == null)
-			muzzleFlashTexture = getPNGTexture(muzzleFlashTextureName);
-		
-	}
-	
-	
 	/**
 	 * Draws the player
 	 * @param view	the view the player will be drawn on
@@ -483,7 +441,7 @@ public class Player extends MoveableEntity {
 		
 		Vector2f pos = getPosition();
 
-		view.drawWorldRectangleCentered(pos.getX(), pos.getY(), WIDTH, HEIGHT, texture, playerOrientation);
+		view.drawWorldRectangleCentered(pos.getX(), pos.getY(), WIDTH, HEIGHT, view.getTexturePNG(imageName), playerOrientation);
 		
 		return pos;
 		
@@ -576,26 +534,23 @@ public class Player extends MoveableEntity {
 	private void drawPlayerInfo(WorldView view, Vector2f pos) {
 		//if (playerInfoBg == null)
 		//	playerInfoBg = new RectangleComponent(this.getWorld().getGameWindow(), 0, 0, PLAYER_INFO_BG_WIDTH, PLAYER_INFO_BG_HEIGHT, PLAYER_INFO_BG_COLOR);
-		if (teamLabel == null)
-			teamLabel = new Label(this.getWorld().getGameWindow(), 0, 0, "", null, 9.0f);
 	
 		ClientWorld world = (ClientWorld)this.getWorld();
 		Player localPlayer = world.getLocalPlayer();
 		Team localPlayerTeam = localPlayer.getTeam();
 		
+		float textX = pos.getX()+TEAM_NAME_OFFSET_X;
+		float textY = pos.getY()+TEAM_NAME_OFFSET_Y;
+		
 		if (this.getIsLocalPlayer()) {
-			this.teamLabel.setColor(TEAM_MEMBER_INFO_COLOR);
-			this.teamLabel.setLabelText(this.getTeam().getTeamName() + " (You)");	
+			view.drawWorldText(this.getTeam().getTeamName() + " (You)", textX, textY, 0.0f, 1.0f, 0.0f);
 		} else if (this.getTeam().getID() == localPlayerTeam.getID()) {
-			this.teamLabel.setColor(TEAM_MEMBER_INFO_COLOR);
-			this.teamLabel.setLabelText(this.getTeam().getTeamName() + " (Friend)");
+			view.drawWorldText(this.getTeam().getTeamName() + " (Friend)", textX, textY, 0.0f, 1.0f, 0.0f);
 		} else {
-			this.teamLabel.setColor(ENEMY_INFO_COLOR);
-			this.teamLabel.setLabelText(this.getTeam().getTeamName() + " (Enemy)");
+			view.drawWorldText(this.getTeam().getTeamName() + " (Enemy)", textX, textY, 1.0f, 0.0f, 0.0f);
 		}
 		
 		//view.drawGUIComponent(this.playerInfoBg, pos.getX()+PLAYER_INFO_BG_OFFSET_X, pos.getY()+PLAYER_INFO_BG_OFFSET_Y);
-		view.drawGUIComponent(this.teamLabel, pos.getX()+TEAM_NAME_OFFSET_X, pos.getY()+TEAM_NAME_OFFSET_Y);
 	}
 	
 	/**
@@ -605,7 +560,7 @@ public class Player extends MoveableEntity {
 	private void drawGun(WorldView view) {
 
 		Vector2f gunPos = getGunPosition();
-		view.drawWorldRectangleCentered(gunPos.getX(), gunPos.getY(), playerClass.getWeaponSize(), playerClass.getWeaponSize(), gunTexture, gunOrientation);
+		view.drawWorldRectangleCentered(gunPos.getX(), gunPos.getY(), playerClass.getWeaponSize(), playerClass.getWeaponSize(), view.getTexturePNG(gunTextureName), gunOrientation);
 		
 	}
 
@@ -616,7 +571,7 @@ public class Player extends MoveableEntity {
 	private void drawMuzzleFlash(WorldView view) {
 		
 		Vector2f muzzlePos = getGunPosition();
-		view.drawWorldRectangleCentered(muzzlePos.getX(), muzzlePos.getY(), playerClass.getWeaponSize(), playerClass.getWeaponSize(), muzzleFlashTexture, gunOrientation);
+		view.drawWorldRectangleCentered(muzzlePos.getX(), muzzlePos.getY(), playerClass.getWeaponSize(), playerClass.getWeaponSize(), view.getTexturePNG(muzzleFlashTextureName), gunOrientation);
 		
 	}
 
@@ -1049,11 +1004,8 @@ public class Player extends MoveableEntity {
 		setWeaponFireRange(playerClass.getWeaponRange());
 		
 		this.imageName = playerClass.getTextureImage();
-		this.texture = null;
 		this.gunTextureName = playerClass.getWeaponImage();
-		this.gunTexture = null;
 		this.muzzleFlashTextureName = playerClass.getMuzzleFlashImage();
-		this.muzzleFlashTexture = null;
 	
 	}
 	
@@ -1131,7 +1083,7 @@ public class Player extends MoveableEntity {
 		this.isLocalPlayer = b;
 		
 		if (b) {
-			animalSounds.playAsSoundEffect(1f, 1f, false);
+			getWorld().playSoundEffect(SoundEffect.ANIMAL);
 		}
 		
 	}
@@ -5,7 +5,6 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 
 import org.lwjgl.util.vector.Vector2f;
-import org.newdawn.slick.opengl.Texture;
 import org.w3c.dom.Node;
 
 import client.WorldView;
@@ -28,7 +27,6 @@ public class TexturedBlock extends Entity {
 	private int width;
 	private int height;
 	private String textureName;
-	private Texture texture;
 
 	
 	//****Constructors****
@@ -122,13 +120,8 @@ public class TexturedBlock extends Entity {
 	@Override
 	public void render(WorldView view) {
 		
-		// Moved out of constructor temporarily because
-		// it was causing problems for the server
-		if (texture == null)
-			texture = getPNGTexture(textureName);
-		
 		Vector2f p = getPosition();		
-		view.drawWorldRectangleCentered(p.getX(), p.getY(), this.width, this.height, texture);
+		view.drawWorldRectangleCentered(p.getX(), p.getY(), this.width, this.height, view.getTexturePNG(textureName));
 		
 	}
 	
@@ -152,5 +145,15 @@ public class TexturedBlock extends Entity {
 		return this.height;
 		
 	}
+	
+	/**
+	 * States whether the block is static or not
+	 */
+	@Override
+	public boolean isStatic() {
+		
+		return true;
+		
+	}
 
 }
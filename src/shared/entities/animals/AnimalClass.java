@@ -1,7 +1,5 @@
 package shared.entities.animals;
 
-import org.newdawn.slick.opengl.Texture;
-
 /**
  * Defines the properties of an animal class.
  * @author Chris, Thomas
@@ -1,7 +1,5 @@
 package shared.entities.animals;
 
-import org.newdawn.slick.opengl.Texture;
-
 /**
  * The elephant animal class.
  * @author Chris
@@ -1,7 +1,5 @@
 package shared.entities.animals;
 
-import org.newdawn.slick.opengl.Texture;
-
 /**
  * The goat animal class.
  * @author Chris
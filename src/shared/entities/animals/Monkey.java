@@ -1,7 +1,5 @@
 package shared.entities.animals;
 
-import org.newdawn.slick.opengl.Texture;
-
 /**
  * The monkey animal class.
  * @author Chris
@@ -1,7 +1,5 @@
 package shared.entities.animals;
 
-import org.newdawn.slick.opengl.Texture;
-
 /**
  * The zebra animal class.
  * @author Chris
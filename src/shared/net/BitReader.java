@@ -0,0 +1,215 @@
+package shared.net;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads values written by a BitWriter.
+ * Bytes are only read from the stream when their bits are needed, so
+ * reading everything that was written leaves the stream just past the padding.
+ * @author Chris
+ *
+ */
+public class BitReader extends InputStream {
+
+
+	//****Class variables****
+
+
+	private InputStream in;
+
+	// Bits read from the stream but not used yet, in the low bits
+	private long pendingBits = 0;
+	private int pendingBitCount = 0;
+
+	// Reads values that have no packed encoding through this reader
+	private final DataInputStream dataInputStream = new DataInputStream(this);
+
+
+	//****Constructors****
+
+
+	/**
+	 * Constructor.
+	 * @param in stream the packed bytes are read from
+	 */
+	public BitReader(InputStream in) {
+
+		this.in = in;
+
+	}
+
+	/**
+	 * Constructor for a reader that is given its stream later.
+	 */
+	public BitReader() {
+
+		this(null);
+
+	}
+
+
+	//****Class methods****
+
+
+	/**
+	 * Reads a value from the next bits.
+	 * @param count number of bits, from 0 to 32
+	 * @return the value
+	 * @throws IOException if the stream ends or can't be read
+	 */
+	public long readBits(int count) throws IOException {
+
+		if (count < 0 || count > 32)
+			throw new IllegalArgumentException("Bit count must be between 0 and 32: " + count);
+
+		while (this.pendingBitCount < count) {
+
+			int b = this.in.read();
+
+			if (b < 0)
+				throw new EOFException();
+
+			this.pendingBits = (this.pendingBits << 8) | b;
+			this.pendingBitCount += 8;
+
+		}
+
+		this.pendingBitCount -= count;
+
+		long value = (this.pendingBits >>> this.pendingBitCount) & ((1L << count) - 1);
+
+		this.pendingBits &= (1L << this.pendingBitCount) - 1;
+
+		return value;
+
+	}
+
+	/**
+	 * Reads a boolean from one bit.
+	 * @return the value
+	 * @throws IOException if the stream ends or can't be read
+	 */
+	public boolean readBoolean() throws IOException {
+
+		return readBits(1) != 0;
+
+	}
+
+	/**
+	 * Reads a long from 64 bits.
+	 * @return the value
+	 * @throws IOException if the stream ends or can't be read
+	 */
+	public long readLong() throws IOException {
+
+		return (readBits(32) << 32) | readBits(32);
+
+	}
+
+	/**
+	 * Reads a value written by BitWriter.writeVarLong.
+	 * @return the value
+	 * @throws IOException if the stream ends, can't be read or the value is too long
+	 */
+	public long readVarLong() throws IOException {
+
+		long value = 0;
+
+		for (int shift = 0; shift < 64; shift += 7) {
+
+			value |= readBits(7) << shift;
+
+			if (!readBoolean())
+				return value;
+
+		}
+
+		throw new IOException("Variable length value is too long");
+
+	}
+
+	/**
+	 * Reads a value written by BitWriter.writeSignedVarLong.
+	 * @return the value
+	 * @throws IOException if the stream ends, can't be read or the value is too long
+	 */
+	public long readSignedVarLong() throws IOException {
+
+		long value = readVarLong();
+
+		return (value >>> 1) ^ -(value & 1);
+
+	}
+
+	/**
+	 * Reads a value written by BitWriter.writeVarLong that must fit in an int.
+	 * @return the value
+	 * @throws IOException if the stream ends, can't be read or the value is out of range
+	 */
+	public int readVarInt() throws IOException {
+
+		long value = readVarLong();
+
+		if (value < 0 || value > Integer.MAX_VALUE)
+			throw new IOException("Value out of range: " + value);
+
+		return (int)value;
+
+	}
+
+	@Override
+	public int read() throws IOException {
+
+		try {
+
+			return (int)readBits(8);
+
+		} catch (EOFException e) {
+
+			return -1;
+
+		}
+
+	}
+
+	/**
+	 * Skips the padding at the end of the current byte.
+	 */
+	public void alignToByte() {
+
+		this.pendingBits = 0;
+		this.pendingBitCount = 0;
+
+	}
+
+
+	//****Getters and setters****
+
+
+	/**
+	 * Sets the stream the packed bytes are read from.
+	 * Any bits left from the previous stream are discarded.
+	 * @param in the stream
+	 */
+	public void setInputStream(InputStream in) {
+
+		this.in = in;
+
+		alignToByte();
+
+	}
+
+	/**
+	 * Gets a data input stream that reads through this reader.
+	 * @return the stream
+	 */
+	public DataInputStream getDataInputStream() {
+
+		return this.dataInputStream;
+
+	}
+
+}
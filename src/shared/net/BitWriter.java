@@ -0,0 +1,196 @@
+package shared.net;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes values packed into as few bits as they need.
+ * Bits are written most significant first, and the last byte is padded
+ * with zeros when the writer is flushed. Bytes written through the
+ * output stream methods don't have to start on a byte boundary.
+ * @author Chris
+ *
+ */
+public class BitWriter extends OutputStream {
+
+
+	//****Class variables****
+
+
+	private OutputStream out;
+
+	// Bits waiting to make up a whole byte, in the low bits
+	private long pendingBits = 0;
+	private int pendingBitCount = 0;
+
+	// Writes values that have no packed encoding through this writer
+	private final DataOutputStream dataOutputStream = new DataOutputStream(this);
+
+
+	//****Constructors****
+
+
+	/**
+	 * Constructor.
+	 * @param out stream the packed bytes are written to
+	 */
+	public BitWriter(OutputStream out) {
+
+		this.out = out;
+
+	}
+
+	/**
+	 * Constructor for a writer that is given its stream later.
+	 */
+	public BitWriter() {
+
+		this(null);
+
+	}
+
+
+	//****Class methods****
+
+
+	/**
+	 * Writes the low bits of a value.
+	 * @param value the value
+	 * @param count number of bits, from 0 to 32
+	 * @throws IOException if the stream can't be written to
+	 */
+	public void writeBits(long value, int count) throws IOException {
+
+		if (count < 0 || count > 32)
+			throw new IllegalArgumentException("Bit count must be between 0 and 32: " + count);
+
+		this.pendingBits = (this.pendingBits << count) | (value & ((1L << count) - 1));
+		this.pendingBitCount += count;
+
+		while (this.pendingBitCount >= 8) {
+
+			this.pendingBitCount -= 8;
+			this.out.write((int)(this.pendingBits >>> this.pendingBitCount));
+
+		}
+
+		this.pendingBits &= (1L << this.pendingBitCount) - 1;
+
+	}
+
+	/**
+	 * Writes a boolean as one bit.
+	 * @param value the value
+	 * @throws IOException if the stream can't be written to
+	 */
+	public void writeBoolean(boolean value) throws IOException {
+
+		writeBits(value ? 1 : 0, 1);
+
+	}
+
+	/**
+	 * Writes a long as 64 bits.
+	 * @param value the value
+	 * @throws IOException if the stream can't be written to
+	 */
+	public void writeLong(long value) throws IOException {
+
+		writeBits(value >>> 32, 32);
+		writeBits(value, 32);
+
+	}
+
+	/**
+	 * Writes a non-negative value in groups of 7 bits, each followed by a bit saying whether another group follows.
+	 * Small values take 8 bits.
+	 * @param value the value, treated as unsigned
+	 * @throws IOException if the stream can't be written to
+	 */
+	public void writeVarLong(long value) throws IOException {
+
+		do {
+
+			long group = value & 0x7F;
+			value >>>= 7;
+
+			writeBits(group, 7);
+			writeBoolean(value != 0);
+
+		} while (value != 0);
+
+	}
+
+	/**
+	 * Writes a value that may be negative so that values near zero take few bits.
+	 * @param value the value
+	 * @throws IOException if the stream can't be written to
+	 */
+	public void writeSignedVarLong(long value) throws IOException {
+
+		// Zigzag encoding: 0, -1, 1, -2, 2...
+		writeVarLong((value << 1) ^ (value >> 63));
+
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+
+		writeBits(b, 8);
+
+	}
+
+	/**
+	 * Writes any bits waiting to make up a whole byte, padded with zeros.
+	 * @throws IOException if the stream can't be written to
+	 */
+	@Override
+	public void flush() throws IOException {
+
+		if (this.pendingBitCount > 0)
+			writeBits(0, 8 - this.pendingBitCount);
+
+		this.out.flush();
+
+	}
+
+	/**
+	 * Gets the number of bits needed to write values from 0 to a maximum.
+	 * @param maxValue the largest value
+	 * @return bit count
+	 */
+	public static int bitsFor(long maxValue) {
+
+		return 64 - Long.numberOfLeadingZeros(maxValue);
+
+	}
+
+
+	//****Getters and setters****
+
+
+	/**
+	 * Sets the stream the packed bytes are written to.
+	 * Any bits not flushed to the previous stream are discarded.
+	 * @param out the stream
+	 */
+	public void setOutputStream(OutputStream out) {
+
+		this.out = out;
+		this.pendingBits = 0;
+		this.pendingBitCount = 0;
+
+	}
+
+	/**
+	 * Gets a data output stream that writes through this writer.
+	 * @return the stream
+	 */
+	public DataOutputStream getDataOutputStream() {
+
+		return this.dataOutputStream;
+
+	}
+
+}
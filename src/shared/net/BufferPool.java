@@ -0,0 +1,126 @@
+package shared.net;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * A pool of reusable byte buffers.
+ * Used for network messages so a new buffer isn't allocated every tick.
+ * @author Chris
+ *
+ */
+public class BufferPool {
+
+
+	//****Class variables****
+
+
+	// Default size of a pooled buffer
+	public static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+
+	// Default number of free buffers kept for reuse
+	public static final int DEFAULT_MAX_POOLED = 16;
+
+	private final int bufferSize;
+	private final int maxPooled;
+
+	private final ArrayDeque<ByteBuffer> freeBuffers = new ArrayDeque<ByteBuffer>();
+
+
+	//****Constructors****
+
+
+	/**
+	 * Constructor.
+	 * @param bufferSize size of newly allocated buffers
+	 * @param maxPooled number of free buffers kept for reuse, others are left to the garbage collector
+	 */
+	public BufferPool(int bufferSize, int maxPooled) {
+
+		this.bufferSize = bufferSize;
+		this.maxPooled = maxPooled;
+
+	}
+
+	/**
+	 * Constructor using the default sizes.
+	 */
+	public BufferPool() {
+
+		this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED);
+
+	}
+
+
+	//****Class methods****
+
+
+	/**
+	 * Gets a cleared buffer with at least the requested capacity.
+	 * @param minCapacity capacity needed
+	 * @return the buffer
+	 */
+	public synchronized ByteBuffer acquire(int minCapacity) {
+
+		int freeCount = this.freeBuffers.size();
+
+		for (int i = 0; i < freeCount; i++) {
+
+			ByteBuffer buffer = this.freeBuffers.pollFirst();
+
+			if (buffer.capacity() >= minCapacity)
+				return buffer;
+
+			// Too small for this request, keep it for later ones
+			this.freeBuffers.addLast(buffer);
+
+		}
+
+		int capacity = this.bufferSize;
+
+		while (capacity < minCapacity)
+			capacity <<= 1;
+
+		return ByteBuffer.allocate(capacity);
+
+	}
+
+	/**
+	 * Gets a cleared buffer of the default size.
+	 * @return the buffer
+	 */
+	public ByteBuffer acquire() {
+
+		return acquire(this.bufferSize);
+
+	}
+
+	/**
+	 * Returns a buffer to the pool.
+	 * The buffer must not be used again by the caller.
+	 * @param buffer the buffer
+	 */
+	public synchronized void release(ByteBuffer buffer) {
+
+		buffer.clear();
+
+		if (this.freeBuffers.size() < this.maxPooled)
+			this.freeBuffers.addFirst(buffer);
+
+	}
+
+
+	//****Getters****
+
+
+	/**
+	 * Gets the number of free buffers in the pool.
+	 * @return free buffer count
+	 */
+	public synchronized int getFreeCount() {
+
+		return this.freeBuffers.size();
+
+	}
+
+}
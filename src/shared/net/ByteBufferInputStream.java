@@ -0,0 +1,87 @@
+package shared.net;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An input stream that reads from a byte buffer.
+ * The buffer can be swapped so one stream is reused for every received message.
+ * @author Chris
+ *
+ */
+public class ByteBufferInputStream extends InputStream {
+
+
+	//****Class variables****
+
+
+	private ByteBuffer buffer;
+
+
+	//****Class methods****
+
+
+	@Override
+	public int read() {
+
+		if (this.buffer == null || !this.buffer.hasRemaining())
+			return -1;
+
+		return this.buffer.get() & 0xFF;
+
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+
+		if (len == 0)
+			return 0;
+
+		if (this.buffer == null || !this.buffer.hasRemaining())
+			return -1;
+
+		int count = Math.min(len, this.buffer.remaining());
+
+		this.buffer.get(b, off, count);
+
+		return count;
+
+	}
+
+	@Override
+	public long skip(long n) {
+
+		if (this.buffer == null || n <= 0)
+			return 0;
+
+		int count = (int)Math.min(n, this.buffer.remaining());
+
+		this.buffer.position(this.buffer.position() + count);
+
+		return count;
+
+	}
+
+	@Override
+	public int available() {
+
+		return this.buffer == null ? 0 : this.buffer.remaining();
+
+	}
+
+
+	//****Getters and setters****
+
+
+	/**
+	 * Sets the buffer to read from.
+	 * Reads move the buffer's position and stop at its limit.
+	 * @param buffer the buffer, in read mode
+	 */
+	public void setBuffer(ByteBuffer buffer) {
+
+		this.buffer = buffer;
+
+	}
+
+}
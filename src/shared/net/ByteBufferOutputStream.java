@@ -0,0 +1,154 @@
+package shared.net;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An output stream that writes into a pooled byte buffer.
+ * The buffer is swapped for a larger one from the pool when it fills up.
+ * @author Chris
+ *
+ */
+public class ByteBufferOutputStream extends OutputStream {
+
+
+	//****Class variables****
+
+
+	private final BufferPool pool;
+
+	private ByteBuffer buffer;
+
+
+	//****Constructors****
+
+
+	/**
+	 * Constructor.
+	 * @param pool pool the buffer is taken from
+	 */
+	public ByteBufferOutputStream(BufferPool pool) {
+
+		this.pool = pool;
+		this.buffer = pool.acquire();
+
+	}
+
+
+	//****Class methods****
+
+
+	@Override
+	public void write(int b) {
+
+		ensureRemaining(1);
+		this.buffer.put((byte)b);
+
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+
+		ensureRemaining(len);
+		this.buffer.put(b, off, len);
+
+	}
+
+	/**
+	 * Makes sure the buffer has room for more bytes, moving to a larger buffer if needed.
+	 * @param count number of bytes about to be written
+	 */
+	private void ensureRemaining(int count) {
+
+		if (this.buffer.remaining() >= count)
+			return;
+
+		ByteBuffer larger = this.pool.acquire(this.buffer.position() + count);
+
+		this.buffer.flip();
+		larger.put(this.buffer);
+
+		this.pool.release(this.buffer);
+		this.buffer = larger;
+
+	}
+
+	/**
+	 * Overwrites an int that has already been written, e.g. a length that wasn't known at the time.
+	 * @param index position of the int from the start of the stream
+	 * @param value the new value
+	 */
+	public void putInt(int index, int value) {
+
+		this.buffer.putInt(index, value);
+
+	}
+
+	/**
+	 * Writes everything written so far to another stream.
+	 * @param out the stream to write to
+	 * @throws IOException if the write fails
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+
+		out.write(this.buffer.array(), this.buffer.arrayOffset(), this.buffer.position());
+
+	}
+
+	/**
+	 * Discards everything written so far.
+	 */
+	public void reset() {
+
+		this.buffer.clear();
+
+	}
+
+	/**
+	 * Hands the written bytes to the caller and starts a new buffer.
+	 * The returned buffer is ready to be read and should be released back to the pool once it has been sent.
+	 * @return buffer containing the written bytes
+	 */
+	public ByteBuffer takeBuffer() {
+
+		ByteBuffer written = this.buffer;
+		written.flip();
+
+		this.buffer = this.pool.acquire();
+
+		return written;
+
+	}
+
+	/**
+	 * Returns the current buffer to the pool.
+	 * The stream must not be written to afterwards.
+	 */
+	@Override
+	public void close() {
+
+		if (this.buffer != null) {
+
+			this.pool.release(this.buffer);
+			this.buffer = null;
+
+		}
+
+	}
+
+
+	//****Getters****
+
+
+	/**
+	 * Gets the number of bytes written since the last reset.
+	 * @return byte count
+	 */
+	public int size() {
+
+		return this.buffer.position();
+
+	}
+
+}
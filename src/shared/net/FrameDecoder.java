@@ -0,0 +1,127 @@
+package shared.net;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Splits received bytes into frames.
+ * Every message is sent as a frame: a header holding the body length, the
+ * protocol version and the message type, followed by the body.
+ * Frames are handed to handlers as a view of the receive buffer so nothing
+ * is copied, and a handler that reads too little or too much of a body
+ * can't desync the rest of the stream.
+ * @author Chris
+ *
+ */
+public class FrameDecoder {
+
+	/**
+	 * Gets the length of the first frame in a buffer and checks its header.
+	 * The buffer's position is left unchanged.
+	 * @param buffer buffer in read mode, positioned at the start of a frame
+	 * @param maxBodySize largest body accepted
+	 * @return the frame length including the header, or -1 if the whole frame hasn't arrived yet
+	 * @throws IOException if the frame is from a different protocol version or too large
+	 */
+	public static int getFrameLength(ByteBuffer buffer, int maxBodySize) throws IOException {
+
+		if (buffer.remaining() < NetworkConstants.FRAME_HEADER_SIZE)
+			return -1;
+
+		int start = buffer.position();
+
+		int bodyLength = buffer.getInt(start);
+		int version = buffer.get(start + 4) & 0xFF;
+
+		if (version != NetworkConstants.PROTOCOL_VERSION)
+			throw new IOException("Unsupported protocol version " + version);
+
+		if (bodyLength < 0 || bodyLength > maxBodySize)
+			throw new IOException("Invalid frame length " + bodyLength);
+
+		int length = NetworkConstants.FRAME_HEADER_SIZE + bodyLength;
+
+		return buffer.remaining() >= length ? length : -1;
+
+	}
+
+	/**
+	 * Gets the combined length of the whole frames at the start of a buffer.
+	 * The buffer's position is left unchanged.
+	 * @param buffer buffer in read mode, positioned at the start of a frame
+	 * @param maxBodySize largest body accepted
+	 * @return number of bytes up to the end of the last whole frame
+	 * @throws IOException if a frame header is invalid
+	 */
+	public static int getWholeFramesLength(ByteBuffer buffer, int maxBodySize) throws IOException {
+
+		int start = buffer.position();
+
+		try {
+
+			int length;
+
+			while ((length = getFrameLength(buffer, maxBodySize)) >= 0)
+				buffer.position(buffer.position() + length);
+
+			return buffer.position() - start;
+
+		} finally {
+
+			buffer.position(start);
+
+		}
+
+	}
+
+	/**
+	 * Hands each whole frame in a buffer to a handler.
+	 * While the handler runs the buffer's position and limit are set to the frame body.
+	 * Afterwards the buffer is positioned after the last whole frame, a partial frame is left for the next call.
+	 * @param buffer buffer in read mode, positioned at the start of a frame
+	 * @param maxBodySize largest body accepted
+	 * @param handler handler the frames are passed to
+	 * @return number of frames handled
+	 * @throws IOException if a frame header is invalid, or the handler couldn't read a body
+	 */
+	public static int decode(ByteBuffer buffer, int maxBodySize, FrameHandler handler) throws IOException {
+
+		int limit = buffer.limit();
+		int frameCount = 0;
+		int length;
+
+		while ((length = getFrameLength(buffer, maxBodySize)) >= 0) {
+
+			int start = buffer.position();
+			int end = start + length;
+			int type = buffer.get(start + 5) & 0xFF;
+
+			buffer.limit(end);
+			buffer.position(start + NetworkConstants.FRAME_HEADER_SIZE);
+
+			try {
+
+				handler.onFrame(type, buffer);
+
+			} catch (BufferUnderflowException e) {
+
+				throw new IOException("Frame body too short for message type " + type);
+
+			} finally {
+
+				// Skip whatever the handler didn't read
+				buffer.limit(limit);
+				buffer.position(end);
+
+			}
+
+			frameCount++;
+
+		}
+
+		return frameCount;
+
+	}
+
+}
@@ -0,0 +1,21 @@
+package shared.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Methods for handling received frames
+ * @author Chris
+ *
+ */
+public interface FrameHandler {
+
+	/**
+	 * Called for each frame received.
+	 * @param type the message type ID
+	 * @param body the frame body, only valid until this returns
+	 * @throws IOException if the body is invalid
+	 */
+	public void onFrame(int type, ByteBuffer body) throws IOException;
+
+}
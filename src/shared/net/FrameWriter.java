@@ -0,0 +1,106 @@
+package shared.net;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Writes messages as frames into a byte buffer stream.
+ * The body length in a frame's header is filled in once the body has been written.
+ * @author Chris
+ *
+ */
+public class FrameWriter {
+
+
+	//****Class variables****
+
+
+	private final ByteBufferOutputStream stream;
+	private final DataOutputStream out;
+
+	// Position of the current frame's header, -1 if no frame has been started
+	private int frameStart = -1;
+
+
+	//****Constructors****
+
+
+	/**
+	 * Constructor.
+	 * @param stream the stream frames are written to
+	 */
+	public FrameWriter(ByteBufferOutputStream stream) {
+
+		this.stream = stream;
+		this.out = new DataOutputStream(stream);
+
+	}
+
+
+	//****Class methods****
+
+
+	/**
+	 * Starts a new frame.
+	 * @param type the message type
+	 * @return the stream to write the frame body to
+	 * @throws IOException if the header could not be written
+	 */
+	public DataOutputStream begin(Enum<?> type) throws IOException {
+
+		if (this.frameStart >= 0)
+			throw new IllegalStateException("Previous frame has not been ended");
+
+		this.frameStart = this.stream.size();
+
+		// Body length, filled in by end()
+		this.out.writeInt(0);
+		// Protocol version
+		this.out.writeByte(NetworkConstants.PROTOCOL_VERSION);
+		// Message type
+		this.out.writeByte(type.ordinal());
+
+		return this.out;
+
+	}
+
+	/**
+	 * Ends the current frame, filling in its body length.
+	 */
+	public void end() {
+
+		if (this.frameStart < 0)
+			throw new IllegalStateException("No frame has been started");
+
+		int bodyLength = this.stream.size() - this.frameStart - NetworkConstants.FRAME_HEADER_SIZE;
+
+		this.stream.putInt(this.frameStart, bodyLength);
+		this.frameStart = -1;
+
+	}
+
+	/**
+	 * Discards everything written to the stream, including any unfinished frame.
+	 */
+	public void reset() {
+
+		this.stream.reset();
+		this.frameStart = -1;
+
+	}
+
+
+	//****Getters****
+
+
+	/**
+	 * Gets the stream frame bodies are written to.
+	 * @return the output stream
+	 */
+	public DataOutputStream getOutputStream() {
+
+		return this.out;
+
+	}
+
+}
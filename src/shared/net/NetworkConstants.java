@@ -35,16 +35,72 @@ public class NetworkConstants {
 	// Enables or disables client-side prediction for the local player
 	public static final boolean LOCAL_PLAYER_PREDICTION_ENABLED = true;
 
+	// Bytes waiting to be sent to a client before it is treated as congested
+	// Entity updates for a congested client are collapsed until it catches up
+	public static final int SEND_QUEUE_HIGH_WATERMARK = 256 * 1024;
+
+	// Bytes waiting to be sent to a congested client before it is treated as caught up
+	public static final int SEND_QUEUE_LOW_WATERMARK = 64 * 1024;
+
+	// Bytes waiting to be sent to a client before it is disconnected straight away
+	public static final int SEND_QUEUE_LIMIT = 4 * 1024 * 1024;
+
+	// Time a client can stay congested before it is disconnected
+	public static final long SEND_QUEUE_EVICTION_MS = 10000;
+
+	// Number of recent snapshots the server keeps to catch up players that fell behind
+	// Players further behind are sent the value of every field instead
+	public static final int SNAPSHOT_RING_SIZE = 64;
+
+	// Snapshots a player can have been sent but not acknowledged before
+	// later snapshots are held back, e.g. when the network rather than the send queue is backed up
+	public static final int MAX_UNACKED_SNAPSHOTS = 30;
+
+	// Size of the area a player can see, matching the game window
+	// Dynamic entities are only sent to players they are near
+	public static final float INTEREST_VIEW_WIDTH = 800;
+	public static final float INTEREST_VIEW_HEIGHT = 600;
+
+	// Distance outside a player's view that entities are sent to them from
+	public static final float INTEREST_ENTER_MARGIN = 200;
+
+	// Distance outside a player's view that entities stop being sent to them from
+	// Larger than the enter margin so entities near the edge aren't created and deleted repeatedly
+	public static final float INTEREST_EXIT_MARGIN = 400;
+
+	// Fixed point steps per unit for positions and velocities sent in snapshots
+	public static final float QUANTIZED_POSITION_SCALE = 16.0f;
+	public static final float QUANTIZED_VELOCITY_SCALE = 256.0f;
+
+	// Distance outside the map that positions sent in snapshots can be
+	public static final float QUANTIZED_BOUNDS_MARGIN = 512.0f;
+
+	// Bits used for the angle of directions sent in snapshots
+	public static final int QUANTIZED_DIRECTION_BITS = 12;
+
+	// Baseline of a snapshot that doesn't depend on an earlier one
+	public static final int NO_BASELINE = -1;
+
+	// Version of the message format, sent in every frame header
+	// Frames from a different version are rejected
+	public static final int PROTOCOL_VERSION = 3;
+
+	// Size of a frame header: body length, protocol version and message type
+	public static final int FRAME_HEADER_SIZE = 6;
+
+	// Largest frame body a client will accept from the server
+	public static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
 	// Server -> client message types
 	public enum S2C {
 		CREATE_ENTITIES,
 		DELETE_ENTITIES,
-		UPDATE_ENTITY_FIELD,
+		SNAPSHOT,
 		SET_PLAYER_ID,
 		SET_BACKGROUND_TEXTURE,
-		SET_SERVER_TIME,
 		CREATE_TEAM,
 		TEAM_SCORE_CHANGE,
+		SET_MAP_SIZE,
 	};
 	
 	// Client -> server message types
@@ -53,6 +109,7 @@ public class NetworkConstants {
 		KEYBOARD_INPUT,
 		GUN_SHOT_INFO,
 		MOUSE_POSITION,
+		SNAPSHOT_ACK,
 	};
 	
 }
@@ -31,4 +31,14 @@ public class NetworkedBoolean extends NetworkedEntityField<Boolean> {
 		out.writeBoolean(get());
 	}
 
+	@Override
+	public void readFromSnapshot(BitReader in, SnapshotCodec codec) throws IOException {
+		set(in.readBoolean());
+	}
+
+	@Override
+	public void writeToSnapshot(BitWriter out, SnapshotCodec codec) throws IOException {
+		out.writeBoolean(get());
+	}
+
 }
@@ -0,0 +1,29 @@
+package shared.net;
+
+import java.io.IOException;
+
+import shared.Entity;
+
+/**
+ * A networked Vector2f entity field holding a direction.
+ * Only the angle is sent in snapshots, so the vector should be normalised.
+ * @author Chris
+ *
+ */
+public class NetworkedDirection extends NetworkedVector {
+
+	public NetworkedDirection(Entity entity) {
+		super(entity);
+	}
+
+	@Override
+	public void readFromSnapshot(BitReader in, SnapshotCodec codec) throws IOException {
+		set(codec.readDirection(in));
+	}
+
+	@Override
+	public void writeToSnapshot(BitWriter out, SnapshotCodec codec) throws IOException {
+		codec.writeDirection(out, get());
+	}
+
+}
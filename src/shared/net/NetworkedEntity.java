@@ -32,12 +32,10 @@ public class NetworkedEntity extends NetworkedEntityField<Entity> {
 			return;
 		}
 		
-		for (Entity worldEntity : this.entity.getWorld().getEntities()) {
-			if (worldEntity.getID() == entityID) {
-				set(worldEntity);
-				break;
-			}
-		}
+		Entity worldEntity = this.entity.getWorld().getEntityByID(entityID);
+		
+		if (worldEntity != null)
+			set(worldEntity);
 	}
 	
 	@Override
@@ -45,6 +43,27 @@ public class NetworkedEntity extends NetworkedEntityField<Entity> {
 		out.writeInt(getEntityFieldEntityID());
 	}
 
+	@Override
+	public void readFromSnapshot(BitReader in, SnapshotCodec codec) throws IOException {
+		// IDs are sent one higher so no entity, -1, is zero
+		this.entityID = in.readVarInt() - 1;
+		
+		if (entityID == -1) {
+			set(null);
+			return;
+		}
+		
+		Entity worldEntity = this.entity.getWorld().getEntityByID(entityID);
+		
+		if (worldEntity != null)
+			set(worldEntity);
+	}
+	
+	@Override
+	public void writeToSnapshot(BitWriter out, SnapshotCodec codec) throws IOException {
+		out.writeVarLong(getEntityFieldEntityID() + 1);
+	}
+
 	public int getEntityFieldEntityID() {
 		return entityID;		
 	}
@@ -57,14 +76,12 @@ public class NetworkedEntity extends NetworkedEntityField<Entity> {
 		
 		// Check if entity exists in world here as well
 		// in case the entity just didn't exist during init
-		for (Entity worldEntity : this.entity.getWorld().getEntities()) {
-			if (worldEntity.getID() == entityID) {
-				set(worldEntity);
-				return worldEntity;
-			}
-		}
+		Entity worldEntity = this.entity.getWorld().getEntityByID(entityID);
+		
+		if (worldEntity != null)
+			set(worldEntity);
 		
-		return null;
+		return worldEntity;
 	}
 	
 	public void set(Entity entity) {
@@ -23,14 +23,10 @@ public abstract class NetworkedEntityField<T> implements Cloneable {
 
 	public NetworkedEntityField(Entity entity, T initialValue) {
 		this.entity = entity;
-		this.fieldID = entity.getNextFieldID();
+		this.fieldID = entity.registerNetworkedEntityField(this);
 		this.value = initialValue;
 		
 		markValid();
-		
-		if (entity.getWorld().isClient()) {
-			entity.getNetworkedEntityFields().add(this);
-		}
 	}
 
 	public NetworkedEntityField(Entity entity) {
@@ -82,6 +78,28 @@ public abstract class NetworkedEntityField<T> implements Cloneable {
 	public abstract void readFromNetStream(DataInputStream in) throws IOException;
 	public abstract void writeToNetStream(DataOutputStream out) throws IOException;
 
+	/**
+	 * Reads the value from a snapshot.
+	 * Fields with a compact encoding override this, others are read as in other messages.
+	 * @param in the reader
+	 * @param codec the codec used for the snapshot
+	 * @throws IOException if the value can't be read
+	 */
+	public void readFromSnapshot(BitReader in, SnapshotCodec codec) throws IOException {
+		readFromNetStream(in.getDataInputStream());
+	}
+
+	/**
+	 * Writes the value to a snapshot.
+	 * Fields with a compact encoding override this, others are written as in other messages.
+	 * @param out the writer
+	 * @param codec the codec used for the snapshot
+	 * @throws IOException if the value can't be written
+	 */
+	public void writeToSnapshot(BitWriter out, SnapshotCodec codec) throws IOException {
+		writeToNetStream(out.getDataOutputStream());
+	}
+
 	/**
 	 * Marks the field as valid, i.e. can be used.
 	 * Fields are marked as valid automatically when set.
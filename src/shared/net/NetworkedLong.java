@@ -31,4 +31,14 @@ public class NetworkedLong extends NetworkedEntityField<Long> {
 		out.writeLong(get());
 	}
 
+	@Override
+	public void readFromSnapshot(BitReader in, SnapshotCodec codec) throws IOException {
+		set(in.readSignedVarLong());
+	}
+
+	@Override
+	public void writeToSnapshot(BitWriter out, SnapshotCodec codec) throws IOException {
+		out.writeSignedVarLong(get());
+	}
+
 }
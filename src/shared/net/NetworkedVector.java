@@ -30,10 +30,28 @@ public class NetworkedVector extends NetworkedEntityField<Vector2f> {
 		set(new Vector2f(in.readFloat(), in.readFloat()));
 	}
 
+	@Override
+	public void setNoBroadcast(Vector2f newValue) {
+		super.setNoBroadcast(newValue);
+		
+		if (this.entity != null)
+			this.entity.onNetworkedVectorSet(this);
+	}
+
 	@Override
 	public void writeToNetStream(DataOutputStream out) throws IOException {
 		out.writeFloat(get().getX());
 		out.writeFloat(get().getY());
 	}
 
+	@Override
+	public void readFromSnapshot(BitReader in, SnapshotCodec codec) throws IOException {
+		set(codec.readPosition(in));
+	}
+
+	@Override
+	public void writeToSnapshot(BitWriter out, SnapshotCodec codec) throws IOException {
+		codec.writePosition(out, get());
+	}
+
 }
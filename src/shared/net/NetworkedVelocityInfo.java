@@ -51,6 +51,25 @@ public class NetworkedVelocityInfo extends NetworkedEntityField {
 		out.writeBoolean(this.changed);
 	}
 	
+	@Override
+	public void readFromSnapshot(BitReader in, SnapshotCodec codec) throws IOException {
+		this.info = new VelocityInfo();
+		this.info.velocityStartPosition = codec.readPosition(in);
+		this.info.velocity = codec.readVelocity(in);
+		this.info.velocitySetTime = codec.readTime(in);
+		this.info.sequence = in.readVarInt();
+		this.changed = in.readBoolean();
+	}
+
+	@Override
+	public void writeToSnapshot(BitWriter out, SnapshotCodec codec) throws IOException {
+		codec.writePosition(out, this.info.velocityStartPosition);
+		codec.writeVelocity(out, this.info.velocity);
+		codec.writeTime(out, this.info.velocitySetTime);
+		out.writeVarLong(this.info.sequence);
+		out.writeBoolean(this.changed);
+	}
+	
 	public void update(Vector2f position, Vector2f velocity) {
 		this.info.velocityStartPosition = new Vector2f(position);
 		this.info.velocity = new Vector2f(velocity);
@@ -0,0 +1,229 @@
+package shared.net;
+
+import java.io.IOException;
+
+import org.lwjgl.util.vector.Vector2f;
+
+/**
+ * Compact encodings for entity field values sent in snapshots.
+ * Positions are sent in fixed point within the map bounds, using only the
+ * bits needed for the map's size. Times are sent relative to the snapshot's
+ * server time, which is set before each snapshot is written or read.
+ * @author Chris
+ *
+ */
+public class SnapshotCodec {
+
+
+	//****Class variables****
+
+
+	// Bottom left corner of the area positions can be sent in
+	private final float minX;
+	private final float minY;
+
+	// Largest fixed point position on each axis
+	private final long maxPositionX;
+	private final long maxPositionY;
+
+	// Bits per fixed point position on each axis
+	private final int positionBitsX;
+	private final int positionBitsY;
+
+	// Largest fixed point direction angle
+	private static final long MAX_DIRECTION = (1L << NetworkConstants.QUANTIZED_DIRECTION_BITS) - 1;
+
+	// Server time of the snapshot being written or read
+	private long baseTime = 0;
+
+
+	//****Constructors****
+
+
+	/**
+	 * Constructor.
+	 * @param mapWidth width of the map, which is centred on the origin
+	 * @param mapHeight height of the map
+	 */
+	public SnapshotCodec(int mapWidth, int mapHeight) {
+
+		float halfWidth = mapWidth / 2.0f + NetworkConstants.QUANTIZED_BOUNDS_MARGIN;
+		float halfHeight = mapHeight / 2.0f + NetworkConstants.QUANTIZED_BOUNDS_MARGIN;
+
+		this.minX = -halfWidth;
+		this.minY = -halfHeight;
+
+		this.maxPositionX = (long)Math.ceil(2 * halfWidth * NetworkConstants.QUANTIZED_POSITION_SCALE);
+		this.maxPositionY = (long)Math.ceil(2 * halfHeight * NetworkConstants.QUANTIZED_POSITION_SCALE);
+
+		this.positionBitsX = BitWriter.bitsFor(this.maxPositionX);
+		this.positionBitsY = BitWriter.bitsFor(this.maxPositionY);
+
+	}
+
+
+	//****Class methods****
+
+
+	/**
+	 * Writes a position, positions outside the map bounds are moved to the nearest edge.
+	 * @param out the writer
+	 * @param position the position
+	 * @throws IOException if the position can't be written
+	 */
+	public void writePosition(BitWriter out, Vector2f position) throws IOException {
+
+		out.writeBits(quantize(position.getX() - this.minX, NetworkConstants.QUANTIZED_POSITION_SCALE, this.maxPositionX), this.positionBitsX);
+		out.writeBits(quantize(position.getY() - this.minY, NetworkConstants.QUANTIZED_POSITION_SCALE, this.maxPositionY), this.positionBitsY);
+
+	}
+
+	/**
+	 * Reads a position.
+	 * @param in the reader
+	 * @return the position
+	 * @throws IOException if the position can't be read
+	 */
+	public Vector2f readPosition(BitReader in) throws IOException {
+
+		float x = in.readBits(this.positionBitsX) / NetworkConstants.QUANTIZED_POSITION_SCALE + this.minX;
+		float y = in.readBits(this.positionBitsY) / NetworkConstants.QUANTIZED_POSITION_SCALE + this.minY;
+
+		return new Vector2f(x, y);
+
+	}
+
+	/**
+	 * Writes a velocity in fixed point, speeds near zero take the fewest bits.
+	 * @param out the writer
+	 * @param velocity the velocity
+	 * @throws IOException if the velocity can't be written
+	 */
+	public void writeVelocity(BitWriter out, Vector2f velocity) throws IOException {
+
+		out.writeSignedVarLong(Math.round(velocity.getX() * NetworkConstants.QUANTIZED_VELOCITY_SCALE));
+		out.writeSignedVarLong(Math.round(velocity.getY() * NetworkConstants.QUANTIZED_VELOCITY_SCALE));
+
+	}
+
+	/**
+	 * Reads a velocity.
+	 * @param in the reader
+	 * @return the velocity
+	 * @throws IOException if the velocity can't be read
+	 */
+	public Vector2f readVelocity(BitReader in) throws IOException {
+
+		float x = in.readSignedVarLong() / NetworkConstants.QUANTIZED_VELOCITY_SCALE;
+		float y = in.readSignedVarLong() / NetworkConstants.QUANTIZED_VELOCITY_SCALE;
+
+		return new Vector2f(x, y);
+
+	}
+
+	/**
+	 * Writes a unit vector as a fixed point angle.
+	 * A zero vector is sent as one bit.
+	 * @param out the writer
+	 * @param direction the direction, its length is not kept
+	 * @throws IOException if the direction can't be written
+	 */
+	public void writeDirection(BitWriter out, Vector2f direction) throws IOException {
+
+		boolean zero = direction.getX() == 0 && direction.getY() == 0;
+
+		out.writeBoolean(zero);
+
+		if (zero)
+			return;
+
+		double turns = Math.atan2(direction.getY(), direction.getX()) / (2 * Math.PI);
+
+		if (turns < 0)
+			turns += 1;
+
+		out.writeBits(Math.round(turns * (MAX_DIRECTION + 1)) & MAX_DIRECTION, NetworkConstants.QUANTIZED_DIRECTION_BITS);
+
+	}
+
+	/**
+	 * Reads a direction.
+	 * @param in the reader
+	 * @return a unit vector, or the zero vector
+	 * @throws IOException if the direction can't be read
+	 */
+	public Vector2f readDirection(BitReader in) throws IOException {
+
+		if (in.readBoolean())
+			return new Vector2f(0.0f, 0.0f);
+
+		double angle = in.readBits(NetworkConstants.QUANTIZED_DIRECTION_BITS) * 2 * Math.PI / (MAX_DIRECTION + 1);
+
+		return new Vector2f((float)Math.cos(angle), (float)Math.sin(angle));
+
+	}
+
+	/**
+	 * Writes a time relative to the snapshot's server time.
+	 * @param out the writer
+	 * @param time the time
+	 * @throws IOException if the time can't be written
+	 */
+	public void writeTime(BitWriter out, long time) throws IOException {
+
+		out.writeSignedVarLong(time - this.baseTime);
+
+	}
+
+	/**
+	 * Reads a time.
+	 * @param in the reader
+	 * @return the time
+	 * @throws IOException if the time can't be read
+	 */
+	public long readTime(BitReader in) throws IOException {
+
+		return this.baseTime + in.readSignedVarLong();
+
+	}
+
+	/**
+	 * Converts a value to fixed point, limited to a range.
+	 * @param value the value, from zero
+	 * @param scale fixed point steps per unit
+	 * @param maxValue largest fixed point value
+	 * @return the fixed point value
+	 */
+	private static long quantize(float value, float scale, long maxValue) {
+
+		long fixed = Math.round(value * scale);
+
+		return Math.max(0, Math.min(maxValue, fixed));
+
+	}
+
+
+	//****Getters and setters****
+
+
+	/**
+	 * Sets the server time of the snapshot being written or read.
+	 * @param baseTime the time
+	 */
+	public void setBaseTime(long baseTime) {
+
+		this.baseTime = baseTime;
+
+	}
+
+	/**
+	 * Gets the server time of the snapshot being written or read.
+	 * @return the time
+	 */
+	public long getBaseTime() {
+
+		return this.baseTime;
+
+	}
+
+}